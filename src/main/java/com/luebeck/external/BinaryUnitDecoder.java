@@ -0,0 +1,190 @@
+package com.luebeck.external;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads compiled units and quantities written by a BinaryUnitEncoder from NIO buffers. The decoder is a reusable
+ * cursor: each call overwrites the fields of the last decoded unit or quantity, so decoding does not allocate.
+ * Converting a decoded quantity into another commensurable unit takes a comparison of canon vectors and a division
+ * of magnitudes instead of parsing a unit string. Not thread-safe.
+ */
+public final class BinaryUnitDecoder {
+
+    private int flags;
+    private int registryVersion;
+    private long dimensions;
+    private double magnitude;
+    private long expressionId;
+    private double value;
+    private boolean reference;
+
+    /**
+     * Reads a compiled unit at the position of a buffer, advancing the position.
+     * @param buffer - the buffer
+     * @return Whether a unit was read, which fails if fewer than UNIT_SIZE bytes remain or the format version is
+     * unknown; the position is not changed then
+     */
+    public boolean decodeUnit(ByteBuffer buffer){
+        if (buffer.remaining() < BinaryUnitEncoder.UNIT_SIZE){
+            return false;
+        }
+        int start = buffer.position();
+        if (buffer.get(start) != BinaryUnitEncoder.FORMAT_VERSION){
+            return false;
+        }
+        flags = buffer.get(start + 1) & 0xFF;
+        registryVersion = buffer.getInt(start + 4);
+        dimensions = buffer.getLong(start + 8);
+        magnitude = buffer.getDouble(start + 16);
+        expressionId = buffer.getLong(start + 24);
+        reference = false;
+        buffer.position(start + BinaryUnitEncoder.UNIT_SIZE);
+        return true;
+    }
+
+    /**
+     * Reads a quantity at the position of a buffer, advancing the position. If the unit of the quantity is a
+     * reference, only its expression ID is known afterwards and the caller resolves it against the units received
+     * before.
+     * @param buffer - the buffer
+     * @return Whether a quantity was read, which fails if the buffer ends early or a varint or the format version is
+     * malformed; the position is not changed then
+     */
+    public boolean decodeQuantity(ByteBuffer buffer){
+        int start = buffer.position();
+        if (!buffer.hasRemaining()){
+            return false;
+        }
+        int header = buffer.get() & 0xFF;
+        double decodedValue;
+        if ((header & BinaryUnitEncoder.QUANTITY_INTEGRAL) != 0){
+            long zigzag = getVarLong(buffer);
+            if (buffer.position() == start + 1){
+                buffer.position(start);
+                return false;
+            }
+            decodedValue = (zigzag >>> 1) ^ -(zigzag & 1);
+        } else if (buffer.remaining() >= Double.BYTES){
+            decodedValue = buffer.getDouble();
+        } else {
+            buffer.position(start);
+            return false;
+        }
+
+        if ((header & BinaryUnitEncoder.QUANTITY_REFERENCE) != 0){
+            int idStart = buffer.position();
+            long id = getVarLong(buffer);
+            if (buffer.position() == idStart){
+                buffer.position(start);
+                return false;
+            }
+            flags = 0;
+            registryVersion = 0;
+            dimensions = 0;
+            magnitude = Double.NaN;
+            expressionId = id;
+            reference = true;
+        } else if (!decodeUnit(buffer)){
+            buffer.position(start);
+            return false;
+        }
+        value = decodedValue;
+        return true;
+    }
+
+    /**
+     * Returns the value of the last decoded quantity.
+     * @return Value of the quantity
+     */
+    public double getValue(){
+        return value;
+    }
+
+    /**
+     * Determines whether the unit of the last decoded quantity is a reference to a unit received before.
+     * @return Status of the unit being a reference
+     */
+    public boolean isReference(){
+        return reference;
+    }
+
+    /**
+     * Returns the flags of the last decoded unit.
+     * @return Flags of the unit
+     */
+    public int getFlags(){
+        return flags;
+    }
+
+    /**
+     * Returns the registry version of the last decoded unit.
+     * @return Registry version or 0 if none was written
+     */
+    public int getRegistryVersion(){
+        return registryVersion;
+    }
+
+    /**
+     * Returns the packed canon vector of the last decoded unit.
+     * @return Packed canon vector
+     */
+    public long getDimensions(){
+        return dimensions;
+    }
+
+    /**
+     * Returns the magnitude of the last decoded unit in base units.
+     * @return Magnitude of the unit or NaN if the unit is a reference
+     */
+    public double getMagnitude(){
+        return magnitude;
+    }
+
+    /**
+     * Returns the expression ID of the last decoded unit.
+     * @return Expression ID or 0 if none was written
+     */
+    public long getExpressionId(){
+        return expressionId;
+    }
+
+    /**
+     * Creates the canonical form of the last decoded unit.
+     * @return The canonical form or null if the unit is a reference
+     */
+    public CanonicalForm toCanonicalForm(){
+        return reference ? null : CanonicalForm.of(dimensions, magnitude);
+    }
+
+    /**
+     * Converts the value of the last decoded quantity into a target unit.
+     * @param target - the canonical form of the target unit
+     * @return The converted value or NaN if the unit is a reference, non-linear or not commensurable with the target
+     */
+    public double valueIn(CanonicalForm target){
+        if (reference || (flags & BinaryUnitEncoder.FLAG_NON_LINEAR) != 0 || dimensions != target.getDimensions()){
+            return Double.NaN;
+        }
+        return value * magnitude / target.getMagnitude();
+    }
+
+    /**
+     * Reads an unsigned varint of 7 bits per byte, least significant group first.
+     * @param buffer - the buffer
+     * @return The value, or 0 with the position unchanged if the varint is truncated or longer than 10 bytes
+     */
+    private static long getVarLong(ByteBuffer buffer){
+        int start = buffer.position();
+        long result = 0;
+        for (int shift = 0; shift < 64 && buffer.hasRemaining(); shift += 7) {
+            byte b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0){
+                return result;
+            }
+        }
+        buffer.position(start);
+        return 0;
+    }
+
+}
@@ -0,0 +1,186 @@
+package com.luebeck.external;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes compiled units and quantities to NIO buffers, so that services can pass units between JVMs without parsing
+ * them again on every hop. A compiled unit takes UNIT_SIZE bytes in the byte order of the buffer:
+ * <pre>
+ *  0  byte    format version
+ *  1  byte    flags
+ *  2  short   reserved, 0
+ *  4  int     registry version, 0 unless FLAG_REGISTRY_VERSION is set
+ *  8  long    packed canon vector
+ * 16  double  magnitude in base units
+ * 24  long    expression ID, 0 unless FLAG_EXPRESSION_ID is set
+ * </pre>
+ * A quantity starts with a header byte, followed by its value, either as a zigzag varint if QUANTITY_INTEGRAL is set
+ * or as a double, and by its unit, either as the varint expression ID of a unit sent before if QUANTITY_REFERENCE is
+ * set or as an inline compiled unit. The registry version and expression IDs are assigned by the caller, e.g. to
+ * detect peers using a different unit registry and to refer to units already sent. Apart from compiling unit strings,
+ * encoding does not allocate.
+ */
+public final class BinaryUnitEncoder {
+
+    public static final int UNIT_SIZE = 32;
+    public static final byte FORMAT_VERSION = 1;
+    public static final int FLAG_REGISTRY_VERSION = 0x01;
+    public static final int FLAG_EXPRESSION_ID = 0x02;
+    public static final int FLAG_NON_LINEAR = 0x04;
+    public static final int QUANTITY_INTEGRAL = 0x01;
+    public static final int QUANTITY_REFERENCE = 0x02;
+    public static final int MAX_QUANTITY_SIZE = 1 + Double.BYTES + UNIT_SIZE;
+    private static final double MAX_INTEGRAL = 1L << 53;
+
+    private final UcumLBKService ucumService;
+    private final int registryVersion;
+
+    /**
+     * Constructor for an encoder that writes no registry version.
+     * @param ucumService - the UCUM service used to compile units
+     */
+    public BinaryUnitEncoder(UcumLBKService ucumService){
+        this(ucumService, 0);
+    }
+
+    /**
+     * Constructor for an encoder.
+     * @param ucumService - the UCUM service used to compile units
+     * @param registryVersion - the version of the unit registry written with every unit or 0 to write none
+     */
+    public BinaryUnitEncoder(UcumLBKService ucumService, int registryVersion){
+        this.ucumService = ucumService;
+        this.registryVersion = registryVersion;
+    }
+
+    /**
+     * Compiles a unit and writes it at the position of a buffer, advancing the position.
+     * @param buffer - the buffer
+     * @param unit - the unit, which must not be arbitrary
+     * @param expressionId - the ID the unit can be referred to with later or 0 for none
+     * @return Whether the unit was written, which fails if the unit cannot be canonized or the buffer is too small
+     */
+    public boolean encodeUnit(ByteBuffer buffer, String unit, long expressionId){
+        if (buffer.remaining() < UNIT_SIZE){
+            return false;
+        }
+        CanonicalForm form = ucumService.generateCanonicalForm(unit);
+        if (form == null){
+            return false;
+        }
+        int flags = ucumService.isConvertibleByFactor(unit) ? 0 : FLAG_NON_LINEAR;
+        encodeUnit(buffer, form.getDimensions(), form.getMagnitude(), flags, registryVersion, expressionId);
+        return true;
+    }
+
+    /**
+     * Compiles a unit and writes a quantity with the inline unit at the position of a buffer, advancing the
+     * position.
+     * @param buffer - the buffer
+     * @param value - the value
+     * @param unit - the unit, which must not be arbitrary
+     * @param expressionId - the ID the unit can be referred to with later or 0 for none
+     * @return Whether the quantity was written, which fails if the unit cannot be canonized or the buffer is too
+     * small
+     */
+    public boolean encodeQuantity(ByteBuffer buffer, double value, String unit, long expressionId){
+        if (buffer.remaining() < MAX_QUANTITY_SIZE){
+            return false;
+        }
+        int start = buffer.position();
+        encodeValue(buffer, value, 0);
+        if (!encodeUnit(buffer, unit, expressionId)){
+            buffer.position(start);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes a compiled unit at the position of a buffer, advancing the position.
+     * @param buffer - the buffer with at least UNIT_SIZE bytes remaining
+     * @param dimensions - the packed canon vector
+     * @param magnitude - the magnitude in base units
+     * @param flags - the flags of the unit, e.g. FLAG_NON_LINEAR for special units
+     * @param registryVersion - the version of the unit registry or 0 for none
+     * @param expressionId - the expression ID or 0 for none
+     */
+    public static void encodeUnit(ByteBuffer buffer, long dimensions, double magnitude, int flags,
+                                  int registryVersion, long expressionId){
+        flags &= FLAG_NON_LINEAR;
+        if (registryVersion != 0){
+            flags |= FLAG_REGISTRY_VERSION;
+        }
+        if (expressionId != 0){
+            flags |= FLAG_EXPRESSION_ID;
+        }
+        buffer.put(FORMAT_VERSION)
+                .put((byte) flags)
+                .putShort((short) 0)
+                .putInt(registryVersion)
+                .putLong(dimensions)
+                .putDouble(magnitude)
+                .putLong(expressionId);
+    }
+
+    /**
+     * Writes a quantity whose unit is referred to by the expression ID of a unit sent before at the position of a
+     * buffer, advancing the position.
+     * @param buffer - the buffer with at least MAX_QUANTITY_SIZE bytes remaining
+     * @param value - the value
+     * @param expressionId - the expression ID of the unit
+     */
+    public static void encodeQuantity(ByteBuffer buffer, double value, long expressionId){
+        encodeValue(buffer, value, QUANTITY_REFERENCE);
+        putVarLong(buffer, expressionId);
+    }
+
+    /**
+     * Writes a quantity with an inline compiled unit at the position of a buffer, advancing the position.
+     * @param buffer - the buffer with at least MAX_QUANTITY_SIZE bytes remaining
+     * @param value - the value
+     * @param dimensions - the packed canon vector of the unit
+     * @param magnitude - the magnitude of the unit in base units
+     * @param flags - the flags of the unit
+     * @param registryVersion - the version of the unit registry or 0 for none
+     * @param expressionId - the expression ID of the unit or 0 for none
+     */
+    public static void encodeQuantity(ByteBuffer buffer, double value, long dimensions, double magnitude, int flags,
+                                      int registryVersion, long expressionId){
+        encodeValue(buffer, value, 0);
+        encodeUnit(buffer, dimensions, magnitude, flags, registryVersion, expressionId);
+    }
+
+    /**
+     * Writes the header of a quantity and its value. Integral values are written as zigzag varints, which takes a
+     * single byte for small counts; all other values, including -0.0, are written as doubles.
+     * @param buffer - the buffer
+     * @param value - the value
+     * @param header - the header bits describing the unit
+     */
+    private static void encodeValue(ByteBuffer buffer, double value, int header){
+        long integral = (long) value;
+        if (integral == value && Math.abs(value) <= MAX_INTEGRAL &&
+                (integral != 0 || Double.doubleToRawLongBits(value) == 0)){
+            buffer.put((byte) (header | QUANTITY_INTEGRAL));
+            putVarLong(buffer, (integral << 1) ^ (integral >> 63));
+        } else {
+            buffer.put((byte) header);
+            buffer.putDouble(value);
+        }
+    }
+
+    /**
+     * Writes an unsigned varint of 7 bits per byte, least significant group first.
+     * @param buffer - the buffer
+     * @param value - the value, read as unsigned
+     */
+    private static void putVarLong(ByteBuffer buffer, long value){
+        while ((value & ~0x7FL) != 0){
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.luebeck.external;
+
+import com.luebeck.internal.UcumFunction;
+
+import java.util.Map;
+
+class BoundedCache<K, V> {
+
+    private final Map<K, V> entries;
+
+    /**
+     * Constructor for a bounded cache of this package. It is a facade over the cache shared by all UcumFunction
+     * instances, which stays internal: look-ups are lock-free and, once the capacity is exceeded, entries that have
+     * not been looked up recently are evicted. Thread-safe.
+     * @param capacity - the maximum amount of entries held by this cache, at least 1
+     */
+    BoundedCache(int capacity){
+        this.entries = UcumFunction.createBoundedCache(capacity);
+    }
+
+    /**
+     * Looks up an entry in this cache.
+     * @param key - the key of the entry
+     * @return The cached value or null if there is none
+     */
+    V get(K key){
+        return key == null ? null : entries.get(key);
+    }
+
+    /**
+     * Stores an entry in this cache, possibly evicting entries that have not been looked up recently. Entries with a
+     * null key or value are not stored.
+     * @param key - the key of the entry
+     * @param value - the value of the entry
+     */
+    void put(K key, V value){
+        entries.put(key, value);
+    }
+
+    /**
+     * Returns the amount of entries currently held by this cache.
+     * @return Amount of cached entries
+     */
+    int size(){
+        return entries.size();
+    }
+
+}
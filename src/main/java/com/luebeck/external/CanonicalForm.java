@@ -0,0 +1,158 @@
+package com.luebeck.external;
+
+import com.luebeck.internal.DimensionVector;
+
+/**
+ * Immutable canonical form of a UCUM unit: its packed canon vector and its magnitude in base units. Canonical forms
+ * are equal if both their canon vectors and their magnitudes are equal, which makes them usable as keys.
+ */
+public final class CanonicalForm {
+
+    private final long dimensions;
+    private final double magnitude;
+    private String rendered;
+
+    /**
+     * Constructor for a canonical form.
+     * @param dimensions - the packed canon vector
+     * @param magnitude - the magnitude in base units
+     */
+    private CanonicalForm(long dimensions, double magnitude){
+        this.dimensions = dimensions;
+        this.magnitude = magnitude;
+    }
+
+    /**
+     * Generates a canonical form from its packed canon vector and magnitude, for example after reading them from
+     * storage.
+     * @param dimensions - the packed canon vector as returned by getDimensions()
+     * @param magnitude - the magnitude in base units
+     * @return The canonical form
+     */
+    public static CanonicalForm of(long dimensions, double magnitude){
+        return new CanonicalForm(dimensions, magnitude);
+    }
+
+    /**
+     * Returns the packed canon vector, 0 if the unit is dimensionless. Commensurable units share the same packed
+     * canon vector.
+     * @return Packed canon vector
+     */
+    public long getDimensions(){
+        return dimensions;
+    }
+
+    /**
+     * Returns the exponent of a single base unit.
+     * @param baseUnit - the index of the base unit in [m,s,g,rad,K,C,cd]
+     * @return Exponent of the base unit
+     */
+    public int getExponent(int baseUnit){
+        return DimensionVector.exponent(dimensions, baseUnit);
+    }
+
+    /**
+     * Returns the canon vector as follows: [m,s,g,rad,K,C,cd], where each index represents a tally of its respective
+     * base unit.
+     * @return A copy of the canon vector
+     */
+    public int[] getCanonVector(){
+        return DimensionVector.unpack(dimensions);
+    }
+
+    /**
+     * Returns the magnitude of the unit in base units (e.g., 0.001 for mm).
+     * @return Magnitude in base units
+     */
+    public double getMagnitude(){
+        return magnitude;
+    }
+
+    /**
+     * Determines whether this canonical form is commensurable with another one.
+     * @param other - the other canonical form
+     * @return Status of the commensurability of both canonical forms
+     */
+    public boolean isCommensurable(CanonicalForm other){
+        return dimensions == other.dimensions;
+    }
+
+    /**
+     * Multiplies this canonical form with another one.
+     * @param other - the other canonical form
+     * @return The product of both canonical forms
+     * @throws ArithmeticException when an exponent of the product is too large to be packed
+     */
+    public CanonicalForm multiply(CanonicalForm other){
+        return new CanonicalForm(DimensionVector.add(dimensions, other.dimensions), magnitude * other.magnitude);
+    }
+
+    /**
+     * Divides this canonical form by another one.
+     * @param other - the divisor
+     * @return The quotient of both canonical forms
+     * @throws ArithmeticException when an exponent of the quotient is too large to be packed
+     */
+    public CanonicalForm divide(CanonicalForm other){
+        return new CanonicalForm(DimensionVector.subtract(dimensions, other.dimensions), magnitude / other.magnitude);
+    }
+
+    /**
+     * Scales the magnitude of this canonical form by a quantity.
+     * @param quantity - the quantity
+     * @return The scaled canonical form
+     */
+    public CanonicalForm scale(double quantity){
+        return new CanonicalForm(dimensions, magnitude * quantity);
+    }
+
+    /**
+     * Appends the base unit representation of this canonical form (e.g., m.s-2) to a builder.
+     * @param output - the builder the representation is appended to
+     * @return The given builder
+     */
+    public StringBuilder appendBaseUnits(StringBuilder output){
+        return DimensionVector.appendBaseUnits(dimensions, output);
+    }
+
+    /**
+     * Appends this canonical form to a builder as generateCanonizedForm renders it: [base unit term], [value].
+     * @param output - the builder the canonical form is appended to
+     * @return The given builder
+     */
+    public StringBuilder appendTo(StringBuilder output){
+        return appendBaseUnits(output).append(", ").append(magnitude);
+    }
+
+    /**
+     * Renders this canonical form as generateCanonizedForm does. The rendering is created on first use.
+     * @return The rendered canonical form
+     */
+    @Override
+    public String toString(){
+        String result = rendered;
+        if (result == null){
+            result = appendTo(new StringBuilder()).toString();
+            rendered = result;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object other){
+        if (this == other){
+            return true;
+        }
+        if (!(other instanceof CanonicalForm)){
+            return false;
+        }
+        CanonicalForm form = (CanonicalForm) other;
+        return dimensions == form.dimensions && Double.compare(magnitude, form.magnitude) == 0;
+    }
+
+    @Override
+    public int hashCode(){
+        return 31 * Long.hashCode(dimensions) + Double.hashCode(magnitude);
+    }
+
+}
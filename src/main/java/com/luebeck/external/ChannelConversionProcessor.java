@@ -0,0 +1,155 @@
+package com.luebeck.external;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Stage of a reactive stream that converts device samples into a target unit per channel, e.g. every sample of the
+ * channel NIBP into mm[Hg]. Channels tend to send long runs of samples in the same unit, so each channel remembers
+ * the unit and conversion factor of its last sample and only resolves again when the unit changes, which an
+ * identity or hash check detects. Factors are shared among channels of the same target unit. Channels without a
+ * target unit pass through unchanged; samples whose unit cannot be converted into the target unit of their channel
+ * are dropped and counted.
+ * <p>
+ * Upstream demand follows downstream demand: samples are requested in batches of the buffer capacity and
+ * publishing blocks while a subscriber's buffer is full, so a slow subscriber slows down the upstream publisher
+ * instead of filling up memory.
+ */
+public class ChannelConversionProcessor extends SubmissionPublisher<ChannelSample>
+        implements Flow.Processor<ChannelSample, ChannelSample> {
+
+    private final UcumLBKService ucumService;
+    private final Map<String, String> targetUnits;
+    private final HashMap<String, ConversionFactors> factorsByTarget = new HashMap<>();
+    private final HashMap<String, ChannelState> channels = new HashMap<>();
+    private final int batchSize;
+    private Flow.Subscription subscription;
+    private int outstanding;
+    private volatile long rejectedCount;
+
+    /**
+     * Constructor for a processor delivering to subscribers on the common pool with the default buffer capacity.
+     * @param ucumService - the UCUM service used for validation and conversion
+     * @param targetUnits - the target unit of each channel
+     */
+    public ChannelConversionProcessor(UcumLBKService ucumService, Map<String, String> targetUnits){
+        this(ucumService, targetUnits, ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+    }
+
+    /**
+     * Constructor for a processor.
+     * @param ucumService - the UCUM service used for validation and conversion
+     * @param targetUnits - the target unit of each channel
+     * @param executor - the executor delivering samples to subscribers
+     * @param maxBufferCapacity - the buffer capacity of each subscriber, which is also the upstream batch size
+     */
+    public ChannelConversionProcessor(UcumLBKService ucumService, Map<String, String> targetUnits,
+                                      Executor executor, int maxBufferCapacity){
+        super(executor, maxBufferCapacity);
+        this.ucumService = ucumService;
+        this.targetUnits = new HashMap<>(targetUnits);
+        this.batchSize = getMaxBufferCapacity();
+    }
+
+    /**
+     * Returns the amount of samples dropped because their unit could not be converted.
+     * @return Amount of dropped samples
+     */
+    public long getRejectedCount(){
+        return rejectedCount;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription){
+        if (this.subscription != null){
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        outstanding = batchSize;
+        subscription.request(batchSize);
+    }
+
+    @Override
+    public void onNext(ChannelSample sample){
+        if (isClosed()){
+            subscription.cancel();
+            return;
+        }
+        ChannelSample converted = convert(sample);
+        if (converted != null){
+            submit(converted);
+        }
+        if (--outstanding <= batchSize / 2){
+            subscription.request(batchSize - outstanding);
+            outstanding = batchSize;
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable){
+        closeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete(){
+        close();
+    }
+
+    /**
+     * Converts a sample into the target unit of its channel, reusing the factor of the previous sample of the
+     * channel if the unit did not change.
+     * @param sample - the sample
+     * @return The converted sample, the sample itself if its channel has no target unit, or null if the sample is
+     * dropped
+     */
+    private ChannelSample convert(ChannelSample sample){
+        String unit = sample.getUnit();
+        ChannelState state = channels.get(sample.getChannel());
+        if (state == null){
+            String targetUnit = targetUnits.get(sample.getChannel());
+            if (targetUnit == null){
+                return sample;
+            }
+            state = new ChannelState(factorsByTarget.computeIfAbsent(targetUnit,
+                    target -> new ConversionFactors(ucumService, target)));
+            channels.put(sample.getChannel(), state);
+        }
+
+        if (unit != state.unit && (unit == null || unit.hashCode() != state.unitHash || !unit.equals(state.unit))){
+            state.factor = state.conversionFactors.factorOf(unit);
+            state.unit = unit;
+            state.unitHash = unit == null ? 0 : unit.hashCode();
+        }
+        if (Double.isNaN(state.factor)){
+            rejectedCount++;
+            return null;
+        }
+        return ChannelSample.of(sample.getChannel(), sample.getValue() * state.factor,
+                state.conversionFactors.getTargetUnit());
+    }
+
+    /**
+     * Unit and conversion factor of the last sample of a channel.
+     */
+    private static final class ChannelState {
+
+        private final ConversionFactors conversionFactors;
+        private String unit;
+        private int unitHash;
+        private double factor = Double.NaN;
+
+        /**
+         * Constructor for the state of a channel that has not seen a sample yet.
+         * @param conversionFactors - the conversion factors into the target unit of the channel
+         */
+        private ChannelState(ConversionFactors conversionFactors){
+            this.conversionFactors = conversionFactors;
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.luebeck.external;
+
+/**
+ * Immutable sample of a device channel: a value and the UCUM unit it is expressed in, e.g. a heart rate of 72 /min.
+ */
+public final class ChannelSample {
+
+    private final String channel;
+    private final double value;
+    private final String unit;
+
+    /**
+     * Constructor for a sample.
+     * @param channel - the channel that produced the sample
+     * @param value - the value
+     * @param unit - the UCUM unit of the value
+     */
+    private ChannelSample(String channel, double value, String unit){
+        this.channel = channel;
+        this.value = value;
+        this.unit = unit;
+    }
+
+    /**
+     * Generates a sample from its channel, value and unit.
+     * @param channel - the channel that produced the sample
+     * @param value - the value
+     * @param unit - the UCUM unit of the value
+     * @return The sample
+     */
+    public static ChannelSample of(String channel, double value, String unit){
+        return new ChannelSample(channel, value, unit);
+    }
+
+    /**
+     * Returns the channel that produced this sample.
+     * @return Channel of this sample
+     */
+    public String getChannel(){
+        return channel;
+    }
+
+    /**
+     * Returns the value of this sample.
+     * @return Value expressed in the unit of this sample
+     */
+    public double getValue(){
+        return value;
+    }
+
+    /**
+     * Returns the unit of this sample.
+     * @return UCUM unit of this sample
+     */
+    public String getUnit(){
+        return unit;
+    }
+
+    /**
+     * Renders this sample as its channel followed by its value and unit (e.g., HR: 72.0 /min).
+     * @return The rendered sample
+     */
+    @Override
+    public String toString(){
+        return channel + ": " + value + " " + unit;
+    }
+
+    @Override
+    public boolean equals(Object other){
+        if (this == other){
+            return true;
+        }
+        if (!(other instanceof ChannelSample)){
+            return false;
+        }
+        ChannelSample sample = (ChannelSample) other;
+        return channel.equals(sample.channel) && Double.compare(value, sample.value) == 0 &&
+                unit.equals(sample.unit);
+    }
+
+    @Override
+    public int hashCode(){
+        return 31 * (31 * channel.hashCode() + Double.hashCode(value)) + unit.hashCode();
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.luebeck.external;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Immutable class of commensurable units, represented by the base unit term all of them convert into (e.g., g.m-3
+ * for mg/dL and g/L).
+ */
+public final class CommensurabilityClass {
+
+    private final long dimensions;
+    private final String canonicalUnit;
+    private final Map<String, Double> factors;
+
+    /**
+     * Constructor for a class of commensurable units.
+     * @param dimensions - the packed canon vector shared by all members
+     * @param factors - the members and their conversion factors into the canonical unit, in order of appearance
+     */
+    CommensurabilityClass(long dimensions, Map<String, Double> factors){
+        this.dimensions = dimensions;
+        this.canonicalUnit = CanonicalForm.of(dimensions, 1).appendBaseUnits(new StringBuilder()).toString();
+        this.factors = Collections.unmodifiableMap(factors);
+    }
+
+    /**
+     * Returns the packed canon vector shared by all members.
+     * @return Packed canon vector
+     */
+    public long getDimensions(){
+        return dimensions;
+    }
+
+    /**
+     * Returns the canonical unit representing this class, its base unit term (e.g., m.s-2), 1 if it is
+     * dimensionless.
+     * @return Canonical unit
+     */
+    public String getCanonicalUnit(){
+        return canonicalUnit;
+    }
+
+    /**
+     * Returns the members of this class and the factors converting their values into the canonical unit.
+     * @return Unmodifiable map of members and their conversion factors, in order of appearance
+     */
+    public Map<String, Double> getFactors(){
+        return factors;
+    }
+
+    /**
+     * Returns the factor converting a value of a member into the canonical unit.
+     * @param unit - the member
+     * @return The conversion factor or null if the unit is not a member of this class
+     */
+    public Double getFactor(String unit){
+        return factors.get(unit);
+    }
+
+    /**
+     * Renders this class as its canonical unit followed by its members (e.g., g.m-3 [mg/dL, g/L]).
+     * @return The rendered class
+     */
+    @Override
+    public String toString(){
+        return canonicalUnit + " " + factors.keySet();
+    }
+
+}
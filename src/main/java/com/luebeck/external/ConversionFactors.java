@@ -0,0 +1,67 @@
+package com.luebeck.external;
+
+class ConversionFactors {
+
+    private static final int FACTOR_CACHE_CAPACITY = 10000;
+    private static final Double REJECTED = Double.NaN;
+
+    private final UcumLBKService ucumService;
+    private final String targetUnit;
+    private final CanonicalForm targetForm;
+    private final BoundedCache<String, Double> factors = new BoundedCache<>(FACTOR_CACHE_CAPACITY);
+
+    /**
+     * Generates the conversion factors of source units into a target unit. The target must be eligible for
+     * operations, that is neither special nor arbitrary, for any factor to be found.
+     * @param ucumService - the UCUM service used for validation and conversion
+     * @param targetUnit - the target unit
+     */
+    ConversionFactors(UcumLBKService ucumService, String targetUnit){
+        this.ucumService = ucumService;
+        this.targetUnit = targetUnit;
+        this.targetForm = ucumService.generateConvertibleForm(targetUnit);
+    }
+
+    /**
+     * Returns the target unit all factors convert into.
+     * @return Target unit
+     */
+    String getTargetUnit(){
+        return targetUnit;
+    }
+
+    /**
+     * Determines whether the target unit is eligible for conversions at all.
+     * @return Status of the target unit being convertible
+     */
+    boolean isTargetConvertible(){
+        return targetForm != null;
+    }
+
+    /**
+     * Returns the factor that converts a value of a source unit into the target unit. Source units are rejected if
+     * their packed canon vector differs from the one of the target or if they cannot be converted. Factors are
+     * cached per spelling of the source. Thread-safe.
+     * @param sourceUnit - the source unit
+     * @return The conversion factor or NaN if the source unit is rejected
+     */
+    double factorOf(String sourceUnit){
+        if (sourceUnit == null){
+            return Double.NaN;
+        }
+        Double factor = factors.get(sourceUnit);
+        if (factor == null){
+            factor = REJECTED;
+            CanonicalForm sourceForm = targetForm == null ? null : ucumService.generateCanonicalForm(sourceUnit);
+            if (sourceForm != null && sourceForm.getDimensions() == targetForm.getDimensions()){
+                Double converted = ucumService.convert(sourceUnit, targetUnit, 1);
+                if (converted != null){
+                    factor = converted;
+                }
+            }
+            factors.put(sourceUnit, factor);
+        }
+        return factor;
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.luebeck.external;
+
+/**
+ * Immutable pair of a source quantity and its conversion, as emitted by a QuantityConversionProcessor.
+ */
+public final class ConvertedQuantity {
+
+    private final UcumQuantity source;
+    private final UcumQuantity result;
+
+    /**
+     * Constructor for a converted quantity.
+     * @param source - the source quantity
+     * @param result - the converted quantity or null if the conversion failed
+     */
+    ConvertedQuantity(UcumQuantity source, UcumQuantity result){
+        this.source = source;
+        this.result = result;
+    }
+
+    /**
+     * Returns the source quantity.
+     * @return Source quantity
+     */
+    public UcumQuantity getSource(){
+        return source;
+    }
+
+    /**
+     * Returns the converted quantity.
+     * @return Converted quantity or null if the conversion failed
+     */
+    public UcumQuantity getResult(){
+        return result;
+    }
+
+    /**
+     * Determines whether the conversion succeeded.
+     * @return Status of the conversion
+     */
+    public boolean isConverted(){
+        return result != null;
+    }
+
+    /**
+     * Renders this converted quantity as its source followed by its result (e.g., 1.0 g -> 1000.0 mg).
+     * @return The rendered converted quantity
+     */
+    @Override
+    public String toString(){
+        return source + " -> " + result;
+    }
+
+}
@@ -0,0 +1,456 @@
+package com.luebeck.external;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class FhirNdjsonNormalizer {
+
+    private static final String VALUE_QUANTITY = "valueQuantity";
+    private static final String UCUM_SYSTEM = "http://unitsofmeasure.org";
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final UnitResolver unitResolver;
+
+    /**
+     * Generates a normalizer that rewrites the valueQuantity elements of FHIR Observation resources in NDJSON format.
+     * Every quantity is converted into the first of the given target units it is commensurable with. Quantities that
+     * are not commensurable with any of the target units are converted into their canonized form. Quantities in
+     * special units such as Cel or [pH] and in arbitrary units are left unchanged.
+     * @param ucumService - the UCUM service used for validation and conversion
+     * @param targetUnits - the requested target units, may be empty to always canonize
+     */
+    public FhirNdjsonNormalizer(UcumLBKService ucumService, String... targetUnits){
+        this.unitResolver = new UnitResolver(ucumService, true, targetUnits);
+    }
+
+    /**
+     * Streams an NDJSON file line by line into the output file. Memory usage only depends on the length of a single
+     * line rather than the size of the file.
+     * @param input - the NDJSON file to read from
+     * @param output - the NDJSON file to write to
+     * @return Summary of the normalization
+     * @throws IOException when reading or writing fails
+     */
+    public Summary normalize(Path input, Path output) throws IOException {
+        try (FileChannel inputChannel = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel outputChannel = FileChannel.open(output, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             Reader reader = Channels.newReader(inputChannel, StandardCharsets.UTF_8.newDecoder(), -1);
+             Writer writer = Channels.newWriter(outputChannel, StandardCharsets.UTF_8.newEncoder(), -1)) {
+            return normalize(reader, writer);
+        }
+    }
+
+    /**
+     * Streams NDJSON from the reader into the writer line by line. Every line keeps its terminator, \n or \r\n, and
+     * a last line without one stays without one. Neither the reader nor the writer is closed.
+     * @param input - the NDJSON source
+     * @param output - the NDJSON sink
+     * @return Summary of the normalization
+     * @throws IOException when reading or writing fails
+     */
+    public Summary normalize(Reader input, Writer output) throws IOException {
+        Summary summary = new Summary();
+        BufferedWriter writer = new BufferedWriter(output, BUFFER_SIZE);
+        char[] buffer = new char[BUFFER_SIZE];
+        StringBuilder line = new StringBuilder();
+        int read;
+
+        while ((read = input.read(buffer)) != -1){
+            int lineStart = 0;
+            for (int i = 0; i < read; i++){
+                if (buffer[i] == '\n'){
+                    line.append(buffer, lineStart, i - lineStart);
+                    writeLine(line, true, writer, summary);
+                    lineStart = i + 1;
+                }
+            }
+            line.append(buffer, lineStart, read - lineStart);
+        }
+        if (line.length() > 0){
+            writeLine(line, false, writer, summary);
+        }
+
+        writer.flush();
+        return summary;
+    }
+
+    /**
+     * Writes a normalized line followed by the terminator it was read with and empties the line.
+     * @param line - the line without its \n, possibly ending with \r
+     * @param terminated - whether the line was followed by \n
+     * @param writer - the NDJSON sink
+     * @param summary - the summary to be updated
+     * @throws IOException when writing fails
+     */
+    private void writeLine(StringBuilder line, boolean terminated, Writer writer, Summary summary) throws IOException {
+        boolean carriageReturn = line.length() > 0 && line.charAt(line.length() - 1) == '\r';
+        writer.write(normalizeLine(line.substring(0, line.length() - (carriageReturn ? 1 : 0)), summary));
+        if (carriageReturn){
+            writer.write('\r');
+        }
+        if (terminated){
+            writer.write('\n');
+        }
+        line.setLength(0);
+    }
+
+    /**
+     * Rewrites every valueQuantity element of a single NDJSON line. Everything but the quantities' value, code and
+     * unit is copied verbatim. Malformed lines are returned unchanged and blank lines are not counted as resources.
+     * @param line - the NDJSON line
+     * @param summary - the summary to be updated
+     * @return The rewritten line
+     */
+    String normalizeLine(String line, Summary summary){
+        StringBuilder output = null;
+        int copied = 0;
+        int i = 0;
+
+        if (line.isBlank()){
+            return line;
+        }
+        summary.resources++;
+
+        while (i < line.length()){
+            if (line.charAt(i) != '"'){
+                i++;
+                continue;
+            }
+
+            int stringEnd = skipString(line, i);
+            if (stringEnd < 0){
+                return line;
+            }
+
+            int objectStart = skipWhitespace(line, stringEnd);
+            if (!line.startsWith(VALUE_QUANTITY, i + 1) || stringEnd - i != VALUE_QUANTITY.length() + 2 ||
+                    objectStart >= line.length() || line.charAt(objectStart) != ':'){
+                i = stringEnd;
+                continue;
+            }
+
+            objectStart = skipWhitespace(line, objectStart + 1);
+            if (objectStart >= line.length() || line.charAt(objectStart) != '{'){
+                i = objectStart;
+                continue;
+            }
+
+            int[] spans = new int[8];
+            int objectEnd = scanQuantity(line, objectStart, spans);
+            if (objectEnd < 0){
+                return line;
+            }
+
+            summary.quantities++;
+            String rewritten = rewriteQuantity(line, objectStart, objectEnd, spans);
+            if (rewritten == null){
+                summary.unchanged++;
+            } else {
+                summary.converted++;
+                if (output == null){
+                    output = new StringBuilder(line.length() + 32);
+                }
+                output.append(line, copied, objectStart).append(rewritten);
+                copied = objectEnd;
+            }
+            i = objectEnd;
+        }
+
+        if (output == null){
+            return line;
+        }
+        return output.append(line, copied, line.length()).toString();
+    }
+
+    /**
+     * Scans the members of a quantity object and records the spans of its value, code, unit and system members.
+     * Spans are stored as pairs of start and end indices in the order value, code, unit, system and remain
+     * zero for absent members.
+     * @param line - the NDJSON line
+     * @param start - the index of the object's opening brace
+     * @param spans - the array receiving the spans
+     * @return Index after the object's closing brace or -1 if the object is malformed
+     */
+    private int scanQuantity(String line, int start, int[] spans){
+        int i = skipWhitespace(line, start + 1);
+
+        if (i < line.length() && line.charAt(i) == '}'){
+            return i + 1;
+        }
+
+        while (i < line.length()){
+            if (line.charAt(i) != '"'){
+                return -1;
+            }
+            int keyEnd = skipString(line, i);
+            if (keyEnd < 0){
+                return -1;
+            }
+            String key = line.substring(i + 1, keyEnd - 1);
+
+            i = skipWhitespace(line, keyEnd);
+            if (i >= line.length() || line.charAt(i) != ':'){
+                return -1;
+            }
+            int valueStart = skipWhitespace(line, i + 1);
+            int valueEnd = skipValue(line, valueStart);
+            if (valueEnd < 0){
+                return -1;
+            }
+
+            int slot = -1;
+            switch (key){
+                case "value":
+                    slot = 0;
+                    break;
+                case "code":
+                    slot = 2;
+                    break;
+                case "unit":
+                    slot = 4;
+                    break;
+                case "system":
+                    slot = 6;
+                    break;
+                default:
+                    break;
+            }
+            if (slot >= 0){
+                spans[slot] = valueStart;
+                spans[slot + 1] = valueEnd;
+            }
+
+            i = skipWhitespace(line, valueEnd);
+            if (i >= line.length()){
+                return -1;
+            } else if (line.charAt(i) == '}'){
+                return i + 1;
+            } else if (line.charAt(i) != ','){
+                return -1;
+            }
+            i = skipWhitespace(line, i + 1);
+        }
+
+        return -1;
+    }
+
+    /**
+     * Rewrites a single quantity object should its code be a convertible UCUM unit.
+     * @param line - the NDJSON line
+     * @param start - the index of the object's opening brace
+     * @param end - the index after the object's closing brace
+     * @param spans - the spans of the value, code, unit and system members
+     * @return The rewritten object or null if the quantity is left unchanged
+     */
+    private String rewriteQuantity(String line, int start, int end, int[] spans){
+        if (spans[1] == 0 || spans[3] == 0){
+            return null;
+        }
+
+        if (spans[7] != 0 && !UCUM_SYSTEM.equals(stringContent(line, spans[6], spans[7]))){
+            return null;
+        }
+
+        String code = stringContent(line, spans[2], spans[3]);
+        if (code == null){
+            return null;
+        }
+
+        double value;
+        try {
+            value = Double.parseDouble(line.substring(spans[0], spans[1]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        UnitResolver.Resolution resolution = unitResolver.resolve(code);
+        if (!resolution.isConvertible()){
+            return null;
+        }
+
+        double convertedValue = value * resolution.getFactor();
+        if (Double.isNaN(convertedValue) || Double.isInfinite(convertedValue)){
+            return null;
+        }
+
+        String number = UnitResolver.formatValue(convertedValue);
+        String quotedCode = '"' + resolution.getCode() + '"';
+        StringBuilder rewritten = new StringBuilder(end - start + 16);
+        int copied = start;
+
+        //Members are replaced in the order they appear in
+        for (int pass = 0; pass < 3; pass++) {
+            int slot = -1;
+            for (int candidate = 0; candidate < 6; candidate += 2) {
+                if (spans[candidate + 1] != 0 && spans[candidate] >= copied &&
+                        (slot < 0 || spans[candidate] < spans[slot])){
+                    slot = candidate;
+                }
+            }
+            if (slot < 0){
+                break;
+            }
+            rewritten.append(line, copied, spans[slot]).append(slot == 0 ? number : quotedCode);
+            copied = spans[slot + 1];
+        }
+
+        return rewritten.append(line, copied, end).toString();
+    }
+
+    /**
+     * Returns the content of a JSON string without its quotes. Strings containing escape sequences are not
+     * supported as UCUM codes do not require them.
+     * @param line - the NDJSON line
+     * @param start - the index of the opening quote
+     * @param end - the index after the closing quote
+     * @return Content of the string or null if it is not a plain string
+     */
+    private String stringContent(String line, int start, int end){
+        if (line.charAt(start) != '"'){
+            return null;
+        }
+        String content = line.substring(start + 1, end - 1);
+        return content.indexOf('\\') < 0 ? content : null;
+    }
+
+    /**
+     * Skips a JSON string starting at the given quote.
+     * @param line - the NDJSON line
+     * @param start - the index of the opening quote
+     * @return Index after the closing quote or -1 if the string is not terminated
+     */
+    private int skipString(String line, int start){
+        for (int i = start + 1; i < line.length(); i++) {
+            switch (line.charAt(i)){
+                case '\\':
+                    i++;
+                    break;
+                case '"':
+                    return i + 1;
+                default:
+                    break;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Skips an arbitrary JSON value, including nested objects and arrays.
+     * @param line - the NDJSON line
+     * @param start - the index of the value's first character
+     * @return Index after the value or -1 if the value is malformed
+     */
+    private int skipValue(String line, int start){
+        int depth = 0;
+        int i = start;
+
+        while (i < line.length()){
+            char currentChar = line.charAt(i);
+            switch (currentChar){
+                case '"':
+                    i = skipString(line, i);
+                    if (i < 0){
+                        return -1;
+                    }
+                    if (depth == 0){
+                        return i;
+                    }
+                    continue;
+                case '{':
+                case '[':
+                    depth++;
+                    break;
+                case '}':
+                case ']':
+                    if (depth == 0){
+                        return i == start ? -1 : i;
+                    }
+                    depth--;
+                    if (depth == 0){
+                        return i + 1;
+                    }
+                    break;
+                case ',':
+                case ' ':
+                case '\t':
+                case '\r':
+                    if (depth == 0){
+                        return i == start ? -1 : i;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            i++;
+        }
+
+        return depth == 0 && i > start ? i : -1;
+    }
+
+    /**
+     * Skips JSON whitespace.
+     * @param line - the NDJSON line
+     * @param start - the index to start at
+     * @return Index of the next non-whitespace character
+     */
+    private int skipWhitespace(String line, int start){
+        int i = start;
+        while (i < line.length() && (line.charAt(i) == ' ' || line.charAt(i) == '\t' || line.charAt(i) == '\r')){
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Tally of the resources and quantities processed by a FhirNdjsonNormalizer.
+     */
+    public static final class Summary {
+
+        private long resources;
+        private long quantities;
+        private long converted;
+        private long unchanged;
+
+        /**
+         * Returns the amount of NDJSON lines processed.
+         * @return Amount of resources
+         */
+        public long getResources() {
+            return resources;
+        }
+
+        /**
+         * Returns the amount of valueQuantity elements encountered.
+         * @return Amount of quantities
+         */
+        public long getQuantities() {
+            return quantities;
+        }
+
+        /**
+         * Returns the amount of quantities that have been rewritten.
+         * @return Amount of converted quantities
+         */
+        public long getConverted() {
+            return converted;
+        }
+
+        /**
+         * Returns the amount of quantities left unchanged because their code is missing, not a UCUM unit or
+         * cannot be converted.
+         * @return Amount of unchanged quantities
+         */
+        public long getUnchanged() {
+            return unchanged;
+        }
+    }
+
+}
@@ -0,0 +1,189 @@
+package com.luebeck.external;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class HistogramUcumMetrics implements UcumMetrics {
+
+    private final EnumMap<UcumOperation, OperationMetrics> operations = new EnumMap<>(UcumOperation.class);
+    private final ConcurrentHashMap<String, LongAdder> cacheHits = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> cacheMisses = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> cacheEvictions = new ConcurrentHashMap<>();
+
+    /**
+     * Generates a UcumMetrics implementation that keeps call counts, latency histograms and tallies of
+     * validation failures per operation as well as tallies of cache activity. Recording is lock-free.
+     */
+    public HistogramUcumMetrics(){
+        for (UcumOperation operation : UcumOperation.values()) {
+            operations.put(operation, new OperationMetrics());
+        }
+    }
+
+    @Override
+    public void recordOperation(UcumOperation operation, long validationNanos, long evaluationNanos,
+                                boolean success){
+        OperationMetrics metrics = operations.get(operation);
+        metrics.latency.record(validationNanos + evaluationNanos);
+        metrics.validationLatency.record(validationNanos);
+        if (success){
+            metrics.evaluationLatency.record(evaluationNanos);
+        } else {
+            metrics.failures.increment();
+        }
+    }
+
+    @Override
+    public void recordValidationFailure(UcumOperation operation, String reason){
+        increment(operations.get(operation).validationFailures, reason);
+    }
+
+    @Override
+    public void recordCacheHit(String cache){
+        increment(cacheHits, cache);
+    }
+
+    @Override
+    public void recordCacheMiss(String cache){
+        increment(cacheMisses, cache);
+    }
+
+    @Override
+    public void recordCacheEviction(String cache){
+        increment(cacheEvictions, cache);
+    }
+
+    /**
+     * Returns the amount of calls of an operation.
+     * @param operation - the operation
+     * @return Amount of calls
+     */
+    public long getCalls(UcumOperation operation){
+        return operations.get(operation).latency.getCount();
+    }
+
+    /**
+     * Returns the amount of calls of an operation that did not produce a result.
+     * @param operation - the operation
+     * @return Amount of failed calls
+     */
+    public long getFailures(UcumOperation operation){
+        return operations.get(operation).failures.sum();
+    }
+
+    /**
+     * Returns the histogram of the total latency of an operation in nanoseconds.
+     * @param operation - the operation
+     * @return Latency histogram
+     */
+    public LatencyHistogram getLatency(UcumOperation operation){
+        return operations.get(operation).latency;
+    }
+
+    /**
+     * Returns the histogram of the time an operation spent validating its inputs in nanoseconds.
+     * @param operation - the operation
+     * @return Validation latency histogram
+     */
+    public LatencyHistogram getValidationLatency(UcumOperation operation){
+        return operations.get(operation).validationLatency;
+    }
+
+    /**
+     * Returns the histogram of the time successful calls of an operation spent evaluating in nanoseconds.
+     * @param operation - the operation
+     * @return Evaluation latency histogram
+     */
+    public LatencyHistogram getEvaluationLatency(UcumOperation operation){
+        return operations.get(operation).evaluationLatency;
+    }
+
+    /**
+     * Returns the amount of rejected inputs of all operations by the reason they have been rejected.
+     * @return Validation failures by reason
+     */
+    public Map<String, Long> getValidationFailures(){
+        TreeMap<String, Long> total = new TreeMap<>();
+        for (OperationMetrics metrics : operations.values()) {
+            for (Map.Entry<String, LongAdder> tally : metrics.validationFailures.entrySet()) {
+                total.merge(tally.getKey(), tally.getValue().sum(), Long::sum);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the amount of rejected inputs of an operation by the reason they have been rejected.
+     * @param operation - the operation
+     * @return Validation failures of the operation by reason
+     */
+    public Map<String, Long> getValidationFailures(UcumOperation operation){
+        return snapshot(operations.get(operation).validationFailures);
+    }
+
+    /**
+     * Returns the amount of cache hits by cache.
+     * @return Cache hits by cache
+     */
+    public Map<String, Long> getCacheHits(){
+        return snapshot(cacheHits);
+    }
+
+    /**
+     * Returns the amount of cache misses by cache.
+     * @return Cache misses by cache
+     */
+    public Map<String, Long> getCacheMisses(){
+        return snapshot(cacheMisses);
+    }
+
+    /**
+     * Returns the amount of cache evictions by cache.
+     * @return Cache evictions by cache
+     */
+    public Map<String, Long> getCacheEvictions(){
+        return snapshot(cacheEvictions);
+    }
+
+    /**
+     * Increments the tally of a key, creating it on first use.
+     * @param tallies - the tallies
+     * @param key - the key whose tally is incremented
+     */
+    private static void increment(ConcurrentHashMap<String, LongAdder> tallies, String key){
+        LongAdder tally = tallies.get(key);
+        if (tally == null){
+            tally = tallies.computeIfAbsent(key, k -> new LongAdder());
+        }
+        tally.increment();
+    }
+
+    /**
+     * Copies the current state of tallies into a sorted map.
+     * @param tallies - the tallies
+     * @return Snapshot of the tallies
+     */
+    private static Map<String, Long> snapshot(ConcurrentHashMap<String, LongAdder> tallies){
+        TreeMap<String, Long> snapshot = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> tally : tallies.entrySet()) {
+            snapshot.put(tally.getKey(), tally.getValue().sum());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Call count, validation failures and latency histograms of a single operation.
+     */
+    private static final class OperationMetrics {
+
+        private final LongAdder failures = new LongAdder();
+        private final ConcurrentHashMap<String, LongAdder> validationFailures = new ConcurrentHashMap<>();
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram validationLatency = new LatencyHistogram();
+        private final LatencyHistogram evaluationLatency = new LatencyHistogram();
+    }
+
+}
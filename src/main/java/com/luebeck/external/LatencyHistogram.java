@@ -0,0 +1,126 @@
+package com.luebeck.external;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Generates an empty histogram. Values are recorded into logarithmic buckets that are split into 32 linear
+     * sub-buckets each, in the manner of an HDR histogram, which bounds the relative error of percentiles to roughly
+     * three percent. Recording is lock-free.
+     */
+    public LatencyHistogram(){
+
+    }
+
+    /**
+     * Records a single value.
+     * @param value - the value to be recorded, negative values are recorded as zero
+     */
+    public void record(long value){
+        long nonNegative = Math.max(value, 0);
+        counts.incrementAndGet(bucketIndex(nonNegative));
+        count.increment();
+        sum.add(nonNegative);
+
+        long currentMax;
+        while (nonNegative > (currentMax = max.get()) && !max.compareAndSet(currentMax, nonNegative)){
+            //Retries until the maximum is up to date
+        }
+    }
+
+    /**
+     * Returns the amount of recorded values.
+     * @return Amount of recorded values
+     */
+    public long getCount(){
+        return count.sum();
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     * @return Mean of the recorded values or 0 if nothing has been recorded
+     */
+    public double getMean(){
+        long currentCount = count.sum();
+        return currentCount == 0 ? 0 : (double) sum.sum() / currentCount;
+    }
+
+    /**
+     * Returns the largest recorded value.
+     * @return Largest recorded value or 0 if nothing has been recorded
+     */
+    public long getMax(){
+        return max.get();
+    }
+
+    /**
+     * Returns an upper bound of the value at the given percentile. The bound is exact up to the histogram's
+     * precision.
+     * @param percentile - the percentile between 0 and 100
+     * @return Value at the percentile or 0 if nothing has been recorded
+     */
+    public long getValueAtPercentile(double percentile){
+        long total = 0;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0){
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank){
+                return Math.min(bucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Determines the bucket a value is recorded in. Values below 32 have a bucket of their own, larger values share
+     * a bucket with the values that agree in their five most significant bits.
+     * @param value - the non-negative value
+     * @return Index of the bucket
+     */
+    private static int bucketIndex(long value){
+        if (value < SUB_BUCKET_COUNT){
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Determines the largest value recorded in a bucket.
+     * @param index - the index of the bucket
+     * @return Largest value of the bucket
+     */
+    private static long bucketUpperBound(int index){
+        if (index < SUB_BUCKET_COUNT){
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return ((SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+    }
+
+}
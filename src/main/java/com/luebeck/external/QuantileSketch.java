@@ -0,0 +1,239 @@
+package com.luebeck.external;
+
+/**
+ * Mergeable sketch of a distribution of values that answers quantile queries with a bounded relative error. Values
+ * are counted in logarithmically sized buckets, which is why memory usage does not depend on the amount of values:
+ * with a relative accuracy of 1% at most 2048 buckets per sign cover more than 17 orders of magnitude, beyond which
+ * the smallest buckets are collapsed. Sketches of the same accuracy can be merged, e.g. after aggregating partitions
+ * in parallel. Not thread-safe.
+ */
+public final class QuantileSketch {
+
+    public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+    private static final int MAX_BUCKETS = 2048;
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+    private final Buckets positives = new Buckets();
+    private final Buckets negatives = new Buckets();
+    private long zeroCount;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Constructor for a sketch with a relative accuracy of 1%.
+     */
+    public QuantileSketch(){
+        this(DEFAULT_RELATIVE_ACCURACY);
+    }
+
+    /**
+     * Constructor for a sketch with a given relative accuracy.
+     * @param relativeAccuracy - the relative error quantiles may have, in (0, 1)
+     */
+    public QuantileSketch(double relativeAccuracy){
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    /**
+     * Adds a value to this sketch.
+     * @param value - the finite value
+     */
+    public void add(double value){
+        if (value > Double.MIN_NORMAL){
+            positives.increment(index(value), 1);
+        } else if (value < -Double.MIN_NORMAL){
+            negatives.increment(index(-value), 1);
+        } else {
+            zeroCount++;
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds all values of another sketch to this one.
+     * @param other - the other sketch
+     * @return Whether the sketches could be merged, which requires them to share their relative accuracy
+     */
+    public boolean merge(QuantileSketch other){
+        if (Double.compare(relativeAccuracy, other.relativeAccuracy) != 0){
+            return false;
+        }
+        positives.merge(other.positives);
+        negatives.merge(other.negatives);
+        zeroCount += other.zeroCount;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return true;
+    }
+
+    /**
+     * Estimates a quantile of the values added so far, e.g. the median for 0.5. The estimate is within the relative
+     * accuracy of a value whose rank is the requested one; the quantiles 0 and 1 are the exact minimum and maximum.
+     * @param quantile - the quantile in [0, 1]
+     * @return The estimated quantile or NaN if the sketch is empty or the quantile is out of range
+     */
+    public double quantile(double quantile){
+        if (count == 0 || !(quantile >= 0 && quantile <= 1)){
+            return Double.NaN;
+        }
+        long rank = (long) (quantile * (count - 1));
+        if (rank == 0){
+            return min;
+        }
+        if (rank == count - 1){
+            return max;
+        }
+
+        long seen = 0;
+        for (int i = negatives.counts.length - 1; i >= 0; i--) {
+            seen += negatives.counts[i];
+            if (seen > rank){
+                return clamp(-value(negatives.offset + i));
+            }
+        }
+        seen += zeroCount;
+        if (seen > rank){
+            return 0;
+        }
+        for (int i = 0; i < positives.counts.length; i++) {
+            seen += positives.counts[i];
+            if (seen > rank){
+                return clamp(value(positives.offset + i));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the amount of values added to this sketch.
+     * @return Amount of values
+     */
+    public long getCount(){
+        return count;
+    }
+
+    /**
+     * Returns the relative accuracy of this sketch.
+     * @return Relative accuracy
+     */
+    public double getRelativeAccuracy(){
+        return relativeAccuracy;
+    }
+
+    /**
+     * Determines the bucket of a positive value.
+     * @param value - the positive value
+     * @return Index of the bucket
+     */
+    private int index(double value){
+        return (int) Math.ceil(Math.log(value) / logGamma);
+    }
+
+    /**
+     * Returns the value representing a bucket, which is within the relative accuracy of every value of the bucket.
+     * @param index - the index of the bucket
+     * @return The representative value
+     */
+    private double value(int index){
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    /**
+     * Limits an estimate to the range of the values added so far.
+     * @param estimate - the estimate
+     * @return The estimate within [min, max]
+     */
+    private double clamp(double estimate){
+        return Math.max(min, Math.min(max, estimate));
+    }
+
+    /**
+     * Counts of consecutive buckets starting at an offset. Once the range of buckets exceeds MAX_BUCKETS the
+     * smallest buckets are collapsed into one, which only affects the accuracy of the smallest values.
+     */
+    private static final class Buckets {
+
+        private long[] counts = new long[0];
+        private int offset;
+        private int lowest;
+        private int highest;
+
+        /**
+         * Adds to the count of a bucket, growing the range of buckets if necessary.
+         * @param index - the index of the bucket
+         * @param amount - the amount to be added
+         */
+        private void increment(int index, long amount){
+            if (counts.length == 0){
+                counts = new long[16];
+                offset = index - counts.length / 2;
+                lowest = index;
+                highest = index;
+            }
+            int newLowest = Math.min(lowest, index);
+            int newHighest = Math.max(highest, index);
+            if (newHighest - newLowest >= MAX_BUCKETS){
+                newLowest = newHighest - MAX_BUCKETS + 1;
+                index = Math.max(index, newLowest);
+            }
+            if (newLowest < offset || newHighest >= offset + counts.length){
+                resize(newLowest, newHighest);
+            } else if (newLowest > lowest){
+                collapse(newLowest);
+            }
+            lowest = newLowest;
+            highest = newHighest;
+            counts[index - offset] += amount;
+        }
+
+        /**
+         * Moves the buckets into an array covering a new range, collapsing buckets below the range into its lowest.
+         * Some headroom is left on both sides to avoid resizing on every new bucket.
+         * @param newLowest - the lowest bucket of the new range
+         * @param newHighest - the highest bucket of the new range
+         */
+        private void resize(int newLowest, int newHighest){
+            int span = newHighest - newLowest + 1;
+            int length = Math.min(MAX_BUCKETS, Math.max(span, counts.length * 2));
+            int newOffset = Math.max(newLowest - (length - span) / 2, newHighest - length + 1);
+            long[] resized = new long[length];
+            for (int i = lowest; i <= highest; i++) {
+                resized[Math.max(i, newLowest) - newOffset] += counts[i - offset];
+            }
+            counts = resized;
+            offset = newOffset;
+        }
+
+        /**
+         * Collapses the buckets below a new lowest bucket into it.
+         * @param newLowest - the new lowest bucket
+         */
+        private void collapse(int newLowest){
+            for (int i = lowest; i < newLowest; i++) {
+                counts[newLowest - offset] += counts[i - offset];
+                counts[i - offset] = 0;
+            }
+        }
+
+        /**
+         * Adds the counts of other buckets.
+         * @param other - the other buckets
+         */
+        private void merge(Buckets other){
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] != 0){
+                    increment(other.offset + i, other.counts[i]);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,188 @@
+package com.luebeck.external;
+
+/**
+ * Incremental summary of quantities in mixed but commensurable units, e.g. glucose results in mg/dL, g/L and ug/mL.
+ * Every value is converted into a target unit with a cached conversion factor, so a single pass yields count, sum,
+ * mean, minimum, maximum and quantile estimates in constant memory. Quantities whose unit is invalid or differs in
+ * dimension from the target are rejected and only counted. Aggregators of the same target unit can be merged, which
+ * makes them suitable as the accumulation of a parallel stream. Not thread-safe.
+ */
+public final class QuantityAggregator {
+
+    private final ConversionFactors conversionFactors;
+    private final QuantileSketch sketch;
+    private long count;
+    private double sum;
+    private double compensation;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private long rejectedCount;
+
+    /**
+     * Constructor for an aggregator with quantile estimates of 1% relative accuracy.
+     * @param ucumService - the UCUM service used for validation and conversion
+     * @param targetUnit - the unit every quantity is converted into
+     */
+    public QuantityAggregator(UcumLBKService ucumService, String targetUnit){
+        this(new ConversionFactors(ucumService, targetUnit), new QuantileSketch());
+    }
+
+    /**
+     * Constructor for an aggregator sharing its conversion factors, e.g. among the partitions of a collector.
+     * @param conversionFactors - the cached conversion factors into the target unit
+     * @param sketch - the empty sketch of quantile estimates
+     */
+    QuantityAggregator(ConversionFactors conversionFactors, QuantileSketch sketch){
+        this.conversionFactors = conversionFactors;
+        this.sketch = sketch;
+    }
+
+    /**
+     * Adds a quantity to this aggregator.
+     * @param value - the value
+     * @param unit - the unit of the value
+     * @return Whether the quantity was accepted, which requires a finite value and a unit convertible into the target
+     */
+    public boolean add(double value, String unit){
+        double factor = conversionFactors.factorOf(unit);
+        double converted = value * factor;
+        if (Double.isNaN(factor) || !Double.isFinite(converted)){
+            rejectedCount++;
+            return false;
+        }
+        accept(converted);
+        return true;
+    }
+
+    /**
+     * Adds a quantity to this aggregator.
+     * @param quantity - the quantity
+     * @return Whether the quantity was accepted, which requires a finite value and a unit convertible into the target
+     */
+    public boolean add(UcumQuantity quantity){
+        if (quantity == null){
+            rejectedCount++;
+            return false;
+        }
+        return add(quantity.getValue(), quantity.getUnit());
+    }
+
+    /**
+     * Adds all quantities of another aggregator to this one.
+     * @param other - the other aggregator
+     * @return Whether the aggregators could be merged, which requires them to share the target unit
+     */
+    public boolean merge(QuantityAggregator other){
+        if (!conversionFactors.getTargetUnit().equals(other.conversionFactors.getTargetUnit()) ||
+                !sketch.merge(other.sketch)){
+            return false;
+        }
+        if (count == 0){
+            min = other.min;
+            max = other.max;
+        } else if (other.count > 0){
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+        count += other.count;
+        addToSum(other.sum);
+        addToSum(-other.compensation);
+        rejectedCount += other.rejectedCount;
+        return true;
+    }
+
+    /**
+     * Returns the target unit of this aggregator, which every statistic is expressed in.
+     * @return Target unit
+     */
+    public String getUnit(){
+        return conversionFactors.getTargetUnit();
+    }
+
+    /**
+     * Returns the amount of accepted quantities.
+     * @return Amount of accepted quantities
+     */
+    public long getCount(){
+        return count;
+    }
+
+    /**
+     * Returns the amount of rejected quantities.
+     * @return Amount of rejected quantities
+     */
+    public long getRejectedCount(){
+        return rejectedCount;
+    }
+
+    /**
+     * Returns the compensated sum of the accepted quantities.
+     * @return Sum in the target unit
+     */
+    public double getSum(){
+        return sum - compensation;
+    }
+
+    /**
+     * Returns the arithmetic mean of the accepted quantities.
+     * @return Mean in the target unit or NaN if no quantity was accepted
+     */
+    public double getMean(){
+        return count == 0 ? Double.NaN : getSum() / count;
+    }
+
+    /**
+     * Returns the smallest accepted quantity.
+     * @return Minimum in the target unit or NaN if no quantity was accepted
+     */
+    public double getMin(){
+        return min;
+    }
+
+    /**
+     * Returns the largest accepted quantity.
+     * @return Maximum in the target unit or NaN if no quantity was accepted
+     */
+    public double getMax(){
+        return max;
+    }
+
+    /**
+     * Estimates a quantile of the accepted quantities, e.g. the median for 0.5, within 1% relative accuracy.
+     * @param quantile - the quantile in [0, 1]
+     * @return The estimated quantile in the target unit or NaN if no quantity was accepted
+     */
+    public double getQuantile(double quantile){
+        return sketch.quantile(quantile);
+    }
+
+    /**
+     * Adds a converted value to every statistic.
+     * @param converted - the value in the target unit
+     */
+    private void accept(double converted){
+        if (count == 0){
+            min = converted;
+            max = converted;
+        } else {
+            min = Math.min(min, converted);
+            max = Math.max(max, converted);
+        }
+        count++;
+        addToSum(converted);
+        sketch.add(converted);
+    }
+
+    /**
+     * Adds to the sum using Kahan summation, so that long sequences of values of different magnitude do not lose
+     * precision.
+     * @param value - the value to be added
+     */
+    private void addToSum(double value){
+        double corrected = value - compensation;
+        double next = sum + corrected;
+        compensation = (next - sum) - corrected;
+        sum = next;
+    }
+
+}
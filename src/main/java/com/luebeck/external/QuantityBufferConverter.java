@@ -0,0 +1,208 @@
+package com.luebeck.external;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Converts packed rows of quantities held in ByteBuffers, typically direct buffers of a columnar engine, without
+ * creating objects per row. Each row takes ROW_SIZE bytes: the value as a double followed by the ID of its unit as
+ * an int, both in the byte order of the buffer. Unit IDs are indices into the dictionary this converter is built
+ * with; every unit of the dictionary is canonized once up front, and the base unit terms of their canonical forms
+ * are appended to the dictionary so canonized rows can refer to them. Rows that cannot be converted keep their
+ * value and get the unit ID INVALID_ID. Thread-safe, as long as no two threads write the same buffer region.
+ */
+public final class QuantityBufferConverter {
+
+    public static final int ROW_SIZE = Double.BYTES + Integer.BYTES;
+    public static final int INVALID_ID = -1;
+
+    private final String[] units;
+    private final HashMap<String, Integer> ids = new HashMap<>();
+    private final long[] dimensions;
+    private final double[] magnitudes;
+    private final int[] canonicalIds;
+
+    /**
+     * Constructor for a converter of rows whose unit IDs are indices into a dictionary.
+     * @param ucumService - the UCUM service used for canonization
+     * @param dictionary - the units by ID
+     */
+    public QuantityBufferConverter(UcumLBKService ucumService, List<String> dictionary){
+        int size = dictionary.size();
+        List<String> allUnits = new ArrayList<>(dictionary);
+        for (int id = 0; id < size; id++) {
+            ids.putIfAbsent(allUnits.get(id), id);
+        }
+
+        //Every unit adds at most one base unit term
+        long[] allDimensions = new long[2 * size];
+        double[] allMagnitudes = new double[2 * size];
+        int[] allCanonicalIds = new int[2 * size];
+        for (int id = 0; id < size; id++) {
+            String unit = dictionary.get(id);
+            CanonicalForm form = ucumService.generateConvertibleForm(unit);
+            if (form == null){
+                allMagnitudes[id] = Double.NaN;
+                allCanonicalIds[id] = INVALID_ID;
+                continue;
+            }
+            String canonicalUnit = form.appendBaseUnits(new StringBuilder()).toString();
+            Integer canonicalId = ids.get(canonicalUnit);
+            if (canonicalId == null){
+                canonicalId = allUnits.size();
+                allUnits.add(canonicalUnit);
+                ids.put(canonicalUnit, canonicalId);
+                allDimensions[canonicalId] = form.getDimensions();
+                allMagnitudes[canonicalId] = 1;
+                allCanonicalIds[canonicalId] = canonicalId;
+            }
+            allDimensions[id] = form.getDimensions();
+            allMagnitudes[id] = form.getMagnitude();
+            allCanonicalIds[id] = canonicalId;
+        }
+
+        this.units = allUnits.toArray(new String[0]);
+        this.dimensions = Arrays.copyOf(allDimensions, units.length);
+        this.magnitudes = Arrays.copyOf(allMagnitudes, units.length);
+        this.canonicalIds = Arrays.copyOf(allCanonicalIds, units.length);
+    }
+
+    /**
+     * Returns the ID of a unit.
+     * @param unit - the unit
+     * @return The ID of the unit or INVALID_ID if the unit is not part of the dictionary
+     */
+    public int idOf(String unit){
+        Integer id = ids.get(unit);
+        return id == null ? INVALID_ID : id;
+    }
+
+    /**
+     * Returns the unit of an ID.
+     * @param id - the ID
+     * @return The unit or null if the ID is not part of the dictionary
+     */
+    public String unitOf(int id){
+        return id >= 0 && id < units.length ? units[id] : null;
+    }
+
+    /**
+     * Returns the dictionary of this converter: the units it was built with followed by the base unit terms added
+     * for canonization.
+     * @return Unmodifiable list of units by ID
+     */
+    public List<String> getDictionary(){
+        return Collections.unmodifiableList(Arrays.asList(units));
+    }
+
+    /**
+     * Converts the rows between position and limit of a buffer into a target unit in place. The position of the
+     * buffer is not changed.
+     * @param rows - the buffer of rows
+     * @param targetId - the ID of the target unit
+     * @return The amount of converted rows
+     */
+    public int convert(ByteBuffer rows, int targetId){
+        return convert(rows, rows, rows.position(), targetId, false);
+    }
+
+    /**
+     * Converts the rows between position and limit of a buffer into a target unit and writes them to an output
+     * buffer, starting at its position. The position of the output buffer is advanced past the written rows.
+     * @param rows - the buffer of rows
+     * @param output - the buffer the converted rows are written to
+     * @param targetId - the ID of the target unit
+     * @return The amount of converted rows
+     * @throws BufferOverflowException when the output buffer cannot take all rows
+     */
+    public int convert(ByteBuffer rows, ByteBuffer output, int targetId){
+        int written = checkCapacity(rows, output);
+        int converted = convert(rows, output, output.position(), targetId, false);
+        output.position(output.position() + written);
+        return converted;
+    }
+
+    /**
+     * Converts the rows between position and limit of a buffer into their canonical form in place, that is into
+     * the base unit term of their unit. The position of the buffer is not changed.
+     * @param rows - the buffer of rows
+     * @return The amount of converted rows
+     */
+    public int canonicalize(ByteBuffer rows){
+        return convert(rows, rows, rows.position(), INVALID_ID, true);
+    }
+
+    /**
+     * Converts the rows between position and limit of a buffer into their canonical form and writes them to an
+     * output buffer, starting at its position. The position of the output buffer is advanced past the written rows.
+     * @param rows - the buffer of rows
+     * @param output - the buffer the converted rows are written to
+     * @return The amount of converted rows
+     * @throws BufferOverflowException when the output buffer cannot take all rows
+     */
+    public int canonicalize(ByteBuffer rows, ByteBuffer output){
+        int written = checkCapacity(rows, output);
+        int converted = convert(rows, output, output.position(), INVALID_ID, true);
+        output.position(output.position() + written);
+        return converted;
+    }
+
+    /**
+     * Converts rows using absolute reads and writes.
+     * @param rows - the buffer of rows
+     * @param output - the buffer the converted rows are written to, may be the buffer of rows
+     * @param outputStart - the offset of the first row in the output buffer
+     * @param targetId - the ID of the target unit, ignored when canonizing
+     * @param canonize - whether rows are converted into their canonical form instead of the target unit
+     * @return The amount of converted rows
+     */
+    private int convert(ByteBuffer rows, ByteBuffer output, int outputStart, int targetId, boolean canonize){
+        boolean validTarget = !canonize && targetId >= 0 && targetId < units.length &&
+                !Double.isNaN(magnitudes[targetId]);
+        long targetDimensions = validTarget ? dimensions[targetId] : 0;
+        double targetMagnitude = validTarget ? magnitudes[targetId] : Double.NaN;
+
+        int converted = 0;
+        int end = rows.position() + (rows.remaining() / ROW_SIZE) * ROW_SIZE;
+        for (int offset = rows.position(), out = outputStart; offset < end; offset += ROW_SIZE, out += ROW_SIZE) {
+            double value = rows.getDouble(offset);
+            int id = rows.getInt(offset + Double.BYTES);
+            boolean known = id >= 0 && id < units.length && !Double.isNaN(magnitudes[id]);
+            if (canonize && known){
+                value *= magnitudes[id];
+                id = canonicalIds[id];
+                converted++;
+            } else if (validTarget && known && dimensions[id] == targetDimensions){
+                value = value * magnitudes[id] / targetMagnitude;
+                id = targetId;
+                converted++;
+            } else {
+                id = INVALID_ID;
+            }
+            output.putDouble(out, value);
+            output.putInt(out + Double.BYTES, id);
+        }
+        return converted;
+    }
+
+    /**
+     * Determines the bytes needed to write all rows of a buffer and checks whether an output buffer can take them.
+     * @param rows - the buffer of rows
+     * @param output - the output buffer
+     * @return The amount of bytes to be written
+     * @throws BufferOverflowException when the output buffer cannot take all rows
+     */
+    private static int checkCapacity(ByteBuffer rows, ByteBuffer output){
+        int bytes = (rows.remaining() / ROW_SIZE) * ROW_SIZE;
+        if (output.remaining() < bytes){
+            throw new BufferOverflowException();
+        }
+        return bytes;
+    }
+
+}
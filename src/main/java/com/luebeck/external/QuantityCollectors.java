@@ -0,0 +1,76 @@
+package com.luebeck.external;
+
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * Collectors summarizing streams of quantities in mixed but commensurable units. Every collector converts into a
+ * target unit with conversion factors cached once per collector and shared among the partitions of a parallel stream.
+ */
+public final class QuantityCollectors {
+
+    private QuantityCollectors(){
+    }
+
+    /**
+     * Returns a collector summarizing quantities in a target unit.
+     * @param ucumService - the UCUM service used for validation and conversion
+     * @param targetUnit - the unit every quantity is converted into
+     * @return The collector yielding an aggregator of the quantities
+     */
+    public static Collector<UcumQuantity, ?, QuantityAggregator> summarizing(UcumLBKService ucumService,
+                                                                           String targetUnit){
+        return summarizing(ucumService, targetUnit, UcumQuantity::getValue, UcumQuantity::getUnit);
+    }
+
+    /**
+     * Returns a collector summarizing arbitrary elements holding a value and a unit in a target unit, e.g.
+     * observations of a FHIR resource.
+     * @param ucumService - the UCUM service used for validation and conversion
+     * @param targetUnit - the unit every value is converted into
+     * @param valueMapper - the function extracting the value of an element
+     * @param unitMapper - the function extracting the unit of an element
+     * @param <T> - the type of the elements
+     * @return The collector yielding an aggregator of the elements
+     */
+    public static <T> Collector<T, ?, QuantityAggregator> summarizing(UcumLBKService ucumService, String targetUnit,
+                                                                    ToDoubleFunction<? super T> valueMapper,
+                                                                    Function<? super T, String> unitMapper){
+        ConversionFactors conversionFactors = new ConversionFactors(ucumService, targetUnit);
+        return Collector.of(
+                () -> new QuantityAggregator(conversionFactors, new QuantileSketch()),
+                (aggregator, element) -> aggregator.add(valueMapper.applyAsDouble(element),
+                        unitMapper.apply(element)),
+                (left, right) -> {
+                    left.merge(right);
+                    return left;
+                },
+                Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * Returns a collector computing the mean of quantities in a target unit.
+     * @param ucumService - the UCUM service used for validation and conversion
+     * @param targetUnit - the unit every quantity is converted into
+     * @return The collector yielding the mean or NaN if no quantity could be converted
+     */
+    public static Collector<UcumQuantity, ?, Double> averaging(UcumLBKService ucumService, String targetUnit){
+        return Collectors.collectingAndThen(summarizing(ucumService, targetUnit), QuantityAggregator::getMean);
+    }
+
+    /**
+     * Returns a collector estimating a quantile of quantities in a target unit within 1% relative accuracy.
+     * @param ucumService - the UCUM service used for validation and conversion
+     * @param targetUnit - the unit every quantity is converted into
+     * @param quantile - the quantile in [0, 1], e.g. 0.5 for the median
+     * @return The collector yielding the estimated quantile or NaN if no quantity could be converted
+     */
+    public static Collector<UcumQuantity, ?, Double> quantile(UcumLBKService ucumService, String targetUnit,
+                                                              double quantile){
+        return Collectors.collectingAndThen(summarizing(ucumService, targetUnit),
+                aggregator -> aggregator.getQuantile(quantile));
+    }
+
+}
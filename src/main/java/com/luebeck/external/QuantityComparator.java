@@ -0,0 +1,199 @@
+package com.luebeck.external;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Orders quantities in mixed units by their magnitude in base units, e.g. 1 g before 1200 mg before 2 g. Each unit is
+ * canonized once and its magnitude is cached, so comparing two quantities costs two lookups instead of a conversion.
+ * The bulk sorts go further and compute one primitive key per element before sorting. Quantities are grouped by
+ * their packed canon vector first, so commensurable quantities stay together; quantities whose unit is invalid,
+ * special or arbitrary come last. Both the comparator and the sorts are stable. Thread-safe.
+ */
+public final class QuantityComparator implements Comparator<UcumQuantity> {
+
+    private static final int MAGNITUDE_CACHE_CAPACITY = 10000;
+    private static final CanonicalForm REJECTED = CanonicalForm.of(0, Double.NaN);
+
+    private final UcumLBKService ucumService;
+    private final BoundedCache<String, CanonicalForm> forms = new BoundedCache<>(MAGNITUDE_CACHE_CAPACITY);
+
+    /**
+     * Constructor for a comparator of quantities.
+     * @param ucumService - the UCUM service used for canonization
+     */
+    public QuantityComparator(UcumLBKService ucumService){
+        this.ucumService = ucumService;
+    }
+
+    /**
+     * Compares two quantities by their packed canon vector and then by their magnitude in base units.
+     * @param first - the first quantity
+     * @param second - the second quantity
+     * @return A negative number, zero or a positive number if the first quantity is ordered before, with or after
+     * the second one
+     */
+    @Override
+    public int compare(UcumQuantity first, UcumQuantity second){
+        CanonicalForm firstForm = formOf(first.getUnit());
+        CanonicalForm secondForm = formOf(second.getUnit());
+        return compare(firstForm.getDimensions(), first.getValue() * firstForm.getMagnitude(),
+                secondForm.getDimensions(), second.getValue() * secondForm.getMagnitude());
+    }
+
+    /**
+     * Returns the sort key of a quantity, its value in base units.
+     * @param value - the value
+     * @param unit - the unit of the value
+     * @return The value in base units or NaN if the unit is invalid, special or arbitrary
+     */
+    public double sortKey(double value, String unit){
+        return value * formOf(unit).getMagnitude();
+    }
+
+    /**
+     * Sorts parallel arrays of values and units in place.
+     * @param values - the values
+     * @param units - the units of the values, of the same length as the values
+     * @throws IllegalArgumentException when the arrays differ in length
+     */
+    public void sort(double[] values, String[] units){
+        int[] order = sortedIndices(values, units);
+        double[] sortedValues = new double[values.length];
+        String[] sortedUnits = new String[units.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedValues[i] = values[order[i]];
+            sortedUnits[i] = units[order[i]];
+        }
+        System.arraycopy(sortedValues, 0, values, 0, values.length);
+        System.arraycopy(sortedUnits, 0, units, 0, units.length);
+    }
+
+    /**
+     * Sorts an array of quantities in place.
+     * @param quantities - the quantities
+     */
+    public void sort(UcumQuantity[] quantities){
+        double[] values = new double[quantities.length];
+        String[] units = new String[quantities.length];
+        for (int i = 0; i < quantities.length; i++) {
+            values[i] = quantities[i].getValue();
+            units[i] = quantities[i].getUnit();
+        }
+        int[] order = sortedIndices(values, units);
+        UcumQuantity[] sorted = new UcumQuantity[quantities.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = quantities[order[i]];
+        }
+        System.arraycopy(sorted, 0, quantities, 0, quantities.length);
+    }
+
+    /**
+     * Sorts a list of quantities in place.
+     * @param quantities - the modifiable list of quantities
+     */
+    public void sort(List<UcumQuantity> quantities){
+        UcumQuantity[] sorted = quantities.toArray(new UcumQuantity[0]);
+        sort(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            quantities.set(i, sorted[i]);
+        }
+    }
+
+    /**
+     * Determines the order of parallel arrays of values and units without modifying them, e.g. to reorder the rows
+     * of a table.
+     * @param values - the values
+     * @param units - the units of the values, of the same length as the values
+     * @return The indices of the elements in sorted order
+     * @throws IllegalArgumentException when the arrays differ in length
+     */
+    public int[] sortedIndices(double[] values, String[] units){
+        if (values.length != units.length){
+            throw new IllegalArgumentException("values and units differ in length");
+        }
+        int length = values.length;
+        double[] keys = new double[length];
+        long[] dimensions = new long[length];
+        int[] order = new int[length];
+        for (int i = 0; i < length; i++) {
+            CanonicalForm form = formOf(units[i]);
+            keys[i] = values[i] * form.getMagnitude();
+            dimensions[i] = form.getDimensions();
+            order[i] = i;
+        }
+
+        //Bottom-up merge sort on the indices, which keeps equal elements in their original order
+        int[] buffer = new int[length];
+        for (int width = 1; width < length; width *= 2) {
+            for (int low = 0; low < length - width; low += 2 * width) {
+                int middle = low + width;
+                int high = Math.min(low + 2 * width, length);
+                int left = low;
+                int right = middle;
+                int target = low;
+                while (left < middle && right < high){
+                    int a = order[left];
+                    int b = order[right];
+                    if (compare(dimensions[b], keys[b], dimensions[a], keys[a]) < 0){
+                        buffer[target++] = b;
+                        right++;
+                    } else {
+                        buffer[target++] = a;
+                        left++;
+                    }
+                }
+                while (left < middle){
+                    buffer[target++] = order[left++];
+                }
+                while (right < high){
+                    buffer[target++] = order[right++];
+                }
+                System.arraycopy(buffer, low, order, low, high - low);
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Compares two sort keys. Keys of NaN, that is of rejected units, are ordered last.
+     * @param firstDimensions - the packed canon vector of the first key
+     * @param firstKey - the first key
+     * @param secondDimensions - the packed canon vector of the second key
+     * @param secondKey - the second key
+     * @return A negative number, zero or a positive number if the first key is ordered before, with or after the
+     * second one
+     */
+    private static int compare(long firstDimensions, double firstKey, long secondDimensions, double secondKey){
+        boolean firstRejected = Double.isNaN(firstKey);
+        if (firstRejected != Double.isNaN(secondKey)){
+            return firstRejected ? 1 : -1;
+        }
+        if (firstDimensions != secondDimensions){
+            return Long.compare(firstDimensions, secondDimensions);
+        }
+        return Double.compare(firstKey, secondKey);
+    }
+
+    /**
+     * Returns the cached canonical form of a unit. Units that are not eligible for conversions, because they are
+     * invalid, special or arbitrary, are cached as a form of magnitude NaN.
+     * @param unit - the unit
+     * @return The canonical form of the unit
+     */
+    private CanonicalForm formOf(String unit){
+        if (unit == null){
+            return REJECTED;
+        }
+        CanonicalForm form = forms.get(unit);
+        if (form == null){
+            form = ucumService.generateConvertibleForm(unit);
+            if (form == null){
+                form = REJECTED;
+            }
+            forms.put(unit, form);
+        }
+        return form;
+    }
+
+}
@@ -0,0 +1,411 @@
+package com.luebeck.external;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stage of a reactive stream that converts quantities into a target unit or, if no target unit is given, into their
+ * canonical form (e.g., 1 mg/dL to 0.01 g.m-3). Incoming quantities are grouped into micro-batches that are
+ * converted in parallel; within a batch consecutive quantities of the same unit share one resolution, and
+ * resolutions are cached across batches. Results are emitted in the order the quantities arrived, one
+ * ConvertedQuantity per quantity, with a null result where the conversion failed.
+ * <p>
+ * A batch is converted once it is full, once its oldest quantity has waited for the maximum latency or once the
+ * upstream publisher completes. Converted batches are published as soon as all batches before them are published,
+ * so an upstream publisher that stays open does not hold back results. Upstream demand follows downstream demand:
+ * at most as many quantities as batchSize * parallelism are converted or waiting at once. While a subscriber's buffer
+ * is full, publishing pauses until a subscriber takes a result or cancels instead of blocking a thread of the
+ * executor, so even a single-thread executor keeps delivering to slow subscribers. A paused processor does no work
+ * until then.
+ */
+public class QuantityConversionProcessor extends SubmissionPublisher<ConvertedQuantity>
+        implements Flow.Processor<UcumQuantity, ConvertedQuantity> {
+
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final long DEFAULT_MAX_LATENCY_MILLIS = 10;
+
+    private final UnitResolver unitResolver;
+    private final Executor workers;
+    private final Executor flushes;
+    private final int batchSize;
+    private final int parallelism;
+    private final Object lock = new Object();
+    private final AtomicInteger drainRequests = new AtomicInteger();
+    private final AtomicBoolean publishPaused = new AtomicBoolean();
+    private final ArrayDeque<BatchTask> inFlight = new ArrayDeque<>();
+    private Flow.Subscription subscription;
+    private UcumQuantity[] batch;
+    private int batchLength;
+    private long batchSequence;
+    private boolean completed;
+
+    /**
+     * Constructor for a processor converting batches of the default size on the common pool, with as many batches
+     * in parallel as the common pool has threads.
+     * @param ucumService - the UCUM service used for validation and conversion
+     * @param targetUnit - the unit every quantity is converted into or null to canonize every quantity
+     */
+    public QuantityConversionProcessor(UcumLBKService ucumService, String targetUnit){
+        this(ucumService, targetUnit, DEFAULT_BATCH_SIZE, ForkJoinPool.getCommonPoolParallelism(),
+                ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for a processor that converts partial batches after the default maximum latency.
+     * @param ucumService - the UCUM service used for validation and conversion
+     * @param targetUnit - the unit every quantity is converted into or null to canonize every quantity
+     * @param batchSize - the amount of quantities converted together
+     * @param parallelism - the maximum amount of batches converted at once
+     * @param executor - the executor converting batches and delivering results to subscribers
+     */
+    public QuantityConversionProcessor(UcumLBKService ucumService, String targetUnit, int batchSize,
+                                       int parallelism, Executor executor){
+        this(ucumService, targetUnit, batchSize, parallelism, executor, DEFAULT_MAX_LATENCY_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructor for a processor.
+     * @param ucumService - the UCUM service used for validation and conversion
+     * @param targetUnit - the unit every quantity is converted into or null to canonize every quantity
+     * @param batchSize - the amount of quantities converted together
+     * @param parallelism - the maximum amount of batches converted at once
+     * @param executor - the executor converting batches and delivering results to subscribers
+     * @param maxLatency - the longest time a quantity waits for its batch to fill up or 0 to always wait
+     * @param unit - the unit of the maximum latency
+     */
+    public QuantityConversionProcessor(UcumLBKService ucumService, String targetUnit, int batchSize,
+                                       int parallelism, Executor executor, long maxLatency, TimeUnit unit){
+        super(executor, Math.max(Flow.defaultBufferSize(), batchSize));
+        this.unitResolver = targetUnit == null ?
+                new UnitResolver(ucumService, true) : new UnitResolver(ucumService, false, targetUnit);
+        this.workers = executor;
+        this.flushes = maxLatency > 0 ? CompletableFuture.delayedExecutor(maxLatency, unit, executor) : null;
+        this.batchSize = Math.max(1, batchSize);
+        this.parallelism = Math.max(1, parallelism);
+        this.batch = new UcumQuantity[this.batchSize];
+    }
+
+    /**
+     * Subscribes a new processor to a publisher of quantities.
+     * @param source - the publisher of quantities
+     * @param ucumService - the UCUM service used for validation and conversion
+     * @param targetUnit - the unit every quantity is converted into or null to canonize every quantity
+     * @return The publisher of converted quantities
+     */
+    public static Flow.Publisher<ConvertedQuantity> convert(Flow.Publisher<UcumQuantity> source,
+                                                            UcumLBKService ucumService, String targetUnit){
+        QuantityConversionProcessor processor = new QuantityConversionProcessor(ucumService, targetUnit);
+        source.subscribe(processor);
+        return processor;
+    }
+
+    /**
+     * Adds a subscriber unless it is subscribed already. Its buffer taking a result resumes publishing should it be
+     * paused.
+     * @param subscriber - the subscriber
+     * @throws NullPointerException when the subscriber is null
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super ConvertedQuantity> subscriber){
+        super.subscribe(new ResumingSubscriber(Objects.requireNonNull(subscriber)));
+    }
+
+    @Override
+    public boolean isSubscribed(Flow.Subscriber<? super ConvertedQuantity> subscriber){
+        return super.isSubscribed(new ResumingSubscriber(Objects.requireNonNull(subscriber)));
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription){
+        if (this.subscription != null){
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request((long) batchSize * parallelism);
+    }
+
+    @Override
+    public void onNext(UcumQuantity quantity){
+        if (isClosed()){
+            subscription.cancel();
+            return;
+        }
+        BatchTask task = null;
+        long sequence = -1;
+        synchronized (lock) {
+            batch[batchLength++] = quantity;
+            if (batchLength == batchSize){
+                task = takeBatch();
+            } else if (batchLength == 1){
+                sequence = batchSequence;
+            }
+        }
+        if (task != null){
+            workers.execute(task);
+        } else if (sequence >= 0 && flushes != null){
+            long flushedSequence = sequence;
+            flushes.execute(() -> flush(flushedSequence));
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable){
+        closeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete(){
+        BatchTask task = null;
+        synchronized (lock) {
+            completed = true;
+            if (batchLength > 0){
+                task = takeBatch();
+            }
+        }
+        if (task != null){
+            workers.execute(task);
+        }
+        drain();
+    }
+
+    /**
+     * Turns the current batch into a task that is queued behind the batches converted already. Must be called while
+     * holding the lock.
+     * @return The task converting the batch
+     */
+    private BatchTask takeBatch(){
+        BatchTask task = new BatchTask(batch, batchLength);
+        batch = new UcumQuantity[batchSize];
+        batchLength = 0;
+        batchSequence++;
+        inFlight.add(task);
+        return task;
+    }
+
+    /**
+     * Hands a partial batch to the workers once its oldest quantity has waited for the maximum latency, unless the
+     * batch has been handed over already.
+     * @param sequence - the sequence number of the batch at the time its first quantity arrived
+     */
+    private void flush(long sequence){
+        BatchTask task = null;
+        synchronized (lock) {
+            if (sequence == batchSequence && batchLength > 0){
+                task = takeBatch();
+            }
+        }
+        if (task != null){
+            workers.execute(task);
+        }
+    }
+
+    /**
+     * Publishes the converted batches at the head of the queue, in order, and closes this processor once the
+     * upstream publisher has completed and every batch is published. Only one thread drains at a time; a thread
+     * asking to drain while another one does makes that one look again instead of waiting. Should a subscriber's
+     * buffer fill up, draining pauses until a subscriber takes a result or cancels.
+     */
+    private void drain(){
+        if (drainRequests.getAndIncrement() != 0){
+            return;
+        }
+        int missed = 1;
+        do {
+            while (true) {
+                BatchTask task = null;
+                boolean finished;
+                synchronized (lock) {
+                    if (!inFlight.isEmpty() && inFlight.peek().results.isDone()){
+                        task = inFlight.peek();
+                    }
+                    finished = completed && inFlight.isEmpty() && batchLength == 0;
+                }
+                if (task != null){
+                    if (!publish(task)){
+                        publishPaused.set(true);
+                        //A subscriber may have taken a result before the pause was visible to it
+                        if (estimateMaximumLag() < getMaxBufferCapacity() && publishPaused.compareAndSet(true, false)){
+                            continue;
+                        }
+                        break;
+                    }
+                    synchronized (lock) {
+                        inFlight.poll();
+                    }
+                } else {
+                    if (finished){
+                        close();
+                    }
+                    break;
+                }
+            }
+            missed = drainRequests.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * Publishes the results of a converted batch that have not been published yet and, once all are, requests as
+     * many quantities as it held. Results are only submitted while every subscriber's buffer has room, so submitting
+     * never blocks. A failed batch closes this processor exceptionally.
+     * @param task - the converted batch
+     * @return Whether all results of the batch are published
+     */
+    private boolean publish(BatchTask task){
+        if (isClosed()){
+            return true;
+        }
+        ConvertedQuantity[] results;
+        try {
+            results = task.results.join();
+        } catch (CompletionException e) {
+            subscription.cancel();
+            closeExceptionally(e.getCause());
+            return true;
+        }
+        //Only the draining thread submits, so the lag can only shrink while results are submitted
+        int capacity = getMaxBufferCapacity();
+        while (task.published < results.length) {
+            if (estimateMaximumLag() >= capacity){
+                return false;
+            }
+            submit(results[task.published++]);
+        }
+        subscription.request(task.length);
+        return true;
+    }
+
+    /**
+     * Drains again if publishing is paused.
+     */
+    private void resume(){
+        if (publishPaused.compareAndSet(true, false)){
+            drain();
+        }
+    }
+
+    /**
+     * Converts a batch of quantities. Consecutive quantities of the same unit share one resolution.
+     * @param quantities - the batch
+     * @param length - the amount of quantities in the batch
+     * @return The converted quantities in the order of the batch
+     */
+    private ConvertedQuantity[] convertBatch(UcumQuantity[] quantities, int length){
+        ConvertedQuantity[] results = new ConvertedQuantity[length];
+        String lastUnit = null;
+        UnitResolver.Resolution resolution = UnitResolver.UNCONVERTIBLE;
+        for (int i = 0; i < length; i++) {
+            UcumQuantity quantity = quantities[i];
+            String unit = quantity == null ? null : quantity.getUnit();
+            if (unit != lastUnit && (unit == null || !unit.equals(lastUnit))){
+                resolution = unit == null ? UnitResolver.UNCONVERTIBLE : unitResolver.resolve(unit);
+                lastUnit = unit;
+            }
+            results[i] = new ConvertedQuantity(quantity, !resolution.isConvertible() ? null :
+                    UcumQuantity.of(quantity.getValue() * resolution.getFactor(), resolution.getCode()));
+        }
+        return results;
+    }
+
+    /**
+     * Subscriber that resumes paused publishing whenever its buffer has room again, that is after it took a result
+     * or cancelled.
+     */
+    private final class ResumingSubscriber implements Flow.Subscriber<ConvertedQuantity> {
+
+        private final Flow.Subscriber<? super ConvertedQuantity> subscriber;
+
+        /**
+         * Constructor for a subscriber resuming paused publishing.
+         * @param subscriber - the actual subscriber
+         */
+        private ResumingSubscriber(Flow.Subscriber<? super ConvertedQuantity> subscriber){
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription){
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n){
+                    subscription.request(n);
+                }
+
+                @Override
+                public void cancel(){
+                    subscription.cancel();
+                    resume();
+                }
+            });
+        }
+
+        @Override
+        public void onNext(ConvertedQuantity item){
+            //The result has left the buffer before it is handed over
+            subscriber.onNext(item);
+            resume();
+        }
+
+        @Override
+        public void onError(Throwable throwable){
+            subscriber.onError(throwable);
+        }
+
+        @Override
+        public void onComplete(){
+            subscriber.onComplete();
+        }
+
+        @Override
+        public boolean equals(Object other){
+            return other instanceof ResumingSubscriber && subscriber.equals(((ResumingSubscriber) other).subscriber);
+        }
+
+        @Override
+        public int hashCode(){
+            return subscriber.hashCode();
+        }
+    }
+
+    /**
+     * Conversion of a batch that asks for the queue to be drained once it is done.
+     */
+    private final class BatchTask implements Runnable {
+
+        private final UcumQuantity[] quantities;
+        private final int length;
+        private final CompletableFuture<ConvertedQuantity[]> results = new CompletableFuture<>();
+        private int published;
+
+        /**
+         * Constructor for the conversion of a batch.
+         * @param quantities - the batch
+         * @param length - the amount of quantities in the batch
+         */
+        private BatchTask(UcumQuantity[] quantities, int length){
+            this.quantities = quantities;
+            this.length = length;
+        }
+
+        @Override
+        public void run(){
+            try {
+                results.complete(convertBatch(quantities, length));
+            } catch (RuntimeException e) {
+                results.completeExceptionally(e);
+            }
+            drain();
+        }
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.luebeck.external;
+
+/**
+ * Position of a value relative to a reference interval.
+ */
+public enum RangeClassification {
+    LOW,
+    NORMAL,
+    HIGH
+}
@@ -0,0 +1,103 @@
+package com.luebeck.external;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Expresses quantities in the unit of a configured list that puts their value into a readable range. Units of the
+ * list are grouped by their packed canon vector and ordered by magnitude once, which is why a selection takes a
+ * single binary search. Quantities whose unit is not commensurable with any unit of the list are handed to
+ * UcumLBKService.selectReadableUnit, which picks a prefix instead. Instances are immutable and thread-safe.
+ */
+public final class ReadableUnitSelector {
+
+    private final UcumLBKService ucumService;
+    private final HashMap<Long, PreferredUnits> preferredUnits = new HashMap<>();
+
+    /**
+     * Generates a selector for a list of preferred units (e.g., mg, g and kg or [in_i], [ft_i] and [mi_i]). Units
+     * that cannot be converted, such as special or arbitrary units, are left out.
+     * @param ucumService - the UCUM service used for validation and conversion
+     * @param units - the preferred units
+     */
+    public ReadableUnitSelector(UcumLBKService ucumService, String... units){
+        this.ucumService = ucumService;
+
+        HashMap<Long, List<String>> unitsByDimensions = new HashMap<>();
+        HashMap<String, Double> magnitudes = new HashMap<>();
+        for (String unit : units) {
+            CanonicalForm form = ucumService.generateConvertibleForm(unit);
+            if (form == null || magnitudes.containsKey(unit)){
+                continue;
+            }
+            magnitudes.put(unit, form.getMagnitude());
+            unitsByDimensions.computeIfAbsent(form.getDimensions(), k -> new ArrayList<>()).add(unit);
+        }
+
+        for (Long dimensions : unitsByDimensions.keySet()) {
+            List<String> group = unitsByDimensions.get(dimensions);
+            group.sort(Comparator.comparingDouble(magnitudes::get));
+            double[] sortedMagnitudes = new double[group.size()];
+            for (int i = 0; i < sortedMagnitudes.length; i++) {
+                sortedMagnitudes[i] = magnitudes.get(group.get(i));
+            }
+            preferredUnits.put(dimensions, new PreferredUnits(sortedMagnitudes, group.toArray(new String[0])));
+        }
+    }
+
+    /**
+     * Expresses a quantity in the preferred unit with the largest magnitude that still yields a value of at least 1,
+     * or in the preferred unit with the smallest magnitude if there is none (e.g., 1500 g as 1.5 kg and 0.2 g as
+     * 200 mg given mg, g and kg). Quantities of zero are returned in their source unit.
+     * @param source - the source unit
+     * @param quantity - the finite quantity expressed in the source unit
+     * @return The quantity expressed in the selected unit or null if the source unit is not eligible for operations
+     */
+    public UcumQuantity select(String source, double quantity){
+        CanonicalForm form = ucumService.generateCanonicalForm(source);
+        PreferredUnits candidates = form == null ? null : preferredUnits.get(form.getDimensions());
+        if (candidates == null || quantity == 0 || Double.isNaN(quantity) || Double.isInfinite(quantity)){
+            return ucumService.selectReadableUnit(source, quantity);
+        }
+
+        String target = candidates.select(Math.abs(quantity) * form.getMagnitude());
+        Double value = ucumService.convert(source, target, quantity);
+        return value == null ? null : UcumQuantity.of(value, target);
+    }
+
+    /**
+     * The preferred units sharing a packed canon vector, ordered by their magnitude.
+     */
+    private static final class PreferredUnits {
+
+        private final double[] magnitudes;
+        private final String[] units;
+
+        /**
+         * Constructor for preferred units sharing a packed canon vector.
+         * @param magnitudes - the ascending magnitudes of the units
+         * @param units - the units in the order of their magnitudes
+         */
+        private PreferredUnits(double[] magnitudes, String[] units){
+            this.magnitudes = magnitudes;
+            this.units = units;
+        }
+
+        /**
+         * Selects the unit with the largest magnitude not exceeding a value expressed in base units.
+         * @param canonValue - the non-negative value expressed in base units
+         * @return The selected unit, the unit with the smallest magnitude if all magnitudes exceed the value
+         */
+        private String select(double canonValue){
+            int index = Arrays.binarySearch(magnitudes, canonValue);
+            if (index < 0){
+                index = Math.max(0, -index - 2);
+            }
+            return units[index];
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.luebeck.external;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * Compiled reference interval, e.g. 3.5-5.1 mmol/L, that classifies values reported in any commensurable unit as
+ * low, normal or high. The bounds are converted into every incoming unit once and cached, so classifying a value
+ * takes a lookup and two comparisons. Both bounds belong to the interval. Thread-safe.
+ */
+public final class ReferenceRange {
+
+    private static final int BOUNDS_CACHE_CAPACITY = 10000;
+    private static final MathContext SIGNIFICANT_DIGITS = new MathContext(15);
+    private static final Bounds REJECTED = new Bounds(Double.NaN, Double.NaN);
+
+    private final double low;
+    private final double high;
+    private final String unit;
+    private final ConversionFactors factors;
+    private final BoundedCache<String, Bounds> bounds = new BoundedCache<>(BOUNDS_CACHE_CAPACITY);
+
+    /**
+     * Constructor for a compiled reference interval.
+     * @param low - the lower bound
+     * @param high - the upper bound
+     * @param factors - the conversion factors into the unit of both bounds
+     */
+    private ReferenceRange(double low, double high, ConversionFactors factors){
+        this.low = low;
+        this.high = high;
+        this.unit = factors.getTargetUnit();
+        this.factors = factors;
+        this.bounds.put(unit, new Bounds(low, high));
+    }
+
+    /**
+     * Compiles a reference interval. Open intervals such as values below 5 mmol/L may be given with an infinite
+     * bound.
+     * @param ucumService - the UCUM service used for validation and conversion
+     * @param low - the lower bound
+     * @param high - the upper bound, not smaller than the lower bound
+     * @param unit - the unit of both bounds, neither special nor arbitrary
+     * @return The compiled reference interval or null if the bounds or the unit are not eligible
+     */
+    public static ReferenceRange compile(UcumLBKService ucumService, double low, double high, String unit){
+        if (!(low <= high) || unit == null){
+            return null;
+        }
+        ConversionFactors factors = new ConversionFactors(ucumService, unit);
+        return factors.isTargetConvertible() ? new ReferenceRange(low, high, factors) : null;
+    }
+
+    /**
+     * Classifies a value against this reference interval.
+     * @param value - the value
+     * @param valueUnit - the unit of the value
+     * @return LOW or HIGH if the value lies below or above the interval, NORMAL if it lies within, or null if the
+     * value is NaN or its unit is not commensurable with the unit of the interval
+     */
+    public RangeClassification classify(double value, String valueUnit){
+        if (valueUnit == null){
+            return null;
+        }
+        Bounds converted = bounds.get(valueUnit);
+        if (converted == null){
+            converted = convertBounds(valueUnit);
+        }
+        if (value < converted.low){
+            return RangeClassification.LOW;
+        }
+        if (value > converted.high){
+            return RangeClassification.HIGH;
+        }
+        //Rejected units have bounds of NaN, which no comparison passes
+        return value >= converted.low && value <= converted.high ? RangeClassification.NORMAL : null;
+    }
+
+    /**
+     * Classifies a quantity against this reference interval.
+     * @param quantity - the quantity
+     * @return LOW or HIGH if the quantity lies below or above the interval, NORMAL if it lies within, or null if the
+     * quantity is not comparable with the interval
+     */
+    public RangeClassification classify(UcumQuantity quantity){
+        return quantity == null ? null : classify(quantity.getValue(), quantity.getUnit());
+    }
+
+    /**
+     * Returns the lower bound in the unit of this reference interval.
+     * @return Lower bound
+     */
+    public double getLow(){
+        return low;
+    }
+
+    /**
+     * Returns the upper bound in the unit of this reference interval.
+     * @return Upper bound
+     */
+    public double getHigh(){
+        return high;
+    }
+
+    /**
+     * Returns the unit of this reference interval.
+     * @return Unit of both bounds
+     */
+    public String getUnit(){
+        return unit;
+    }
+
+    /**
+     * Renders this reference interval as its bounds followed by its unit (e.g., 3.5-5.1 mmol/L).
+     * @return The rendered reference interval
+     */
+    @Override
+    public String toString(){
+        return low + "-" + high + " " + unit;
+    }
+
+    /**
+     * Converts the bounds into an incoming unit and caches them.
+     * @param valueUnit - the incoming unit
+     * @return The converted bounds or bounds of NaN if the incoming unit is not commensurable
+     */
+    private Bounds convertBounds(String valueUnit){
+        double factor = factors.factorOf(valueUnit);
+        Bounds converted = Double.isNaN(factor) ? REJECTED
+                : new Bounds(convertBound(low, factor), convertBound(high, factor));
+        bounds.put(valueUnit, converted);
+        return converted;
+    }
+
+    /**
+     * Converts a bound into an incoming unit. Infinite bounds stay as they are. Converted bounds are rounded to 15
+     * significant digits, which drops the noise of floating point conversion factors, so a value on a bound stays
+     * within the interval in every unit (e.g., 3500 umol/L for 3.5 mmol/L rather than 3500.0000000000005).
+     * @param bound - the bound in the unit of this reference interval
+     * @param factor - the factor converting a value of the incoming unit into the unit of this reference interval
+     * @return The converted bound
+     */
+    private static double convertBound(double bound, double factor){
+        double converted = bound / factor;
+        if (!Double.isFinite(converted)){
+            return converted;
+        }
+        return BigDecimal.valueOf(converted).round(SIGNIFICANT_DIGITS).doubleValue();
+    }
+
+    /**
+     * Bounds of the reference interval in one incoming unit.
+     */
+    private static final class Bounds {
+
+        private final double low;
+        private final double high;
+
+        /**
+         * Constructor for converted bounds.
+         * @param low - the lower bound
+         * @param high - the upper bound
+         */
+        private Bounds(double low, double high){
+            this.low = low;
+            this.high = high;
+        }
+    }
+
+}
@@ -0,0 +1,202 @@
+package com.luebeck.external;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rewrites common non-UCUM spellings of units into valid UCUM expressions before they are validated or converted,
+ * for example µg/dl to ug/dl, IU/ml to [IU]/ml, mEq/l to meq/l or cc to cm3. Expressions are rewritten token by token
+ * in a single pass: every atom is looked up among the configured aliases first and among the print symbols of the
+ * essence second (e.g., °C, Ω or kΩ). Atoms that are valid UCUM by themselves are never replaced by a print symbol
+ * and annotations are kept as they are. Rewritten expressions are cached, which is why repeated spellings cost a
+ * single lookup. Instances are immutable and thread-safe.
+ */
+public final class UcumAliasResolver {
+
+    private static final int RESOLUTION_CACHE_CAPACITY = 10000;
+    private static final Map<String, String> DEFAULT_ALIASES = new HashMap<>();
+
+    static {
+        DEFAULT_ALIASES.put("mcg", "ug");
+        DEFAULT_ALIASES.put("cc", "cm3");
+        DEFAULT_ALIASES.put("IU", "[IU]");
+        DEFAULT_ALIASES.put("mIU", "m[IU]");
+        DEFAULT_ALIASES.put("uIU", "u[IU]");
+        DEFAULT_ALIASES.put("Eq", "eq");
+        DEFAULT_ALIASES.put("mEq", "meq");
+        DEFAULT_ALIASES.put("uEq", "ueq");
+        DEFAULT_ALIASES.put("mmHg", "mm[Hg]");
+        DEFAULT_ALIASES.put("cmH2O", "cm[H2O]");
+        DEFAULT_ALIASES.put("hr", "h");
+        DEFAULT_ALIASES.put("hrs", "h");
+        DEFAULT_ALIASES.put("sec", "s");
+    }
+
+    private final UcumLBKService ucumService;
+    private final HashMap<String, String> aliases;
+    private final BoundedCache<String, String> resolutions = new BoundedCache<>(RESOLUTION_CACHE_CAPACITY);
+
+    /**
+     * Generates a resolver for the default aliases: mcg, cc, IU, mIU, uIU, Eq, mEq, uEq, mmHg, cmH2O, hr, hrs and sec.
+     * @param ucumService - the UCUM service used for validation and conversion
+     */
+    public UcumAliasResolver(UcumLBKService ucumService){
+        this(ucumService, new HashMap<>());
+    }
+
+    /**
+     * Generates a resolver for the default aliases and additional ones. An additional alias replaces a default alias
+     * of the same spelling. Aliases are matched against whole atoms; an exponent following an atom is kept unless
+     * the replacement ends in an exponent of its own.
+     * @param ucumService - the UCUM service used for validation and conversion
+     * @param aliases - the additional aliases mapped to the UCUM expressions replacing them (e.g., ml to mL)
+     */
+    public UcumAliasResolver(UcumLBKService ucumService, Map<String, String> aliases){
+        this.ucumService = ucumService;
+        this.aliases = new HashMap<>(DEFAULT_ALIASES);
+        this.aliases.putAll(aliases);
+    }
+
+    /**
+     * Rewrites the aliases and print symbols of an expression into UCUM codes. Results are cached per expression.
+     * @param source - the source unit as it has been received
+     * @return The rewritten expression, the source itself if nothing has been rewritten
+     */
+    public String resolve(String source){
+        if (source == null){
+            return null;
+        }
+        String resolution = resolutions.get(source);
+        if (resolution == null){
+            resolution = rewrite(source);
+            resolutions.put(source, resolution);
+        }
+        return resolution;
+    }
+
+    /**
+     * Determines whether an expression is a valid UCUM expression once its aliases have been rewritten.
+     * @param source - the source unit as it has been received
+     * @return Validity of the rewritten expression according to the UCUM syntax
+     */
+    public boolean isValid(String source){
+        return ucumService.isValid(resolve(source));
+    }
+
+    /**
+     * Converts a quantity once the aliases of both units have been rewritten.
+     * @param source - the source unit as it has been received
+     * @param target - the target unit as it has been received
+     * @param sourceQuantity - the quantity expressed in the source unit
+     * @return The quantity expressed in the target unit or null if either unit is not eligible for operations
+     */
+    public Double convert(String source, String target, double sourceQuantity){
+        return ucumService.convert(resolve(source), resolve(target), sourceQuantity);
+    }
+
+    /**
+     * Rewrites every atom of an expression in a single pass. Operators and annotations are copied as they are,
+     * square brackets are kept within their atom.
+     * @param source - the source unit
+     * @return The rewritten expression, the source itself if nothing has been rewritten
+     */
+    private String rewrite(String source){
+        StringBuilder rewritten = null;
+        int length = source.length();
+        int i = 0;
+        while (i < length){
+            int start = i;
+            i = nextAtom(source, i);
+            if (i > start){
+                if (rewritten != null){
+                    rewritten.append(source, start, i);
+                }
+                continue;
+            }
+
+            char c;
+            while (i < length && (c = source.charAt(i)) != '.' && c != '/' && c != '(' && c != ')' && c != '{'){
+                if (c == '['){
+                    int close = source.indexOf(']', i);
+                    i = close < 0 ? length : close + 1;
+                } else {
+                    i++;
+                }
+            }
+
+            String replacement = rewriteAtom(source.substring(start, i));
+            if (replacement != null && rewritten == null){
+                rewritten = new StringBuilder(length + 8).append(source, 0, start);
+            }
+            if (replacement != null){
+                rewritten.append(replacement);
+            } else if (rewritten != null){
+                rewritten.append(source, start, i);
+            }
+        }
+        return rewritten == null ? source : rewritten.toString();
+    }
+
+    /**
+     * Finds the start of the next atom, skipping operators and annotations.
+     * @param source - the source unit
+     * @param from - the index the search starts at
+     * @return Index of the start of the next atom, from itself if an atom starts there, or the length of the source
+     */
+    private int nextAtom(String source, int from){
+        int i = from;
+        while (i < source.length()){
+            char c = source.charAt(i);
+            if (c == '{'){
+                int close = source.indexOf('}', i);
+                i = close < 0 ? source.length() : close + 1;
+            } else if (c == '.' || c == '/' || c == '(' || c == ')'){
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Rewrites a single atom. The atom as a whole is looked up first, then the atom without its trailing exponent.
+     * @param atom - the atom, possibly followed by an exponent
+     * @return The replacement or null if the atom is kept
+     */
+    private String rewriteAtom(String atom){
+        String replacement = lookup(atom);
+        if (replacement != null){
+            return replacement;
+        }
+
+        int exponentStart = atom.length();
+        while (exponentStart > 0 && Character.isDigit(atom.charAt(exponentStart - 1))){
+            exponentStart--;
+        }
+        if (exponentStart > 0 && exponentStart < atom.length() &&
+                (atom.charAt(exponentStart - 1) == '-' || atom.charAt(exponentStart - 1) == '+')){
+            exponentStart--;
+        }
+        if (exponentStart == 0 || exponentStart == atom.length()){
+            return null;
+        }
+
+        replacement = lookup(atom.substring(0, exponentStart));
+        if (replacement == null || Character.isDigit(replacement.charAt(replacement.length() - 1))){
+            return null;
+        }
+        return replacement + atom.substring(exponentStart);
+    }
+
+    /**
+     * Looks up the replacement of an atom among the aliases and the print symbols.
+     * @param atom - the atom
+     * @return The replacement or null if there is none
+     */
+    private String lookup(String atom){
+        String replacement = aliases.get(atom);
+        return replacement != null ? replacement : ucumService.lookupPrintSymbol(atom);
+    }
+
+}
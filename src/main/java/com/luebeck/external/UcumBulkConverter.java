@@ -0,0 +1,466 @@
+package com.luebeck.external;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class UcumBulkConverter {
+
+    private static final String USAGE = "Usage: UcumBulkConverter --input <file> --output <file> [--target <unit>]\n" +
+            "       [--delimiter <char>] [--value-column <index>] [--unit-column <index>] [--threads <count>]\n" +
+            "       [--skip-header]\n" +
+            "Appends the converted value and unit to every row. Rows are converted into the target unit or\n" +
+            "canonized if no target unit is given. Column indices start at 0.";
+    private static final int CHUNK_SIZE = 1 << 24;
+    private static final String MALFORMED_ROW = "malformed row";
+    private static final String INVALID_VALUE = "invalid value";
+    private static final String INVALID_UNIT = "invalid unit";
+    private static final String UNCONVERTIBLE_UNIT = "unconvertible unit";
+    private static final String CONVERTED_VALUE_HEADER = "converted_value";
+    private static final String CONVERTED_UNIT_HEADER = "converted_unit";
+
+    private final UcumLBKService ucumService;
+    private final String targetUnit;
+    private final byte delimiter;
+    private final int valueColumn;
+    private final int unitColumn;
+    private final int threads;
+    private final boolean skipHeader;
+
+    /**
+     * Generates a bulk converter for delimited files consisting of rows of values and units.
+     * @param ucumService - the UCUM service used for validation and conversion
+     * @param targetUnit - the unit every row is converted into or null to canonize every row
+     * @param delimiter - the ASCII character separating the columns
+     * @param valueColumn - the index of the column holding the value
+     * @param unitColumn - the index of the column holding the unit
+     * @param threads - the amount of chunks processed in parallel
+     * @param skipHeader - whether the first row is a header, which is copied with the names of the appended columns
+     * instead of being converted
+     */
+    public UcumBulkConverter(UcumLBKService ucumService, String targetUnit, char delimiter, int valueColumn,
+                             int unitColumn, int threads, boolean skipHeader){
+        this.ucumService = ucumService;
+        this.targetUnit = targetUnit;
+        this.delimiter = (byte) delimiter;
+        this.valueColumn = valueColumn;
+        this.unitColumn = unitColumn;
+        this.threads = threads;
+        this.skipHeader = skipHeader;
+    }
+
+    /**
+     * Command-line entry point. Prints throughput and an error summary to standard error.
+     * @param args - the command-line arguments as described in the usage message
+     */
+    public static void main(String[] args){
+        System.exit(run(args, System.err));
+    }
+
+    /**
+     * Parses the command-line arguments and runs the conversion.
+     * @param args - the command-line arguments
+     * @param report - the stream receiving the usage message and the report
+     * @return Exit status, 0 on success, 1 on I/O failures and 2 on invalid arguments
+     */
+    static int run(String[] args, PrintStream report){
+        String input = null;
+        String output = null;
+        String target = null;
+        char delimiter = ',';
+        int valueColumn = 0;
+        int unitColumn = 1;
+        int threads = 1;
+        boolean skipHeader = false;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]){
+                    case "--input":
+                        input = args[++i];
+                        break;
+                    case "--output":
+                        output = args[++i];
+                        break;
+                    case "--target":
+                        target = args[++i];
+                        break;
+                    case "--delimiter":
+                        delimiter = args[++i].equals("\\t") ? '\t' : args[i].charAt(0);
+                        break;
+                    case "--value-column":
+                        valueColumn = Integer.parseInt(args[++i]);
+                        break;
+                    case "--unit-column":
+                        unitColumn = Integer.parseInt(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--skip-header":
+                        skipHeader = true;
+                        break;
+                    default:
+                        report.println("Unknown argument " + args[i]);
+                        report.println(USAGE);
+                        return 2;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException | StringIndexOutOfBoundsException e) {
+            report.println(USAGE);
+            return 2;
+        }
+
+        UcumLBKService ucumService = new UcumLBKService();
+        if (input == null || output == null || threads < 1 || valueColumn < 0 || unitColumn < 0 ||
+                delimiter > 127 || (target != null && !ucumService.isValid(target))){
+            report.println(USAGE);
+            return 2;
+        }
+
+        UcumBulkConverter converter = new UcumBulkConverter(ucumService, target, delimiter, valueColumn,
+                unitColumn, threads, skipHeader);
+        long start = System.nanoTime();
+        Summary summary;
+        try {
+            summary = converter.convert(Paths.get(input), Paths.get(output));
+        } catch (IOException e) {
+            report.println("Conversion failed: " + e.getMessage());
+            return 1;
+        }
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+
+        report.printf("Processed %d rows in %.3f s (%.0f rows/s), %d errors%n", summary.getRows(), seconds,
+                summary.getRows() / seconds, summary.getErrors());
+        for (Map.Entry<String, Long> error : summary.getErrorsByReason().entrySet()) {
+            report.printf("  %s: %d%n", error.getKey(), error.getValue());
+        }
+        return 0;
+    }
+
+    /**
+     * Converts every row of the input file and writes the results to the output file. The input is memory-mapped in
+     * chunks ending on line boundaries. Chunks are processed in parallel and written in their original order; only
+     * a bounded amount of chunks is held in memory at any time.
+     * @param input - the delimited file to read from
+     * @param output - the delimited file to write to
+     * @return Summary of the conversion
+     * @throws IOException when reading or writing fails
+     */
+    public Summary convert(Path input, Path output) throws IOException {
+        Summary summary = new Summary();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<ChunkResult>> pending = new ArrayDeque<>();
+
+        try (FileChannel inputChannel = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel outputChannel = FileChannel.open(output, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long size = inputChannel.size();
+            long position = 0;
+            boolean firstChunk = true;
+
+            while (position < size){
+                long end = findChunkEnd(inputChannel, position, size);
+                final MappedByteBuffer chunk = inputChannel.map(FileChannel.MapMode.READ_ONLY, position,
+                        end - position);
+                final boolean header = firstChunk && skipHeader;
+                pending.add(executor.submit(() -> convertChunk(chunk, header)));
+                firstChunk = false;
+                position = end;
+
+                if (pending.size() >= threads * 2){
+                    writeChunk(outputChannel, pending.poll(), summary);
+                }
+            }
+
+            while (!pending.isEmpty()){
+                writeChunk(outputChannel, pending.poll(), summary);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return summary;
+    }
+
+    /**
+     * Determines the end of the chunk starting at the given position. Chunks end directly after a line break or at
+     * the end of the file.
+     * @param channel - the input channel
+     * @param start - the start of the chunk
+     * @param size - the size of the input file
+     * @return Exclusive end of the chunk
+     * @throws IOException when reading fails
+     */
+    private long findChunkEnd(FileChannel channel, long start, long size) throws IOException {
+        long position = start + CHUNK_SIZE;
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+
+        while (position < size){
+            probe.clear();
+            int read = channel.read(probe, position);
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n'){
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+
+        return size;
+    }
+
+    /**
+     * Waits for a converted chunk and writes it to the output channel.
+     * @param channel - the output channel
+     * @param result - the pending chunk
+     * @param summary - the summary to be updated
+     * @throws IOException when writing fails or the conversion of the chunk failed
+     */
+    private void writeChunk(FileChannel channel, Future<ChunkResult> result, Summary summary) throws IOException {
+        ChunkResult chunkResult;
+        try {
+            chunkResult = result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while converting", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Conversion of a chunk failed", e.getCause());
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(chunkResult.output.toByteArray());
+        while (buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        summary.merge(chunkResult.summary);
+    }
+
+    /**
+     * Converts all rows of a single chunk. Each chunk uses its own UnitResolver so chunks can be processed in parallel.
+     * @param chunk - the memory-mapped chunk
+     * @param skipFirstRow - whether the first row is a header that gets the names of the appended columns
+     * @return Converted rows and their summary
+     */
+    private ChunkResult convertChunk(MappedByteBuffer chunk, boolean skipFirstRow){
+        ChunkResult result = new ChunkResult(chunk.limit());
+        UnitResolver unitResolver = targetUnit == null ?
+                new UnitResolver(ucumService, true) : new UnitResolver(ucumService, false, targetUnit);
+        byte[] line = new byte[256];
+        int lineStart = 0;
+
+        for (int i = 0; i <= chunk.limit(); i++) {
+            if (i < chunk.limit() && chunk.get(i) != '\n'){
+                continue;
+            }
+
+            int lineEnd = i > lineStart && chunk.get(i - 1) == '\r' ? i - 1 : i;
+            int length = lineEnd - lineStart;
+            if (length > line.length){
+                line = new byte[Math.max(length, line.length * 2)];
+            }
+            for (int j = 0; j < length; j++) {
+                line[j] = chunk.get(lineStart + j);
+            }
+
+            if (skipFirstRow){
+                result.output.write(line, 0, length);
+                if (lineStart < chunk.limit()){
+                    result.output.write(delimiter);
+                    writeAscii(result.output, CONVERTED_VALUE_HEADER);
+                    result.output.write(delimiter);
+                    writeAscii(result.output, CONVERTED_UNIT_HEADER);
+                }
+                skipFirstRow = false;
+            } else if (isBlank(line, length)){
+                result.output.write(line, 0, length);
+            } else {
+                convertRow(line, length, unitResolver, result);
+            }
+            //Keeps the line terminator the input used
+            for (int j = lineEnd; j < Math.min(i + 1, chunk.limit()); j++) {
+                result.output.write(chunk.get(j));
+            }
+            lineStart = i + 1;
+        }
+
+        return result;
+    }
+
+    /**
+     * Determines whether a row consists of nothing but spaces and tabs. Blank rows are copied without being counted.
+     * @param line - the row's bytes
+     * @param length - the row's length
+     * @return Whether the row is blank
+     */
+    private static boolean isBlank(byte[] line, int length){
+        for (int i = 0; i < length; i++) {
+            if (line[i] != ' ' && line[i] != '\t'){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Converts a single row and appends the converted value and unit. Rows that cannot be converted get empty
+     * columns appended and are tallied in the summary.
+     * @param line - the row's bytes
+     * @param length - the row's length
+     * @param unitResolver - the resolver used for the chunk
+     * @param result - the chunk's result
+     */
+    private void convertRow(byte[] line, int length, UnitResolver unitResolver, ChunkResult result){
+        String value = column(line, length, valueColumn);
+        String unit = column(line, length, unitColumn);
+        String error = null;
+        String convertedValue = "";
+        String convertedUnit = "";
+
+        result.summary.rows++;
+        result.output.write(line, 0, length);
+
+        if (value == null || unit == null){
+            error = MALFORMED_ROW;
+        } else {
+            UnitResolver.Resolution resolution = unitResolver.resolve(unit.trim());
+            if (resolution == UnitResolver.INVALID){
+                error = INVALID_UNIT;
+            } else if (!resolution.isConvertible()){
+                error = UNCONVERTIBLE_UNIT;
+            } else {
+                try {
+                    double converted = Double.parseDouble(value) * resolution.getFactor();
+                    if (Double.isNaN(converted) || Double.isInfinite(converted)){
+                        error = INVALID_VALUE;
+                    } else {
+                        convertedValue = UnitResolver.formatValue(converted);
+                        convertedUnit = resolution.getCode();
+                    }
+                } catch (NumberFormatException e) {
+                    error = INVALID_VALUE;
+                }
+            }
+        }
+
+        if (error != null){
+            result.summary.addError(error, 1);
+        }
+
+        result.output.write(delimiter);
+        writeAscii(result.output, convertedValue);
+        result.output.write(delimiter);
+        writeAscii(result.output, convertedUnit);
+    }
+
+    /**
+     * Extracts a single column of a row.
+     * @param line - the row's bytes
+     * @param length - the row's length
+     * @param index - the index of the column
+     * @return The column's content or null if the row has too few columns
+     */
+    private String column(byte[] line, int length, int index){
+        int start = 0;
+        int current = 0;
+
+        for (int i = 0; i <= length; i++) {
+            if (i == length || line[i] == delimiter){
+                if (current == index){
+                    return new String(line, start, i - start, StandardCharsets.UTF_8);
+                }
+                current++;
+                start = i + 1;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Writes an ASCII string to the output.
+     * @param output - the output
+     * @param text - the ASCII string
+     */
+    private void writeAscii(ByteArrayOutputStream output, String text){
+        for (int i = 0; i < text.length(); i++) {
+            output.write(text.charAt(i));
+        }
+    }
+
+    /**
+     * Converted rows of a single chunk and their summary.
+     */
+    private static final class ChunkResult {
+
+        private final ByteArrayOutputStream output;
+        private final Summary summary = new Summary();
+
+        private ChunkResult(int size){
+            this.output = new ByteArrayOutputStream(size + size / 2);
+        }
+    }
+
+    /**
+     * Tally of the rows and errors processed by a UcumBulkConverter.
+     */
+    public static final class Summary {
+
+        private long rows;
+        private final TreeMap<String, Long> errorsByReason = new TreeMap<>();
+
+        /**
+         * Returns the amount of rows processed, excluding a skipped header.
+         * @return Amount of rows
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * Returns the amount of rows that could not be converted.
+         * @return Amount of errors
+         */
+        public long getErrors() {
+            long errors = 0;
+            for (long count : errorsByReason.values()) {
+                errors += count;
+            }
+            return errors;
+        }
+
+        /**
+         * Returns the amount of rows that could not be converted by the reason they failed.
+         * @return Errors by reason
+         */
+        public Map<String, Long> getErrorsByReason() {
+            return new TreeMap<>(errorsByReason);
+        }
+
+        private void addError(String reason, long count){
+            Long current = errorsByReason.get(reason);
+            errorsByReason.put(reason, current == null ? count : current + count);
+        }
+
+        private void merge(Summary other){
+            rows += other.rows;
+            for (Map.Entry<String, Long> error : other.errorsByReason.entrySet()) {
+                addError(error.getKey(), error.getValue());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,592 @@
+package com.luebeck.external;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class UcumHttpServer {
+
+    private static final String USAGE = "Usage: UcumHttpServer [--host <address>] [--port <port>] [--threads <count>]";
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    private static final int DEFAULT_MAX_BATCH_BYTES = 1 << 20;
+
+    private final UcumLBKService ucumService;
+    private final HttpServer server;
+    private final ExecutorService executorService;
+    private final ExecutorService rejections = Executors.newSingleThreadExecutor(RejectionThread::new);
+    private final int maxBatchBytes;
+    private final Map<String, EndpointStatistics> statistics = new LinkedHashMap<>();
+    private final long startTime = System.nanoTime();
+
+    /**
+     * Generates an HTTP server exposing the UCUM service. The following endpoints are available; query parameters
+     * must be URL-encoded, which notably includes the plus sign of exponents:
+     * GET /isValid?unit=, GET /convert?source=&amp;target=&amp;value=, GET /canonicalize?unit=,
+     * GET /displayName?unit=, POST /convert/batch and GET /statistics.
+     * The batch endpoint takes one conversion per line formatted as source, target and value separated by tabs and
+     * answers with one converted value per line, leaving the line empty for conversions that failed. Batches larger
+     * than 1 MiB are answered with 413 Payload Too Large.
+     * Requests are handled by at most maxConcurrency threads at a time and up to 1024 more wait for a thread; further
+     * requests are answered with 503 Service Unavailable. Virtual threads are used on JDKs that support them,
+     * otherwise a bounded pool of platform threads is used.
+     * @param ucumService - the UCUM service handling the requests
+     * @param address - the address to bind to
+     * @param maxConcurrency - the maximum amount of requests handled concurrently
+     * @throws IOException when the server cannot be bound
+     */
+    public UcumHttpServer(UcumLBKService ucumService, InetSocketAddress address, int maxConcurrency)
+            throws IOException {
+        this(ucumService, address, maxConcurrency, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH_BYTES);
+    }
+
+    /**
+     * Generates an HTTP server exposing the UCUM service with the endpoints described above.
+     * @param ucumService - the UCUM service handling the requests
+     * @param address - the address to bind to
+     * @param maxConcurrency - the maximum amount of requests handled concurrently
+     * @param queueCapacity - the maximum amount of requests waiting for a thread before requests are rejected
+     * @param maxBatchBytes - the maximum size of a batch request body in bytes
+     * @throws IOException when the server cannot be bound
+     */
+    public UcumHttpServer(UcumLBKService ucumService, InetSocketAddress address, int maxConcurrency,
+                          int queueCapacity, int maxBatchBytes) throws IOException {
+        this.ucumService = ucumService;
+        this.server = HttpServer.create(address, 0);
+        this.executorService = createVirtualThreadExecutor();
+        this.maxBatchBytes = maxBatchBytes;
+
+        if (executorService == null){
+            BlockingQueue<Runnable> queue = queueCapacity > 0 ?
+                    new ArrayBlockingQueue<Runnable>(queueCapacity) : new SynchronousQueue<Runnable>();
+            server.setExecutor(new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS, queue,
+                    (command, executor) -> rejections.execute(command)));
+        } else {
+            server.setExecutor(new BoundedExecutor(executorService, rejections, maxConcurrency, queueCapacity));
+        }
+
+        register("/isValid", "GET", this::isValid);
+        register("/convert", "GET", this::convert);
+        register("/canonicalize", "GET", this::canonicalize);
+        register("/displayName", "GET", this::displayName);
+        register("/convert/batch", "POST", this::convertBatch);
+        server.createContext("/statistics", exchange -> {
+            try {
+                if (isRejected()){
+                    respondUnavailable(exchange);
+                } else if (!"GET".equals(exchange.getRequestMethod())){
+                    respondMethodNotAllowed(exchange, "GET");
+                } else {
+                    respond(exchange, 200, renderStatistics());
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    /**
+     * Command-line entry point. Starts the server and keeps running until the JVM is terminated.
+     * @param args - the command-line arguments as described in the usage message
+     * @throws IOException when the server cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        String host = "127.0.0.1";
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]){
+                    case "--host":
+                        host = args[++i];
+                        break;
+                    case "--port":
+                        port = Integer.parseInt(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        System.err.println(USAGE);
+                        System.exit(2);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        UcumHttpServer ucumHttpServer = new UcumHttpServer(new UcumLBKService(), new InetSocketAddress(host, port),
+                threads);
+        ucumHttpServer.start();
+        System.err.println("UCUM service listening on " + ucumHttpServer.getAddress());
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start(){
+        server.start();
+    }
+
+    /**
+     * Stops the server, waiting at most the given amount of seconds for running requests to finish.
+     * @param delay - the maximum amount of seconds to wait
+     */
+    public void stop(int delay){
+        server.stop(delay);
+        if (executorService != null){
+            executorService.shutdown();
+        } else {
+            ((ThreadPoolExecutor) server.getExecutor()).shutdown();
+        }
+        rejections.shutdown();
+    }
+
+    /**
+     * Returns the address the server is bound to, which is useful when binding to port 0.
+     * @return Bound address
+     */
+    public InetSocketAddress getAddress(){
+        return server.getAddress();
+    }
+
+    /**
+     * Renders the latency and throughput statistics of every endpoint, one line per endpoint.
+     * @return Statistics as text
+     */
+    public String renderStatistics(){
+        double uptime = Math.max(System.nanoTime() - startTime, 1) / 1e9;
+        StringBuilder output = new StringBuilder();
+
+        for (Map.Entry<String, EndpointStatistics> endpoint : statistics.entrySet()) {
+            EndpointStatistics stats = endpoint.getValue();
+            long requests = stats.requests.sum();
+            output.append(endpoint.getKey())
+                    .append(" requests=").append(requests)
+                    .append(" errors=").append(stats.errors.sum())
+                    .append(" items=").append(stats.items.sum())
+                    .append(" meanLatencyMicros=")
+                    .append(requests == 0 ? 0 : stats.latencyNanos.sum() / requests / 1000)
+                    .append(" maxLatencyMicros=").append(stats.maxLatencyNanos.get() / 1000)
+                    .append(String.format(" itemsPerSecond=%.1f", stats.items.sum() / uptime))
+                    .append('\n');
+        }
+
+        return output.toString();
+    }
+
+    /**
+     * Handles GET /isValid?unit=
+     * @param exchange - the HTTP exchange
+     * @param stats - the endpoint's statistics
+     * @return true or false
+     * @throws IOException when an error response cannot be sent
+     */
+    private String isValid(HttpExchange exchange, EndpointStatistics stats) throws IOException {
+        String unit = requireParameter(exchange, "unit");
+        return unit == null ? null : String.valueOf(ucumService.isValid(unit));
+    }
+
+    /**
+     * Handles GET /convert?source=&amp;target=&amp;value=
+     * @param exchange - the HTTP exchange
+     * @param stats - the endpoint's statistics
+     * @return The converted value or null if an error response has been sent
+     * @throws IOException when an error response cannot be sent
+     */
+    private String convert(HttpExchange exchange, EndpointStatistics stats) throws IOException {
+        String source = requireParameter(exchange, "source");
+        String target = requireParameter(exchange, "target");
+        String value = requireParameter(exchange, "value");
+        if (source == null || target == null || value == null){
+            return null;
+        }
+
+        Double result = null;
+        try {
+            if (ucumService.isCommensurable(source, target)){
+                result = ucumService.convert(source, target, Double.parseDouble(value));
+            }
+        } catch (NumberFormatException e) {
+            result = null;
+        }
+        if (result == null){
+            respond(exchange, 422, "Not convertible\n");
+            return null;
+        }
+        return String.valueOf(result);
+    }
+
+    /**
+     * Handles GET /canonicalize?unit=
+     * @param exchange - the HTTP exchange
+     * @param stats - the endpoint's statistics
+     * @return The canonized form or null if an error response has been sent
+     * @throws IOException when an error response cannot be sent
+     */
+    private String canonicalize(HttpExchange exchange, EndpointStatistics stats) throws IOException {
+        String unit = requireParameter(exchange, "unit");
+        return unit == null ? null : requireResult(exchange, ucumService.generateCanonizedForm(unit));
+    }
+
+    /**
+     * Handles GET /displayName?unit=
+     * @param exchange - the HTTP exchange
+     * @param stats - the endpoint's statistics
+     * @return The display name or null if an error response has been sent
+     * @throws IOException when an error response cannot be sent
+     */
+    private String displayName(HttpExchange exchange, EndpointStatistics stats) throws IOException {
+        String unit = requireParameter(exchange, "unit");
+        return unit == null ? null : requireResult(exchange, ucumService.generateDisplayName(unit));
+    }
+
+    /**
+     * Handles POST /convert/batch. Converts one tab-separated conversion per line. Conversion factors are computed
+     * once per distinct pair of source and target unit within a batch. Blank and malformed lines produce an empty
+     * output line, so results stay on the line number of their input.
+     * @param exchange - the HTTP exchange
+     * @param stats - the endpoint's statistics
+     * @return One converted value per line or null if an error response has been sent
+     * @throws IOException when the request cannot be read or an error response cannot be sent
+     */
+    private String convertBatch(HttpExchange exchange, EndpointStatistics stats) throws IOException {
+        byte[] body = readBody(exchange, maxBatchBytes);
+        if (body == null){
+            respond(exchange, 413, "Batch larger than " + maxBatchBytes + " bytes\n");
+            return null;
+        }
+
+        HashMap<String, Double> factors = new HashMap<>();
+        StringBuilder output = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body),
+                StandardCharsets.UTF_8));
+        String line;
+
+        while ((line = reader.readLine()) != null){
+            if (line.isEmpty()){
+                //Keeps the result on the line of its input
+                output.append('\n');
+                continue;
+            }
+            stats.items.increment();
+
+            String[] columns = line.split("\t");
+            if (columns.length == 3){
+                String pair = columns[0] + '\t' + columns[1];
+                Double factor = factors.get(pair);
+                if (factor == null && !factors.containsKey(pair)){
+                    factor = ucumService.isCommensurable(columns[0], columns[1]) ?
+                            ucumService.convert(columns[0], columns[1], 1) : null;
+                    factors.put(pair, factor);
+                }
+                try {
+                    if (factor != null){
+                        output.append(factor * Double.parseDouble(columns[2]));
+                    }
+                } catch (NumberFormatException e) {
+                    //Leaves the line empty
+                }
+            }
+            output.append('\n');
+        }
+
+        return output.toString();
+    }
+
+    /**
+     * Reads a request body up to a maximum size.
+     * @param exchange - the HTTP exchange
+     * @param maxBytes - the maximum amount of bytes
+     * @return The body or null if it is larger than the maximum
+     * @throws IOException when the body cannot be read
+     */
+    private static byte[] readBody(HttpExchange exchange, int maxBytes) throws IOException {
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        try {
+            if (contentLength != null && Long.parseLong(contentLength.trim()) > maxBytes){
+                return null;
+            }
+        } catch (NumberFormatException e) {
+            //The length is checked while reading instead
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        InputStream input = exchange.getRequestBody();
+        int read;
+        while ((read = input.read(buffer)) != -1){
+            if (body.size() + read > maxBytes){
+                return null;
+            }
+            body.write(buffer, 0, read);
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * Registers an endpoint and records its latency and throughput.
+     * @param path - the endpoint's path
+     * @param method - the HTTP method the endpoint accepts
+     * @param endpoint - the endpoint's implementation
+     */
+    private void register(String path, String method, final Endpoint endpoint){
+        final EndpointStatistics stats = new EndpointStatistics();
+        statistics.put(path, stats);
+
+        server.createContext(path, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                long start = System.nanoTime();
+                try {
+                    if (isRejected()){
+                        respondUnavailable(exchange);
+                        stats.errors.increment();
+                        return;
+                    }
+                    if (!exchange.getRequestURI().getPath().equals(path)){
+                        respond(exchange, 404, "Not found\n");
+                        stats.errors.increment();
+                        return;
+                    }
+                    if (!method.equals(exchange.getRequestMethod())){
+                        respondMethodNotAllowed(exchange, method);
+                        stats.errors.increment();
+                        return;
+                    }
+                    String response = endpoint.handle(exchange, stats);
+                    if (response == null){
+                        stats.errors.increment();
+                    } else {
+                        respond(exchange, 200, response.endsWith("\n") ? response : response + "\n");
+                    }
+                } catch (RuntimeException e) {
+                    stats.errors.increment();
+                    respond(exchange, 500, "Internal error\n");
+                } finally {
+                    exchange.close();
+                    long latency = System.nanoTime() - start;
+                    stats.requests.increment();
+                    stats.latencyNanos.add(latency);
+                    if (!path.equals("/convert/batch")){
+                        stats.items.increment();
+                    }
+                    long max;
+                    while (latency > (max = stats.maxLatencyNanos.get()) &&
+                            !stats.maxLatencyNanos.compareAndSet(max, latency)){
+                        //Retries until the maximum is up to date
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Looks up a query parameter and answers with 400 Bad Request should it be missing.
+     * @param exchange - the HTTP exchange
+     * @param name - the parameter's name
+     * @return The decoded parameter or null if it is missing
+     * @throws IOException when the response cannot be sent
+     */
+    private String requireParameter(HttpExchange exchange, String name) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null){
+            for (String parameter : query.split("&")) {
+                int separator = parameter.indexOf('=');
+                if (separator > 0 && parameter.substring(0, separator).equals(name)){
+                    return decode(parameter.substring(separator + 1));
+                }
+            }
+        }
+        respond(exchange, 400, "Missing parameter " + name + "\n");
+        return null;
+    }
+
+    /**
+     * Answers with 422 Unprocessable Entity should the service not have produced a result.
+     * @param exchange - the HTTP exchange
+     * @param result - the service's result
+     * @return The result or null if it is missing
+     * @throws IOException when the response cannot be sent
+     */
+    private String requireResult(HttpExchange exchange, String result) throws IOException {
+        if (result == null){
+            respond(exchange, 422, "Not a valid unit for this operation\n");
+        }
+        return result;
+    }
+
+    /**
+     * Decodes a URL-encoded query parameter.
+     * @param value - the encoded value
+     * @return Decoded value
+     * @throws UnsupportedEncodingException never, as UTF-8 is always supported
+     */
+    private String decode(String value) throws UnsupportedEncodingException {
+        return URLDecoder.decode(value, "UTF-8");
+    }
+
+    /**
+     * Sends a plain text response.
+     * @param exchange - the HTTP exchange
+     * @param status - the HTTP status code
+     * @param body - the response body
+     * @throws IOException when the response cannot be sent
+     */
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    /**
+     * Answers with 405 Method Not Allowed.
+     * @param exchange - the HTTP exchange
+     * @param method - the HTTP method the endpoint accepts
+     * @throws IOException when the response cannot be sent
+     */
+    private void respondMethodNotAllowed(HttpExchange exchange, String method) throws IOException {
+        exchange.getResponseHeaders().set("Allow", method);
+        respond(exchange, 405, method + " required\n");
+    }
+
+    /**
+     * Answers with 503 Service Unavailable, asking the client to retry a second later.
+     * @param exchange - the HTTP exchange
+     * @throws IOException when the response cannot be sent
+     */
+    private void respondUnavailable(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        respond(exchange, 503, "Too many requests in progress\n");
+    }
+
+    /**
+     * Determines whether the current request was rejected by the executor, in which case its handler answers with
+     * 503 Service Unavailable right away instead of handling it. Rejected requests run on the rejection thread, so
+     * the dispatcher thread never writes a response.
+     * @return Status of the current request being rejected
+     */
+    private static boolean isRejected(){
+        return Thread.currentThread() instanceof RejectionThread;
+    }
+
+    /**
+     * Looks up Executors.newVirtualThreadPerTaskExecutor reflectively so the library still runs on JDKs without
+     * virtual threads.
+     * @return An executor starting a virtual thread per task or null if virtual threads are not supported
+     */
+    private static ExecutorService createVirtualThreadExecutor(){
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Implementation of a single endpoint. Endpoints return the response body or null if they have already
+     * answered with an error.
+     */
+    private interface Endpoint {
+        String handle(HttpExchange exchange, EndpointStatistics stats) throws IOException;
+    }
+
+    /**
+     * Executor limiting the amount of concurrently running tasks. Tasks beyond the limit wait for a permit on their
+     * own thread; once as many tasks wait as the queue capacity allows, further tasks are handed to the rejection
+     * executor.
+     */
+    private static final class BoundedExecutor implements Executor {
+
+        private final Executor delegate;
+        private final Executor rejections;
+        private final Semaphore admissions;
+        private final Semaphore permits;
+
+        private BoundedExecutor(Executor delegate, Executor rejections, int maxConcurrency, int queueCapacity){
+            this.delegate = delegate;
+            this.rejections = rejections;
+            this.admissions = new Semaphore(maxConcurrency + queueCapacity);
+            this.permits = new Semaphore(maxConcurrency);
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            if (!admissions.tryAcquire()){
+                rejections.execute(command);
+                return;
+            }
+            try {
+                delegate.execute(() -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        command.run();
+                    } finally {
+                        permits.release();
+                        admissions.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                admissions.release();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Daemon thread answering rejected requests with 503 Service Unavailable.
+     */
+    private static final class RejectionThread extends Thread {
+
+        private RejectionThread(Runnable task){
+            super(task, "ucum-http-rejections");
+            setDaemon(true);
+        }
+    }
+
+    /**
+     * Request, error and latency tallies of a single endpoint.
+     */
+    private static final class EndpointStatistics {
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder items = new LongAdder();
+        private final LongAdder latencyNanos = new LongAdder();
+        private final AtomicLong maxLatencyNanos = new AtomicLong();
+    }
+
+}
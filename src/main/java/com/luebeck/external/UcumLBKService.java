@@ -1,16 +1,57 @@
 package com.luebeck.external;
 
+import com.luebeck.internal.DimensionVector;
+import com.luebeck.internal.UcumCacheListener;
 import com.luebeck.internal.UcumFunction;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 public class UcumLBKService {
 
-    private static final UcumFunction e = new UcumFunction();
+    private static final String NEGATIVE_QUANTITY = "negative quantity";
+    private static final String NON_FINITE_QUANTITY = "non-finite quantity";
+    private static final String EXPONENT_OUT_OF_RANGE = "exponent out of range";
+    private static final String NO_CANONICAL_KEY = "no canonical key";
+
+    private final UcumFunction e;
+    private final UcumMetrics metrics;
 
     /**
      * Generates the UCUM service that is used to access the given functions of the library.
      */
     public UcumLBKService(){
+        this(UcumMetrics.NOOP);
+    }
+
+    /**
+     * Generates the UCUM service that is used to access the given functions of the library and reports
+     * call counts, latencies, validation failures and cache activity to the given metrics.
+     * @param metrics - the metrics receiving the measurements
+     */
+    public UcumLBKService(final UcumMetrics metrics){
+        this.metrics = metrics;
+        if (metrics == UcumMetrics.NOOP){
+            this.e = new UcumFunction();
+        } else {
+            this.e = new UcumFunction(new UcumCacheListener() {
+                @Override
+                public void cacheHit(String cache) {
+                    metrics.recordCacheHit(cache);
+                }
+
+                @Override
+                public void cacheMiss(String cache) {
+                    metrics.recordCacheMiss(cache);
+                }
 
+                @Override
+                public void cacheEviction(String cache) {
+                    metrics.recordCacheEviction(cache);
+                }
+            });
+        }
     }
 
     /**
@@ -19,7 +60,12 @@ public class UcumLBKService {
      * @return Validity of the input according to the UCUM syntax
      */
     public boolean isValid(String source){
-        return e.isValid(source);
+        long start = System.nanoTime();
+        if (!recordValidation(UcumOperation.IS_VALID, start, e.checkValidity(source))){
+            return false;
+        }
+        metrics.recordOperation(UcumOperation.IS_VALID, System.nanoTime() - start, 0, true);
+        return true;
     }
 
     /**
@@ -29,10 +75,18 @@ public class UcumLBKService {
      * @return Status of the commensurability of two units
      */
     public boolean isCommensurable(String source, String target){
-        if (!e.eligibleForOperations(source) || !e.eligibleForOperations(target)){
+        long start = System.nanoTime();
+        String failure = e.checkEligibilityForOperations(source);
+        if (failure == null){
+            failure = e.checkEligibilityForOperations(target);
+        }
+        if (!recordValidation(UcumOperation.IS_COMMENSURABLE, start, failure)){
             return false;
         } else {
-            return e.isCommensurable(source, target);
+            long validated = System.nanoTime();
+            boolean result = e.isCommensurable(source, target);
+            recordEvaluation(UcumOperation.IS_COMMENSURABLE, start, validated);
+            return result;
         }
     }
 
@@ -46,10 +100,18 @@ public class UcumLBKService {
      * @return Quantity of the source unit expressed as the target unit
      */
     public Double convert(String source, String target, double sourceQuantity){
-        if (!e.eligibleForOperations(source) || !e.eligibleForOperations(target)){
+        long start = System.nanoTime();
+        String failure = e.checkEligibilityForOperations(source);
+        if (failure == null){
+            failure = e.checkEligibilityForOperations(target);
+        }
+        if (!recordValidation(UcumOperation.CONVERT, start, failure)){
             return null;
         } else {
-            return e.convert(source, target, sourceQuantity);
+            long validated = System.nanoTime();
+            double result = e.convert(source, target, sourceQuantity);
+            recordEvaluation(UcumOperation.CONVERT, start, validated);
+            return result;
         }
     }
 
@@ -61,10 +123,15 @@ public class UcumLBKService {
      * @return The base unit composition of the source unit
      */
     public int[] generateCanonVector(String source){
-        if (!e.eligibleForCanonization(source)){
+        long start = System.nanoTime();
+        if (!recordValidation(UcumOperation.GENERATE_CANON_VECTOR, start,
+                e.checkEligibilityForCanonization(source))){
             return null;
         } else {
-            return e.generateCanonVector(source);
+            long validated = System.nanoTime();
+            int[] result = e.generateCanonVector(source);
+            recordEvaluation(UcumOperation.GENERATE_CANON_VECTOR, start, validated);
+            return result;
         }
     }
 
@@ -75,10 +142,295 @@ public class UcumLBKService {
      * @return The pair of base unit composition and its magnitude ergo the canonized form
      */
     public String generateCanonizedForm(String source){
-        if (!e.eligibleForCanonization(source)){
+        long start = System.nanoTime();
+        if (!recordValidation(UcumOperation.GENERATE_CANONIZED_FORM, start,
+                e.checkEligibilityForCanonization(source))){
             return null;
         } else {
-            return e.generateCanonizedForm(source);
+            long validated = System.nanoTime();
+            String result = e.generateCanonizedForm(source);
+            recordEvaluation(UcumOperation.GENERATE_CANONIZED_FORM, start, validated);
+            return result;
+        }
+    }
+
+    /**
+     * Generates the canonical form of a UCUM unit, which holds the packed canon vector and the magnitude of the unit
+     * instead of rendering them into a string. Arbitrary units may not partake in the act of canonization. The
+     * magnitude of a special unit such as Cel or [degF] is that of its scale without any offset or function, so it
+     * must not be used to convert values of special units.
+     * @param source - the source unit
+     * @return The canonical form of the source unit
+     */
+    public CanonicalForm generateCanonicalForm(String source){
+        long start = System.nanoTime();
+        if (!recordValidation(UcumOperation.GENERATE_CANONICAL_FORM, start,
+                e.checkEligibilityForCanonization(source))){
+            return null;
+        }
+        long validated = System.nanoTime();
+        try {
+            CanonicalForm result = CanonicalForm.of(e.generatePackedCanonVector(source),
+                    e.generateCanonValue(source));
+            recordEvaluation(UcumOperation.GENERATE_CANONICAL_FORM, start, validated);
+            return result;
+        } catch (ArithmeticException ex) {
+            recordValidation(UcumOperation.GENERATE_CANONICAL_FORM, start, EXPONENT_OUT_OF_RANGE);
+            return null;
+        }
+    }
+
+    /**
+     * Multiplies two UCUM units and their respective quantities and keeps the magnitude of the result. Special and
+     * arbitrary units may not partake in the act of multiplication.
+     * @param source - the source unit
+     * @param sourceQuantity - the source unit's quantity
+     * @param target - the target unit
+     * @param targetQuantity - the target unit's quantity
+     * @return The multiplication's result as a canonical form
+     */
+    public CanonicalForm generateCanonicalProduct(String source, double sourceQuantity, String target,
+                                                  double targetQuantity){
+        long start = System.nanoTime();
+        String failure = e.checkEligibilityForOperations(source);
+        if (failure == null){
+            failure = e.checkEligibilityForOperations(target);
+        }
+        if (!recordValidation(UcumOperation.GENERATE_CANONICAL_PRODUCT, start, failure)){
+            return null;
+        }
+        long validated = System.nanoTime();
+        try {
+            CanonicalForm result = CanonicalForm.of(
+                    DimensionVector.add(e.generatePackedCanonVector(source), e.generatePackedCanonVector(target)),
+                    e.generateCanonValue(source) * e.generateCanonValue(target) * sourceQuantity * targetQuantity);
+            recordEvaluation(UcumOperation.GENERATE_CANONICAL_PRODUCT, start, validated);
+            return result;
+        } catch (ArithmeticException ex) {
+            recordValidation(UcumOperation.GENERATE_CANONICAL_PRODUCT, start, EXPONENT_OUT_OF_RANGE);
+            return null;
+        }
+    }
+
+    /**
+     * Divides two UCUM units and their respective quantities and keeps the magnitude of the result. Special and
+     * arbitrary units may not partake in the act of division.
+     * @param source - the source unit
+     * @param sourceQuantity - the source unit's quantity
+     * @param target - the target unit
+     * @param targetQuantity - the target unit's quantity
+     * @return The division's result as a canonical form
+     */
+    public CanonicalForm generateCanonicalQuotient(String source, double sourceQuantity, String target,
+                                                   double targetQuantity){
+        long start = System.nanoTime();
+        String failure = e.checkEligibilityForOperations(source);
+        if (failure == null){
+            failure = e.checkEligibilityForOperations(target);
+        }
+        if (!recordValidation(UcumOperation.GENERATE_CANONICAL_QUOTIENT, start, failure)){
+            return null;
+        }
+        long validated = System.nanoTime();
+        try {
+            CanonicalForm result = CanonicalForm.of(
+                    DimensionVector.subtract(e.generatePackedCanonVector(source),
+                            e.generatePackedCanonVector(target)),
+                    e.generateCanonValue(source) / e.generateCanonValue(target) * (sourceQuantity / targetQuantity));
+            recordEvaluation(UcumOperation.GENERATE_CANONICAL_QUOTIENT, start, validated);
+            return result;
+        } catch (ArithmeticException ex) {
+            recordValidation(UcumOperation.GENERATE_CANONICAL_QUOTIENT, start, EXPONENT_OUT_OF_RANGE);
+            return null;
+        }
+    }
+
+    /**
+     * Lists all units of the UCUM essence the source unit can be converted to. Special and arbitrary units are not
+     * listed.
+     * @param source - the source unit
+     * @param includePrefixes - whether prefixed variants of metric units (e.g., km, mm) are to be listed as well
+     * @return Unmodifiable list of case-sensitive unit codes commensurable with the source
+     */
+    public List<String> findCommensurableUnits(String source, boolean includePrefixes){
+        long start = System.nanoTime();
+        if (!recordValidation(UcumOperation.FIND_COMMENSURABLE_UNITS, start,
+                e.checkEligibilityForOperations(source))){
+            return null;
+        }
+        long validated = System.nanoTime();
+        try {
+            List<String> result = e.findCommensurableUnits(e.generatePackedCanonVector(source), includePrefixes);
+            recordEvaluation(UcumOperation.FIND_COMMENSURABLE_UNITS, start, validated);
+            return result;
+        } catch (ArithmeticException ex) {
+            recordValidation(UcumOperation.FIND_COMMENSURABLE_UNITS, start, EXPONENT_OUT_OF_RANGE);
+            return null;
+        }
+    }
+
+    /**
+     * Lists all units of the UCUM essence with the given canon vector [m,s,g,rad,K,C,cd]. Special and arbitrary
+     * units are not listed.
+     * @param canonVector - the canon vector
+     * @param includePrefixes - whether prefixed variants of metric units (e.g., km, mm) are to be listed as well
+     * @return Unmodifiable list of case-sensitive unit codes with the canon vector
+     */
+    public List<String> findCommensurableUnits(int[] canonVector, boolean includePrefixes){
+        long start = System.nanoTime();
+        String failure = null;
+        if (canonVector == null || canonVector.length != DimensionVector.BASE_UNIT_COUNT){
+            failure = UcumFunction.INVALID_SYNTAX;
+        } else if (!DimensionVector.fits(canonVector)){
+            failure = EXPONENT_OUT_OF_RANGE;
+        }
+        if (!recordValidation(UcumOperation.FIND_COMMENSURABLE_UNITS, start, failure)){
+            return null;
+        } else {
+            long validated = System.nanoTime();
+            List<String> result = e.findCommensurableUnits(DimensionVector.pack(canonVector), includePrefixes);
+            recordEvaluation(UcumOperation.FIND_COMMENSURABLE_UNITS, start, validated);
+            return result;
+        }
+    }
+
+    /**
+     * Searches the units and prefixes of the UCUM essence for a typeahead, e.g. on every keystroke of an order entry
+     * form. Case-sensitive codes, capital codes, all names and print symbols are matched by prefix and substring,
+     * ignoring case. Exact codes rank first, then prefix matches of codes, then prefix matches of names and print
+     * symbols, then substring matches; within each tier shorter terms rank first. The matches are shared instances
+     * built once.
+     * @param query - the characters typed so far
+     * @param limit - the maximum amount of matches
+     * @return Ranked matches, empty if there are none
+     */
+    public List<UnitSearchMatch> searchUnits(String query, int limit){
+        long start = System.nanoTime();
+        if (!recordValidation(UcumOperation.SEARCH_UNITS, start,
+                query == null || limit < 0 ? UcumFunction.INVALID_SYNTAX : null)){
+            return null;
+        }
+        long validated = System.nanoTime();
+        UnitSearchMatch[] matches = SearchMatches.get(e);
+        int[] entries = new int[Math.min(limit, matches.length)];
+        int count = e.searchUnits(query, entries);
+        List<UnitSearchMatch> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(matches[entries[i]]);
+        }
+        recordEvaluation(UcumOperation.SEARCH_UNITS, start, validated);
+        return result;
+    }
+
+    /**
+     * Suggests valid UCUM expressions close to an invalid one, for example mm[Hg] for mmHg or mL/min for mL/mins. Each
+     * unknown atom is replaced by close unit codes or prefixed units while its exponent and annotation are kept.
+     * Changes of case and missing square brackets count as half an edit. Suggestions are ranked by their distance and
+     * cached per spelling of the source.
+     * @param source - the source unit
+     * @param limit - the maximum amount of suggestions, at most UcumFunction.MAX_SUGGESTIONS are returned
+     * @return The ranked suggestions, only the source itself if it is valid, empty if there are none
+     */
+    public List<String> suggestCorrections(String source, int limit){
+        long start = System.nanoTime();
+        if (!recordValidation(UcumOperation.SUGGEST_CORRECTIONS, start,
+                source == null || limit < 0 ? UcumFunction.INVALID_SYNTAX : null)){
+            return null;
+        }
+        long validated = System.nanoTime();
+        List<String> suggestions = e.suggestCorrections(source, limit);
+        recordEvaluation(UcumOperation.SUGGEST_CORRECTIONS, start, validated);
+        return suggestions;
+    }
+
+    /**
+     * Transcodes a valid case-sensitive UCUM expression into its capital form, for example mg/dL to MG/DL or
+     * ug{total}/mL to UG{total}/ML. Exponents and annotations are kept.
+     * @param source - the case-sensitive source unit
+     * @return The capital form or null if the source is invalid or contains capital symbols
+     */
+    public String toCapitalForm(String source){
+        long start = System.nanoTime();
+        if (!recordValidation(UcumOperation.TO_CAPITAL_FORM, start, e.checkValidity(source))){
+            return null;
+        }
+        long validated = System.nanoTime();
+        String result = e.toCapital(source);
+        if (!recordValidation(UcumOperation.TO_CAPITAL_FORM, start, result == null ? UcumFunction.UNKNOWN_UNIT : null)){
+            return null;
+        }
+        recordEvaluation(UcumOperation.TO_CAPITAL_FORM, start, validated);
+        return result;
+    }
+
+    /**
+     * Transcodes a capital UCUM expression into its case-sensitive form, for example MG/DL to mg/dL or KPAL to kPa.
+     * Every symbol is read as a capital symbol, so MG is read as milligram rather than megagauss, and exponents and
+     * annotations are kept. Capital expressions such as MG/DL are otherwise rejected as mixed case since MG and DL
+     * are read in different representations.
+     * @param source - the capital source unit
+     * @return The case-sensitive form or null if the source contains symbols that are no capital units or the
+     * transcoded expression is invalid
+     */
+    public String toCaseSensitiveForm(String source){
+        long start = System.nanoTime();
+        String result = source == null ? null : e.toCaseSens(source);
+        if (!recordValidation(UcumOperation.TO_CASE_SENSITIVE_FORM, start,
+                result == null ? UcumFunction.UNKNOWN_UNIT : e.checkValidity(result))){
+            return null;
+        }
+        recordEvaluation(UcumOperation.TO_CASE_SENSITIVE_FORM, start, System.nanoTime());
+        return result;
+    }
+
+    /**
+     * Simplifies a UCUM expression to a short expression of named units with the same dimensions and magnitude, for
+     * example N.m to J, kN.m to kJ or the result of multiplyUnits("N", 1, "m", 1), m2.s-2.g, to mJ. Expressions that
+     * cannot be shortened, such as mg/dL or km/h, are returned as they are, as are expressions whose simplification
+     * would read worse than their base unit term, such as m6 (kL2) or m3/s (L/ms).
+     * @param source - the source unit
+     * @return The simplified expression
+     */
+    public String simplifyUnits(String source){
+        long start = System.nanoTime();
+        if (!recordValidation(UcumOperation.SIMPLIFY_UNITS, start, e.checkEligibilityForOperations(source))){
+            return null;
+        }
+        long validated = System.nanoTime();
+        try {
+            String result = e.simplify(source);
+            recordEvaluation(UcumOperation.SIMPLIFY_UNITS, start, validated);
+            return result;
+        } catch (ArithmeticException ex) {
+            recordValidation(UcumOperation.SIMPLIFY_UNITS, start, EXPONENT_OUT_OF_RANGE);
+            return null;
+        }
+    }
+
+    /**
+     * Expresses a quantity in the prefixed variant of its unit that puts the value into the range [1, 1000), for
+     * example 0.000012 g as 12 ug or 1500 g as 1.5 kg. Exponents and annotations are kept (e.g., 2500000 m2 becomes
+     * 2.5 km2). Quantities of zero and quantities of units that cannot be prefixed, such as [in_i] or expressions made
+     * up of several units, are returned in their source unit.
+     * @param source - the source unit
+     * @param quantity - the finite quantity expressed in the source unit
+     * @return The quantity expressed in the selected unit
+     */
+    public UcumQuantity selectReadableUnit(String source, double quantity){
+        long start = System.nanoTime();
+        String failure = e.checkEligibilityForOperations(source);
+        if (failure == null && (Double.isNaN(quantity) || Double.isInfinite(quantity))){
+            failure = NON_FINITE_QUANTITY;
+        }
+        if (!recordValidation(UcumOperation.SELECT_READABLE_UNIT, start, failure)){
+            return null;
+        } else {
+            long validated = System.nanoTime();
+            String target = quantity == 0 ? null : e.selectReadablePrefixedUnit(source, quantity);
+            UcumQuantity result = target == null || target.equals(source) ? UcumQuantity.of(quantity, source) :
+                    UcumQuantity.of(e.convert(source, target, quantity), target);
+            recordEvaluation(UcumOperation.SELECT_READABLE_UNIT, start, validated);
+            return result;
         }
     }
 
@@ -91,10 +443,18 @@ public class UcumLBKService {
      * @return The multiplication's result in its canonized form
      */
     public String multiplyUnits(String source, double sourceQuantity, String target, double targetQuantity){
-        if (!e.eligibleForOperations(source) || !e.eligibleForOperations(target)){
+        long start = System.nanoTime();
+        String failure = e.checkEligibilityForOperations(source);
+        if (failure == null){
+            failure = e.checkEligibilityForOperations(target);
+        }
+        if (!recordValidation(UcumOperation.MULTIPLY_UNITS, start, failure)){
             return null;
         } else {
-            return e.multiply(source, sourceQuantity, target, targetQuantity);
+            long validated = System.nanoTime();
+            String result = e.multiply(source, sourceQuantity, target, targetQuantity);
+            recordEvaluation(UcumOperation.MULTIPLY_UNITS, start, validated);
+            return result;
         }
     }
 
@@ -107,10 +467,18 @@ public class UcumLBKService {
      * @return The division's result in its canonized form
      */
     public String divideUnits(String source, double sourceQuantity, String target, double targetQuantity){
-        if (!e.eligibleForCanonization(source) || !e.eligibleForCanonization(target)){
+        long start = System.nanoTime();
+        String failure = e.checkEligibilityForCanonization(source);
+        if (failure == null){
+            failure = e.checkEligibilityForCanonization(target);
+        }
+        if (!recordValidation(UcumOperation.DIVIDE_UNITS, start, failure)){
             return null;
         } else {
-            return e.divide(source, sourceQuantity, target, targetQuantity);
+            long validated = System.nanoTime();
+            String result = e.divide(source, sourceQuantity, target, targetQuantity);
+            recordEvaluation(UcumOperation.DIVIDE_UNITS, start, validated);
+            return result;
         }
     }
 
@@ -120,10 +488,58 @@ public class UcumLBKService {
      * @return Display name for a unit
      */
     public String generateDisplayName(String source){
-        if (!e.isValid(source)){
+        long start = System.nanoTime();
+        if (!recordValidation(UcumOperation.GENERATE_DISPLAY_NAME, start, e.checkValidity(source))){
+            return null;
+        } else {
+            long validated = System.nanoTime();
+            String result = e.generateDisplayName(source);
+            recordEvaluation(UcumOperation.GENERATE_DISPLAY_NAME, start, validated);
+            return result;
+        }
+    }
+
+    /**
+     * Appends the display name for a given UCUM unit to an output, for example while rendering a table. On a cache
+     * miss, the display name is rendered straight into a StringBuilder output; other outputs receive a copy.
+     * @param source - the source unit
+     * @param output - the output the display name is appended to
+     * @return Whether the source is valid and its display name has been appended
+     * @throws IOException when the output cannot be appended to
+     */
+    public boolean appendDisplayName(String source, Appendable output) throws IOException {
+        long start = System.nanoTime();
+        if (!recordValidation(UcumOperation.GENERATE_DISPLAY_NAME, start, e.checkValidity(source))){
+            return false;
+        } else {
+            long validated = System.nanoTime();
+            e.appendDisplayName(source, output);
+            recordEvaluation(UcumOperation.GENERATE_DISPLAY_NAME, start, validated);
+            return true;
+        }
+    }
+
+    /**
+     * Generates the canonical key for a given UCUM unit. Spelling variants of the same unit such as mg/dL, mg.dL-1
+     * and (mg)/(dL) share the same key, which makes it suitable for keying caches and interners.
+     * @param source - the source unit
+     * @param dropAnnotations - whether annotations are to be discarded (e.g., mg{total}/dL -> mg/dL)
+     * @return Canonical key for a unit or null if the unit has none, e.g. GAL, whose case-sensitive form GL reads
+     * as another unit
+     */
+    public String generateCanonicalKey(String source, boolean dropAnnotations){
+        long start = System.nanoTime();
+        if (!recordValidation(UcumOperation.GENERATE_CANONICAL_KEY, start, e.checkValidity(source))){
             return null;
         } else {
-            return e.generateDisplayName(source);
+            long validated = System.nanoTime();
+            String result = e.generateCanonicalKey(source, dropAnnotations);
+            if (result == null){
+                recordValidation(UcumOperation.GENERATE_CANONICAL_KEY, start, NO_CANONICAL_KEY);
+            } else {
+                recordEvaluation(UcumOperation.GENERATE_CANONICAL_KEY, start, validated);
+            }
+            return result;
         }
     }
 
@@ -133,12 +549,167 @@ public class UcumLBKService {
      * @return Valid UCUM representation of a positive numeric input especially for use with floating point values
      */
     public String convertNumberToUcum(double quantity){
-        if (quantity < 0){
+        long start = System.nanoTime();
+        if (!recordValidation(UcumOperation.CONVERT_NUMBER_TO_UCUM, start, checkQuantity(quantity))){
             return null;
         } else {
-            return e.numberToUcumExpression(quantity);
+            long validated = System.nanoTime();
+            String result = e.numberToUcumExpression(quantity);
+            recordEvaluation(UcumOperation.CONVERT_NUMBER_TO_UCUM, start, validated);
+            return result;
         }
     }
 
-}
+    /**
+     * Appends the UCUM representation of a given positive quantity (e.g., 1.5 -> 15.10^-1) to an output without
+     * allocating any intermediate strings.
+     * @param quantity - the quantity to be converted
+     * @param output - the output the representation is appended to
+     * @return Whether the quantity could be represented and has been appended
+     * @throws IOException when the output cannot be appended to
+     */
+    public boolean convertNumberToUcum(double quantity, Appendable output) throws IOException {
+        long start = System.nanoTime();
+        if (!recordValidation(UcumOperation.CONVERT_NUMBER_TO_UCUM, start, checkQuantity(quantity))){
+            return false;
+        } else {
+            long validated = System.nanoTime();
+            e.numberToUcumExpression(quantity, output);
+            recordEvaluation(UcumOperation.CONVERT_NUMBER_TO_UCUM, start, validated);
+            return true;
+        }
+    }
+
+    /**
+     * Parses a UCUM numeric factor such as 15.10^-1, 10*3 or 50, the inverse of convertNumberToUcum. Parsing
+     * validates the factor, so it is reported as validation.
+     * @param source - the numeric factor
+     * @return Value of the numeric factor or Double.NaN if the source is not a numeric factor
+     */
+    public double convertUcumToNumber(CharSequence source){
+        long start = System.nanoTime();
+        double result = source == null ? Double.NaN : e.ucumExpressionToNumber(source, 0, source.length());
+        long validated = System.nanoTime();
+        if (!recordValidation(UcumOperation.CONVERT_UCUM_TO_NUMBER, start,
+                Double.isNaN(result) ? UcumFunction.INVALID_SYNTAX : null)){
+            return Double.NaN;
+        } else {
+            recordEvaluation(UcumOperation.CONVERT_UCUM_TO_NUMBER, start, validated);
+            return result;
+        }
+    }
+
+    /**
+     * Looks up the case-sensitive code of a print symbol, optionally preceded by the print symbol of a prefix, for
+     * example Cel for °C or ug for µg. Used by UcumAliasResolver.
+     * @param printSymbol - the print symbol without HTML markup
+     * @return Case-sensitive code or null if the print symbol is unknown, ambiguous or a valid atom by itself
+     */
+    String lookupPrintSymbol(String printSymbol){
+        return e.lookupPrintSymbol(printSymbol);
+    }
+
+    /**
+     * Determines whether a unit can be converted by a factor, that is whether it is valid and neither special nor
+     * arbitrary. Unlike probing with convert, no operation is reported to the metrics. Used by the conversion
+     * helpers of this package.
+     * @param unit - the unit
+     * @return Status of the unit being convertible by a factor
+     */
+    boolean isConvertibleByFactor(String unit){
+        return unit != null && e.checkEligibilityForOperations(unit) == null;
+    }
+
+    /**
+     * Generates the canonical form of a unit that can be converted by a factor. Special units canonize as well, but
+     * their magnitude does not convert their values, so they get no form here. Like isConvertibleByFactor, no
+     * operation is reported to the metrics. Used by the conversion helpers of this package.
+     * @param unit - the unit
+     * @return The canonical form or null if the unit is invalid, special or arbitrary
+     */
+    CanonicalForm generateConvertibleForm(String unit){
+        if (!isConvertibleByFactor(unit)){
+            return null;
+        }
+        try {
+            return CanonicalForm.of(e.generatePackedCanonVector(unit), e.generateCanonValue(unit));
+        } catch (ArithmeticException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Empties the caches of the library, which are shared between all instances. Later calls recompute and cache
+     * their results again.
+     */
+    public void clearCaches(){
+        e.clearCaches();
+    }
+
+    /**
+     * Determines why a quantity cannot be represented as a UCUM numeric factor.
+     * @param quantity - the quantity
+     * @return The reason the quantity is rejected or null if it can be represented
+     */
+    private String checkQuantity(double quantity){
+        if (Double.isNaN(quantity) || Double.isInfinite(quantity)){
+            return NON_FINITE_QUANTITY;
+        }
+        return quantity < 0 ? NEGATIVE_QUANTITY : null;
+    }
 
+    /**
+     * Reports the outcome of an operation's validation. Failed validations are reported as a finished operation
+     * right away.
+     * @param operation - the operation
+     * @param start - the System.nanoTime() the operation started at
+     * @param failure - the reason an input has been rejected or null
+     * @return Whether the operation may proceed to its evaluation
+     */
+    private boolean recordValidation(UcumOperation operation, long start, String failure){
+        if (failure == null){
+            return true;
+        }
+        metrics.recordValidationFailure(operation, failure);
+        metrics.recordOperation(operation, System.nanoTime() - start, 0, false);
+        return false;
+    }
+
+    /**
+     * Reports a successfully evaluated operation.
+     * @param operation - the operation
+     * @param start - the System.nanoTime() the operation started at
+     * @param validated - the System.nanoTime() the validation finished at
+     */
+    private void recordEvaluation(UcumOperation operation, long start, long validated){
+        metrics.recordOperation(operation, validated - start, System.nanoTime() - validated, true);
+    }
+
+    /**
+     * The search matches of all units and prefixes, built on first use.
+     */
+    private static final class SearchMatches {
+
+        private static volatile UnitSearchMatch[] matches;
+
+        /**
+         * Returns the search matches of all search entries, building them on first use.
+         * @param ucumFunction - the functions the search entries are read from
+         * @return The search matches indexed by search entry
+         */
+        private static UnitSearchMatch[] get(UcumFunction ucumFunction){
+            UnitSearchMatch[] result = matches;
+            if (result == null){
+                result = new UnitSearchMatch[ucumFunction.getSearchEntryCount()];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = new UnitSearchMatch(ucumFunction.getSearchEntryCode(i),
+                            ucumFunction.getSearchEntryCapitalCode(i), ucumFunction.getSearchEntryNames(i),
+                            ucumFunction.getSearchEntryPrintSymbol(i), ucumFunction.isSearchEntryPrefix(i));
+                }
+                matches = result;
+            }
+            return result;
+        }
+    }
+
+}
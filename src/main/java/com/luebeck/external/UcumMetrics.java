@@ -0,0 +1,57 @@
+package com.luebeck.external;
+
+/**
+ * Receives metrics from a UcumLBKService. Every method defaults to doing nothing so implementations only need to
+ * override what they are interested in. Implementations are called on the caller's thread and must be thread-safe
+ * and cheap.
+ */
+public interface UcumMetrics {
+
+    /**
+     * Metrics implementation that discards everything. Used by default.
+     */
+    UcumMetrics NOOP = new UcumMetrics() {
+    };
+
+    /**
+     * Called once per call of a public operation. Validation covers the syntax and eligibility checks of the inputs,
+     * evaluation covers parsing, traversal and rendering of the result and is zero should validation have failed.
+     * @param operation - the operation
+     * @param validationNanos - the time spent validating the inputs
+     * @param evaluationNanos - the time spent evaluating the operation
+     * @param success - whether the operation produced a result
+     */
+    default void recordOperation(UcumOperation operation, long validationNanos, long evaluationNanos,
+                                 boolean success){
+    }
+
+    /**
+     * Called whenever an operation rejects one of its inputs.
+     * @param operation - the operation
+     * @param reason - the reason the input has been rejected (e.g., unknown unit)
+     */
+    default void recordValidationFailure(UcumOperation operation, String reason){
+    }
+
+    /**
+     * Called whenever a look-up is answered by one of the library's caches.
+     * @param cache - the name of the cache
+     */
+    default void recordCacheHit(String cache){
+    }
+
+    /**
+     * Called whenever a look-up is not answered by one of the library's caches.
+     * @param cache - the name of the cache
+     */
+    default void recordCacheMiss(String cache){
+    }
+
+    /**
+     * Called whenever one of the library's caches evicts an entry.
+     * @param cache - the name of the cache
+     */
+    default void recordCacheEviction(String cache){
+    }
+
+}
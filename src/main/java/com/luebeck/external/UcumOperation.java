@@ -0,0 +1,28 @@
+package com.luebeck.external;
+
+/**
+ * The public operations of the UcumLBKService as reported to UcumMetrics.
+ */
+public enum UcumOperation {
+    IS_VALID,
+    IS_COMMENSURABLE,
+    CONVERT,
+    GENERATE_CANON_VECTOR,
+    GENERATE_CANONIZED_FORM,
+    GENERATE_CANONICAL_FORM,
+    GENERATE_CANONICAL_PRODUCT,
+    GENERATE_CANONICAL_QUOTIENT,
+    FIND_COMMENSURABLE_UNITS,
+    SELECT_READABLE_UNIT,
+    SIMPLIFY_UNITS,
+    SEARCH_UNITS,
+    SUGGEST_CORRECTIONS,
+    TO_CAPITAL_FORM,
+    TO_CASE_SENSITIVE_FORM,
+    MULTIPLY_UNITS,
+    DIVIDE_UNITS,
+    GENERATE_DISPLAY_NAME,
+    GENERATE_CANONICAL_KEY,
+    CONVERT_NUMBER_TO_UCUM,
+    CONVERT_UCUM_TO_NUMBER
+}
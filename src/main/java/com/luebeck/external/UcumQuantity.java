@@ -0,0 +1,73 @@
+package com.luebeck.external;
+
+/**
+ * Immutable pair of a value and the UCUM unit it is expressed in.
+ */
+public final class UcumQuantity {
+
+    private final double value;
+    private final String unit;
+
+    /**
+     * Constructor for a quantity.
+     * @param value - the value
+     * @param unit - the UCUM unit of the value
+     */
+    private UcumQuantity(double value, String unit){
+        this.value = value;
+        this.unit = unit;
+    }
+
+    /**
+     * Generates a quantity from its value and unit.
+     * @param value - the value
+     * @param unit - the UCUM unit of the value
+     * @return The quantity
+     */
+    public static UcumQuantity of(double value, String unit){
+        return new UcumQuantity(value, unit);
+    }
+
+    /**
+     * Returns the value of this quantity.
+     * @return Value expressed in the unit of this quantity
+     */
+    public double getValue(){
+        return value;
+    }
+
+    /**
+     * Returns the unit of this quantity.
+     * @return UCUM unit of this quantity
+     */
+    public String getUnit(){
+        return unit;
+    }
+
+    /**
+     * Renders this quantity as its value followed by its unit (e.g., 12.0 ug).
+     * @return The rendered quantity
+     */
+    @Override
+    public String toString(){
+        return value + " " + unit;
+    }
+
+    @Override
+    public boolean equals(Object other){
+        if (this == other){
+            return true;
+        }
+        if (!(other instanceof UcumQuantity)){
+            return false;
+        }
+        UcumQuantity quantity = (UcumQuantity) other;
+        return Double.compare(value, quantity.value) == 0 && unit.equals(quantity.unit);
+    }
+
+    @Override
+    public int hashCode(){
+        return 31 * Double.hashCode(value) + unit.hashCode();
+    }
+
+}
@@ -0,0 +1,160 @@
+package com.luebeck.external;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Immutable partition of a collection of units into classes of commensurable units. Each distinct unit is canonized
+ * exactly once, in parallel, and units are grouped by their packed canon vector, which avoids comparing every pair
+ * of units. Units that are invalid, special or arbitrary are collected separately.
+ */
+public final class UnitPartition {
+
+    private final List<CommensurabilityClass> classes;
+    private final Map<String, CommensurabilityClass> classesByUnit;
+    private final List<String> rejected;
+
+    /**
+     * Constructor for a partition.
+     * @param classes - the classes in order of appearance
+     * @param rejected - the rejected units in order of appearance
+     */
+    private UnitPartition(List<CommensurabilityClass> classes, List<String> rejected){
+        this.classes = Collections.unmodifiableList(classes);
+        this.rejected = Collections.unmodifiableList(rejected);
+        this.classesByUnit = new HashMap<>();
+        for (CommensurabilityClass commensurabilityClass : classes) {
+            for (String unit : commensurabilityClass.getFactors().keySet()) {
+                classesByUnit.put(unit, commensurabilityClass);
+            }
+        }
+    }
+
+    /**
+     * Partitions units into classes of commensurable units using as many threads as there are processors.
+     * @param ucumService - the UCUM service used for canonization
+     * @param units - the units, which may contain duplicates
+     * @return The partition of the units
+     */
+    public static UnitPartition of(UcumLBKService ucumService, Collection<String> units){
+        return of(ucumService, units, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Partitions units into classes of commensurable units.
+     * @param ucumService - the UCUM service used for canonization
+     * @param units - the units, which may contain duplicates; null elements are skipped
+     * @param threads - the amount of threads canonizing the distinct units in parallel
+     * @return The partition of the units
+     */
+    public static UnitPartition of(UcumLBKService ucumService, Collection<String> units, int threads){
+        LinkedHashSet<String> distinct = new LinkedHashSet<>(units);
+        distinct.remove(null);
+        String[] distinctUnits = distinct.toArray(new String[0]);
+        CanonicalForm[] forms = canonize(ucumService, distinctUnits, Math.max(1, threads));
+
+        LinkedHashMap<Long, LinkedHashMap<String, Double>> factorsByDimensions = new LinkedHashMap<>();
+        List<String> rejected = new ArrayList<>();
+        for (int i = 0; i < distinctUnits.length; i++) {
+            if (forms[i] == null){
+                rejected.add(distinctUnits[i]);
+            } else {
+                factorsByDimensions.computeIfAbsent(forms[i].getDimensions(), dimensions -> new LinkedHashMap<>())
+                        .put(distinctUnits[i], forms[i].getMagnitude());
+            }
+        }
+
+        List<CommensurabilityClass> classes = new ArrayList<>(factorsByDimensions.size());
+        for (Map.Entry<Long, LinkedHashMap<String, Double>> entry : factorsByDimensions.entrySet()) {
+            classes.add(new CommensurabilityClass(entry.getKey(), entry.getValue()));
+        }
+        return new UnitPartition(classes, rejected);
+    }
+
+    /**
+     * Returns the classes of commensurable units.
+     * @return Unmodifiable list of classes in order of appearance of their first member
+     */
+    public List<CommensurabilityClass> getClasses(){
+        return classes;
+    }
+
+    /**
+     * Returns the class a unit belongs to.
+     * @param unit - the unit
+     * @return The class of the unit or null if the unit was rejected or not partitioned
+     */
+    public CommensurabilityClass classOf(String unit){
+        return classesByUnit.get(unit);
+    }
+
+    /**
+     * Returns the units that are not eligible for conversions because they are invalid, special or arbitrary.
+     * @return Unmodifiable list of rejected units in order of appearance
+     */
+    public List<String> getRejected(){
+        return rejected;
+    }
+
+    /**
+     * Canonizes distinct units in contiguous slices, one per thread.
+     * @param ucumService - the UCUM service used for canonization
+     * @param units - the distinct units
+     * @param threads - the amount of threads
+     * @return The canonical form of every unit, null where the unit is rejected
+     */
+    private static CanonicalForm[] canonize(UcumLBKService ucumService, String[] units, int threads){
+        CanonicalForm[] forms = new CanonicalForm[units.length];
+        int sliceSize = Math.max(256, (units.length + threads - 1) / threads);
+        if (threads == 1 || units.length <= sliceSize){
+            canonize(ucumService, units, forms, 0, units.length);
+            return forms;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> slices = new ArrayList<>();
+            for (int start = 0; start < units.length; start += sliceSize) {
+                int from = start;
+                int to = Math.min(start + sliceSize, units.length);
+                slices.add(executor.submit(() -> canonize(ucumService, units, forms, from, to)));
+            }
+            for (Future<?> slice : slices) {
+                slice.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while canonizing", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Canonization of a slice failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return forms;
+    }
+
+    /**
+     * Canonizes a slice of units.
+     * @param ucumService - the UCUM service used for canonization
+     * @param units - the distinct units
+     * @param forms - the canonical forms to be filled in
+     * @param from - the inclusive start of the slice
+     * @param to - the exclusive end of the slice
+     */
+    private static void canonize(UcumLBKService ucumService, String[] units, CanonicalForm[] forms, int from, int to){
+        for (int i = from; i < to; i++) {
+            forms[i] = ucumService.generateConvertibleForm(units[i]);
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.luebeck.external;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+class UnitResolver {
+
+    private static final MathContext SIGNIFICANT_DIGITS = new MathContext(15);
+    private static final int RESOLUTION_CACHE_CAPACITY = 10000;
+
+    static final Resolution INVALID = new Resolution(null, 0);
+    static final Resolution UNCONVERTIBLE = new Resolution(null, 0);
+
+    private final UcumLBKService ucumService;
+    private final boolean canonizeUnconvertible;
+    private final String[] targetUnits;
+    private final BoundedCache<String, Resolution> resolutions = new BoundedCache<>(RESOLUTION_CACHE_CAPACITY);
+
+    /**
+     * Generates a resolver that determines the target unit and conversion factor for source units. Every source unit
+     * is converted into the first of the given target units it is commensurable with. Special and arbitrary units
+     * cannot be converted by a factor and are always UNCONVERTIBLE.
+     * @param ucumService - the UCUM service used for validation and conversion
+     * @param canonizeUnconvertible - whether source units that are not commensurable with any of the target units
+     *                              are converted into their canonized form instead of being UNCONVERTIBLE
+     * @param targetUnits - the requested target units, may be empty to always canonize
+     */
+    UnitResolver(UcumLBKService ucumService, boolean canonizeUnconvertible, String... targetUnits){
+        this.ucumService = ucumService;
+        this.canonizeUnconvertible = canonizeUnconvertible;
+        this.targetUnits = targetUnits.clone();
+    }
+
+    /**
+     * Determines the target unit and the conversion factor for a source unit. Results are memoized per source unit.
+     * @param code - the source unit
+     * @return Target unit and conversion factor, INVALID or UNCONVERTIBLE
+     */
+    Resolution resolve(String code){
+        Resolution resolution = resolutions.get(code);
+        if (resolution != null){
+            return resolution;
+        }
+
+        if (!ucumService.isValid(code)){
+            resolution = INVALID;
+        } else if (!ucumService.isConvertibleByFactor(code)){
+            //Special units need an offset or a function, arbitrary units have no base unit term
+            resolution = UNCONVERTIBLE;
+        } else {
+            resolution = UNCONVERTIBLE;
+            for (String targetUnit : targetUnits) {
+                if (ucumService.isCommensurable(code, targetUnit)){
+                    Double factor = ucumService.convert(code, targetUnit, 1);
+                    if (factor != null){
+                        resolution = new Resolution(targetUnit, factor);
+                        break;
+                    }
+                }
+            }
+
+            if (resolution == UNCONVERTIBLE && canonizeUnconvertible){
+                CanonicalForm form = ucumService.generateCanonicalForm(code);
+                if (form != null){
+                    resolution = new Resolution(form.appendBaseUnits(new StringBuilder()).toString(),
+                            form.getMagnitude());
+                }
+            }
+        }
+
+        resolutions.put(code, resolution);
+        return resolution;
+    }
+
+    /**
+     * Formats a converted value as a plain decimal number. Rounding to 15 significant digits drops the noise
+     * introduced by floating point conversion factors.
+     * @param value - the finite value to be formatted
+     * @return Plain decimal representation of the value
+     */
+    static String formatValue(double value){
+        return BigDecimal.valueOf(value).round(SIGNIFICANT_DIGITS).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * Target unit and conversion factor for a source unit.
+     */
+    static final class Resolution {
+
+        private final String code;
+        private final double factor;
+
+        private Resolution(String code, double factor){
+            this.code = code;
+            this.factor = factor;
+        }
+
+        /**
+         * Returns the unit the source unit is converted into.
+         * @return Target unit
+         */
+        String getCode() {
+            return code;
+        }
+
+        /**
+         * Returns the factor that converts a value of the source unit into the target unit.
+         * @return Conversion factor
+         */
+        double getFactor() {
+            return factor;
+        }
+
+        /**
+         * Determines whether this resolution holds a target unit.
+         * @return Status of the source unit being convertible
+         */
+        boolean isConvertible() {
+            return code != null;
+        }
+    }
+
+}
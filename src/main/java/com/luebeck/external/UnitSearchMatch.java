@@ -0,0 +1,91 @@
+package com.luebeck.external;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable unit or prefix of the UCUM essence as returned by UcumLBKService.searchUnits.
+ */
+public final class UnitSearchMatch {
+
+    private final String code;
+    private final String capitalCode;
+    private final List<String> names;
+    private final String printSymbol;
+    private final boolean prefix;
+
+    /**
+     * Constructor for a search match.
+     * @param code - the case-sensitive code
+     * @param capitalCode - the capital code
+     * @param names - all names, the first one being the primary name
+     * @param printSymbol - the print symbol without HTML markup
+     * @param prefix - whether the match is a prefix rather than a unit
+     */
+    UnitSearchMatch(String code, String capitalCode, String[] names, String printSymbol, boolean prefix){
+        this.code = code;
+        this.capitalCode = capitalCode;
+        this.names = Collections.unmodifiableList(Arrays.asList(names));
+        this.printSymbol = printSymbol;
+        this.prefix = prefix;
+    }
+
+    /**
+     * Returns the case-sensitive code (e.g., mm[Hg]).
+     * @return Case-sensitive code
+     */
+    public String getCode(){
+        return code;
+    }
+
+    /**
+     * Returns the capital code (e.g., MM[HG]).
+     * @return Capital code
+     */
+    public String getCapitalCode(){
+        return capitalCode;
+    }
+
+    /**
+     * Returns the primary name (e.g., meter of mercury column).
+     * @return Primary name
+     */
+    public String getName(){
+        return names.get(0);
+    }
+
+    /**
+     * Returns all names as listed in the essence.
+     * @return Unmodifiable list of names
+     */
+    public List<String> getNames(){
+        return names;
+    }
+
+    /**
+     * Returns the print symbol without HTML markup.
+     * @return Print symbol or an empty string if there is none
+     */
+    public String getPrintSymbol(){
+        return printSymbol;
+    }
+
+    /**
+     * Determines whether this match is a prefix (e.g., k for kilo) rather than a unit.
+     * @return Status of this match being a prefix
+     */
+    public boolean isPrefix(){
+        return prefix;
+    }
+
+    /**
+     * Renders this match as its code followed by its primary name (e.g., mm[Hg] (meter of mercury column)).
+     * @return The rendered match
+     */
+    @Override
+    public String toString(){
+        return code + " (" + getName() + ")";
+    }
+
+}
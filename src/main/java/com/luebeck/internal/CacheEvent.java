@@ -0,0 +1,62 @@
+package com.luebeck.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name("com.luebeck.ucum.Cache")
+@Label("UCUM Cache")
+@Category("UCUM")
+@Description("Look-up in one of the library's caches, including the computation of missing entries")
+@Threshold("20 us")
+class CacheEvent extends jdk.jfr.Event {
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(CacheEvent.class);
+
+    @Label("Cache")
+    String cache;
+
+    @Label("Input")
+    String input;
+
+    @Label("Input Length")
+    int inputLength;
+
+    @Label("Outcome")
+    String outcome;
+
+    /**
+     * Begins timing a new event should the event be enabled in any running recording. Checking the event type first
+     * avoids allocating events while no recording is interested in them.
+     * @return The begun event or null if the event is disabled
+     */
+    static CacheEvent beginIfEnabled(){
+        if (!EVENT_TYPE.isEnabled()){
+            return null;
+        }
+        CacheEvent event = new CacheEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends timing this event and commits it should its duration exceed the configured threshold.
+     * @param cache - the name of the cache
+     * @param input - the input
+     * @param outcome - the outcome
+     */
+    void endAndCommit(String cache, String input, String outcome){
+        end();
+        if (shouldCommit()){
+            this.cache = cache;
+            this.input = input;
+            this.inputLength = input.length();
+            this.outcome = outcome;
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.luebeck.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name("com.luebeck.ucum.Check")
+@Label("UCUM Check")
+@Category("UCUM")
+@Description("Validity or eligibility check of a UCUM expression")
+@Threshold("20 us")
+class CheckEvent extends jdk.jfr.Event {
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(CheckEvent.class);
+
+    @Label("Check")
+    String check;
+
+    @Label("Input")
+    String input;
+
+    @Label("Input Length")
+    int inputLength;
+
+    @Label("Token Count")
+    int tokenCount;
+
+    @Label("Outcome")
+    String outcome;
+
+    /**
+     * Begins timing a new event should the event be enabled in any running recording. Checking the event type first
+     * avoids allocating events while no recording is interested in them.
+     * @return The begun event or null if the event is disabled
+     */
+    static CheckEvent beginIfEnabled(){
+        if (!EVENT_TYPE.isEnabled()){
+            return null;
+        }
+        CheckEvent event = new CheckEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends timing this event and commits it should its duration exceed the configured threshold.
+     * @param check - the check (e.g., UcumFunction.CHECK_VALIDITY)
+     * @param input - the input
+     * @param tokenCount - the amount of tokens
+     * @param outcome - the outcome
+     */
+    void endAndCommit(String check, String input, int tokenCount, String outcome){
+        end();
+        if (shouldCommit()){
+            this.check = check;
+            this.input = input;
+            this.inputLength = input.length();
+            this.tokenCount = tokenCount;
+            this.outcome = outcome;
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,179 @@
+package com.luebeck.internal;
+
+/**
+ * Packs the canon vector [m,s,g,rad,K,C,cd] into a single long. Each base unit occupies nine bits holding its
+ * exponent in two's complement, which is why the dimensionless vector packs to 0 and equal vectors pack to equal
+ * longs.
+ */
+public final class DimensionVector {
+
+    public static final int BASE_UNIT_COUNT = 7;
+    public static final int MIN_EXPONENT = -256;
+    public static final int MAX_EXPONENT = 255;
+    public static final long DIMENSIONLESS = 0L;
+
+    private static final int BITS = 9;
+    private static final long MASK = (1L << BITS) - 1;
+    private static final String[] BASE_UNITS = {"m", "s", "g", "rad", "K", "C", "cd"};
+
+    private DimensionVector(){
+
+    }
+
+    /**
+     * Packs a canon vector.
+     * @param canonVector - the canon vector with one exponent per base unit
+     * @return The packed canon vector
+     * @throws ArithmeticException when an exponent lies outside of MIN_EXPONENT and MAX_EXPONENT
+     */
+    public static long pack(int[] canonVector){
+        long packed = DIMENSIONLESS;
+        for (int i = 0; i < BASE_UNIT_COUNT; i++) {
+            packed = withExponent(packed, i, canonVector[i]);
+        }
+        return packed;
+    }
+
+    /**
+     * Unpacks a packed canon vector.
+     * @param packed - the packed canon vector
+     * @return The canon vector with one exponent per base unit
+     */
+    public static int[] unpack(long packed){
+        int[] canonVector = new int[BASE_UNIT_COUNT];
+        for (int i = 0; i < BASE_UNIT_COUNT; i++) {
+            canonVector[i] = exponent(packed, i);
+        }
+        return canonVector;
+    }
+
+    /**
+     * Returns the exponent of a single base unit.
+     * @param packed - the packed canon vector
+     * @param baseUnit - the index of the base unit (0 for m up to 6 for cd)
+     * @return Exponent of the base unit
+     */
+    public static int exponent(long packed, int baseUnit){
+        return (int) ((packed << (Long.SIZE - BITS * (baseUnit + 1))) >> (Long.SIZE - BITS));
+    }
+
+    /**
+     * Returns the symbol of a base unit.
+     * @param baseUnit - the index of the base unit (0 for m up to 6 for cd)
+     * @return Symbol of the base unit
+     */
+    public static String baseUnitSymbol(int baseUnit){
+        return BASE_UNITS[baseUnit];
+    }
+
+    /**
+     * Multiplies the units represented by two packed canon vectors by adding up their exponents.
+     * @param packed - the first packed canon vector
+     * @param other - the second packed canon vector
+     * @return The packed canon vector of the product
+     * @throws ArithmeticException when a resulting exponent lies outside of MIN_EXPONENT and MAX_EXPONENT
+     */
+    public static long add(long packed, long other){
+        long result = DIMENSIONLESS;
+        for (int i = 0; i < BASE_UNIT_COUNT; i++) {
+            result = withExponent(result, i, exponent(packed, i) + exponent(other, i));
+        }
+        return result;
+    }
+
+    /**
+     * Divides the units represented by two packed canon vectors by subtracting their exponents.
+     * @param packed - the packed canon vector of the dividend
+     * @param other - the packed canon vector of the divisor
+     * @return The packed canon vector of the quotient
+     * @throws ArithmeticException when a resulting exponent lies outside of MIN_EXPONENT and MAX_EXPONENT
+     */
+    public static long subtract(long packed, long other){
+        long result = DIMENSIONLESS;
+        for (int i = 0; i < BASE_UNIT_COUNT; i++) {
+            result = withExponent(result, i, exponent(packed, i) - exponent(other, i));
+        }
+        return result;
+    }
+
+    /**
+     * Determines whether every exponent of a canon vector can be packed.
+     * @param canonVector - the canon vector
+     * @return Status of the canon vector fitting into a long
+     */
+    public static boolean fits(int[] canonVector){
+        for (int i = 0; i < BASE_UNIT_COUNT; i++) {
+            if (canonVector[i] < MIN_EXPONENT || canonVector[i] > MAX_EXPONENT){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Appends the base unit representation of a packed canon vector (e.g., m.s-2), 1 if it is dimensionless.
+     * @param packed - the packed canon vector
+     * @param output - the builder the representation is appended to
+     * @return The given builder
+     */
+    public static StringBuilder appendBaseUnits(long packed, StringBuilder output){
+        int length = output.length();
+        for (int i = 0; i < BASE_UNIT_COUNT; i++) {
+            appendBaseUnit(i, exponent(packed, i), length, output);
+        }
+        return output.length() > length ? output : output.append('1');
+    }
+
+    /**
+     * Appends the base unit representation of a canon vector (e.g., m.s-2), 1 if it is dimensionless. Unlike its
+     * packed counterpart this accepts exponents of any size.
+     * @param canonVector - the canon vector
+     * @param output - the builder the representation is appended to
+     * @return The given builder
+     */
+    public static StringBuilder appendBaseUnits(int[] canonVector, StringBuilder output){
+        int length = output.length();
+        for (int i = 0; i < BASE_UNIT_COUNT; i++) {
+            appendBaseUnit(i, canonVector[i], length, output);
+        }
+        return output.length() > length ? output : output.append('1');
+    }
+
+    /**
+     * Appends a single base unit and its exponent unless the exponent is 0.
+     * @param baseUnit - the index of the base unit
+     * @param exponent - the exponent of the base unit
+     * @param start - the length of the builder before the representation has been started
+     * @param output - the builder the base unit is appended to
+     */
+    private static void appendBaseUnit(int baseUnit, int exponent, int start, StringBuilder output){
+        if (exponent == 0){
+            return;
+        }
+        if (output.length() > start){
+            output.append('.');
+        }
+        output.append(BASE_UNITS[baseUnit]);
+        if (exponent != 1){
+            output.append(exponent);
+        }
+    }
+
+    /**
+     * Replaces the exponent of a single base unit.
+     * @param packed - the packed canon vector
+     * @param baseUnit - the index of the base unit
+     * @param exponent - the new exponent
+     * @return The packed canon vector with the new exponent
+     * @throws ArithmeticException when the exponent lies outside of MIN_EXPONENT and MAX_EXPONENT
+     */
+    private static long withExponent(long packed, int baseUnit, int exponent){
+        if (exponent < MIN_EXPONENT || exponent > MAX_EXPONENT){
+            throw new ArithmeticException("Exponent " + exponent + " of " + BASE_UNITS[baseUnit] +
+                    " cannot be packed");
+        }
+        int shift = BITS * baseUnit;
+        return (packed & ~(MASK << shift)) | ((exponent & MASK) << shift);
+    }
+
+}
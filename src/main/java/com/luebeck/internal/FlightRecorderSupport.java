@@ -0,0 +1,28 @@
+package com.luebeck.internal;
+
+final class FlightRecorderSupport {
+
+    /**
+     * Whether the jdk.jfr module is present at runtime. The event classes extend jdk.jfr.Event and are only loaded
+     * if it is, so the library also runs on images linked without it.
+     */
+    static final boolean AVAILABLE = isAvailable();
+
+    private FlightRecorderSupport(){
+
+    }
+
+    /**
+     * Determines whether the base class of all Flight Recorder events can be loaded.
+     * @return Status of the JDK Flight Recorder being present
+     */
+    private static boolean isAvailable(){
+        try {
+            Class.forName("jdk.jfr.Event", false, FlightRecorderSupport.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+}
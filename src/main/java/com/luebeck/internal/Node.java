@@ -1,13 +1,13 @@
 package com.luebeck.internal;
 
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 class Node {
 
-    private static final String NON_NUMERIC = "[^0-9]+";
-    private static final String IS_NUMERIC = "[0-9]+";
-    private static final String HAS_DIMENSION = "[-+]?\\d+$";
+    private static final Pattern NON_NUMERIC = Pattern.compile("[^0-9]+");
+    private static final Pattern IS_NUMERIC = Pattern.compile("[0-9]+");
+    private static final Pattern HAS_DIMENSION = Pattern.compile("[-+]?\\d+$");
+    private static final Pattern CONTAINS_DIMENSION = Pattern.compile("[-+]?\\d+$", Pattern.MULTILINE);
     private static final UcumEssence ucumEssence = new UcumEssence();
 
     private String unitSymbol = null;
@@ -55,19 +55,20 @@ class Node {
         trimmedToken = discardAnnotation(trimmedToken);
 
         //Token is a pure integer
-        if (trimmedToken.matches(IS_NUMERIC)){
+        if (IS_NUMERIC.matcher(trimmedToken).matches()){
             this.unitSymbol = trimmedToken;
             this.value = Double.parseDouble(trimmedToken);
             return;
         }
 
         if (containsDimensionExponent(trimmedToken)) {
-            this.dimensionExponent = Integer.parseInt(trimmedToken.substring(trimmedToken.split(HAS_DIMENSION)[0].length()));
+            this.dimensionExponent = Integer.parseInt(
+                    trimmedToken.substring(HAS_DIMENSION.split(trimmedToken)[0].length()));
             //Trim Dimension
-            trimmedToken = trimmedToken.split(HAS_DIMENSION)[0];
+            trimmedToken = HAS_DIMENSION.split(trimmedToken)[0];
 
             //Integer with exponent
-            if (trimmedToken.matches(IS_NUMERIC)){
+            if (IS_NUMERIC.matcher(trimmedToken).matches()){
                 this.unitSymbol = trimmedToken;
                 this.value = Double.parseDouble(trimmedToken);
                 return;
@@ -183,39 +184,51 @@ class Node {
         }
     }
 
+    /**
+     * Returns the UCUM essence shared by all nodes.
+     * @return The loaded UCUM essence
+     */
+    static UcumEssence getUcumEssence(){
+        return ucumEssence;
+    }
+
     /**
      * Generates the display name for this node. It consists of the human-readable name of the unit associated
      * with the node, its exponent, its prefix and optionally an annotation.
      * @return Display name of this node
      */
     String generateDisplayName(){
-        String dimensionExponent = "";
-        String unitSymbol = "";
-        String prefixName = "";
-
-        //If it is not a unit it is an integer
-        if (ucumEssence.containsUnit(this.unitSymbol) != null){
-            unitSymbol = ucumEssence.containsUnit(this.unitSymbol).getName();
-        } else {
-            unitSymbol = this.unitSymbol;
-        }
+        return appendDisplayName(new StringBuilder()).toString();
+    }
 
+    /**
+     * Appends the display name for this node using the display name fragments pre-rendered by the UCUM essence.
+     * @param output - the builder the display name is appended to
+     * @return The given builder
+     */
+    StringBuilder appendDisplayName(StringBuilder output){
         switch (this.unitSymbol){
             case ".":
-                return " * ";
+                return output.append(" * ");
             case "/":
-                return " / ";
+                return output.append(" / ");
             default:
+                output.append('[');
+                if (this.prefixSymbol != null){
+                    output.append(ucumEssence.lookupPrefixDisplayName(this.prefixSymbol));
+                }
+
+                //If it is not a unit it is an integer
+                String unitName = ucumEssence.lookupUnitDisplayName(this.unitSymbol);
+                output.append(unitName != null ? unitName : this.unitSymbol);
+
                 if (this.dimensionExponent != 1){
-                    dimensionExponent = " ^ " + this.dimensionExponent;
+                    output.append(" ^ ").append(this.dimensionExponent);
                 }
-                if (this.prefixSymbol != null){
-                    prefixName = ucumEssence.lookupCaseSensPrefix(this.prefixSymbol).getName();
+                if (this.annotation != null){
+                    output.append(" of ").append(this.annotation);
                 }
-                return "[" + prefixName +
-                        unitSymbol +
-                        dimensionExponent +
-                        getAnnotationForDisplayName() + "]";
+                return output.append(']');
         }
     }
 
@@ -255,9 +268,7 @@ class Node {
      * @return Existence status of the input's dimension exponent
      */
     private boolean containsDimensionExponent(String input){
-        Pattern pattern = Pattern.compile(HAS_DIMENSION, Pattern.MULTILINE);
-        Matcher matcher = pattern.matcher(input);
-        return matcher.find();
+        return CONTAINS_DIMENSION.matcher(input).find();
     }
 
     /**
@@ -265,7 +276,7 @@ class Node {
      * @return This node's status as representing an integer operand
      */
     boolean isNumeric(){
-        return !this.unitSymbol.matches(NON_NUMERIC);
+        return !NON_NUMERIC.matcher(this.unitSymbol).matches();
     }
 
     /**
@@ -278,7 +289,7 @@ class Node {
         if (isNumeric()){
             return Math.pow(value, dimensionExponent);
         } else {
-            return this.value * Math.pow(prefixValue, dimensionExponent);
+            return Math.pow(this.value, dimensionExponent) * Math.pow(prefixValue, dimensionExponent);
         }
     }
 
@@ -424,4 +435,52 @@ class Node {
     String getUnitSymbol() {
         return unitSymbol;
     }
+
+    /**
+     * Returns this node's unit symbol in its case-sensitive representation. Capital unit symbols are mapped onto
+     * their case-sensitive counterpart whereas integers and operators are returned as they are.
+     * @return This node's pure unit symbol in its case-sensitive representation
+     */
+    String getCaseSensUnitSymbol() {
+        if (isCaseSens){
+            return unitSymbol;
+        }
+        return ucumEssence.lookupCapitalUnit(unitSymbol).getCodeCaseSens();
+    }
+
+    /**
+     * Returns this node's case-sensitive prefix symbol should it exist.
+     * @return This node's prefix symbol or null
+     */
+    String getPrefixSymbol() {
+        return prefixSymbol;
+    }
+
+    /**
+     * Returns this node's annotation including its curly braces should it exist (e.g., {feathers}).
+     * @return This node's annotation or null
+     */
+    String getAnnotation() {
+        return annotation;
+    }
+
+    /**
+     * Returns the power of ten of this node's prefix, 0 if there is none.
+     * @return This node's prefix exponent
+     */
+    int getPrefixExponent() {
+        return prefixExponent;
+    }
+
+    /**
+     * Verifies whether this node represents a metric unit that may be combined with prefixes.
+     * @return This node's status as representing a metric unit
+     */
+    boolean isMetric() {
+        if (isNumeric()){
+            return false;
+        }
+        UcumUnit ucumUnit = ucumEssence.containsUnit(this.unitSymbol);
+        return ucumUnit != null && ucumUnit.isMetric();
+    }
 }
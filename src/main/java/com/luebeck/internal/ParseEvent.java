@@ -0,0 +1,67 @@
+package com.luebeck.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name("com.luebeck.ucum.Parse")
+@Label("UCUM Parse")
+@Category("UCUM")
+@Description("Tokenization, postfix conversion or tree construction of a UCUM expression")
+@Threshold("20 us")
+class ParseEvent extends jdk.jfr.Event {
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(ParseEvent.class);
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Input")
+    String input;
+
+    @Label("Input Length")
+    int inputLength;
+
+    @Label("Token Count")
+    int tokenCount;
+
+    @Label("Outcome")
+    String outcome;
+
+    /**
+     * Begins timing a new event should the event be enabled in any running recording. Checking the event type first
+     * avoids allocating events while no recording is interested in them.
+     * @return The begun event or null if the event is disabled
+     */
+    static ParseEvent beginIfEnabled(){
+        if (!EVENT_TYPE.isEnabled()){
+            return null;
+        }
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends timing this event and commits it should its duration exceed the configured threshold.
+     * @param phase - the parsing phase (e.g., UcumParser.PHASE_TOKENIZE)
+     * @param input - the input
+     * @param tokenCount - the amount of tokens or, when constructing the tree, the amount of nodes
+     * @param outcome - the outcome
+     */
+    void endAndCommit(String phase, String input, int tokenCount, String outcome){
+        end();
+        if (shouldCommit()){
+            this.phase = phase;
+            this.input = input;
+            this.inputLength = input.length();
+            this.tokenCount = tokenCount;
+            this.outcome = outcome;
+            commit();
+        }
+    }
+
+}
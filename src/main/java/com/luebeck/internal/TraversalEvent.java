@@ -0,0 +1,62 @@
+package com.luebeck.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name("com.luebeck.ucum.Traversal")
+@Label("UCUM Traversal")
+@Category("UCUM")
+@Description("Tree traversal of a UCUM expression computing its canon vector and magnitude")
+@Threshold("20 us")
+class TraversalEvent extends jdk.jfr.Event {
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(TraversalEvent.class);
+
+    @Label("Input")
+    String input;
+
+    @Label("Input Length")
+    int inputLength;
+
+    @Label("Node Count")
+    int nodeCount;
+
+    @Label("Outcome")
+    String outcome;
+
+    /**
+     * Begins timing a new event should the event be enabled in any running recording. Checking the event type first
+     * avoids allocating events while no recording is interested in them.
+     * @return The begun event or null if the event is disabled
+     */
+    static TraversalEvent beginIfEnabled(){
+        if (!EVENT_TYPE.isEnabled()){
+            return null;
+        }
+        TraversalEvent event = new TraversalEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends timing this event and commits it should its duration exceed the configured threshold.
+     * @param input - the input
+     * @param nodeCount - the amount of traversed nodes
+     * @param outcome - the outcome
+     */
+    void endAndCommit(String input, int nodeCount, String outcome){
+        end();
+        if (shouldCommit()){
+            this.input = input;
+            this.inputLength = input.length();
+            this.nodeCount = nodeCount;
+            this.outcome = outcome;
+            commit();
+        }
+    }
+
+}
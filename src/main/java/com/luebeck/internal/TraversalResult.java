@@ -1,9 +1,12 @@
 package com.luebeck.internal;
 
+import java.util.Arrays;
+
 class TraversalResult {
 
     private int[] canonVector = new int[7];
     private double value = 1;
+    private int nodeCount;
 
     /**
      * The actual constructor that gets accessed via generateTraversalResult(Node root). Calls recursiveTraversal
@@ -29,9 +32,11 @@ class TraversalResult {
      */
     private void recursiveTraversal(Node currentNode) {
 
+        this.nodeCount++;
         this.value = this.value * currentNode.calculateFinalValue();
 
-        switch (currentNode.getUnitSymbol()) {
+        //Capital base units such as M or CD count like their case-sensitive counterpart
+        switch (currentNode.getCaseSensUnitSymbol()) {
             case "m":
                 canonVector[0] = canonVector[0] + currentNode.getDimensionExponent();
                 break;
@@ -74,6 +79,14 @@ class TraversalResult {
         return value;
     }
 
+    /**
+     * Returns the amount of nodes visited while generating this TraversalResult.
+     * @return Amount of visited nodes
+     */
+    int getNodeCount(){
+        return nodeCount;
+    }
+
     /**
      * Returns the canon vecotr (base unit representation) of this TraversalResult.
      * @return canonc vecotr of this TraversalResult
@@ -82,6 +95,15 @@ class TraversalResult {
         return canonVector;
     }
 
+    /**
+     * Determines whether another TraversalResult has the same canon vector and value as this one.
+     * @param other - the other TraversalResult
+     * @return Status of both TraversalResults being interchangeable
+     */
+    boolean isEquivalent(TraversalResult other){
+        return Arrays.equals(canonVector, other.canonVector) && Double.compare(value, other.value) == 0;
+    }
+
     /**
      * Multiplies this TraversalResult's current value with quantity.
      * @param quantity - The quantity to multiply this TravesalResult's value with
@@ -91,20 +113,12 @@ class TraversalResult {
     }
 
     /**
-     * Generates a single base unit representation used to express the canonized form of this TraversalResult
-     * in just base units. Used seven times in total, once for each of the base units.
-     * @param baseUnit - One of the seven base units
-     * @param count - The amount of base units (e.g., m2 -> 2)
-     * @return The canonic base unit representation for a single part of the entire canon representation
+     * Returns the packed canon vector of this TraversalResult.
+     * @return Packed canon vector of this TraversalResult
+     * @throws ArithmeticException when an exponent is too large to be packed
      */
-    private String baseUnit(String baseUnit, int count){
-        if (count==0){
-            return "";
-        } else if (count==1){
-            return baseUnit + ".";
-        } else {
-            return baseUnit + count + ".";
-        }
+    long getPackedCanonVector(){
+        return DimensionVector.pack(canonVector);
     }
 
     /**
@@ -112,19 +126,7 @@ class TraversalResult {
      * @return Base unit representation of this TraversalResult.
      */
     String generateCanonVectorAsBaseUnit () {
-        String output = baseUnit("m", canonVector[0]) +
-                baseUnit("s", canonVector[1]) +
-                baseUnit("g", canonVector[2]) +
-                baseUnit("rad", canonVector[3]) +
-                baseUnit("K", canonVector[4]) +
-                baseUnit("C", canonVector[5]) +
-                baseUnit("cd", canonVector[6]);
-
-        if (output.isEmpty()){
-            return "1";
-        } else {
-            return output.substring(0, output.length()-1);//truncate final operator
-        }
+        return DimensionVector.appendBaseUnits(canonVector, new StringBuilder()).toString();
     }
 
 }
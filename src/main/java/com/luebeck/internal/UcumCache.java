@@ -0,0 +1,153 @@
+package com.luebeck.internal;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+class UcumCache<K, V> {
+
+    private final int capacity;
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private Iterator<Map.Entry<K, Entry<V>>> hand;
+
+    /**
+     * Constructor for a bounded cache. Look-ups are lock-free, so the caches shared by all UcumFunction instances do
+     * not serialize parallel callers. Once the capacity is exceeded, a clock hand sweeps the entries and evicts those
+     * that have not been looked up since its last pass, which approximates evicting the least recently used entry.
+     * @param capacity - the maximum amount of entries held by this cache, at least 1
+     */
+    UcumCache(final int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Looks up an entry in this cache.
+     * @param key - the key of the entry
+     * @return The cached value or null if there is none
+     */
+    V get(K key){
+        Entry<V> entry = key == null ? null : entries.get(key);
+        if (entry == null){
+            return null;
+        }
+        //Only write the flag if it changes, so hot entries are not written on every look-up
+        if (!entry.referenced){
+            entry.referenced = true;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Stores an entry in this cache, possibly evicting entries that have not been looked up recently. Entries with a
+     * null key or value are not stored.
+     * @param key - the key of the entry
+     * @param value - the value of the entry
+     * @return Whether an entry has been evicted to make room for this entry
+     */
+    boolean put(K key, V value){
+        if (key == null || value == null){
+            return false;
+        }
+        entries.put(key, new Entry<>(value));
+        return entries.size() > capacity && evict();
+    }
+
+    /**
+     * Removes all entries from this cache.
+     */
+    void clear(){
+        entries.clear();
+    }
+
+    /**
+     * Returns the amount of entries currently held by this cache.
+     * @return Amount of cached entries
+     */
+    int size(){
+        return entries.size();
+    }
+
+    /**
+     * Returns a view of this cache as a map for callers outside of this package, which cannot see this class. get and
+     * put behave like their counterparts of this cache, put always returns null and iterating takes a snapshot.
+     * @return Map view of this cache
+     */
+    Map<K, V> asMap(){
+        return new AbstractMap<K, V>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public V get(Object key){
+                return UcumCache.this.get((K) key);
+            }
+
+            @Override
+            public V put(K key, V value){
+                UcumCache.this.put(key, value);
+                return null;
+            }
+
+            @Override
+            public int size(){
+                return UcumCache.this.size();
+            }
+
+            @Override
+            public void clear(){
+                UcumCache.this.clear();
+            }
+
+            @Override
+            public Set<Map.Entry<K, V>> entrySet(){
+                HashMap<K, V> snapshot = new HashMap<>();
+                entries.forEach((key, entry) -> snapshot.put(key, entry.value));
+                return snapshot.entrySet();
+            }
+        };
+    }
+
+    /**
+     * Advances the clock hand until this cache is within its capacity again. Entries looked up since the last pass
+     * get a second chance, all others are removed.
+     * @return Whether an entry has been evicted
+     */
+    private synchronized boolean evict(){
+        boolean evicted = false;
+        while (entries.size() > capacity) {
+            if (hand == null || !hand.hasNext()){
+                hand = entries.entrySet().iterator();
+                if (!hand.hasNext()){
+                    break;
+                }
+            }
+            Map.Entry<K, Entry<V>> candidate = hand.next();
+            Entry<V> entry = candidate.getValue();
+            if (entry.referenced){
+                entry.referenced = false;
+            } else if (entries.remove(candidate.getKey(), entry)){
+                evicted = true;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Cached value with the flag the clock hand checks.
+     */
+    private static final class Entry<V> {
+
+        private final V value;
+        private volatile boolean referenced;
+
+        /**
+         * Constructor for an entry that has not been looked up yet.
+         * @param value - the cached value
+         */
+        private Entry(V value){
+            this.value = value;
+        }
+    }
+
+}
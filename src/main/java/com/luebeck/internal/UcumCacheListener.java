@@ -0,0 +1,23 @@
+package com.luebeck.internal;
+
+public interface UcumCacheListener {
+
+    /**
+     * Called whenever a look-up is answered by a cache.
+     * @param cache - the name of the cache
+     */
+    void cacheHit(String cache);
+
+    /**
+     * Called whenever a look-up is not answered by a cache.
+     * @param cache - the name of the cache
+     */
+    void cacheMiss(String cache);
+
+    /**
+     * Called whenever a cache evicts an entry to make room for a new one.
+     * @param cache - the name of the cache
+     */
+    void cacheEviction(String cache);
+
+}
@@ -0,0 +1,444 @@
+package com.luebeck.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class UcumDerivedUnitIndex {
+
+    private static final int[] EXPONENTS = {1, -1, 2, -2, 3, -3};
+    private static final int MAX_TERMS = 2;
+    private static final double TOLERANCE = 1e-9;
+
+    private final HashMap<Long, Integer> groupsByDimensions = new HashMap<>();
+    private final String[] codes;
+    private final double[] magnitudes;
+    private final boolean[] baseUnits;
+    private final int[][] vectors;
+    private final int[][] members;
+    private final int[] groupOf;
+
+    /**
+     * Constructor for the index of named units that expressions are simplified to, grouped by their packed canon
+     * vector. Units are numbered in the order of the essence, which is also the order they are preferred in.
+     * Dimensionless units and units whose magnitude is not a power of ten (eV) are left out.
+     * @param ucumEssence - the loaded UCUM essence
+     */
+    private UcumDerivedUnitIndex(UcumEssence ucumEssence) {
+        List<UcumUnit> namedUnits = new ArrayList<>();
+        List<Double> namedMagnitudes = new ArrayList<>();
+        LinkedHashMap<Long, List<Integer>> groups = new LinkedHashMap<>();
+
+        for (UcumUnit ucumUnit : ucumEssence.getUnits()) {
+            if (!isNamedUnit(ucumEssence, ucumUnit)){
+                continue;
+            }
+            TraversalResult trvResult = UcumDimensionIndex.traverseUnit(ucumUnit.getCodeCaseSens());
+            if (trvResult == null || trvResult.getPackedCanonVector() == DimensionVector.DIMENSIONLESS ||
+                    !isPowerOfTen(trvResult.getValue())){
+                continue;
+            }
+            groups.computeIfAbsent(trvResult.getPackedCanonVector(), k -> new ArrayList<>()).add(namedUnits.size());
+            namedUnits.add(ucumUnit);
+            namedMagnitudes.add(trvResult.getValue());
+        }
+
+        this.codes = new String[namedUnits.size()];
+        this.magnitudes = new double[namedUnits.size()];
+        this.baseUnits = new boolean[namedUnits.size()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = namedUnits.get(i).getCodeCaseSens();
+            magnitudes[i] = namedMagnitudes.get(i);
+            baseUnits[i] = namedUnits.get(i).isBaseUnit();
+        }
+
+        this.vectors = new int[groups.size()][];
+        this.members = new int[groups.size()][];
+        this.groupOf = new int[codes.length];
+        int group = 0;
+        for (Map.Entry<Long, List<Integer>> entry : groups.entrySet()) {
+            vectors[group] = DimensionVector.unpack(entry.getKey());
+            members[group] = new int[entry.getValue().size()];
+            for (int i = 0; i < members[group].length; i++) {
+                members[group][i] = entry.getValue().get(i);
+                groupOf[members[group][i]] = group;
+            }
+            groupsByDimensions.put(entry.getKey(), group);
+            group++;
+        }
+    }
+
+    /**
+     * Returns the index, which is built once on first use.
+     * @return The shared index
+     */
+    static UcumDerivedUnitIndex getInstance(){
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Searches for the shortest expression of named units with the given dimensions and magnitude (e.g., J for
+     * m2.s-2.kg or kJ for kN.m). The search is bounded to a single unit or two units, each raised to an exponent of
+     * at most three, and stops after a single unit has been found. One of the units may carry a prefix of the prefix
+     * table to match the magnitude.
+     * @param packed - the packed canon vector
+     * @param magnitude - the magnitude in base units
+     * @return The case-sensitive expression or null if there is none within the bounds of the search
+     */
+    String simplify(long packed, double magnitude){
+        if (packed == DimensionVector.DIMENSIONLESS){
+            return null;
+        }
+        int[] vector = DimensionVector.unpack(packed);
+        Candidate best = new Candidate();
+        Candidate candidate = new Candidate();
+
+        for (int group = 0; group < vectors.length; group++) {
+            for (int exponent : EXPONENTS) {
+                if (isMultiple(vector, vectors[group], exponent)){
+                    for (int unit : members[group]) {
+                        offer(candidate.set(unit, exponent, -1, 0), magnitude, best);
+                    }
+                }
+            }
+        }
+        if (best.count > 0){
+            return render(best, packed, magnitude);
+        }
+
+        int[] remainder = new int[DimensionVector.BASE_UNIT_COUNT];
+        for (int first = 0; first < vectors.length; first++) {
+            for (int firstExponent : EXPONENTS) {
+                for (int i = 0; i < remainder.length; i++) {
+                    remainder[i] = vector[i] - firstExponent * vectors[first][i];
+                }
+                for (int secondExponent : EXPONENTS) {
+                    Integer second = lookupQuotient(remainder, secondExponent);
+                    if (second == null || second <= first){
+                        //Pairs are visited once with the earlier group first
+                        continue;
+                    }
+                    for (int firstUnit : members[first]) {
+                        for (int secondUnit : members[second]) {
+                            offer(candidate.set(firstUnit, firstExponent, secondUnit, secondExponent), magnitude,
+                                    best);
+                        }
+                    }
+                }
+            }
+        }
+        return best.count > 0 ? render(best, packed, magnitude) : null;
+    }
+
+    /**
+     * Renders the best candidate unless it reads worse than the base unit term of the same dimensions and magnitude
+     * (e.g., kL2 for m6 or L/ms for m3/s). The candidate may not be longer than the base unit term, which needs a
+     * prefix unless the magnitude is one. Nor may it carry a prefix the base unit term does without, unless the
+     * prefix is attached to a named unit that spans at least two base dimensions (mJ for m2.s-2.g).
+     * @param best - the best candidate
+     * @param packed - the packed canon vector
+     * @param magnitude - the magnitude in base units
+     * @return The rendered candidate or null if the base unit term reads at least as well
+     */
+    private String render(Candidate best, long packed, double magnitude){
+        boolean basePrefixed = Math.abs(magnitude - 1) > TOLERANCE;
+        if (best.prefixSymbol != null && !basePrefixed &&
+                countDimensions(vectors[groupOf[best.units[best.prefixedTerm]]]) < 2){
+            return null;
+        }
+        String rendered = best.render(codes, baseUnits);
+        int baseLength = DimensionVector.appendBaseUnits(packed, new StringBuilder()).length() + (basePrefixed ? 1 : 0);
+        return rendered.length() <= baseLength ? rendered : null;
+    }
+
+    /**
+     * Determines the prefix a candidate needs to match a magnitude and keeps the candidate if it ranks higher than
+     * the best candidate so far. Candidates that cannot be matched by a prefix of the prefix table are dropped.
+     * @param candidate - the candidate, its prefix and score are determined here
+     * @param magnitude - the magnitude to be matched
+     * @param best - the best candidate so far, overwritten if the candidate ranks higher
+     */
+    private void offer(Candidate candidate, double magnitude, Candidate best){
+        double ratio = magnitude;
+        for (int term = 0; term < candidate.count; term++) {
+            ratio /= Math.pow(magnitudes[candidate.units[term]], candidate.exponents[term]);
+        }
+
+        if (Math.abs(ratio - 1) > TOLERANCE){
+            //The prefix is raised to the exponent of the term it is attached to
+            for (int term = 0; term < candidate.count && candidate.prefixSymbol == null; term++) {
+                int exponent = candidate.exponents[term];
+                int sup = (int) Math.round(Math.log10(ratio) / exponent);
+                String prefixSymbol = UcumPrefixTable.getInstance().lookupCode(sup);
+                String code = codes[candidate.units[term]];
+                if (sup != 0 && prefixSymbol != null &&
+                        Math.abs(ratio / Math.pow(10, sup * exponent) - 1) <= TOLERANCE &&
+                        UcumDimensionIndex.isPrefixedUnit(prefixSymbol + code, prefixSymbol, code)){
+                    candidate.prefixSymbol = prefixSymbol;
+                    candidate.prefixedTerm = term;
+                }
+            }
+            if (candidate.prefixSymbol == null){
+                return;
+            }
+        }
+
+        candidate.cost = 0;
+        candidate.rank = 0;
+        for (int term = 0; term < candidate.count; term++) {
+            int unit = candidate.units[term];
+            if (candidate.count > 1 && !baseUnits[unit] && absorbedPowers(unit) < 2){
+                //A derived unit standing in for a single base unit such as Hz for /s does not shorten a pair
+                return;
+            }
+            //Two derived units such as Gy/m read worse than two base units such as m/s2
+            candidate.cost += Math.abs(candidate.exponents[term]) + (candidate.count > 1 && !baseUnits[unit] ? 1 : 0);
+            candidate.rank += unit;
+        }
+        if (candidate.count > 1 && candidate.prefixSymbol != null &&
+                candidate.exponents[candidate.prefixedTerm] < 0 && candidate.exponents[1 - candidate.prefixedTerm] > 0){
+            //A prefix in the denominator such as in L/ms is easily overlooked
+            candidate.cost++;
+        }
+
+        if (best.count == 0 || candidate.compareTo(best) < 0){
+            best.copy(candidate);
+        }
+    }
+
+    /**
+     * Determines how many powers of base units a named unit stands for, e.g. 4 for N (kg.m.s-2) or 3 for L (m3).
+     * @param unit - the index of the unit
+     * @return Sum of the absolute exponents of the unit's canon vector
+     */
+    private int absorbedPowers(int unit){
+        int[] vector = vectors[groupOf[unit]];
+        int powers = 0;
+        for (int exponent : vector) {
+            powers += Math.abs(exponent);
+        }
+        return powers;
+    }
+
+    /**
+     * Counts the base dimensions a canon vector spans, e.g. 3 for N (kg.m.s-2) or 1 for L (m3).
+     * @param vector - the canon vector
+     * @return Amount of non-zero exponents
+     */
+    private static int countDimensions(int[] vector){
+        int dimensions = 0;
+        for (int exponent : vector) {
+            dimensions += exponent != 0 ? 1 : 0;
+        }
+        return dimensions;
+    }
+
+    /**
+     * Looks up the group whose canon vector multiplied by an exponent equals a remainder.
+     * @param remainder - the remaining canon vector
+     * @param exponent - the exponent
+     * @return The index of the group or null if there is none
+     */
+    private Integer lookupQuotient(int[] remainder, int exponent){
+        for (int i = 0; i < remainder.length; i++) {
+            if (remainder[i] % exponent != 0){
+                return null;
+            }
+        }
+        int[] quotient = new int[remainder.length];
+        for (int i = 0; i < remainder.length; i++) {
+            quotient[i] = remainder[i] / exponent;
+        }
+        if (!DimensionVector.fits(quotient)){
+            return null;
+        }
+        long packed = DimensionVector.pack(quotient);
+        return packed == DimensionVector.DIMENSIONLESS ? null : groupsByDimensions.get(packed);
+    }
+
+    /**
+     * Determines whether a canon vector is a multiple of another one.
+     * @param vector - the canon vector
+     * @param groupVector - the canon vector of a group
+     * @param exponent - the factor
+     * @return Status of vector being groupVector multiplied by exponent
+     */
+    private static boolean isMultiple(int[] vector, int[] groupVector, int exponent){
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] != exponent * groupVector[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determines whether a unit is a named unit: a base unit, a coherent SI unit such as N, J or Pa or one of the
+     * metric ISO 1000 units such as L, t or bar. Of two spellings of the same unit only the one whose case-sensitive
+     * code is also its capital code is kept (L rather than l).
+     * @param ucumEssence - the loaded UCUM essence
+     * @param ucumUnit - the unit
+     * @return Status of the unit being a named unit
+     */
+    private static boolean isNamedUnit(UcumEssence ucumEssence, UcumUnit ucumUnit){
+        if (ucumUnit.isBaseUnit()){
+            return true;
+        }
+        if (!ucumUnit.isMetric() || ucumUnit.isSpecial() || ucumUnit.isArbitrary()){
+            return false;
+        }
+        if (!"si".equals(ucumUnit.getUnitClass()) && !"iso1000".equals(ucumUnit.getUnitClass())){
+            return false;
+        }
+        UcumUnit variant = ucumEssence.lookupCaseSensUnit(ucumUnit.getCodeCapital());
+        return variant == null || variant == ucumUnit;
+    }
+
+    /**
+     * Determines whether a positive magnitude is an integral power of ten.
+     * @param magnitude - the magnitude
+     * @return Status of the magnitude being a power of ten
+     */
+    private static boolean isPowerOfTen(double magnitude){
+        double exponent = Math.log10(magnitude);
+        return Math.abs(exponent - Math.rint(exponent)) < TOLERANCE;
+    }
+
+    /**
+     * An expression of one or two named units, one of which may carry a prefix.
+     */
+    private static final class Candidate {
+
+        private final int[] units = new int[MAX_TERMS];
+        private final int[] exponents = new int[MAX_TERMS];
+        private int count;
+        private String prefixSymbol;
+        private int prefixedTerm;
+        private int cost;
+        private int rank;
+
+        /**
+         * Sets the units and exponents of this candidate and clears its prefix.
+         * @param firstUnit - the first unit
+         * @param firstExponent - the exponent of the first unit
+         * @param secondUnit - the second unit or -1 if there is none
+         * @param secondExponent - the exponent of the second unit
+         * @return This candidate
+         */
+        private Candidate set(int firstUnit, int firstExponent, int secondUnit, int secondExponent){
+            units[0] = firstUnit;
+            exponents[0] = firstExponent;
+            units[1] = secondUnit;
+            exponents[1] = secondExponent;
+            count = secondUnit < 0 ? 1 : 2;
+            prefixSymbol = null;
+            prefixedTerm = -1;
+            return this;
+        }
+
+        /**
+         * Ranks this candidate against another one. Fewer units come first. Single units without a prefix come
+         * before lower costs (m3 rather than kL), whereas pairs with lower costs come before pairs without a prefix
+         * (kg.m2 rather than J.s2). Ties go to single units without a negative exponent (Hz rather than /s), then to
+         * units listed earlier in the essence.
+         * @param other - the other candidate
+         * @return A negative number if this candidate ranks higher, a positive number if it ranks lower
+         */
+        private int compareTo(Candidate other){
+            int result = Integer.compare(count, other.count);
+            int prefixes = Boolean.compare(prefixSymbol != null, other.prefixSymbol != null);
+            int costs = Integer.compare(cost, other.cost);
+            if (result == 0){
+                result = count == 1 ? prefixes : costs;
+            }
+            if (result == 0){
+                result = count == 1 ? costs : prefixes;
+            }
+            if (result == 0 && count == 1){
+                result = Boolean.compare(exponents[0] < 0, other.exponents[0] < 0);
+            }
+            return result == 0 ? Integer.compare(rank, other.rank) : result;
+        }
+
+        /**
+         * Copies another candidate into this one.
+         * @param other - the candidate to be copied
+         */
+        private void copy(Candidate other){
+            set(other.units[0], other.exponents[0], other.units[1], other.exponents[1]);
+            prefixSymbol = other.prefixSymbol;
+            prefixedTerm = other.prefixedTerm;
+            cost = other.cost;
+            rank = other.rank;
+        }
+
+        /**
+         * Renders this candidate as a UCUM expression (e.g., kJ, J.s, m/s2 or /s). Multiplied terms precede divided
+         * ones; among them a prefixed term comes first, then derived units before base units.
+         * @param codes - the unit codes of the index
+         * @param baseUnits - the base unit status of the units of the index
+         * @return The rendered expression
+         */
+        private String render(String[] codes, boolean[] baseUnits){
+            int first = count > 1 && precedes(1, 0, baseUnits) ? 1 : 0;
+            StringBuilder output = new StringBuilder();
+            appendTerm(first, codes, output);
+            if (count > 1){
+                appendTerm(1 - first, codes, output);
+            }
+            return output.toString();
+        }
+
+        /**
+         * Determines whether a term is rendered before another one.
+         * @param term - the term
+         * @param other - the other term
+         * @param baseUnits - the base unit status of the units of the index
+         * @return Status of the term preceding the other term
+         */
+        private boolean precedes(int term, int other, boolean[] baseUnits){
+            if ((exponents[term] < 0) != (exponents[other] < 0)){
+                return exponents[term] > 0;
+            }
+            if (term == prefixedTerm || other == prefixedTerm){
+                return term == prefixedTerm;
+            }
+            if (baseUnits[units[term]] != baseUnits[units[other]]){
+                return !baseUnits[units[term]];
+            }
+            return units[term] < units[other];
+        }
+
+        /**
+         * Appends a term, using a division for negative exponents.
+         * @param term - the index of the term
+         * @param codes - the unit codes of the index
+         * @param output - the builder the term is appended to
+         */
+        private void appendTerm(int term, String[] codes, StringBuilder output){
+            if (exponents[term] < 0){
+                output.append('/');
+            } else if (output.length() > 0){
+                output.append('.');
+            }
+            if (term == prefixedTerm){
+                output.append(prefixSymbol);
+            }
+            output.append(codes[units[term]]);
+            if (Math.abs(exponents[term]) != 1){
+                output.append(Math.abs(exponents[term]));
+            }
+        }
+    }
+
+    /**
+     * Lazily initialized holder of the shared index.
+     */
+    private static final class Holder {
+
+        private static final UcumDerivedUnitIndex INSTANCE = new UcumDerivedUnitIndex(Node.getUcumEssence());
+    }
+
+}
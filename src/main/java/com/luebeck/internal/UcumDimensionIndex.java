@@ -0,0 +1,133 @@
+package com.luebeck.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class UcumDimensionIndex {
+
+    private static final UcumParser ucumParser = new UcumParser();
+
+    private final HashMap<Long, List<String>> units = new HashMap<>();
+    private final HashMap<Long, List<String>> prefixedUnits = new HashMap<>();
+
+    /**
+     * Constructor for the index of all convertible essence units by their packed canon vector. Special and arbitrary
+     * units are left out since they cannot be converted. Prefixed variants are generated for metric units only.
+     * @param ucumEssence - the loaded UCUM essence
+     */
+    private UcumDimensionIndex(UcumEssence ucumEssence) {
+        HashMap<Long, List<String>> units = new HashMap<>();
+        HashMap<Long, List<String>> prefixedUnits = new HashMap<>();
+
+        for (UcumUnit ucumUnit : ucumEssence.getUnits()) {
+            if (ucumUnit.isSpecial() || ucumUnit.isArbitrary()){
+                continue;
+            }
+            String code = ucumUnit.getCodeCaseSens();
+            Long packed = generatePackedCanonVector(code);
+            if (packed == null){
+                continue;
+            }
+
+            units.computeIfAbsent(packed, k -> new ArrayList<>()).add(code);
+            List<String> variants = prefixedUnits.computeIfAbsent(packed, k -> new ArrayList<>());
+            variants.add(code);
+            if (ucumUnit.isMetric()){
+                for (UcumPrefix ucumPrefix : ucumEssence.getPrefixes()) {
+                    String prefixedCode = ucumPrefix.getCodeCaseSens() + code;
+                    if (isPrefixedUnit(prefixedCode, ucumPrefix.getCodeCaseSens(), code)){
+                        variants.add(prefixedCode);
+                    }
+                }
+            }
+        }
+
+        freeze(units, this.units);
+        freeze(prefixedUnits, this.prefixedUnits);
+    }
+
+    /**
+     * Returns the index, which is built once on first use.
+     * @return The shared index
+     */
+    static UcumDimensionIndex getInstance(){
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Looks up all essence units sharing a packed canon vector.
+     * @param packed - the packed canon vector
+     * @param includePrefixes - whether prefixed variants of metric units are to be included
+     * @return Unmodifiable list of case-sensitive unit codes in the order of the essence, empty if there are none
+     */
+    List<String> lookup(long packed, boolean includePrefixes){
+        List<String> result = (includePrefixes ? prefixedUnits : units).get(packed);
+        return result == null ? Collections.<String>emptyList() : result;
+    }
+
+    /**
+     * Generates the packed canon vector of a single essence unit.
+     * @param code - the case-sensitive unit code
+     * @return The packed canon vector or null if the unit cannot be traversed or packed
+     */
+    private static Long generatePackedCanonVector(String code){
+        TraversalResult trvResult = traverseUnit(code);
+        return trvResult == null ? null : trvResult.getPackedCanonVector();
+    }
+
+    /**
+     * Traverses a single essence unit whose packed canon vector is known to fit.
+     * @param code - the case-sensitive unit code
+     * @return The TraversalResult of the unit or null if the unit cannot be traversed or packed
+     */
+    static TraversalResult traverseUnit(String code){
+        if (!ucumParser.passesInitialSyntaxCheck(code) || Node.generateNode(code) == null){
+            return null;
+        }
+        try {
+            TraversalResult trvResult = TraversalResult.generateTraversalResult(ucumParser.generateRoot(code));
+            trvResult.getPackedCanonVector();
+            return trvResult;
+        } catch (RuntimeException e) {
+            //Essence entries that cannot be traversed are left out of the index
+            return null;
+        }
+    }
+
+    /**
+     * Determines whether a prefixed code is parsed as the intended prefix and unit. Codes such as cd (candela) would
+     * otherwise be listed as prefixed variants.
+     * @param prefixedCode - the prefixed code
+     * @param prefixSymbol - the intended case-sensitive prefix
+     * @param unitSymbol - the intended case-sensitive unit
+     * @return Status of the prefixed code denoting the prefixed unit
+     */
+    static boolean isPrefixedUnit(String prefixedCode, String prefixSymbol, String unitSymbol){
+        Node node = Node.generateNode(prefixedCode);
+        return node != null && node.isCaseSens() && prefixSymbol.equals(node.getPrefixSymbol()) &&
+                unitSymbol.equals(node.getUnitSymbol());
+    }
+
+    /**
+     * Copies lists into unmodifiable lists of the exact size.
+     * @param source - the lists being collected
+     * @param target - the map receiving the unmodifiable lists
+     */
+    private static void freeze(HashMap<Long, List<String>> source, HashMap<Long, List<String>> target){
+        for (Map.Entry<Long, List<String>> entry : source.entrySet()) {
+            target.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+        }
+    }
+
+    /**
+     * Lazily initialized holder of the shared index.
+     */
+    private static final class Holder {
+
+        private static final UcumDimensionIndex INSTANCE = new UcumDimensionIndex(Node.getUcumEssence());
+    }
+
+}
@@ -17,6 +17,9 @@ class UcumEssence {
     static private HashMap prefixCaseSensMap = new HashMap();
     static private HashMap prefixCapitalMap = new HashMap();
 
+    static private HashMap<String, String> unitDisplayNames = new HashMap<>();
+    static private HashMap<String, String> prefixDisplayNames = new HashMap<>();
+
     /**
      * Constructor for what is essentially the UCUM Essence document turned into UcumUnit and UcumPrefix objects.
      */
@@ -122,18 +125,27 @@ class UcumEssence {
     }
 
     /**
-     * Initializes the Prefix und Unit HashMaps used for look-ups.
+     * Initializes the Prefix und Unit HashMaps used for look-ups as well as the display name fragments.
      */
     void initializeMaps(){
         for (int i = 0; i < ucumPrefixes.length; i++) {
             prefixCaseSensMap.put(ucumPrefixes[i].getCodeCaseSens(), i);
             prefixCapitalMap.put(ucumPrefixes[i].getCodeCapital(), i);
+            prefixDisplayNames.put(ucumPrefixes[i].getCodeCaseSens(), ucumPrefixes[i].getName());
         }
 
         for (int i = 0; i < ucumUnits.length; i++) {
             codeCaseSensMap.put(ucumUnits[i].getCodeCaseSens(), i);
             codeCapitalMap.put(ucumUnits[i].getCodeCapital(), i);
         }
+
+        //Capital codes first so that case-sensitive codes take precedence just like in containsUnit
+        for (int i = 0; i < ucumUnits.length; i++) {
+            unitDisplayNames.put(ucumUnits[i].getCodeCapital(), ucumUnits[i].getName());
+        }
+        for (int i = 0; i < ucumUnits.length; i++) {
+            unitDisplayNames.put(ucumUnits[i].getCodeCaseSens(), ucumUnits[i].getName());
+        }
     }
 
     /**
@@ -166,6 +178,42 @@ class UcumEssence {
         }
     }
 
+    /**
+     * Returns all units of the UCUM Essence document in the order they are listed there. The array must not be
+     * modified.
+     * @return All UCUM units
+     */
+    UcumUnit[] getUnits(){
+        return ucumUnits;
+    }
+
+    /**
+     * Returns all prefixes of the UCUM Essence document from the largest to the smallest. The array must not be
+     * modified.
+     * @return All UCUM prefixes
+     */
+    UcumPrefix[] getPrefixes(){
+        return ucumPrefixes;
+    }
+
+    /**
+     * Looks up the pre-rendered display name of a unit. Like containsUnit it prefers case-sensitive codes.
+     * @param input - The unit code without prefix, exponent or annotation
+     * @return The display name of the unit or null if the input is no unit
+     */
+    String lookupUnitDisplayName(String input){
+        return unitDisplayNames.get(input);
+    }
+
+    /**
+     * Looks up the pre-rendered display name of a prefix.
+     * @param input - The case-sensitive prefix code
+     * @return The display name of the prefix or null if the input is no prefix
+     */
+    String lookupPrefixDisplayName(String input){
+        return prefixDisplayNames.get(input);
+    }
+
     /**
      * Looks up the input in the UCUM Essence document. It is used to specifically
      * look for case-sensitive units.
@@ -1,14 +1,93 @@
 package com.luebeck.internal;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 public class UcumFunction {
 
+    public static final String INVALID_SYNTAX = "invalid syntax";
+    public static final String UNKNOWN_UNIT = "unknown unit";
+    public static final String MIXED_CASE = "mixed case";
+    public static final String SPECIAL_UNIT_OPERATION = "special unit operation";
+    public static final String SPECIAL_UNIT = "special unit";
+    public static final String ARBITRARY_UNIT = "arbitrary unit";
+
+    public static final String CANONICAL_KEY_CACHE = "canonicalKey";
+    public static final String TRAVERSAL_CACHE = "traversal";
+    public static final String CHECK_CACHE = "check";
+    public static final String DISPLAY_NAME_CACHE = "displayName";
+    public static final String PREFIX_FAMILY_CACHE = "prefixFamily";
+    public static final String SIMPLIFICATION_CACHE = "simplification";
+    public static final String SUGGESTION_CACHE = "suggestion";
+    public static final int MAX_SUGGESTIONS = 10;
+
+    static final String CHECK_VALIDITY = "validity";
+    static final String CHECK_CANONIZATION = "canonization";
+    static final String CHECK_OPERATIONS = "operations";
+    static final String OUTCOME_VALID = "valid";
+    static final String OUTCOME_HIT = "hit";
+    static final String OUTCOME_MISS = "miss";
+    static final String OUTCOME_EVICTION = "eviction";
+    static final String OUTCOME_UNCACHEABLE = "uncacheable";
+
     private static final UcumParser ucumParser = new UcumParser();
+    private static final UcumNormalizer ucumNormalizer = new UcumNormalizer();
+    private static final int CACHE_CAPACITY = 4096;
+    private static final UcumCache<String, String> canonicalKeyCache = new UcumCache<>(CACHE_CAPACITY);
+    private static final UcumCache<String, TraversalResult> traversalCache = new UcumCache<>(CACHE_CAPACITY);
+    private static final UcumCache<String, String> validityCache = new UcumCache<>(CACHE_CAPACITY);
+    private static final UcumCache<String, String> canonizationCache = new UcumCache<>(CACHE_CAPACITY);
+    private static final UcumCache<String, String> operationsCache = new UcumCache<>(CACHE_CAPACITY);
+    private static final UcumCache<String, String> displayNameCache = new UcumCache<>(CACHE_CAPACITY);
+    private static final UcumCache<String, UcumPrefixFamily> prefixFamilyCache = new UcumCache<>(CACHE_CAPACITY);
+    private static final UcumCache<String, String> simplificationCache = new UcumCache<>(CACHE_CAPACITY);
+    private static final UcumCache<String, List<String>> suggestionCache = new UcumCache<>(CACHE_CAPACITY);
+
+    private final UcumCacheListener cacheListener;
 
     /**
      * Generates the UCUM service that is used to access the library's functions.
      */
     public UcumFunction(){
+        this(null);
+    }
+
+    /**
+     * Generates the UCUM service that is used to access the library's functions and reports cache activity.
+     * The caches themselves are shared between all instances.
+     * @param cacheListener - the listener notified of cache hits, misses and evictions, may be null
+     */
+    public UcumFunction(UcumCacheListener cacheListener){
+        this.cacheListener = cacheListener;
+    }
+
+    /**
+     * Empties the caches shared between all instances, e.g. to measure uncached look-ups.
+     */
+    public void clearCaches(){
+        canonicalKeyCache.clear();
+        traversalCache.clear();
+        validityCache.clear();
+        canonizationCache.clear();
+        operationsCache.clear();
+        displayNameCache.clear();
+        prefixFamilyCache.clear();
+        simplificationCache.clear();
+        suggestionCache.clear();
+    }
 
+    /**
+     * Creates a bounded cache like the ones shared by all instances for the helpers of the external package. Look-ups
+     * are lock-free, entries that have not been looked up recently are evicted once the capacity is exceeded and
+     * entries with a null key or value are not stored.
+     * @param capacity - the maximum amount of entries held by the cache, at least 1
+     * @return The cache as a map
+     */
+    public static <K, V> Map<K, V> createBoundedCache(int capacity){
+        return new UcumCache<K, V>(capacity).asMap();
     }
 
     /**
@@ -20,29 +99,209 @@ public class UcumFunction {
         return ucumParser.tokenize(source);
     }
 
+    /**
+     * Generates the canonical key of a valid UCUM expression. Spelling variants of the same unit share the same key.
+     * @param source - the source unit
+     * @param dropAnnotations - whether annotations are to be discarded
+     * @return Canonical key of the source or null if the source cannot be normalized
+     */
+    public String generateCanonicalKey(String source, boolean dropAnnotations){
+        if (!dropAnnotations){
+            return ucumNormalizer.normalize(source, false);
+        }
+
+        CacheEvent event = FlightRecorderSupport.AVAILABLE ? CacheEvent.beginIfEnabled() : null;
+        String outcome = OUTCOME_HIT;
+        String key = canonicalKeyCache.get(source);
+        if (key == null){
+            key = ucumNormalizer.normalize(source, true);
+            if (key != null){
+                boolean evicted = canonicalKeyCache.put(source, key);
+                reportCacheMiss(CANONICAL_KEY_CACHE, evicted);
+                outcome = evicted ? OUTCOME_EVICTION : OUTCOME_MISS;
+            } else {
+                outcome = OUTCOME_UNCACHEABLE;
+            }
+        } else {
+            reportCacheHit(CANONICAL_KEY_CACHE);
+        }
+        if (event != null){
+            event.endAndCommit(CANONICAL_KEY_CACHE, source, outcome);
+        }
+        return key;
+    }
+
+    /**
+     * Generates the TraversalResult of a UCUM expression. TraversalResults are cached by the canonical key of the
+     * source, which is why spelling variants of the same unit share a single entry. The key only addresses the cache,
+     * the source itself is traversed. A variant's TraversalResult is only shared if the key traverses to the same
+     * result, so no spelling can store a result its key would not produce. Cached TraversalResults must not be
+     * modified.
+     * @param source - the source unit
+     * @return TraversalResult of the source
+     */
+    private TraversalResult generateTraversalResult(String source){
+        String key = generateCanonicalKey(source, true);
+        if (key == null){
+            return traverse(source);
+        }
+
+        CacheEvent event = FlightRecorderSupport.AVAILABLE ? CacheEvent.beginIfEnabled() : null;
+        String outcome = OUTCOME_HIT;
+        TraversalResult trvResult = traversalCache.get(key);
+        if (trvResult == null){
+            trvResult = traverse(source);
+            if (key.equals(source) || trvResult.isEquivalent(traverse(key))){
+                boolean evicted = traversalCache.put(key, trvResult);
+                reportCacheMiss(TRAVERSAL_CACHE, evicted);
+                outcome = evicted ? OUTCOME_EVICTION : OUTCOME_MISS;
+            } else {
+                outcome = OUTCOME_UNCACHEABLE;
+            }
+        } else {
+            reportCacheHit(TRAVERSAL_CACHE);
+        }
+        if (event != null){
+            event.endAndCommit(TRAVERSAL_CACHE, key, outcome);
+        }
+        return trvResult;
+    }
+
+    /**
+     * Generates the tree of a UCUM expression and traverses it without consulting any cache.
+     * @param source - the source unit
+     * @return TraversalResult of the source
+     */
+    private TraversalResult traverse(String source){
+        Node root = ucumParser.generateRoot(source);
+        TraversalEvent event = FlightRecorderSupport.AVAILABLE ? TraversalEvent.beginIfEnabled() : null;
+        TraversalResult trvResult = TraversalResult.generateTraversalResult(root);
+        if (event != null){
+            event.endAndCommit(source, trvResult.getNodeCount(), UcumParser.OUTCOME_SUCCESS);
+        }
+        return trvResult;
+    }
+
+    /**
+     * Notifies the cache listener of a cache hit should there be one.
+     * @param cache - the name of the cache
+     */
+    private void reportCacheHit(String cache){
+        if (cacheListener != null){
+            cacheListener.cacheHit(cache);
+        }
+    }
+
+    /**
+     * Notifies the cache listener of a cache miss and a possible eviction should there be a listener.
+     * @param cache - the name of the cache
+     * @param evicted - whether storing the missing entry evicted another one
+     */
+    private void reportCacheMiss(String cache, boolean evicted){
+        if (cacheListener != null){
+            cacheListener.cacheMiss(cache);
+            if (evicted){
+                cacheListener.cacheEviction(cache);
+            }
+        }
+    }
+
     /**
      * Determines whether the given input is a valid UCUM expression or not.
      * @param source - the source unit
      * @return Validity of the input according to the UCUM syntax
      */
     public boolean isValid(String source){
+        return checkValidity(source) == null;
+    }
 
-        if (!ucumParser.passesInitialSyntaxCheck(source)){
-            return false;
+    /**
+     * Determines why the given input is not a valid UCUM expression.
+     * @param source - the source unit
+     * @return The reason the input is invalid (e.g., INVALID_SYNTAX) or null if it is valid
+     */
+    public String checkValidity(String source){
+        return check(validityCache, CHECK_VALIDITY, source);
+    }
+
+    /**
+     * Looks up the outcome of a check in its cache and runs the check should there be no outcome for the source yet.
+     * Outcomes are cached per spelling of the source since spelling variants may differ in validity.
+     * @param cache - the cache holding the outcomes of the check
+     * @param check - the check (e.g., CHECK_VALIDITY)
+     * @param source - the source unit
+     * @return The reason the source fails the check or null if it passes
+     */
+    private String check(UcumCache<String, String> cache, String check, String source){
+        CacheEvent event = FlightRecorderSupport.AVAILABLE ? CacheEvent.beginIfEnabled() : null;
+        String outcome = OUTCOME_HIT;
+        String failure = cache.get(source);
+        if (failure == null){
+            failure = runCheck(check, source);
+            boolean evicted = cache.put(source, failure);
+            reportCacheMiss(CHECK_CACHE, evicted);
+            outcome = evicted ? OUTCOME_EVICTION : OUTCOME_MISS;
+        } else {
+            reportCacheHit(CHECK_CACHE);
+        }
+        if (event != null){
+            event.endAndCommit(CHECK_CACHE, source, outcome);
         }
+        return OUTCOME_VALID.equals(failure) ? null : failure;
+    }
 
-        String[] tokens = generateTokens(source);
+    /**
+     * Runs a check on the source without consulting any cache.
+     * @param check - the check (e.g., CHECK_VALIDITY)
+     * @param source - the source unit
+     * @return The reason the source fails the check or OUTCOME_VALID if it passes
+     */
+    private String runCheck(String check, String source){
+        CheckEvent event = FlightRecorderSupport.AVAILABLE ? CheckEvent.beginIfEnabled() : null;
+        String[] tokens = null;
+        String failure = INVALID_SYNTAX;
+
+        if (ucumParser.passesInitialSyntaxCheck(source)){
+            tokens = generateTokens(source);
+            switch (check){
+                case CHECK_VALIDITY:
+                    failure = findValidityFailure(tokens);
+                    break;
+                case CHECK_CANONIZATION:
+                    failure = findCanonizationFailure(tokens);
+                    break;
+                default:
+                    failure = findOperationsFailure(tokens);
+                    break;
+            }
+        }
+
+        if (failure == null){
+            failure = OUTCOME_VALID;
+        }
+        if (event != null){
+            event.endAndCommit(check, source, tokens == null ? 0 : tokens.length, failure);
+        }
+        return failure;
+    }
+
+    /**
+     * Applies the validity checks that follow the initial syntax check to the tokens of a source unit.
+     * @param tokens - the tokens of the source unit
+     * @return The reason the tokens are rejected or null if they pass
+     */
+    private String findValidityFailure(String[] tokens){
 
         if (isMixedCase(tokens)){
-            return false;
+            return containsUnknownUnits(tokens) ? UNKNOWN_UNIT : MIXED_CASE;
         }
 
         //TODO Pass on to the other functions that regulate input validity
         if (!passesSpecialUnitOperationCheck(tokens)){
-            return false;
+            return containsUnknownUnits(tokens) ? UNKNOWN_UNIT : SPECIAL_UNIT_OPERATION;
         }
 
-        return true;
+        return null;
     }
 
     /**
@@ -52,26 +311,39 @@ public class UcumFunction {
      * @return Eligibility for partaking in tasks related to canonization
      */
     public boolean eligibleForCanonization(String source){
+        return checkEligibilityForCanonization(source) == null;
+    }
 
-        if (!ucumParser.passesInitialSyntaxCheck(source)){
-            return false;
-        }
+    /**
+     * Determines why the source is not eligible to partake in tasks related to canonization.
+     * @param source - the source unit
+     * @return The reason the source is not eligible (e.g., ARBITRARY_UNIT) or null if it is eligible
+     */
+    public String checkEligibilityForCanonization(String source){
+        return check(canonizationCache, CHECK_CANONIZATION, source);
+    }
 
-        String[] tokens = generateTokens(source);
+    /**
+     * Applies the canonization eligibility checks that follow the initial syntax check to the tokens of a source
+     * unit.
+     * @param tokens - the tokens of the source unit
+     * @return The reason the tokens are rejected or null if they pass
+     */
+    private String findCanonizationFailure(String[] tokens){
 
         if (isMixedCase(tokens)){
-            return false;
+            return containsUnknownUnits(tokens) ? UNKNOWN_UNIT : MIXED_CASE;
         }
 
         if (containsArbitraryUnits(tokens)){
-            return false;
+            return containsUnknownUnits(tokens) ? UNKNOWN_UNIT : ARBITRARY_UNIT;
         }
 
         if (!passesSpecialUnitOperationCheck(tokens)){
-            return false;
+            return containsUnknownUnits(tokens) ? UNKNOWN_UNIT : SPECIAL_UNIT_OPERATION;
         }
 
-        return true;
+        return null;
     }
 
     /**
@@ -79,22 +351,34 @@ public class UcumFunction {
      * @param source - the source unit
      * @return Eligibility for partaking in tasks related to operations such as multiplication and division
      */
-    // Betrifft alle Umwandlungsaufgaben
     public boolean eligibleForOperations(String source){
+        return checkEligibilityForOperations(source) == null;
+    }
 
-        if (!ucumParser.passesInitialSyntaxCheck(source)){
-            return false;
-        }
+    /**
+     * Determines why the source is not eligible to partake in 'operations' such as multiplication, division etc.
+     * @param source - the source unit
+     * @return The reason the source is not eligible (e.g., SPECIAL_UNIT) or null if it is eligible
+     */
+    // Betrifft alle Umwandlungsaufgaben
+    public String checkEligibilityForOperations(String source){
+        return check(operationsCache, CHECK_OPERATIONS, source);
+    }
 
-        String[] tokens = generateTokens(source);
+    /**
+     * Applies the operations eligibility checks that follow the initial syntax check to the tokens of a source unit.
+     * @param tokens - the tokens of the source unit
+     * @return The reason the tokens are rejected or null if they pass
+     */
+    private String findOperationsFailure(String[] tokens){
 
         if (isMixedCase(tokens)){
-            return false;
+            return containsUnknownUnits(tokens) ? UNKNOWN_UNIT : MIXED_CASE;
         }
 
         //TODO Remove containsSpecialUnits upon implementing Special unit conversions
         if (containsSpecialUnits(tokens)){
-            return false;
+            return containsUnknownUnits(tokens) ? UNKNOWN_UNIT : SPECIAL_UNIT;
         }
 
         //TODO Then reactivate this
@@ -103,10 +387,34 @@ public class UcumFunction {
         //}
 
         if (containsArbitraryUnits(tokens)){
-            return false;
+            return containsUnknownUnits(tokens) ? UNKNOWN_UNIT : ARBITRARY_UNIT;
         }
 
-        return true;
+        return null;
+    }
+
+    /**
+     * Determines whether an array of tokens contains operands that are neither integers nor units found in the UCUM
+     * essence. Only used to tell the reason a check has failed.
+     * @param tokens - the units to be verified
+     * @return Status of the tokens containing unknown units
+     */
+    private boolean containsUnknownUnits(String[] tokens){
+        for (int i = 0; i < tokens.length; i++) {
+            switch (tokens[i]){
+                case ".":
+                case "/":
+                case "(":
+                case ")":
+                    continue;
+                default:
+                    if (Node.generateNode(tokens[i]) == null){
+                        return true;
+                    }
+            }
+        }
+
+        return false;
     }
 
     /**
@@ -289,9 +597,9 @@ public class UcumFunction {
      * @return Status of the commensurability of two units
      */
     public boolean isCommensurable(String source, String target){
-        TraversalResult trvResultSource = TraversalResult.generateTraversalResult(ucumParser.generateRoot(source));
-        TraversalResult trvResultTarget = TraversalResult.generateTraversalResult(ucumParser.generateRoot(target));
-        return trvResultSource.generateCanonVectorAsBaseUnit().equals(trvResultTarget.generateCanonVectorAsBaseUnit());
+        TraversalResult trvResultSource = generateTraversalResult(source);
+        TraversalResult trvResultTarget = generateTraversalResult(target);
+        return Arrays.equals(trvResultSource.getCanonVector(), trvResultTarget.getCanonVector());
     }
 
     /**
@@ -303,11 +611,14 @@ public class UcumFunction {
      * @return The multiplication's result in its canonized form
      */
     public String multiply(String source, double sourceQuantity, String target, double targetQuantity){
-        TraversalResult multiplication = TraversalResult.generateTraversalResult(ucumParser.generateRoot(
-                "(" + source + ").(" + target + ")"));
-        multiplication.multiplyValue(sourceQuantity * targetQuantity);
+        int[] sourceVector = generateTraversalResult(source).getCanonVector();
+        int[] targetVector = generateTraversalResult(target).getCanonVector();
+        int[] canonVector = new int[DimensionVector.BASE_UNIT_COUNT];
+        for (int i = 0; i < canonVector.length; i++) {
+            canonVector[i] = sourceVector[i] + targetVector[i];
+        }
 
-        return multiplication.generateCanonVectorAsBaseUnit();
+        return DimensionVector.appendBaseUnits(canonVector, new StringBuilder()).toString();
     }
 
     /**
@@ -319,11 +630,14 @@ public class UcumFunction {
      * @return The division's result in its canonized form
      */
     public String divide(String source, double sourceQuantity, String target, double targetQuantity){
-        TraversalResult division = TraversalResult.generateTraversalResult(ucumParser.generateRoot(
-                "(" + source + ")/(" + target + ")"));
-        division.multiplyValue(sourceQuantity / targetQuantity);
+        int[] sourceVector = generateTraversalResult(source).getCanonVector();
+        int[] targetVector = generateTraversalResult(target).getCanonVector();
+        int[] canonVector = new int[DimensionVector.BASE_UNIT_COUNT];
+        for (int i = 0; i < canonVector.length; i++) {
+            canonVector[i] = sourceVector[i] - targetVector[i];
+        }
 
-        return division.generateCanonVectorAsBaseUnit();
+        return DimensionVector.appendBaseUnits(canonVector, new StringBuilder()).toString();
     }
 
     /**
@@ -336,47 +650,52 @@ public class UcumFunction {
      * @return Quantity of the source unit expressed as the target unit
      */
     public double convert(String source, String target, double quantity){
-        TraversalResult trvResultSource = TraversalResult.generateTraversalResult(ucumParser.generateRoot(source));
-        TraversalResult trvResultTarget = TraversalResult.generateTraversalResult(ucumParser.generateRoot(target));
+        TraversalResult trvResultSource = generateTraversalResult(source);
+        TraversalResult trvResultTarget = generateTraversalResult(target);
         return trvResultSource.getValue()/trvResultTarget.getValue() * quantity;
     }
 
     /**
-     * Converts a given positive quantity into a format that is valid within UCUM (e.g., 1.5 -> 15.10^-1)
-     * @param quantity - the quantity to be converted
+     * Converts a given positive quantity into a format that is valid within UCUM (e.g., 1.5 -> 15.10^-1). The
+     * representation is the shortest one that parses back to the very same double.
+     * @param quantity - the non-negative finite quantity to be converted
      * @return Valid UCUM representation of a positive numeric input especially for use with floating point values
      */
     public String numberToUcumExpression(double quantity){
+        char[] buffer = new char[UcumNumberFormat.MAX_LENGTH];
+        return new String(buffer, 0, UcumNumberFormat.format(quantity, buffer, 0));
+    }
 
-        int scientificExponent;
-        String quantityAsString = String.valueOf(quantity);
-
-        if (quantityAsString.contains("E")){
-            String[] scientificNotation = quantityAsString.split("(e|E)");
-            quantityAsString = scientificNotation[0];
-            scientificExponent = Integer.valueOf(scientificNotation[1]);
-            String[] decimalSeparator = quantityAsString.split("[.]");
+    /**
+     * Writes the UCUM representation of a given positive quantity into a buffer without allocating.
+     * @param quantity - the non-negative finite quantity to be converted
+     * @param buffer - the buffer written to, must provide 32 characters starting at offset
+     * @param offset - the index of the first character written
+     * @return The index following the last character written
+     */
+    public int numberToUcumExpression(double quantity, char[] buffer, int offset){
+        return UcumNumberFormat.format(quantity, buffer, offset);
+    }
 
-            if (decimalSeparator[1].matches("0+")){
-                return decimalSeparator[0] + ".10^" + scientificExponent;
-            }
+    /**
+     * Appends the UCUM representation of a given positive quantity to an output without allocating.
+     * @param quantity - the non-negative finite quantity to be converted
+     * @param output - the output the representation is appended to
+     * @throws IOException when the output cannot be appended to
+     */
+    public void numberToUcumExpression(double quantity, Appendable output) throws IOException {
+        UcumNumberFormat.format(quantity, output);
+    }
 
-            int ucumExponent = -decimalSeparator[1].length() + scientificExponent;
-            if (ucumExponent == 0){
-                return quantityAsString.replace(".","");
-            } else {
-                return quantityAsString.replace(".", "") + ".10^" + ucumExponent;
-            }
-        } else {
-            String[] decimalSeparator = quantityAsString.split("[.]");
-            if (decimalSeparator[1].matches("0+")) {
-                return decimalSeparator[0];
-            } else if (decimalSeparator[0].equals("0")) {
-                return decimalSeparator[1] + ".10^-" + (decimalSeparator[1].length());
-            } else {
-                return decimalSeparator[0] + decimalSeparator[1] + ".10^-" + (decimalSeparator[1].length());
-            }
-        }
+    /**
+     * Parses a UCUM numeric factor such as 15.10^-1 or 10*3, the inverse of numberToUcumExpression.
+     * @param source - the characters to be parsed
+     * @param start - the index of the first character of the factor
+     * @param end - the index following the last character of the factor
+     * @return Value of the factor or Double.NaN if the characters do not form a numeric factor
+     */
+    public double ucumExpressionToNumber(CharSequence source, int start, int end){
+        return UcumNumberFormat.parse(source, start, end);
     }
 
     /*
@@ -390,10 +709,227 @@ public class UcumFunction {
      * @return The pair of base unit composition and its magnitude ergo the canonized form
      */
     public String generateCanonizedForm(String source){
-        TraversalResult trvResult = TraversalResult.generateTraversalResult(ucumParser.generateRoot(source));
+        TraversalResult trvResult = generateTraversalResult(source);
         return trvResult.generateCanonVectorAsBaseUnit() + ", " + trvResult.getValue();
     }
 
+    /**
+     * Generates the packed canon vector of a UCUM unit (see DimensionVector). Equal packed canon vectors denote
+     * commensurable units. Arbitrary units may not partake in the act of canonization.
+     * @param source - the source unit
+     * @return The packed base unit composition of the source unit
+     * @throws ArithmeticException when an exponent is too large to be packed
+     */
+    public long generatePackedCanonVector(String source){
+        return generateTraversalResult(source).getPackedCanonVector();
+    }
+
+    /**
+     * Generates the magnitude of a UCUM unit expressed in base units (e.g., 0.001 for mm).
+     * Arbitrary units may not partake in the act of canonization.
+     * @param source - the source unit
+     * @return The magnitude of the source unit
+     */
+    public double generateCanonValue(String source){
+        return generateTraversalResult(source).getValue();
+    }
+
+    /**
+     * Looks up all units of the UCUM essence that share a packed canon vector and are therefore commensurable with
+     * any unit of that canon vector. Special and arbitrary units are not listed.
+     * @param packedCanonVector - the packed canon vector (see DimensionVector)
+     * @param includePrefixes - whether prefixed variants of metric units (e.g., km, mm) are to be listed as well
+     * @return Unmodifiable list of case-sensitive unit codes, empty if there are none
+     */
+    public List<String> findCommensurableUnits(long packedCanonVector, boolean includePrefixes){
+        return UcumDimensionIndex.getInstance().lookup(packedCanonVector, includePrefixes);
+    }
+
+    /**
+     * Simplifies a UCUM expression to a short expression of named units with the same dimensions and magnitude, for
+     * example N.m to J, kN.m to kJ or m2.s-2.g to mJ. Only one or two named units with exponents of at most three are
+     * considered. Simplifications are cached per spelling of the source.
+     * @param source - the source unit
+     * @return The simplified expression or the source itself if there is no shorter one
+     * @throws ArithmeticException when an exponent is too large to be packed
+     */
+    public String simplify(String source){
+        CacheEvent event = FlightRecorderSupport.AVAILABLE ? CacheEvent.beginIfEnabled() : null;
+        String outcome = OUTCOME_HIT;
+        String simplified = simplificationCache.get(source);
+        if (simplified == null){
+            TraversalResult trvResult = generateTraversalResult(source);
+            simplified = UcumDerivedUnitIndex.getInstance().simplify(trvResult.getPackedCanonVector(),
+                    trvResult.getValue());
+            if (simplified == null){
+                simplified = source;
+            }
+            boolean evicted = simplificationCache.put(source, simplified);
+            reportCacheMiss(SIMPLIFICATION_CACHE, evicted);
+            outcome = evicted ? OUTCOME_EVICTION : OUTCOME_MISS;
+        } else {
+            reportCacheHit(SIMPLIFICATION_CACHE);
+        }
+        if (event != null){
+            event.endAndCommit(SIMPLIFICATION_CACHE, source, outcome);
+        }
+        return simplified;
+    }
+
+    /**
+     * Selects the prefixed variant of a metric unit that expresses a quantity with a value in [1, 1000), for example
+     * ug for 0.000012 g or km2 for 2500000 m2. Exponents and annotations of the source are kept. The prefixed
+     * variants are cached per spelling of the source, which leaves a logarithm and a table lookup per call.
+     * @param source - the source unit
+     * @param quantity - the non-zero finite quantity expressed in the source unit
+     * @return The case-sensitive code of the selected unit or null if the source is not a single metric unit
+     */
+    public String selectReadablePrefixedUnit(String source, double quantity){
+        CacheEvent event = FlightRecorderSupport.AVAILABLE ? CacheEvent.beginIfEnabled() : null;
+        String outcome = OUTCOME_HIT;
+        UcumPrefixFamily family = prefixFamilyCache.get(source);
+        if (family == null){
+            family = UcumPrefixFamily.generate(generateTokens(source));
+            boolean evicted = prefixFamilyCache.put(source, family);
+            reportCacheMiss(PREFIX_FAMILY_CACHE, evicted);
+            outcome = evicted ? OUTCOME_EVICTION : OUTCOME_MISS;
+        } else {
+            reportCacheHit(PREFIX_FAMILY_CACHE);
+        }
+        if (event != null){
+            event.endAndCommit(PREFIX_FAMILY_CACHE, source, outcome);
+        }
+        return family.select(quantity);
+    }
+
+    /**
+     * Searches all units and prefixes of the UCUM essence whose case-sensitive codes, capital codes, names or print
+     * symbols contain a query, ignoring case. Exact codes rank first, then prefix matches, then substring matches.
+     * @param query - the query, e.g. the characters typed so far
+     * @param entries - the array the ranked search entries are written to, its length limits the amount of matches
+     * @return The amount of search entries written
+     */
+    public int searchUnits(String query, int[] entries){
+        return UcumSearchIndex.getInstance().search(query, entries);
+    }
+
+    /**
+     * Returns the amount of search entries, units first and prefixes second.
+     * @return Amount of search entries
+     */
+    public int getSearchEntryCount(){
+        return UcumSearchIndex.getInstance().size();
+    }
+
+    /**
+     * Returns the case-sensitive code of a search entry.
+     * @param entry - the search entry
+     * @return Case-sensitive code
+     */
+    public String getSearchEntryCode(int entry){
+        return UcumSearchIndex.getInstance().getCode(entry);
+    }
+
+    /**
+     * Returns the capital code of a search entry.
+     * @param entry - the search entry
+     * @return Capital code
+     */
+    public String getSearchEntryCapitalCode(int entry){
+        return UcumSearchIndex.getInstance().getCapitalCode(entry);
+    }
+
+    /**
+     * Returns all names of a search entry.
+     * @param entry - the search entry
+     * @return A copy of the names
+     */
+    public String[] getSearchEntryNames(int entry){
+        return UcumSearchIndex.getInstance().getNames(entry);
+    }
+
+    /**
+     * Returns the print symbol of a search entry without its HTML markup.
+     * @param entry - the search entry
+     * @return Print symbol or an empty string if there is none
+     */
+    public String getSearchEntryPrintSymbol(int entry){
+        return UcumSearchIndex.getInstance().getPrintSymbol(entry);
+    }
+
+    /**
+     * Determines whether a search entry is a prefix rather than a unit.
+     * @param entry - the search entry
+     * @return Status of the search entry being a prefix
+     */
+    public boolean isSearchEntryPrefix(int entry){
+        return UcumSearchIndex.getInstance().isPrefix(entry);
+    }
+
+    /**
+     * Suggests valid expressions close to a source, for example mm[Hg] for mmHg or mL/min for mL/mins. Unknown atoms
+     * are looked up in an edit-distance index over all unit codes and prefixed variants of metric units, whose
+     * queries only visit the part of the index within the maximum distance. Suggestions are ranked by their
+     * distance and cached per spelling of the source.
+     * @param source - the source unit
+     * @param limit - the maximum amount of suggestions, at most MAX_SUGGESTIONS are returned
+     * @return Unmodifiable list of valid expressions, only the source itself if it is valid, empty if there are none
+     */
+    public List<String> suggestCorrections(String source, int limit){
+        CacheEvent event = FlightRecorderSupport.AVAILABLE ? CacheEvent.beginIfEnabled() : null;
+        String outcome = OUTCOME_HIT;
+        List<String> suggestions = suggestionCache.get(source);
+        if (suggestions == null){
+            if (isValid(source)){
+                suggestions = Collections.singletonList(source);
+            } else {
+                List<String> candidates = UcumSuggestionIndex.getInstance().suggest(source, MAX_SUGGESTIONS);
+                candidates.removeIf(candidate -> !isValid(candidate));
+                suggestions = Collections.unmodifiableList(candidates);
+            }
+            boolean evicted = suggestionCache.put(source, suggestions);
+            reportCacheMiss(SUGGESTION_CACHE, evicted);
+            outcome = evicted ? OUTCOME_EVICTION : OUTCOME_MISS;
+        } else {
+            reportCacheHit(SUGGESTION_CACHE);
+        }
+        if (event != null){
+            event.endAndCommit(SUGGESTION_CACHE, source, outcome);
+        }
+        return suggestions.size() <= limit ? suggestions : suggestions.subList(0, limit);
+    }
+
+    /**
+     * Transcodes an expression of case-sensitive symbols into capital symbols in a single pass over precomputed token
+     * maps, for example mg/dL to MG/DL or kPa.s-1 to KPAL.S-1. Exponents, numbers and annotations are kept.
+     * @param source - the case-sensitive expression
+     * @return The capital expression or null if a symbol is not a case-sensitive unit
+     */
+    public String toCapital(String source){
+        return UcumTranscoder.getInstance().toCapital(source);
+    }
+
+    /**
+     * Transcodes an expression of capital symbols into case-sensitive symbols in a single pass over precomputed token
+     * maps, for example MG/DL to mg/dL. Unlike Node, which tries case-sensitive symbols first and reads MG as
+     * megagauss, every symbol is read as a capital symbol.
+     * @param source - the capital expression
+     * @return The case-sensitive expression or null if a symbol is not a capital unit
+     */
+    public String toCaseSens(String source){
+        return UcumTranscoder.getInstance().toCaseSens(source);
+    }
+
+    /**
+     * Looks up the case-sensitive code of a print symbol, optionally preceded by the print symbol of a prefix, for
+     * example Cel for °C or ug for μg and µg. Print symbols that are valid atoms by themselves are not listed.
+     * @param printSymbol - the print symbol without HTML markup
+     * @return Case-sensitive code or null if the print symbol is unknown or ambiguous
+     */
+    public String lookupPrintSymbol(String printSymbol){
+        return UcumPrintSymbolTable.getInstance().lookup(printSymbol);
+    }
+
     /**
      * Generates the canon vector of a UCUM unit in accordance with the UCUM essence document
      * as follows: [m,s,g,rad,K,C,cd], where each index represents a tally of its respective base unit.
@@ -402,31 +938,84 @@ public class UcumFunction {
      * @return The base unit composition of the source unit
      */
     public int[] generateCanonVector(String source){
-        TraversalResult trvResult = TraversalResult.generateTraversalResult(ucumParser.generateRoot(source));
-        return trvResult.getCanonVector();
+        TraversalResult trvResult = generateTraversalResult(source);
+        return trvResult.getCanonVector().clone();
     }
 
     /**
-     * Generates the display name for a given UCUM unit.
+     * Generates the display name for a given UCUM unit. Display names are cached per spelling of the unit.
      * @param source - the source unit
      * @return Display name for a unit
      */
     public String generateDisplayName(String source){
+        CacheEvent event = FlightRecorderSupport.AVAILABLE ? CacheEvent.beginIfEnabled() : null;
+        String outcome = OUTCOME_HIT;
+        String displayName = displayNameCache.get(source);
+        if (displayName == null){
+            displayName = renderDisplayName(source, new StringBuilder()).toString();
+            boolean evicted = displayNameCache.put(source, displayName);
+            reportCacheMiss(DISPLAY_NAME_CACHE, evicted);
+            outcome = evicted ? OUTCOME_EVICTION : OUTCOME_MISS;
+        } else {
+            reportCacheHit(DISPLAY_NAME_CACHE);
+        }
+        if (event != null){
+            event.endAndCommit(DISPLAY_NAME_CACHE, source, outcome);
+        }
+        return displayName;
+    }
+
+    /**
+     * Appends the display name for a given UCUM unit to an output. Cached display names are appended as they are. On
+     * a cache miss, the display name is rendered straight into a StringBuilder output and cached from there; any
+     * other output receives a copy of the rendered display name.
+     * @param source - the source unit
+     * @param output - the output the display name is appended to
+     * @throws IOException when the output cannot be appended to
+     */
+    public void appendDisplayName(String source, Appendable output) throws IOException {
+        CacheEvent event = FlightRecorderSupport.AVAILABLE ? CacheEvent.beginIfEnabled() : null;
+        String outcome = OUTCOME_HIT;
+        String displayName = displayNameCache.get(source);
+        if (displayName == null){
+            StringBuilder builder = output instanceof StringBuilder ? (StringBuilder) output : new StringBuilder();
+            int start = builder.length();
+            renderDisplayName(source, builder);
+            if (builder != output){
+                output.append(builder);
+            }
+            boolean evicted = displayNameCache.put(source, builder.substring(start));
+            reportCacheMiss(DISPLAY_NAME_CACHE, evicted);
+            outcome = evicted ? OUTCOME_EVICTION : OUTCOME_MISS;
+        } else {
+            output.append(displayName);
+            reportCacheHit(DISPLAY_NAME_CACHE);
+        }
+        if (event != null){
+            event.endAndCommit(DISPLAY_NAME_CACHE, source, outcome);
+        }
+    }
+
+    /**
+     * Renders the display name for a given UCUM unit without consulting the cache.
+     * @param source - the source unit
+     * @param output - the builder the display name is rendered into
+     * @return The given builder
+     */
+    private StringBuilder renderDisplayName(String source, StringBuilder output){
         String[] tokens = generateTokens(source);
-        String displayName = "";
 
         for (int i = 0; i < tokens.length; i++) {
             if (tokens[i].equals("(")){
-                displayName += "(";
+                output.append('(');
             } else if (tokens[i].equals(")")){
-                displayName += ")";
+                output.append(')');
             } else {
-                Node currentNode = Node.generateNode(tokens[i]);
-                displayName += currentNode.generateDisplayName();
+                Node.generateNode(tokens[i]).appendDisplayName(output);
             }
         }
 
-        return displayName;
+        return output;
     }
 
 }
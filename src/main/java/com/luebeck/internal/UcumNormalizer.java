@@ -0,0 +1,214 @@
+package com.luebeck.internal;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+class UcumNormalizer {
+
+    private static final UcumParser ucumParser = new UcumParser();
+
+    /**
+     * Generates the canonical key of a UCUM expression. Spelling variants of the same unit such as mg/dL, mg.dL-1,
+     * (mg)/(dL) or MIN.MIN and min2 share the same key. Factors are ordered deterministically, exponents of equal
+     * factors are merged, integers are multiplied out and capital symbols are replaced by their case-sensitive
+     * counterpart. Every factor of the key reparses to the same prefix and unit as in the source; sources with a
+     * factor that does not, such as GAL whose case-sensitive counterpart GL is read as Galileo, have no key.
+     * Assumes the source has already passed the validity checks.
+     * @param source - the source unit
+     * @param dropAnnotations - whether annotations are to be discarded
+     * @return Canonical key of the source or null if the source cannot be normalized
+     */
+    String normalize(String source, boolean dropAnnotations){
+        String[] tokens = ucumParser.tokenize(source);
+        TreeMap<String, Integer> factors = new TreeMap<>();
+        Deque<Integer> groupSigns = new ArrayDeque<>();
+        int groupSign = 1;
+        boolean divide = false;
+        long numerator = 1;
+        long denominator = 1;
+
+        try {
+            for (int i = 0; i < tokens.length; i++) {
+                switch (tokens[i]){
+                    case ".":
+                        divide = false;
+                        break;
+                    case "/":
+                        divide = true;
+                        break;
+                    case "(":
+                        groupSigns.push(groupSign);
+                        groupSign = divide ? -groupSign : groupSign;
+                        divide = false;
+                        break;
+                    case ")":
+                        groupSign = groupSigns.pop();
+                        break;
+                    default:
+                        Node currentNode = Node.generateNode(tokens[i]);
+
+                        if (currentNode == null){
+                            return null;
+                        }
+
+                        int exponent = currentNode.getDimensionExponent() * (divide ? -groupSign : groupSign);
+
+                        if (!dropAnnotations && currentNode.getAnnotation() != null){
+                            mergeFactor(factors, currentNode.getAnnotation(), exponent > 0 ? 1 : -1);
+                        }
+
+                        if (isInteger(currentNode.getUnitSymbol())){
+                            long power = power(Long.parseLong(currentNode.getUnitSymbol()),
+                                    Math.abs(exponent));
+                            if (exponent > 0){
+                                numerator = Math.multiplyExact(numerator, power);
+                            } else {
+                                denominator = Math.multiplyExact(denominator, power);
+                            }
+                        } else {
+                            String prefixSymbol = currentNode.getPrefixSymbol() == null ?
+                                    "" : currentNode.getPrefixSymbol();
+                            String factor = prefixSymbol + currentNode.getCaseSensUnitSymbol();
+                            if (!reparsesTo(factor, currentNode)){
+                                return null;
+                            }
+                            mergeFactor(factors, factor, exponent);
+                        }
+                        break;
+                }
+            }
+        } catch (ArithmeticException | NumberFormatException e) {
+            return null;
+        }
+
+        return renderKey(factors, numerator, denominator);
+    }
+
+    /**
+     * Determines whether a unit symbol is an integer. Unlike Node.isNumeric() this does not treat unit symbols
+     * containing digits such as [CCID_50] as integers.
+     * @param unitSymbol - the unit symbol
+     * @return Status of the unit symbol being an integer
+     */
+    private boolean isInteger(String unitSymbol){
+        for (int i = 0; i < unitSymbol.length(); i++) {
+            if (unitSymbol.charAt(i) < '0' || unitSymbol.charAt(i) > '9'){
+                return false;
+            }
+        }
+        return !unitSymbol.isEmpty();
+    }
+
+    /**
+     * Determines whether a rendered factor is read as the same prefix and unit as the node it was rendered from.
+     * Concatenating a prefix and a case-sensitive unit symbol may yield another unit, e.g. G and L yield GL.
+     * @param factor - the rendered factor
+     * @param node - the node of the source
+     * @return Status of the factor reparsing to the node
+     */
+    private boolean reparsesTo(String factor, Node node){
+        Node reparsed = Node.generateNode(factor);
+        return reparsed != null && reparsed.getAnnotation() == null && reparsed.getDimensionExponent() == 1 &&
+                Objects.equals(reparsed.getPrefixSymbol(), node.getPrefixSymbol()) &&
+                Objects.equals(reparsed.getCaseSensUnitSymbol(), node.getCaseSensUnitSymbol());
+    }
+
+    /**
+     * Adds the exponent of a factor to the factors that have already been collected.
+     * @param factors - the factors collected so far
+     * @param factor - the factor to be merged
+     * @param exponent - the exponent of the factor
+     */
+    private void mergeFactor(TreeMap<String, Integer> factors, String factor, int exponent){
+        Integer current = factors.get(factor);
+        factors.put(factor, current == null ? exponent : current + exponent);
+    }
+
+    /**
+     * Raises a base to a non-negative integer power without leaving the range of long.
+     * @param base - the base
+     * @param exponent - the non-negative exponent
+     * @return base raised to the power of exponent
+     * @throws ArithmeticException when the result overflows
+     */
+    private long power(long base, int exponent){
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result = Math.multiplyExact(result, base);
+        }
+        return result;
+    }
+
+    /**
+     * Renders the collected factors as a UCUM expression. Integers come first, followed by the factors with positive
+     * exponents in their natural order. Factors with negative exponents are appended as divisions.
+     * @param factors - the collected factors
+     * @param numerator - the product of all integers with positive exponents
+     * @param denominator - the product of all integers with negative exponents
+     * @return The rendered canonical key
+     */
+    private String renderKey(TreeMap<String, Integer> factors, long numerator, long denominator){
+        StringBuilder key = new StringBuilder();
+
+        if (numerator != 1){
+            key.append(numerator);
+        }
+
+        for (Map.Entry<String, Integer> factor : factors.entrySet()) {
+            if (factor.getValue() > 0){
+                if (key.length() > 0){
+                    key.append('.');
+                }
+                appendFactor(key, factor.getKey(), factor.getValue());
+            }
+        }
+
+        if (key.length() == 0 && denominator == 1 && !containsNegativeExponent(factors)){
+            return "1";
+        }
+
+        if (denominator != 1){
+            key.append('/').append(denominator);
+        }
+
+        for (Map.Entry<String, Integer> factor : factors.entrySet()) {
+            if (factor.getValue() < 0){
+                key.append('/');
+                appendFactor(key, factor.getKey(), -factor.getValue());
+            }
+        }
+
+        return key.toString();
+    }
+
+    /**
+     * Appends a single factor and its exponent. Annotations carry no exponent of their own.
+     * @param key - the key that is being rendered
+     * @param factor - the factor
+     * @param exponent - the positive exponent of the factor
+     */
+    private void appendFactor(StringBuilder key, String factor, int exponent){
+        key.append(factor);
+        if (exponent != 1 && !factor.startsWith("{")){
+            key.append(exponent);
+        }
+    }
+
+    /**
+     * Determines whether any of the collected factors ends up with a negative exponent.
+     * @param factors - the collected factors
+     * @return Existence status of a factor with a negative exponent
+     */
+    private boolean containsNegativeExponent(TreeMap<String, Integer> factors){
+        for (int exponent : factors.values()) {
+            if (exponent < 0){
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
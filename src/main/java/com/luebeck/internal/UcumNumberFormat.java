@@ -0,0 +1,310 @@
+package com.luebeck.internal;
+
+import java.io.IOException;
+
+class UcumNumberFormat {
+
+    static final int MAX_LENGTH = 32;
+
+    private static final double TWO_POW_53 = 9007199254740992.0;
+    private static final double PLAIN_INTEGER_LIMIT = 1e7;
+    private static final int MAX_LONG_DIGITS = 18;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final ThreadLocal<char[]> scratch = ThreadLocal.withInitial(() -> new char[MAX_LENGTH]);
+
+    private UcumNumberFormat(){
+
+    }
+
+    /**
+     * Writes the shortest UCUM representation of a non-negative finite quantity that parses back to the very same
+     * double (e.g., 1.5 -> 15.10^-1, 50 -> 50, 1.5e8 -> 15.10^7, 8.345e23 -> 8345.10^20). Integers below 10^7 are
+     * written out in full, everything else is written as an integer significand followed by a power of ten.
+     * @param quantity - the non-negative finite quantity
+     * @param buffer - the buffer written to, must provide MAX_LENGTH characters starting at offset
+     * @param offset - the index of the first character written
+     * @return The index following the last character written
+     */
+    static int format(double quantity, char[] buffer, int offset){
+        if (quantity == 0){
+            buffer[offset] = '0';
+            return offset + 1;
+        }
+
+        long significand = -1;
+        int exponent = 0;
+
+        if (quantity < TWO_POW_53){
+            //Fewest decimal places first, which yields the fewest digits
+            for (int places = 0; places < POWERS_OF_TEN.length && significand < 0; places++) {
+                double scaled = quantity * POWERS_OF_TEN[places];
+                if (scaled >= TWO_POW_53){
+                    break;
+                }
+                significand = roundTrippingSignificand(quantity, Math.round(scaled), places);
+                exponent = -places;
+            }
+        } else {
+            //Largest power of ten first, which yields the fewest digits
+            for (int power = POWERS_OF_TEN.length - 1; power > 0 && significand < 0; power--) {
+                significand = roundTrippingMultiple(quantity, Math.round(quantity / POWERS_OF_TEN[power]), power);
+                exponent = power;
+            }
+        }
+
+        if (significand < 0){
+            return formatSlowly(quantity, buffer, offset);
+        }
+        return write(significand, exponent, quantity < PLAIN_INTEGER_LIMIT, buffer, offset);
+    }
+
+    /**
+     * Appends the shortest UCUM representation of a non-negative finite quantity as laid out in
+     * format(double, char[], int).
+     * @param quantity - the non-negative finite quantity
+     * @param output - the output the representation is appended to
+     * @throws IOException when the output cannot be appended to
+     */
+    static void format(double quantity, Appendable output) throws IOException {
+        char[] buffer = scratch.get();
+        int length = format(quantity, buffer, 0);
+        for (int i = 0; i < length; i++) {
+            output.append(buffer[i]);
+        }
+    }
+
+    /**
+     * Determines which of a rounded scaled quantity and its neighbours reproduces the quantity once divided by the
+     * scale again. The division of two exactly representable values is correctly rounded, which is why a match
+     * guarantees the round trip.
+     * @param quantity - the quantity
+     * @param rounded - the rounded scaled quantity
+     * @param places - the amount of decimal places the quantity has been scaled by
+     * @return The matching significand or -1 if there is none
+     */
+    private static long roundTrippingSignificand(double quantity, long rounded, int places){
+        for (long candidate = rounded - 1; candidate <= rounded + 1; candidate++) {
+            if (candidate > 0 && candidate / POWERS_OF_TEN[places] == quantity){
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Determines which of a rounded quotient of a quantity and a power of ten and its neighbours reproduces the
+     * quantity once multiplied by the power of ten again. Like the division in roundTrippingSignificand, the
+     * multiplication is correctly rounded and matches how parse computes the value.
+     * @param quantity - the quantity
+     * @param rounded - the rounded quotient
+     * @param power - the power of ten the quantity has been divided by
+     * @return The matching significand or -1 if there is none
+     */
+    private static long roundTrippingMultiple(double quantity, long rounded, int power){
+        for (long candidate = rounded - 1; candidate <= rounded + 1; candidate++) {
+            if (candidate > 0 && candidate < TWO_POW_53 && candidate * POWERS_OF_TEN[power] == quantity){
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Formats quantities that need seventeen significant digits or lie outside of the range covered by the powers
+     * of ten table. Falls back to Double.toString and therefore allocates.
+     * @param quantity - the non-negative finite quantity
+     * @param buffer - the buffer written to
+     * @param offset - the index of the first character written
+     * @return The index following the last character written
+     */
+    private static int formatSlowly(double quantity, char[] buffer, int offset){
+        String quantityAsString = Double.toString(quantity);
+        long significand = 0;
+        int exponent = 0;
+        int decimalPlaces = 0;
+        boolean fraction = false;
+
+        for (int i = 0; i < quantityAsString.length(); i++) {
+            char current = quantityAsString.charAt(i);
+            if (current == '.'){
+                fraction = true;
+            } else if (current == 'E'){
+                exponent = Integer.parseInt(quantityAsString.substring(i + 1));
+                break;
+            } else {
+                significand = significand * 10 + (current - '0');
+                if (fraction){
+                    decimalPlaces++;
+                }
+            }
+        }
+
+        return write(significand, exponent - decimalPlaces, quantity < PLAIN_INTEGER_LIMIT, buffer, offset);
+    }
+
+    /**
+     * Writes a significand and its power of ten after stripping the significand's trailing zeros.
+     * @param significand - the positive significand
+     * @param exponent - the power of ten
+     * @param plainInteger - whether non-negative exponents are to be written out as trailing zeros
+     * @param buffer - the buffer written to
+     * @param offset - the index of the first character written
+     * @return The index following the last character written
+     */
+    private static int write(long significand, int exponent, boolean plainInteger, char[] buffer, int offset){
+        while (significand % 10 == 0){
+            significand /= 10;
+            exponent++;
+        }
+
+        int position = writeDigits(significand, buffer, offset);
+
+        if (exponent == 0){
+            return position;
+        }
+        if (exponent > 0 && plainInteger){
+            for (int i = 0; i < exponent; i++) {
+                buffer[position++] = '0';
+            }
+            return position;
+        }
+
+        buffer[position++] = '.';
+        buffer[position++] = '1';
+        buffer[position++] = '0';
+        buffer[position++] = '^';
+        if (exponent < 0){
+            buffer[position++] = '-';
+            exponent = -exponent;
+        }
+        return writeDigits(exponent, buffer, position);
+    }
+
+    /**
+     * Writes the decimal digits of a positive number.
+     * @param number - the positive number
+     * @param buffer - the buffer written to
+     * @param offset - the index of the first character written
+     * @return The index following the last character written
+     */
+    private static int writeDigits(long number, char[] buffer, int offset){
+        int length = 1;
+        for (long rest = number / 10; rest > 0; rest /= 10) {
+            length++;
+        }
+        for (int i = offset + length - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+        return offset + length;
+    }
+
+    /**
+     * Parses a UCUM numeric factor such as 15, 15.10^-1, 15.10*-1, 10^3 or 10*3. Values with up to fifteen
+     * significant digits and powers of ten up to 10^22 are computed without allocating.
+     * @param source - the characters to be parsed
+     * @param start - the index of the first character of the factor
+     * @param end - the index following the last character of the factor
+     * @return Value of the factor or Double.NaN if the characters do not form a numeric factor
+     */
+    static double parse(CharSequence source, int start, int end){
+        int position = start;
+        long significand = 0;
+        int digits = 0;
+
+        while (position < end && isDigit(source.charAt(position))){
+            significand = significand * 10 + (source.charAt(position++) - '0');
+            digits++;
+        }
+        if (digits == 0 || digits > MAX_LONG_DIGITS){
+            return Double.NaN;
+        }
+        if (position == end){
+            return scale(significand, 0, source, start, start + digits);
+        }
+
+        //A sole power of ten such as 10^3 or 10*3 carries an implicit significand of one
+        if (digits == 2 && significand == 10 && isPowerOperator(source.charAt(position))){
+            int exponent = parseExponent(source, position + 1, end);
+            return exponent == Integer.MIN_VALUE ? Double.NaN : scale(1, exponent, source, start, start);
+        }
+
+        if (end - position < 5 || source.charAt(position) != '.' || source.charAt(position + 1) != '1' ||
+                source.charAt(position + 2) != '0' || !isPowerOperator(source.charAt(position + 3))){
+            return Double.NaN;
+        }
+        int exponent = parseExponent(source, position + 4, end);
+        return exponent == Integer.MIN_VALUE ? Double.NaN : scale(significand, exponent, source, start,
+                start + digits);
+    }
+
+    /**
+     * Parses the optionally signed exponent of a power of ten.
+     * @param source - the characters to be parsed
+     * @param start - the index of the first character of the exponent
+     * @param end - the index following the last character of the exponent
+     * @return The exponent or Integer.MIN_VALUE if the characters do not form an exponent
+     */
+    private static int parseExponent(CharSequence source, int start, int end){
+        int position = start;
+        boolean negative = false;
+
+        if (position < end && (source.charAt(position) == '-' || source.charAt(position) == '+')){
+            negative = source.charAt(position++) == '-';
+        }
+        if (position == end || end - position > 4){
+            return Integer.MIN_VALUE;
+        }
+
+        int exponent = 0;
+        while (position < end){
+            char current = source.charAt(position++);
+            if (!isDigit(current)){
+                return Integer.MIN_VALUE;
+            }
+            exponent = exponent * 10 + (current - '0');
+        }
+        return negative ? -exponent : exponent;
+    }
+
+    /**
+     * Computes significand * 10^exponent. Exactly representable significands and powers of ten are combined with a
+     * single correctly rounded operation, anything else is handed to Double.parseDouble.
+     * @param significand - the significand
+     * @param exponent - the power of ten
+     * @param source - the characters the significand has been parsed from
+     * @param digitsStart - the index of the significand's first digit
+     * @param digitsEnd - the index following the significand's last digit
+     * @return Value of the factor
+     */
+    private static double scale(long significand, int exponent, CharSequence source, int digitsStart,
+                                int digitsEnd){
+        if (significand < TWO_POW_53 && Math.abs(exponent) < POWERS_OF_TEN.length){
+            return exponent < 0 ? significand / POWERS_OF_TEN[-exponent] : significand * POWERS_OF_TEN[exponent];
+        }
+        String digits = digitsStart == digitsEnd ? "1" : source.subSequence(digitsStart, digitsEnd).toString();
+        return Double.parseDouble(digits + "E" + exponent);
+    }
+
+    /**
+     * Determines whether a character is a decimal digit.
+     * @param character - the character
+     * @return Status of the character being a decimal digit
+     */
+    private static boolean isDigit(char character){
+        return character >= '0' && character <= '9';
+    }
+
+    /**
+     * Determines whether a character is one of the two UCUM notations of a power of ten, ^ and *.
+     * @param character - the character
+     * @return Status of the character denoting a power
+     */
+    private static boolean isPowerOperator(char character){
+        return character == '^' || character == '*';
+    }
+
+}
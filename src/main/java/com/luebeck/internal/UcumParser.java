@@ -7,32 +7,36 @@ import java.util.regex.Pattern;
 
 class UcumParser {
 
-    private static final String CONSECUTIVE_EXPONENT = "[+-]{2}";
-    private static final String CONSECUTIVE_OPERATOR = "[.\\/]{2}";
-    private static final String OMITTED_MULTIPLICATION = "[^.\\/]\\(";
-    private static final String EMPTY_PARENTHESES = "\\(\\)";
-    private static final String MISSING_OPERAND_DIV = "\\/\\)";
-    private static final String MISSING_OPERAND_MUL = "\\(\\.\\)";
-    private static final String NESTED_BRACES = "\\{.*\\{.*}.*}";
-    private static final String BRACES_EXPONENT = "\\}[-+]*\\d";
-    private static final String INTEGER_BEGINS_WITH_ZERO = "[^\\d]0\\d+";
-    private static final String ANNOTATION_IN_FRONT = "\\}[^.\\/\\n]";
-    private static final String INTEGER_NEGATIVE_EXPONENT = "\\d-";
-    private static final String INTEGER_BEGINS_WITH_PLUS_MINUS = "[./]+[-+]+\\d";
-    private static final String PARENTHESES_EXPONENT = "\\)[-+]*\\d";
+    private static final Pattern CONSECUTIVE_EXPONENT = Pattern.compile("[+-]{2}", Pattern.MULTILINE);
+    private static final Pattern CONSECUTIVE_OPERATOR = Pattern.compile("[.\\/]{2}", Pattern.MULTILINE);
+    private static final Pattern OMITTED_MULTIPLICATION = Pattern.compile("[^.\\/]\\(", Pattern.MULTILINE);
+    private static final Pattern EMPTY_PARENTHESES = Pattern.compile("\\(\\)", Pattern.MULTILINE);
+    private static final Pattern MISSING_OPERAND_DIV = Pattern.compile("\\/\\)", Pattern.MULTILINE);
+    private static final Pattern MISSING_OPERAND_MUL = Pattern.compile("\\(\\.\\)", Pattern.MULTILINE);
+    private static final Pattern NESTED_BRACES = Pattern.compile("\\{.*\\{.*}.*}");
+    private static final Pattern BRACES_EXPONENT = Pattern.compile("\\}[-+]*\\d", Pattern.MULTILINE);
+    private static final Pattern INTEGER_BEGINS_WITH_ZERO = Pattern.compile("[^\\d]0\\d+", Pattern.MULTILINE);
+    private static final Pattern ANNOTATION_IN_FRONT = Pattern.compile("\\}[^.\\/\\n]", Pattern.MULTILINE);
+    private static final Pattern INTEGER_NEGATIVE_EXPONENT = Pattern.compile("\\d-", Pattern.MULTILINE);
+    private static final Pattern INTEGER_BEGINS_WITH_PLUS_MINUS = Pattern.compile("[./]+[-+]+\\d", Pattern.MULTILINE);
+    private static final Pattern PARENTHESES_EXPONENT = Pattern.compile("\\)[-+]*\\d", Pattern.MULTILINE);
+
+    static final String PHASE_TOKENIZE = "tokenize";
+    static final String PHASE_POSTFIX = "postfix";
+    static final String PHASE_TREE = "tree";
+    static final String OUTCOME_SUCCESS = "success";
 
     /**
      * Verifies whether the input violates any syntax rules laid out by UCUM. The used regex patterns
-     * are member variables of UcumParser. Annotation contents are exempt from being detected.
-     * @param regex - the regex pattern used to check for syntax violations
+     * are precompiled member variables of UcumParser. Annotation contents are exempt from being detected.
+     * @param pattern - the regex pattern used to check for syntax violations
      * @param input - the input to be verified
      * @return Validity status of the given input
      */
-    private boolean containsIllegalPattern(String regex, String input){
+    private boolean containsIllegalPattern(Pattern pattern, String input){
         boolean openingBraceFound;
         boolean closingBraceFound;
 
-        Pattern pattern = Pattern.compile(regex, Pattern.MULTILINE);
         Matcher matcher = pattern.matcher(input);
 
         //Exempts annotations from the regex check
@@ -173,7 +177,7 @@ class UcumParser {
         }
 
         //Naturally this must not skip the annotations
-        if (input.matches(NESTED_BRACES)){
+        if (NESTED_BRACES.matcher(input).matches()){
             return false;
         }
 
@@ -194,6 +198,7 @@ class UcumParser {
      * @return Array of tokens generated from the input
      */
     public String[] tokenize(String input){
+        ParseEvent event = FlightRecorderSupport.AVAILABLE ? ParseEvent.beginIfEnabled() : null;
         ArrayList<String> tokens = new ArrayList();
         StringBuilder strBuilder = new StringBuilder();
         char currentChar;
@@ -231,6 +236,9 @@ class UcumParser {
             strBuilder.setLength(0);
         }
 
+        if (event != null){
+            event.endAndCommit(PHASE_TOKENIZE, input, tokens.size(), OUTCOME_SUCCESS);
+        }
         return tokens.toArray(new String[0]);
     }
 
@@ -242,6 +250,28 @@ class UcumParser {
      * @throws UcumException when a mismatch between parentheses is detected
      */
     private ArrayList<String> generatePostfixNotation(String input) throws UcumException {
+        ParseEvent event = FlightRecorderSupport.AVAILABLE ? ParseEvent.beginIfEnabled() : null;
+        try {
+            ArrayList<String> output = generatePostfixNotationUninstrumented(input);
+            if (event != null){
+                event.endAndCommit(PHASE_POSTFIX, input, output.size(), OUTCOME_SUCCESS);
+            }
+            return output;
+        } catch (UcumException e) {
+            if (event != null){
+                event.endAndCommit(PHASE_POSTFIX, input, 0, e.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Performs the actual work of generatePostfixNotation(String input) without emitting a ParseEvent.
+     * @param input - the input to be processed
+     * @return Tokens sorted according to reverse polish notation
+     * @throws UcumException when a mismatch between parentheses is detected
+     */
+    private ArrayList<String> generatePostfixNotationUninstrumented(String input) throws UcumException {
         Stack<String> inputStack = new Stack<>();
         ArrayList<String> output = new ArrayList<>();
 
@@ -299,8 +329,12 @@ class UcumParser {
      * @return Root node of the created tree with dimensions cascaded.
      */
     public Node generateRoot(String input){
+        ParseEvent event = FlightRecorderSupport.AVAILABLE ? ParseEvent.beginIfEnabled() : null;
         Node root = generateTree(input);
-        calculateDimensionSubtree(root);
+        int nodeCount = calculateDimensionSubtree(root);
+        if (event != null){
+            event.endAndCommit(PHASE_TREE, input, nodeCount, OUTCOME_SUCCESS);
+        }
         return root;
     }
 
@@ -364,17 +398,20 @@ class UcumParser {
      * may dissolve into units that do. The changes in dimension must therefore be cascaded down the subtree recursively
      * after the initial tree has been created. "ar" is an example of such a unit.
      * @param root - the root of the tree from which dimension calculations are cascaded down
+     * @return The amount of nodes in the tree
      */
-    private void calculateDimensionSubtree(Node root){
+    private int calculateDimensionSubtree(Node root){
+        int nodeCount = 1;
         if (root.hasLeftChild()) {
             root.getLeftChild().setDimensionExponent(root.getLeftChild().getDimensionExponent() *
                     root.getDimensionExponent());
-            calculateDimensionSubtree(root.getLeftChild());
+            nodeCount += calculateDimensionSubtree(root.getLeftChild());
         }
         if (root.hasRightChild()) {
             root.getRightChild().setDimensionExponent(root.getRightChild().getDimensionExponent()
                     * root.getDimensionExponent());
-            calculateDimensionSubtree(root.getRightChild());
+            nodeCount += calculateDimensionSubtree(root.getRightChild());
         }
+        return nodeCount;
     }
 }
\ No newline at end of file
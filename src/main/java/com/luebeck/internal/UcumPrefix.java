@@ -64,4 +64,12 @@ class UcumPrefix extends EssenceComponent {
         return name;
     }
 
+    /**
+     * Returns the print symbol of this prefix (e.g., μ for micro).
+     * @return Prefix print symbol
+     */
+    String getPrintSymbol(){
+        return printSymbol;
+    }
+
 }
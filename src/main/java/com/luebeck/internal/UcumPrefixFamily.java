@@ -0,0 +1,75 @@
+package com.luebeck.internal;
+
+class UcumPrefixFamily {
+
+    static final UcumPrefixFamily NONE = new UcumPrefixFamily(0, 1, null);
+
+    private final int prefixExponent;
+    private final int dimensionExponent;
+    private final String[] codesBySup;
+
+    /**
+     * Constructor for the prefixed variants of a single metric unit.
+     * @param prefixExponent - the power of ten of the prefix the unit has been written with
+     * @param dimensionExponent - the positive dimension exponent of the unit
+     * @param codesBySup - the prefixed codes indexed like the prefix table, null entries for unusable prefixes
+     */
+    private UcumPrefixFamily(int prefixExponent, int dimensionExponent, String[] codesBySup){
+        this.prefixExponent = prefixExponent;
+        this.dimensionExponent = dimensionExponent;
+        this.codesBySup = codesBySup;
+    }
+
+    /**
+     * Generates the family of prefixed variants of a UCUM expression. Only expressions consisting of a single metric
+     * unit with a positive exponent form a family (e.g., mg, km2 or ug{total}); the prefixed variants keep the
+     * exponent and the annotation of the expression.
+     * @param tokens - the tokens of the expression
+     * @return The family or NONE if the expression does not form one
+     */
+    static UcumPrefixFamily generate(String[] tokens){
+        if (tokens.length != 1){
+            return NONE;
+        }
+        Node node = Node.generateNode(tokens[0]);
+        if (node == null || !node.isMetric() || node.isSpecial() || node.getDimensionExponent() < 1){
+            return NONE;
+        }
+
+        UcumPrefixTable prefixTable = UcumPrefixTable.getInstance();
+        String unitSymbol = node.getCaseSensUnitSymbol();
+        String exponent = node.getDimensionExponent() == 1 ? "" : Integer.toString(node.getDimensionExponent());
+        String annotation = node.getAnnotation() == null ? "" : node.getAnnotation();
+        String[] codesBySup = new String[prefixTable.size()];
+
+        for (int i = 0; i < codesBySup.length; i++) {
+            String prefixSymbol = prefixTable.lookupCode(prefixTable.supAt(i));
+            if (prefixSymbol == null){
+                continue;
+            }
+            //Prefixed codes such as Pa (peta-annum) would be read as a different unit
+            if (prefixSymbol.isEmpty() || UcumDimensionIndex.isPrefixedUnit(prefixSymbol + unitSymbol,
+                    prefixSymbol, unitSymbol)){
+                codesBySup[i] = prefixSymbol + unitSymbol + exponent + annotation;
+            }
+        }
+
+        return new UcumPrefixFamily(node.getPrefixExponent(), node.getDimensionExponent(), codesBySup);
+    }
+
+    /**
+     * Selects the prefixed variant that expresses a quantity with a value in [1, 1000) per dimension, or as close to
+     * it as the available prefixes allow.
+     * @param quantity - the non-zero finite quantity expressed in the unit the family has been generated from
+     * @return The case-sensitive code of the prefixed variant or null if there is none for the quantity
+     */
+    String select(double quantity){
+        if (codesBySup == null){
+            return null;
+        }
+        UcumPrefixTable prefixTable = UcumPrefixTable.getInstance();
+        double unprefixed = Math.abs(quantity) * Math.pow(10, prefixExponent * dimensionExponent);
+        return codesBySup[prefixTable.indexOf(prefixTable.selectReadableSup(unprefixed, dimensionExponent))];
+    }
+
+}
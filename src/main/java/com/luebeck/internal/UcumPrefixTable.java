@@ -0,0 +1,106 @@
+package com.luebeck.internal;
+
+class UcumPrefixTable {
+
+    private static final int STEP = 3;
+
+    private final int minSup;
+    private final String[] codes;
+
+    /**
+     * Constructor for the table of decimal prefixes whose powers of ten are multiples of three (k, m, u, ...) ordered
+     * by their power of ten. Prefixes such as c, d, da and h as well as the binary prefixes, whose power of ten is
+     * not set in the essence, are left out since they are rarely used to make a value readable.
+     * @param ucumEssence - the loaded UCUM essence
+     */
+    private UcumPrefixTable(UcumEssence ucumEssence) {
+        int min = 0;
+        int max = 0;
+        for (UcumPrefix ucumPrefix : ucumEssence.getPrefixes()) {
+            if (ucumPrefix.getSup() % STEP == 0){
+                min = Math.min(min, ucumPrefix.getSup());
+                max = Math.max(max, ucumPrefix.getSup());
+            }
+        }
+        this.minSup = min;
+        this.codes = new String[(max - min) / STEP + 1];
+        this.codes[-min / STEP] = "";
+
+        for (UcumPrefix ucumPrefix : ucumEssence.getPrefixes()) {
+            if (ucumPrefix.getSup() != 0 && ucumPrefix.getSup() % STEP == 0){
+                codes[(ucumPrefix.getSup() - min) / STEP] = ucumPrefix.getCodeCaseSens();
+            }
+        }
+    }
+
+    /**
+     * Returns the table, which is built once on first use.
+     * @return The shared table
+     */
+    static UcumPrefixTable getInstance(){
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Returns the amount of entries of this table including the entry for no prefix.
+     * @return Amount of entries
+     */
+    int size(){
+        return codes.length;
+    }
+
+    /**
+     * Returns the power of ten of an entry.
+     * @param index - the index of the entry
+     * @return Power of ten of the entry
+     */
+    int supAt(int index){
+        return minSup + index * STEP;
+    }
+
+    /**
+     * Returns the index of the entry of a power of ten.
+     * @param sup - the power of ten, a multiple of three within the range of the table
+     * @return Index of the entry
+     */
+    int indexOf(int sup){
+        return (sup - minSup) / STEP;
+    }
+
+    /**
+     * Selects the power of ten of the prefix that brings a value into the range [1, 1000) per dimension, clamped to
+     * the largest and smallest prefix. This takes a single logarithm.
+     * @param value - the positive finite value expressed in the unprefixed unit
+     * @param dimensionExponent - the positive dimension exponent of the unit (e.g., 2 for m2)
+     * @return Power of ten of the selected prefix, 0 for no prefix
+     */
+    int selectReadableSup(double value, int dimensionExponent){
+        int sup = STEP * (int) Math.floor(Math.log10(value) / (STEP * dimensionExponent));
+        //The logarithm of a value just below a power of ten may round up to it (e.g., 999.9999999999999)
+        if (value < Math.pow(10, sup * dimensionExponent)){
+            sup -= STEP;
+        }
+        return Math.max(minSup, Math.min(supAt(codes.length - 1), sup));
+    }
+
+    /**
+     * Looks up the case-sensitive code of a prefix.
+     * @param sup - the power of ten of the prefix
+     * @return The prefix code, an empty string for 0 or null if there is no such prefix in the table
+     */
+    String lookupCode(int sup){
+        if (sup % STEP != 0 || sup < minSup || indexOf(sup) >= codes.length){
+            return null;
+        }
+        return codes[indexOf(sup)];
+    }
+
+    /**
+     * Lazily initialized holder of the shared table.
+     */
+    private static final class Holder {
+
+        private static final UcumPrefixTable INSTANCE = new UcumPrefixTable(Node.getUcumEssence());
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.luebeck.internal;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.regex.Pattern;
+
+class UcumPrintSymbolTable {
+
+    private static final Pattern MARKUP = Pattern.compile("<[^>]*>");
+    private static final char GREEK_MU = '\u03bc';
+    private static final char MICRO_SIGN = '\u00b5';
+
+    private final HashMap<String, String> codes = new HashMap<>();
+
+    /**
+     * Constructor for the table mapping print symbols to case-sensitive codes. Every unit is entered by its print
+     * symbol without HTML markup, metric units additionally by every prefix print symbol followed by their own
+     * (e.g., °C to Cel, Ω to Ohm, kΩ to kOhm or μg to ug). Since print symbols often use the Greek letter mu for
+     * micro while keyboards produce the micro sign, both spellings are entered. Print symbols that are valid UCUM
+     * atoms by themselves, contain whitespace or operators or stand for more than one unit are left out, unless one
+     * of these units is printed as its own code.
+     * @param ucumEssence - the loaded UCUM essence
+     */
+    private UcumPrintSymbolTable(UcumEssence ucumEssence) {
+        HashSet<String> ambiguous = new HashSet<>();
+        HashSet<String> preferred = new HashSet<>();
+        //Units printed as their own code come first, so μL is read as uL rather than as microlambert
+        for (boolean ownCode : new boolean[]{true, false}) {
+            for (UcumUnit ucumUnit : ucumEssence.getUnits()) {
+                String unitSymbol = stripMarkup(ucumUnit.getPrintSymbol());
+                if (unitSymbol.isEmpty() || unitSymbol.equals(ucumUnit.getCodeCaseSens()) != ownCode){
+                    continue;
+                }
+                enter(unitSymbol, ucumUnit.getCodeCaseSens(), ownCode, preferred, ambiguous);
+
+                if (ucumUnit.isMetric()){
+                    for (UcumPrefix ucumPrefix : ucumEssence.getPrefixes()) {
+                        String prefixSymbol = stripMarkup(ucumPrefix.getPrintSymbol());
+                        String code = ucumPrefix.getCodeCaseSens() + ucumUnit.getCodeCaseSens();
+                        if (!prefixSymbol.isEmpty() && UcumDimensionIndex.isPrefixedUnit(code,
+                                ucumPrefix.getCodeCaseSens(), ucumUnit.getCodeCaseSens())){
+                            enter(prefixSymbol + unitSymbol, code, ownCode, preferred, ambiguous);
+                            enter(prefixSymbol.replace(GREEK_MU, MICRO_SIGN) + unitSymbol, code, ownCode, preferred,
+                                    ambiguous);
+                        }
+                    }
+                }
+            }
+        }
+        codes.keySet().removeAll(ambiguous);
+    }
+
+    /**
+     * Returns the table, which is built once on first use.
+     * @return The shared table
+     */
+    static UcumPrintSymbolTable getInstance(){
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Looks up the case-sensitive code of a print symbol.
+     * @param printSymbol - the print symbol, possibly preceded by the print symbol of a prefix
+     * @return Case-sensitive code or null if the print symbol is unknown, ambiguous or a valid atom by itself
+     */
+    String lookup(String printSymbol){
+        return codes.get(printSymbol);
+    }
+
+    /**
+     * Enters a print symbol unless it is a valid atom by itself or unusable within an expression. A print symbol
+     * entered for two different codes is marked as ambiguous, unless it has been entered by a unit printed as its
+     * own code before.
+     * @param printSymbol - the print symbol
+     * @param code - the case-sensitive code the print symbol stands for
+     * @param ownCode - whether the unit is printed as its own code
+     * @param preferred - the print symbols entered by units printed as their own code
+     * @param ambiguous - the print symbols that stand for more than one code
+     */
+    private void enter(String printSymbol, String code, boolean ownCode, HashSet<String> preferred,
+                       HashSet<String> ambiguous){
+        if (printSymbol.equals(code) || !isAtom(printSymbol) || Node.generateNode(printSymbol) != null ||
+                (!ownCode && preferred.contains(printSymbol))){
+            return;
+        }
+        if (ownCode){
+            preferred.add(printSymbol);
+        }
+        String previous = codes.putIfAbsent(printSymbol, code);
+        if (previous != null && !previous.equals(code)){
+            ambiguous.add(printSymbol);
+        }
+    }
+
+    /**
+     * Determines whether a print symbol can appear as a single token of an expression, that is whether it contains
+     * no whitespace, operators, brackets or braces.
+     * @param printSymbol - the print symbol
+     * @return Status of the print symbol being usable as a token
+     */
+    private static boolean isAtom(String printSymbol){
+        for (int i = 0; i < printSymbol.length(); i++) {
+            char c = printSymbol.charAt(i);
+            if (Character.isWhitespace(c) || c == '.' || c == '/' || c == '(' || c == ')' || c == '[' || c == ']' ||
+                    c == '{' || c == '}'){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the HTML markup of a print symbol.
+     * @param printSymbol - the print symbol as listed in the essence
+     * @return The print symbol without HTML markup
+     */
+    private static String stripMarkup(String printSymbol){
+        return MARKUP.matcher(printSymbol).replaceAll("").trim();
+    }
+
+    /**
+     * Lazily initialized holder of the shared table.
+     */
+    private static final class Holder {
+
+        private static final UcumPrintSymbolTable INSTANCE = new UcumPrintSymbolTable(Node.getUcumEssence());
+    }
+
+}
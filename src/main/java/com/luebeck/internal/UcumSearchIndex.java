@@ -0,0 +1,335 @@
+package com.luebeck.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+class UcumSearchIndex {
+
+    private static final Pattern MARKUP = Pattern.compile("<[^>]*>");
+    private static final int TIER_EXACT_CODE = 0;
+    private static final int TIER_EXACT_CODE_IGNORING_CASE = 1;
+    private static final int TIER_EXACT_TERM = 2;
+    private static final int TIER_CODE_PREFIX = 3;
+    private static final int TIER_TERM_PREFIX = 4;
+    private static final int TIER_WORD_START = 5;
+    private static final int TIER_SUBSTRING = 6;
+    private static final int MAX_TERM_LENGTH = 1 << 16;
+
+    private final String[] codes;
+    private final String[] capitalCodes;
+    private final String[][] names;
+    private final String[] printSymbols;
+    private final boolean[] prefixes;
+
+    private final String[] terms;
+    private final int[] termEntries;
+    private final boolean[] codeTerms;
+    private final int[] suffixTerms;
+    private final int[] suffixOffsets;
+
+    /**
+     * Constructor for the search index over all units and prefixes of the essence. Every case-sensitive code,
+     * capital code, name and print symbol (without its HTML markup) is indexed in lower case. All suffixes of these
+     * terms are sorted once, which turns prefix and substring queries into a binary search.
+     * @param ucumEssence - the loaded UCUM essence
+     */
+    private UcumSearchIndex(UcumEssence ucumEssence) {
+        UcumUnit[] ucumUnits = ucumEssence.getUnits();
+        UcumPrefix[] ucumPrefixes = ucumEssence.getPrefixes();
+        int entryCount = ucumUnits.length + ucumPrefixes.length;
+        this.codes = new String[entryCount];
+        this.capitalCodes = new String[entryCount];
+        this.names = new String[entryCount][];
+        this.printSymbols = new String[entryCount];
+        this.prefixes = new boolean[entryCount];
+
+        for (int i = 0; i < ucumUnits.length; i++) {
+            codes[i] = ucumUnits[i].getCodeCaseSens();
+            capitalCodes[i] = ucumUnits[i].getCodeCapital();
+            names[i] = trim(ucumUnits[i].getNames());
+            printSymbols[i] = MARKUP.matcher(ucumUnits[i].getPrintSymbol()).replaceAll("");
+        }
+        for (int i = 0; i < ucumPrefixes.length; i++) {
+            int entry = ucumUnits.length + i;
+            codes[entry] = ucumPrefixes[i].getCodeCaseSens();
+            capitalCodes[entry] = ucumPrefixes[i].getCodeCapital();
+            names[entry] = new String[]{ucumPrefixes[i].getName().trim()};
+            printSymbols[entry] = MARKUP.matcher(ucumPrefixes[i].getPrintSymbol()).replaceAll("");
+            prefixes[entry] = true;
+        }
+
+        List<String> termList = new ArrayList<>();
+        List<Integer> entryList = new ArrayList<>();
+        List<Boolean> codeList = new ArrayList<>();
+        int suffixCount = 0;
+        for (int entry = 0; entry < entryCount; entry++) {
+            LinkedHashSet<String> entryTerms = new LinkedHashSet<>();
+            entryTerms.add(lowerCase(codes[entry]));
+            entryTerms.add(lowerCase(capitalCodes[entry]));
+            int codeTermCount = entryTerms.size();
+            for (String name : names[entry]) {
+                entryTerms.add(lowerCase(name));
+            }
+            entryTerms.add(lowerCase(printSymbols[entry]));
+            entryTerms.remove("");
+
+            int position = 0;
+            for (String term : entryTerms) {
+                if (term.length() < MAX_TERM_LENGTH){
+                    termList.add(term);
+                    entryList.add(entry);
+                    codeList.add(position < codeTermCount);
+                    suffixCount += term.length();
+                }
+                position++;
+            }
+        }
+
+        this.terms = termList.toArray(new String[0]);
+        this.termEntries = new int[terms.length];
+        this.codeTerms = new boolean[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            termEntries[i] = entryList.get(i);
+            codeTerms[i] = codeList.get(i);
+        }
+
+        //Each suffix is packed into a long holding its term and its offset within the term
+        Long[] suffixes = new Long[suffixCount];
+        int next = 0;
+        for (int term = 0; term < terms.length; term++) {
+            for (int offset = 0; offset < terms[term].length(); offset++) {
+                suffixes[next++] = ((long) term << 16) | offset;
+            }
+        }
+        Arrays.sort(suffixes, (a, b) -> compareSuffixes((int) (a >>> 16), (int) (a & 0xFFFF),
+                (int) (b >>> 16), (int) (b & 0xFFFF)));
+        this.suffixTerms = new int[suffixCount];
+        this.suffixOffsets = new int[suffixCount];
+        for (int i = 0; i < suffixCount; i++) {
+            suffixTerms[i] = (int) (suffixes[i] >>> 16);
+            suffixOffsets[i] = (int) (suffixes[i] & 0xFFFF);
+        }
+    }
+
+    /**
+     * Returns the index, which is built once on first use.
+     * @return The shared index
+     */
+    static UcumSearchIndex getInstance(){
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Searches all units and prefixes whose codes, names or print symbols contain a query, ignoring case. Matches are
+     * ranked as follows: the exact case-sensitive code first, then codes and then other terms that match but for
+     * case, then codes starting with the query, then names and print symbols starting with the query, then terms
+     * with a word starting with the query and finally any other substring. Within a tier shorter terms come first,
+     * then the order of the essence.
+     * @param query - the query
+     * @param entries - the array the ranked entries are written to, its length limits the amount of matches
+     * @return The amount of entries written
+     */
+    int search(String query, int[] entries){
+        String trimmedQuery = query.trim();
+        String lowerQuery = lowerCase(trimmedQuery);
+        if (lowerQuery.isEmpty() || entries.length == 0){
+            return 0;
+        }
+
+        int[] scores = new int[codes.length];
+        Arrays.fill(scores, Integer.MAX_VALUE);
+        int[] matched = new int[codes.length];
+        int matchCount = 0;
+
+        for (int i = lowerBound(lowerQuery); i < suffixTerms.length &&
+                terms[suffixTerms[i]].startsWith(lowerQuery, suffixOffsets[i]); i++) {
+            int term = suffixTerms[i];
+            int entry = termEntries[term];
+            int score = tier(trimmedQuery, lowerQuery, term, suffixOffsets[i]) * MAX_TERM_LENGTH +
+                    terms[term].length();
+            if (scores[entry] == Integer.MAX_VALUE){
+                matched[matchCount++] = entry;
+            }
+            scores[entry] = Math.min(scores[entry], score);
+        }
+
+        long[] ranked = new long[matchCount];
+        for (int i = 0; i < matchCount; i++) {
+            ranked[i] = ((long) scores[matched[i]] << 32) | matched[i];
+        }
+        Arrays.sort(ranked);
+        int count = Math.min(matchCount, entries.length);
+        for (int i = 0; i < count; i++) {
+            entries[i] = (int) ranked[i];
+        }
+        return count;
+    }
+
+    /**
+     * Returns the amount of entries of this index, units first and prefixes second.
+     * @return Amount of entries
+     */
+    int size(){
+        return codes.length;
+    }
+
+    /**
+     * Returns the case-sensitive code of an entry.
+     * @param entry - the entry
+     * @return Case-sensitive code
+     */
+    String getCode(int entry){
+        return codes[entry];
+    }
+
+    /**
+     * Returns the capital code of an entry.
+     * @param entry - the entry
+     * @return Capital code
+     */
+    String getCapitalCode(int entry){
+        return capitalCodes[entry];
+    }
+
+    /**
+     * Returns all names of an entry.
+     * @param entry - the entry
+     * @return A copy of the names of the entry
+     */
+    String[] getNames(int entry){
+        return names[entry].clone();
+    }
+
+    /**
+     * Returns the print symbol of an entry without its HTML markup.
+     * @param entry - the entry
+     * @return Print symbol or an empty string if there is none
+     */
+    String getPrintSymbol(int entry){
+        return printSymbols[entry];
+    }
+
+    /**
+     * Determines whether an entry is a prefix rather than a unit.
+     * @param entry - the entry
+     * @return Status of the entry being a prefix
+     */
+    boolean isPrefix(int entry){
+        return prefixes[entry];
+    }
+
+    /**
+     * Determines the tier of a match.
+     * @param query - the trimmed query as it has been typed
+     * @param lowerQuery - the trimmed query in lower case
+     * @param term - the matched term
+     * @param offset - the offset of the match within the term
+     * @return The tier, lower tiers rank higher
+     */
+    private int tier(String query, String lowerQuery, int term, int offset){
+        if (offset > 0){
+            return Character.isLetterOrDigit(terms[term].charAt(offset - 1)) ? TIER_SUBSTRING : TIER_WORD_START;
+        }
+        if (terms[term].length() == lowerQuery.length()){
+            if (codes[termEntries[term]].equals(query)){
+                return TIER_EXACT_CODE;
+            }
+            return codeTerms[term] ? TIER_EXACT_CODE_IGNORING_CASE : TIER_EXACT_TERM;
+        }
+        return codeTerms[term] ? TIER_CODE_PREFIX : TIER_TERM_PREFIX;
+    }
+
+    /**
+     * Finds the first suffix that is not smaller than a query.
+     * @param lowerQuery - the query in lower case
+     * @return Index of the first suffix not smaller than the query
+     */
+    private int lowerBound(String lowerQuery){
+        int low = 0;
+        int high = suffixTerms.length;
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            if (compareSuffix(suffixTerms[middle], suffixOffsets[middle], lowerQuery) < 0){
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares a suffix with a query.
+     * @param term - the term of the suffix
+     * @param offset - the offset of the suffix within its term
+     * @param query - the query
+     * @return A negative number, zero or a positive number as the suffix is smaller, equal or greater
+     */
+    private int compareSuffix(int term, int offset, String query){
+        String text = terms[term];
+        int length = Math.min(text.length() - offset, query.length());
+        for (int i = 0; i < length; i++) {
+            int result = Character.compare(text.charAt(offset + i), query.charAt(i));
+            if (result != 0){
+                return result;
+            }
+        }
+        return Integer.compare(text.length() - offset, query.length());
+    }
+
+    /**
+     * Compares two suffixes.
+     * @param term - the term of the first suffix
+     * @param offset - the offset of the first suffix
+     * @param otherTerm - the term of the second suffix
+     * @param otherOffset - the offset of the second suffix
+     * @return A negative number, zero or a positive number as the first suffix is smaller, equal or greater
+     */
+    private int compareSuffixes(int term, int offset, int otherTerm, int otherOffset){
+        String text = terms[term];
+        String otherText = terms[otherTerm];
+        int length = Math.min(text.length() - offset, otherText.length() - otherOffset);
+        for (int i = 0; i < length; i++) {
+            int result = Character.compare(text.charAt(offset + i), otherText.charAt(otherOffset + i));
+            if (result != 0){
+                return result;
+            }
+        }
+        return Integer.compare(text.length() - offset, otherText.length() - otherOffset);
+    }
+
+    /**
+     * Trims all names of a unit.
+     * @param names - the names
+     * @return The trimmed names
+     */
+    private static String[] trim(String[] names){
+        String[] trimmed = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            trimmed[i] = names[i].trim();
+        }
+        return trimmed;
+    }
+
+    /**
+     * Converts a term to lower case independently of the default locale.
+     * @param term - the term
+     * @return The term in lower case
+     */
+    private static String lowerCase(String term){
+        return term.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Lazily initialized holder of the shared index.
+     */
+    private static final class Holder {
+
+        private static final UcumSearchIndex INSTANCE = new UcumSearchIndex(Node.getUcumEssence());
+    }
+
+}
@@ -0,0 +1,342 @@
+package com.luebeck.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+class UcumSuggestionIndex {
+
+    private static final int COST_EDIT = 2;
+    private static final int COST_CASE = 1;
+    private static final int COST_BRACKET = 1;
+    private static final int MAX_EDITS = 2;
+    private static final int SHORT_ATOM_LENGTH = 2;
+    private static final int DELETED_BITS = 2;
+    private static final UcumParser ucumParser = new UcumParser();
+
+    private final String[] codes;
+    private final int[] foldedLengths;
+    private final HashMap<String, int[]> deletions = new HashMap<>();
+
+    /**
+     * Constructor for the edit-distance index over all case-sensitive unit codes of the essence and all prefixed
+     * variants of metric units. Units are entered first and in the order of the essence, followed by their prefixed
+     * variants, which is also the order suggestions of equal distance are ranked in. Every code is folded to lower
+     * case without square brackets and listed under each variant obtained by deleting up to two characters. Two
+     * folded symbols at most two edits apart share such a variant, which turns a query into a few dozen lookups
+     * instead of a comparison with every code.
+     * @param ucumEssence - the loaded UCUM essence
+     */
+    private UcumSuggestionIndex(UcumEssence ucumEssence) {
+        LinkedHashSet<String> dictionary = new LinkedHashSet<>();
+        for (UcumUnit ucumUnit : ucumEssence.getUnits()) {
+            dictionary.add(ucumUnit.getCodeCaseSens());
+        }
+        for (UcumUnit ucumUnit : ucumEssence.getUnits()) {
+            if (!ucumUnit.isMetric()){
+                continue;
+            }
+            for (UcumPrefix ucumPrefix : ucumEssence.getPrefixes()) {
+                String code = ucumPrefix.getCodeCaseSens() + ucumUnit.getCodeCaseSens();
+                if (UcumDimensionIndex.isPrefixedUnit(code, ucumPrefix.getCodeCaseSens(),
+                        ucumUnit.getCodeCaseSens())){
+                    dictionary.add(code);
+                }
+            }
+        }
+        this.codes = dictionary.toArray(new String[0]);
+        this.foldedLengths = new int[codes.length];
+
+        //Entries are packed with the amount of characters deleted, so queries allowing a single edit skip the rest
+        HashMap<String, List<Integer>> entries = new HashMap<>();
+        for (int entry = 0; entry < codes.length; entry++) {
+            String folded = fold(codes[entry]);
+            foldedLengths[entry] = folded.length();
+            for (Map.Entry<String, Integer> deletion : generateDeletions(folded, MAX_EDITS).entrySet()) {
+                entries.computeIfAbsent(deletion.getKey(), k -> new ArrayList<>(1))
+                        .add(entry << DELETED_BITS | deletion.getValue());
+            }
+        }
+        for (String deletion : entries.keySet()) {
+            List<Integer> list = entries.get(deletion);
+            int[] array = new int[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            deletions.put(deletion, array);
+        }
+    }
+
+    /**
+     * Returns the index, which is built once on first use.
+     * @return The shared index
+     */
+    static UcumSuggestionIndex getInstance(){
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Suggests corrections for an expression by replacing each of its unknown atoms with close unit codes. Exponents
+     * and annotations of the replaced atoms are kept. Suggestions are ranked by their total distance. Atoms of up to
+     * two characters may be one edit away from a code, longer atoms two edits, not counting changes of case and
+     * square brackets.
+     * @param source - the source unit
+     * @param limit - the maximum amount of suggestions
+     * @return The suggested expressions, which still have to be validated, or an empty list if an atom has no close
+     * code or the expression cannot be tokenized
+     */
+    List<String> suggest(String source, int limit){
+        if (limit <= 0 || !hasBalancedBraces(source)){
+            return new ArrayList<>();
+        }
+        String[] tokens = ucumParser.tokenize(source);
+
+        //Keeping the best partial expressions after each atom is exact since the distances of the atoms add up
+        List<String> expressions = new ArrayList<>();
+        List<Integer> distances = new ArrayList<>();
+        expressions.add("");
+        distances.add(0);
+        for (String token : tokens) {
+            if (isOperator(token) || Node.generateNode(token) != null){
+                for (int i = 0; i < expressions.size(); i++) {
+                    expressions.set(i, expressions.get(i) + token);
+                }
+                continue;
+            }
+
+            int annotationStart = token.indexOf('{');
+            String atom = annotationStart < 0 ? token : token.substring(0, annotationStart);
+            String annotation = annotationStart < 0 ? "" : token.substring(annotationStart);
+            int exponentStart = exponentStart(atom);
+            String symbol = atom.substring(0, exponentStart);
+            String exponent = atom.substring(exponentStart);
+
+            long[] matches = search(symbol, symbol.length() <= SHORT_ATOM_LENGTH ? 1 : MAX_EDITS);
+            if (matches.length == 0){
+                return new ArrayList<>();
+            }
+            long[] ranked = new long[expressions.size() * Math.min(limit, matches.length)];
+            int count = 0;
+            for (int i = 0; i < expressions.size(); i++) {
+                for (int j = 0; j < Math.min(limit, matches.length); j++) {
+                    int distance = distances.get(i) + (int) (matches[j] >>> 32);
+                    ranked[count++] = ((long) distance << 32) | ((long) i << 16) | j;
+                }
+            }
+            Arrays.sort(ranked);
+
+            List<String> nextExpressions = new ArrayList<>();
+            List<Integer> nextDistances = new ArrayList<>();
+            for (int k = 0; k < Math.min(limit, count); k++) {
+                int i = (int) ((ranked[k] >>> 16) & 0xFFFF);
+                int j = (int) (ranked[k] & 0xFFFF);
+                nextExpressions.add(expressions.get(i) + codes[(int) matches[j]] + exponent + annotation);
+                nextDistances.add((int) (ranked[k] >>> 32));
+            }
+            expressions = nextExpressions;
+            distances = nextDistances;
+        }
+        return expressions;
+    }
+
+    /**
+     * Searches all codes within a number of edits of a symbol. Codes sharing a deletion variant with the folded
+     * symbol are candidates; their distance is computed exactly.
+     * @param symbol - the symbol
+     * @param edits - the maximum number of edits, changes of case and square brackets aside
+     * @return Matches packed as distance in the upper and entry in the lower half, sorted by distance and entry
+     */
+    private long[] search(String symbol, int edits){
+        String folded = fold(symbol);
+        if (folded.isEmpty()){
+            return new long[0];
+        }
+        int radius = edits * COST_EDIT;
+        HashSet<Integer> candidates = new HashSet<>();
+        int[][] rows = new int[2][];
+        long[] matches = new long[16];
+        int matchCount = 0;
+        for (String deletion : generateDeletions(folded, edits).keySet()) {
+            int[] entries = deletions.get(deletion);
+            if (entries == null){
+                continue;
+            }
+            for (int packed : entries) {
+                int entry = packed >>> DELETED_BITS;
+                if ((packed & ((1 << DELETED_BITS) - 1)) > edits ||
+                        Math.abs(foldedLengths[entry] - folded.length()) > edits || !candidates.add(entry)){
+                    continue;
+                }
+                int distance = distance(symbol, codes[entry], rows);
+                if (distance <= radius){
+                    if (matchCount == matches.length){
+                        matches = Arrays.copyOf(matches, matchCount * 2);
+                    }
+                    matches[matchCount++] = ((long) distance << 32) | entry;
+                }
+            }
+        }
+
+        long[] result = Arrays.copyOf(matches, matchCount);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Generates all variants of a symbol obtained by deleting up to a number of characters, including the symbol
+     * itself.
+     * @param symbol - the folded symbol
+     * @param edits - the maximum number of deleted characters
+     * @return The distinct deletion variants mapped to the least amount of characters deleted to obtain them
+     */
+    private static HashMap<String, Integer> generateDeletions(String symbol, int edits){
+        HashMap<String, Integer> variants = new HashMap<>();
+        variants.put(symbol, 0);
+        List<String> current = new ArrayList<>(variants.keySet());
+        for (int edit = 1; edit <= edits; edit++) {
+            List<String> next = new ArrayList<>();
+            for (String variant : current) {
+                for (int i = 0; i < variant.length(); i++) {
+                    String deletion = variant.substring(0, i) + variant.substring(i + 1);
+                    if (variants.putIfAbsent(deletion, edit) == null){
+                        next.add(deletion);
+                    }
+                }
+            }
+            current = next;
+        }
+        return variants;
+    }
+
+    /**
+     * Folds a symbol to lower case and removes its square brackets, the edits the distance charges least for.
+     * @param symbol - the symbol
+     * @return The folded symbol
+     */
+    private static String fold(String symbol){
+        StringBuilder folded = new StringBuilder(symbol.length());
+        for (int i = 0; i < symbol.length(); i++) {
+            char c = symbol.charAt(i);
+            if (c != '[' && c != ']'){
+                folded.append(c);
+            }
+        }
+        return folded.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Computes the edit distance between two symbols. Insertions, deletions and substitutions cost two, substituting
+     * a character by the same character in another case as well as inserting or deleting a square bracket cost one.
+     * @param a - the first symbol
+     * @param b - the second symbol
+     * @param rows - two rows of the distance matrix reused between calls, replaced if they are too short
+     * @return The edit distance
+     */
+    private static int distance(String a, String b, int[][] rows){
+        if (rows[0] == null || rows[0].length <= b.length()){
+            rows[0] = new int[b.length() + 1];
+            rows[1] = new int[b.length() + 1];
+        }
+        int[] previous = rows[0];
+        int[] current = rows[1];
+        previous[0] = 0;
+        for (int j = 1; j <= b.length(); j++) {
+            previous[j] = previous[j - 1] + indelCost(b.charAt(j - 1));
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            char ca = a.charAt(i - 1);
+            current[0] = previous[0] + indelCost(ca);
+            for (int j = 1; j <= b.length(); j++) {
+                char cb = b.charAt(j - 1);
+                int substitution = previous[j - 1] + substitutionCost(ca, cb);
+                int deletion = previous[j] + indelCost(ca);
+                int insertion = current[j - 1] + indelCost(cb);
+                current[j] = Math.min(substitution, Math.min(deletion, insertion));
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * Returns the cost of inserting or deleting a character.
+     * @param c - the character
+     * @return The cost
+     */
+    private static int indelCost(char c){
+        return c == '[' || c == ']' ? COST_BRACKET : COST_EDIT;
+    }
+
+    /**
+     * Returns the cost of substituting a character.
+     * @param a - the replaced character
+     * @param b - the replacing character
+     * @return The cost
+     */
+    private static int substitutionCost(char a, char b){
+        if (a == b){
+            return 0;
+        }
+        return Character.toLowerCase(a) == Character.toLowerCase(b) ? COST_CASE : COST_EDIT;
+    }
+
+    /**
+     * Finds the start of the exponent of an atom, that is of its trailing digits and their optional sign.
+     * @param atom - the atom without its annotation
+     * @return Index of the first character of the exponent, the length of the atom if there is none
+     */
+    private static int exponentStart(String atom){
+        int start = atom.length();
+        while (start > 0 && Character.isDigit(atom.charAt(start - 1))){
+            start--;
+        }
+        if (start > 1 && start < atom.length() && (atom.charAt(start - 1) == '-' || atom.charAt(start - 1) == '+')){
+            start--;
+        }
+        return start == 0 ? atom.length() : start;
+    }
+
+    /**
+     * Determines whether a token is an operator or a parenthesis.
+     * @param token - the token
+     * @return Status of the token being an operator or a parenthesis
+     */
+    private static boolean isOperator(String token){
+        return token.equals(".") || token.equals("/") || token.equals("(") || token.equals(")");
+    }
+
+    /**
+     * Determines whether every opening brace of an expression is closed, which tokenizing relies on.
+     * @param source - the source unit
+     * @return Status of the braces being balanced
+     */
+    private static boolean hasBalancedBraces(String source){
+        boolean open = false;
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (c == '{' || c == '}'){
+                if (open == (c == '{')){
+                    return false;
+                }
+                open = !open;
+            }
+        }
+        return !open;
+    }
+
+    /**
+     * Lazily initialized holder of the shared index.
+     */
+    private static final class Holder {
+
+        private static final UcumSuggestionIndex INSTANCE = new UcumSuggestionIndex(Node.getUcumEssence());
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.luebeck.internal;
+
+import java.util.HashMap;
+
+class UcumTranscoder {
+
+    private final HashMap<String, String> capitalCodes = new HashMap<>();
+    private final HashMap<String, String> caseSensCodes = new HashMap<>();
+
+    /**
+     * Constructor for the token maps between case-sensitive and capital symbols. Both maps hold every unit and every
+     * prefixed variant of a metric unit. Where a symbol can be read in more than one way the reading Node would
+     * choose is kept: units before prefixed units and shorter prefixes before longer ones. Capital unit codes shared
+     * by several units (e.g., L for l and L) are read as the essence reads them.
+     * @param ucumEssence - the loaded UCUM essence
+     */
+    private UcumTranscoder(UcumEssence ucumEssence) {
+        for (UcumUnit ucumUnit : ucumEssence.getUnits()) {
+            capitalCodes.putIfAbsent(ucumUnit.getCodeCaseSens(), ucumUnit.getCodeCapital());
+            caseSensCodes.putIfAbsent(ucumUnit.getCodeCapital(),
+                    ucumEssence.lookupCapitalUnit(ucumUnit.getCodeCapital()).getCodeCaseSens());
+        }
+
+        for (int prefixLength = 1; prefixLength <= 3; prefixLength++) {
+            for (UcumPrefix ucumPrefix : ucumEssence.getPrefixes()) {
+                for (UcumUnit ucumUnit : ucumEssence.getUnits()) {
+                    if (!ucumUnit.isMetric()){
+                        continue;
+                    }
+                    if (ucumPrefix.getCodeCaseSens().length() == prefixLength){
+                        capitalCodes.putIfAbsent(ucumPrefix.getCodeCaseSens() + ucumUnit.getCodeCaseSens(),
+                                ucumPrefix.getCodeCapital() + ucumUnit.getCodeCapital());
+                    }
+                    if (ucumPrefix.getCodeCapital().length() == prefixLength){
+                        UcumUnit capitalUnit = ucumEssence.lookupCapitalUnit(ucumUnit.getCodeCapital());
+                        if (capitalUnit.isMetric()){
+                            caseSensCodes.putIfAbsent(ucumPrefix.getCodeCapital() + ucumUnit.getCodeCapital(),
+                                    ucumPrefix.getCodeCaseSens() + capitalUnit.getCodeCaseSens());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the transcoder, which is built once on first use.
+     * @return The shared transcoder
+     */
+    static UcumTranscoder getInstance(){
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Transcodes an expression of case-sensitive symbols into capital symbols, for example mg/dL to MG/DL.
+     * @param source - the case-sensitive expression
+     * @return The capital expression or null if a symbol is not a case-sensitive unit
+     */
+    String toCapital(String source){
+        return transcode(source, capitalCodes);
+    }
+
+    /**
+     * Transcodes an expression of capital symbols into case-sensitive symbols, for example MG/DL to mg/dL.
+     * @param source - the capital expression
+     * @return The case-sensitive expression or null if a symbol is not a capital unit
+     */
+    String toCaseSens(String source){
+        return transcode(source, caseSensCodes);
+    }
+
+    /**
+     * Replaces every symbol of an expression in a single pass. Operators, numbers, exponents and annotations are
+     * copied as they are.
+     * @param source - the source expression
+     * @param codes - the token map of the target representation
+     * @return The transcoded expression or null if a symbol is not listed in the token map
+     */
+    private static String transcode(String source, HashMap<String, String> codes){
+        StringBuilder output = new StringBuilder(source.length() + 8);
+        int length = source.length();
+        int i = 0;
+        while (i < length){
+            char c = source.charAt(i);
+            if (c == '.' || c == '/' || c == '(' || c == ')'){
+                output.append(c);
+                i++;
+                continue;
+            }
+            if (c == '{'){
+                int close = source.indexOf('}', i);
+                if (close < 0){
+                    return null;
+                }
+                output.append(source, i, close + 1);
+                i = close + 1;
+                continue;
+            }
+
+            int start = i;
+            while (i < length && (c = source.charAt(i)) != '.' && c != '/' && c != '(' && c != ')' && c != '{'){
+                if (c == '['){
+                    int close = source.indexOf(']', i);
+                    if (close < 0){
+                        return null;
+                    }
+                    i = close + 1;
+                } else {
+                    i++;
+                }
+            }
+
+            //Numbers such as 10*3 or 1000 are the same in both representations
+            if (Character.isDigit(source.charAt(start))){
+                output.append(source, start, i);
+                continue;
+            }
+            int exponentStart = i;
+            while (exponentStart > start && Character.isDigit(source.charAt(exponentStart - 1))){
+                exponentStart--;
+            }
+            if (exponentStart > start + 1 && exponentStart < i &&
+                    (source.charAt(exponentStart - 1) == '-' || source.charAt(exponentStart - 1) == '+')){
+                exponentStart--;
+            }
+            String code = codes.get(source.substring(start, exponentStart));
+            if (code == null){
+                return null;
+            }
+            output.append(code).append(source, exponentStart, i);
+        }
+        return output.toString();
+    }
+
+    /**
+     * Lazily initialized holder of the shared transcoder.
+     */
+    private static final class Holder {
+
+        private static final UcumTranscoder INSTANCE = new UcumTranscoder(Node.getUcumEssence());
+    }
+
+}
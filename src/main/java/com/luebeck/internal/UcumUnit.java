@@ -150,6 +150,38 @@ class UcumUnit extends EssenceComponent {
         return isMetric;
     }
 
+    /**
+     * Returns all names of this UCUM unit as listed in the essence (e.g., gon and grade).
+     * @return The names of this unit, which must not be modified
+     */
+    String[] getNames(){
+        return name;
+    }
+
+    /**
+     * Returns the print symbol of this UCUM unit, which may contain HTML markup (e.g., a<sub>t</sub>).
+     * @return Unit print symbol or an empty string if there is none
+     */
+    String getPrintSymbol(){
+        return printSymbol == null ? "" : printSymbol;
+    }
+
+    /**
+     * Determines whether this UCUM unit is one of the seven base units.
+     * @return Base unit status of this unit
+     */
+    boolean isBaseUnit(){
+        return isBaseUnit;
+    }
+
+    /**
+     * Returns the class this UCUM unit is listed under in the essence (e.g., si, iso1000 or cgs).
+     * @return Unit class or null for base units
+     */
+    String getUnitClass(){
+        return cls;
+    }
+
     /**
      * Returns a single name for this UCUM unit. Occasionally entries in the UCUM essence document
      * contain more than one name. Generally all names are stored in a UcumUnit object but
@@ -0,0 +1,111 @@
+package com.luebeck.external;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryUnitCodecTest {
+
+    UcumLBKService e = new UcumLBKService();
+
+    @Test
+    void encodeUnit() {
+        BinaryUnitEncoder encoder = new BinaryUnitEncoder(e, 7);
+        BinaryUnitDecoder decoder = new BinaryUnitDecoder();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(128).order(ByteOrder.LITTLE_ENDIAN);
+        assertTrue(encoder.encodeUnit(buffer, "mg/dL", 42));
+        assertTrue(encoder.encodeUnit(buffer, "Cel", 0));
+        assertFalse(encoder.encodeUnit(buffer, "[IU]", 0));
+        assertFalse(encoder.encodeUnit(buffer, "foo", 0));
+        assertEquals(2 * BinaryUnitEncoder.UNIT_SIZE, buffer.position());
+        buffer.flip();
+
+        assertTrue(decoder.decodeUnit(buffer));
+        assertEquals(e.generateCanonicalForm("mg/dL"), decoder.toCanonicalForm());
+        assertEquals(BinaryUnitEncoder.FLAG_REGISTRY_VERSION | BinaryUnitEncoder.FLAG_EXPRESSION_ID,
+                decoder.getFlags());
+        assertEquals(7, decoder.getRegistryVersion());
+        assertEquals(42, decoder.getExpressionId());
+
+        assertTrue(decoder.decodeUnit(buffer));
+        assertEquals(BinaryUnitEncoder.FLAG_REGISTRY_VERSION | BinaryUnitEncoder.FLAG_NON_LINEAR,
+                decoder.getFlags());
+        assertEquals(0, decoder.getExpressionId());
+        assertFalse(decoder.decodeUnit(buffer));
+
+        //Unknown format versions are rejected
+        ByteBuffer unknown = ByteBuffer.allocate(BinaryUnitEncoder.UNIT_SIZE);
+        unknown.put(0, (byte) 9);
+        assertFalse(decoder.decodeUnit(unknown));
+        assertEquals(0, unknown.position());
+    }
+
+    @Test
+    void encodeQuantity() {
+        BinaryUnitEncoder encoder = new BinaryUnitEncoder(e);
+        BinaryUnitDecoder decoder = new BinaryUnitDecoder();
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        assertTrue(encoder.encodeQuantity(buffer, 90, "mg/dL", 1));
+        //A small integral value and a reference take three bytes
+        int start = buffer.position();
+        BinaryUnitEncoder.encodeQuantity(buffer, 5, 1);
+        assertEquals(3, buffer.position() - start);
+        BinaryUnitEncoder.encodeQuantity(buffer, -0.25, 300);
+        BinaryUnitEncoder.encodeQuantity(buffer, -0.0, 1);
+        BinaryUnitEncoder.encodeQuantity(buffer, -123456789, 1);
+        assertFalse(encoder.encodeQuantity(buffer, 1, "foo", 0));
+        buffer.flip();
+
+        CanonicalForm gramsPerLiter = e.generateCanonicalForm("g/L");
+        assertTrue(decoder.decodeQuantity(buffer));
+        assertFalse(decoder.isReference());
+        assertEquals(90, decoder.getValue());
+        assertEquals(0.9, decoder.valueIn(gramsPerLiter), 1e-12);
+        assertTrue(Double.isNaN(decoder.valueIn(e.generateCanonicalForm("s"))));
+
+        assertTrue(decoder.decodeQuantity(buffer));
+        assertTrue(decoder.isReference());
+        assertEquals(5, decoder.getValue());
+        assertEquals(1, decoder.getExpressionId());
+        assertNull(decoder.toCanonicalForm());
+        assertTrue(Double.isNaN(decoder.valueIn(gramsPerLiter)));
+
+        assertTrue(decoder.decodeQuantity(buffer));
+        assertEquals(-0.25, decoder.getValue());
+        assertEquals(300, decoder.getExpressionId());
+        assertTrue(decoder.decodeQuantity(buffer));
+        assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(decoder.getValue()));
+        assertTrue(decoder.decodeQuantity(buffer));
+        assertEquals(-123456789, decoder.getValue());
+        assertFalse(decoder.decodeQuantity(buffer));
+
+        //Truncated quantities leave the position as it is
+        ByteBuffer truncated = ByteBuffer.allocate(64);
+        assertTrue(encoder.encodeQuantity(truncated, 1.5, "g", 0));
+        truncated.flip().limit(truncated.limit() - 1);
+        assertFalse(decoder.decodeQuantity(truncated));
+        assertEquals(0, truncated.position());
+    }
+
+    @Test
+    void decodeRepeatedly() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BinaryUnitEncoder.MAX_QUANTITY_SIZE);
+        BinaryUnitDecoder decoder = new BinaryUnitDecoder();
+        CanonicalForm milligrams = e.generateCanonicalForm("mg");
+        CanonicalForm grams = e.generateCanonicalForm("g");
+        double sum = 0;
+        for (int i = 0; i < 1000; i++) {
+            buffer.clear();
+            BinaryUnitEncoder.encodeQuantity(buffer, i + 0.5, milligrams.getDimensions(), milligrams.getMagnitude(),
+                    0, 0, 0);
+            buffer.flip();
+            assertTrue(decoder.decodeQuantity(buffer));
+            sum += decoder.valueIn(grams);
+        }
+        assertEquals(500, sum, 1e-9);
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.luebeck.external;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedCacheTest {
+
+    @Test
+    void evictEntriesNotLookedUp() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(100);
+        cache.put("hot", 0);
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(0, cache.get("hot"));
+            cache.put("cold" + i, i);
+            assertTrue(cache.size() <= 100);
+        }
+        assertEquals(0, cache.get("hot"));
+        assertEquals(9999, cache.get("cold9999"));
+        assertNull(cache.get("cold0"));
+    }
+
+    @Test
+    void putConcurrently() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(64);
+        IntStream.range(0, 100000).parallel().forEach(i -> {
+            cache.put(i % 1000, i);
+            Integer value = cache.get(i % 1000);
+            assertTrue(value == null || value % 1000 == i % 1000);
+        });
+        assertTrue(cache.size() <= 64 + Runtime.getRuntime().availableProcessors());
+    }
+
+}
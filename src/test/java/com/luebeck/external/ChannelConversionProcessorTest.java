@@ -0,0 +1,78 @@
+package com.luebeck.external;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChannelConversionProcessorTest {
+
+    UcumLBKService e = new UcumLBKService();
+
+    @Test
+    void convert() throws Exception {
+        Map<String, String> targetUnits = new HashMap<>();
+        targetUnits.put("NIBP", "mm[Hg]");
+        targetUnits.put("HR", "/min");
+
+        List<ChannelSample> received = Collections.synchronizedList(new ArrayList<>());
+        ChannelConversionProcessor processor = new ChannelConversionProcessor(e, targetUnits);
+        try (SubmissionPublisher<ChannelSample> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(processor);
+            CompletableFuture<Void> done = processor.consume(received::add);
+            publisher.submit(ChannelSample.of("NIBP", 120, "mm[Hg]"));
+            publisher.submit(ChannelSample.of("NIBP", 16, "kPa"));
+            publisher.submit(ChannelSample.of("HR", 1.2, "Hz"));
+            publisher.submit(ChannelSample.of("HR", 72, "g"));
+            publisher.submit(ChannelSample.of("HR", 1.25, "s-1"));
+            publisher.submit(ChannelSample.of("SpO2", 98, "%"));
+            publisher.close();
+            done.get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(5, received.size());
+        assertEquals(ChannelSample.of("NIBP", 120, "mm[Hg]"), received.get(0));
+        assertEquals(120.0, received.get(1).getValue(), 0.05);
+        assertEquals(72, received.get(2).getValue(), 1e-9);
+        assertEquals("/min", received.get(2).getUnit());
+        assertEquals(75, received.get(3).getValue(), 1e-9);
+        //Channels without a target unit pass through
+        assertEquals(ChannelSample.of("SpO2", 98, "%"), received.get(4));
+        assertEquals(1, processor.getRejectedCount());
+    }
+
+    @Test
+    void backpressure() throws Exception {
+        int samples = 20000;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ChannelConversionProcessor processor = new ChannelConversionProcessor(e,
+                    Collections.singletonMap("T", "mg"), executor, 16);
+            long[] sum = new long[1];
+            CompletableFuture<Void> done;
+            try (SubmissionPublisher<ChannelSample> publisher = new SubmissionPublisher<>(executor, 16)) {
+                publisher.subscribe(processor);
+                done = processor.consume(sample -> sum[0] += (long) sample.getValue());
+                for (int i = 0; i < samples; i++) {
+                    publisher.submit(ChannelSample.of("T", i % 2, i % 1000 < 500 ? "g" : "kg"));
+                }
+            }
+            done.get(30, TimeUnit.SECONDS);
+            assertEquals(5000 * 1000 + 5000 * 1000000L, sum[0]);
+            assertEquals(0, processor.getRejectedCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.luebeck.external;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FhirNdjsonNormalizerTest {
+
+    UcumLBKService e = new UcumLBKService();
+
+    @Test
+    void normalize() throws IOException {
+        String input =
+                "{\"resourceType\":\"Observation\",\"valueQuantity\":{\"value\":5.5,\"unit\":\"mg/dL\"," +
+                        "\"system\":\"http://unitsofmeasure.org\",\"code\":\"mg/dL\"}}\n" +
+                "{\"resourceType\":\"Observation\",\"valueQuantity\": {\"code\": \"min\", \"value\": 2}}\n" +
+                "{\"resourceType\":\"Observation\",\"valueQuantity\":{\"value\":1,\"system\":\"http://loinc.org\"," +
+                        "\"code\":\"mg\"}}\n" +
+                "{\"resourceType\":\"Observation\",\"valueQuantity\":{\"value\":1,\"code\":\"m/\"}}\n" +
+                "{\"resourceType\":\"Observation\",\"component\":[{\"valueQuantity\":{\"value\":250,\"code\":\"mm\"," +
+                        "\"extension\":[{\"url\":\"x\"}]}}]}\n";
+        StringWriter output = new StringWriter();
+
+        FhirNdjsonNormalizer.Summary summary = new FhirNdjsonNormalizer(e, "g/L")
+                .normalize(new StringReader(input), output);
+
+        String[] lines = output.toString().split("\n");
+        assertEquals("{\"resourceType\":\"Observation\",\"valueQuantity\":{\"value\":0.055,\"unit\":\"g/L\"," +
+                "\"system\":\"http://unitsofmeasure.org\",\"code\":\"g/L\"}}", lines[0]);
+        assertEquals("{\"resourceType\":\"Observation\",\"valueQuantity\": {\"code\": \"s\", \"value\": 120}}",
+                lines[1]);
+        assertEquals("{\"resourceType\":\"Observation\",\"valueQuantity\":{\"value\":1," +
+                "\"system\":\"http://loinc.org\",\"code\":\"mg\"}}", lines[2]);
+        assertEquals("{\"resourceType\":\"Observation\",\"valueQuantity\":{\"value\":1,\"code\":\"m/\"}}", lines[3]);
+        assertEquals("{\"resourceType\":\"Observation\",\"component\":[{\"valueQuantity\":{\"value\":0.25," +
+                "\"code\":\"m\",\"extension\":[{\"url\":\"x\"}]}}]}", lines[4]);
+        assertEquals(5, summary.getResources());
+        assertEquals(5, summary.getQuantities());
+        assertEquals(3, summary.getConverted());
+        assertEquals(2, summary.getUnchanged());
+    }
+
+    @Test
+    void leaveSpecialUnits() throws IOException {
+        String input =
+                "{\"resourceType\":\"Observation\",\"valueQuantity\":{\"value\":37,\"code\":\"Cel\"}}\n" +
+                "{\"resourceType\":\"Observation\",\"valueQuantity\":{\"value\":98.6,\"code\":\"[degF]\"}}\n" +
+                "{\"resourceType\":\"Observation\",\"valueQuantity\":{\"value\":7.4,\"code\":\"[pH]\"}}\n" +
+                "{\"resourceType\":\"Observation\",\"valueQuantity\":{\"value\":300,\"code\":\"mK\"}}\n";
+        StringWriter output = new StringWriter();
+
+        FhirNdjsonNormalizer.Summary summary = new FhirNdjsonNormalizer(e, "K")
+                .normalize(new StringReader(input), output);
+
+        String[] lines = input.split("\n");
+        String[] outputLines = output.toString().split("\n");
+        assertEquals(lines[0], outputLines[0]);
+        assertEquals(lines[1], outputLines[1]);
+        assertEquals(lines[2], outputLines[2]);
+        assertEquals("{\"resourceType\":\"Observation\",\"valueQuantity\":{\"value\":0.3,\"code\":\"K\"}}",
+                outputLines[3]);
+        assertEquals(4, summary.getResources());
+        assertEquals(1, summary.getConverted());
+        assertEquals(3, summary.getUnchanged());
+
+        //Blank lines are copied but not counted as resources
+        output = new StringWriter();
+        summary = new FhirNdjsonNormalizer(e, "K").normalize(new StringReader(lines[3] + "\n\n  \n"), output);
+        assertEquals(outputLines[3] + "\n\n  \n", output.toString());
+        assertEquals(1, summary.getResources());
+    }
+
+    @Test
+    void keepLineTerminators() throws IOException {
+        String input =
+                "{\"resourceType\":\"Observation\",\"valueQuantity\":{\"value\":300,\"code\":\"mK\"}}\r\n" +
+                "\r\n" +
+                "{\"resourceType\":\"Observation\",\"valueQuantity\":{\"value\":37,\"code\":\"Cel\"}}\n" +
+                "{\"resourceType\":\"Observation\",\"valueQuantity\":{\"value\":2,\"code\":\"mK\"}}";
+        StringWriter output = new StringWriter();
+
+        FhirNdjsonNormalizer.Summary summary = new FhirNdjsonNormalizer(e, "K")
+                .normalize(new StringReader(input), output);
+
+        assertEquals("{\"resourceType\":\"Observation\",\"valueQuantity\":{\"value\":0.3,\"code\":\"K\"}}\r\n" +
+                "\r\n" +
+                "{\"resourceType\":\"Observation\",\"valueQuantity\":{\"value\":37,\"code\":\"Cel\"}}\n" +
+                "{\"resourceType\":\"Observation\",\"valueQuantity\":{\"value\":0.002,\"code\":\"K\"}}",
+                output.toString());
+        assertEquals(3, summary.getResources());
+        assertEquals(2, summary.getConverted());
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.luebeck.external;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantityAggregatorTest {
+
+    UcumLBKService e = new UcumLBKService();
+
+    @Test
+    void add() {
+        QuantityAggregator aggregator = new QuantityAggregator(e, "mg/dL");
+        assertTrue(aggregator.add(90, "mg/dL"));
+        assertTrue(aggregator.add(1.1, "g/L"));
+        assertTrue(aggregator.add(0.7, "mg/mL"));
+        //Incommensurable, invalid and special units as well as non-finite values are rejected
+        assertFalse(aggregator.add(5.5, "mmol/L"));
+        assertFalse(aggregator.add(1, "mg/foo"));
+        assertFalse(aggregator.add(1, "Cel"));
+        assertFalse(aggregator.add(1, (String) null));
+        assertFalse(aggregator.add(Double.NaN, "mg/dL"));
+        assertFalse(aggregator.add(Double.POSITIVE_INFINITY, "mg/dL"));
+
+        assertEquals("mg/dL", aggregator.getUnit());
+        assertEquals(3, aggregator.getCount());
+        assertEquals(6, aggregator.getRejectedCount());
+        assertEquals(270, aggregator.getSum(), 1e-9);
+        assertEquals(90, aggregator.getMean(), 1e-9);
+        assertEquals(70, aggregator.getMin(), 1e-9);
+        assertEquals(110, aggregator.getMax(), 1e-9);
+        assertEquals(90, aggregator.getQuantile(0.5), 0.9);
+        assertEquals(70, aggregator.getQuantile(0), 1e-9);
+        assertEquals(110, aggregator.getQuantile(1), 1e-9);
+        assertTrue(Double.isNaN(aggregator.getQuantile(1.5)));
+
+        QuantityAggregator empty = new QuantityAggregator(e, "mg/dL");
+        assertTrue(Double.isNaN(empty.getMean()));
+        assertTrue(Double.isNaN(empty.getMin()));
+        assertTrue(Double.isNaN(empty.getQuantile(0.5)));
+        //Targets that cannot be converted into reject every quantity
+        assertFalse(new QuantityAggregator(e, "Cel").add(1, "Cel"));
+    }
+
+    @Test
+    void merge() {
+        QuantityAggregator left = new QuantityAggregator(e, "g");
+        QuantityAggregator right = new QuantityAggregator(e, "g");
+        QuantityAggregator empty = new QuantityAggregator(e, "g");
+        left.add(1, "kg");
+        left.add(2, "g");
+        right.add(500, "mg");
+        right.add(1, "m");
+        assertTrue(left.merge(right));
+        assertTrue(empty.merge(left));
+        assertEquals(3, empty.getCount());
+        assertEquals(1, empty.getRejectedCount());
+        assertEquals(1002.5, empty.getSum(), 1e-9);
+        assertEquals(0.5, empty.getMin(), 1e-9);
+        assertEquals(1000, empty.getMax(), 1e-9);
+        assertFalse(left.merge(new QuantityAggregator(e, "kg")));
+    }
+
+    @Test
+    void quantileSketch() {
+        QuantileSketch sketch = new QuantileSketch();
+        QuantileSketch other = new QuantileSketch();
+        double[] values = new double[10001];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i - 2000) * 0.37;
+            (i % 2 == 0 ? sketch : other).add(values[i]);
+        }
+        assertTrue(sketch.merge(other));
+        assertFalse(sketch.merge(new QuantileSketch(0.05)));
+        assertEquals(values.length, sketch.getCount());
+        Arrays.sort(values);
+        for (double q : new double[]{0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99}) {
+            double exact = values[(int) (q * (values.length - 1))];
+            assertEquals(exact, sketch.quantile(q), Math.abs(exact) * 0.01 + 1e-9);
+        }
+
+        //Values spanning more orders of magnitude than the buckets cover only lose accuracy at the bottom
+        QuantileSketch wide = new QuantileSketch();
+        for (int exponent = -300; exponent <= 300; exponent++) {
+            wide.add(Math.pow(10, exponent));
+        }
+        assertEquals(1e-300, wide.quantile(0));
+        double top = Math.pow(10, (long) (0.99 * 600) - 300);
+        assertEquals(top, wide.quantile(0.99), top * 0.01);
+        assertEquals(1e300, wide.quantile(1));
+    }
+
+    @Test
+    void collectors() {
+        List<UcumQuantity> quantities = new ArrayList<>();
+        IntStream.range(0, 3000).forEach(i -> {
+            quantities.add(UcumQuantity.of(i, "mg"));
+            quantities.add(UcumQuantity.of(i, "g"));
+            quantities.add(UcumQuantity.of(i, "s"));
+        });
+
+        QuantityAggregator sequential = quantities.stream()
+                .collect(QuantityCollectors.summarizing(e, "mg"));
+        QuantityAggregator parallel = quantities.parallelStream()
+                .collect(QuantityCollectors.summarizing(e, "mg"));
+        assertEquals(6000, sequential.getCount());
+        assertEquals(3000, sequential.getRejectedCount());
+        assertEquals(sequential.getCount(), parallel.getCount());
+        assertEquals(sequential.getRejectedCount(), parallel.getRejectedCount());
+        assertEquals(sequential.getSum(), parallel.getSum(), 1e-6);
+        assertEquals(2999000, parallel.getMax());
+        assertEquals(sequential.getQuantile(0.5), parallel.getQuantile(0.5));
+
+        assertEquals(750499.75, quantities.stream().collect(QuantityCollectors.averaging(e, "mg")), 1e-6);
+        assertEquals(1500, quantities.stream().collect(QuantityCollectors.quantile(e, "mg", 0.25)), 15);
+
+        QuantityAggregator mapped = quantities.stream()
+                .collect(QuantityCollectors.summarizing(e, "g", UcumQuantity::getValue, UcumQuantity::getUnit));
+        assertEquals(2999, mapped.getMax(), 1e-9);
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.luebeck.external;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantityBufferConverterTest {
+
+    UcumLBKService e = new UcumLBKService();
+
+    @Test
+    void canonizeWithoutRecordingOperations() {
+        HistogramUcumMetrics metrics = new HistogramUcumMetrics();
+        UcumLBKService service = new UcumLBKService(metrics);
+
+        new QuantityBufferConverter(service, Arrays.asList("mg/dL", "g/L", "foo", "Cel"));
+        double[] values = {2, 1500, 1};
+        String[] units = {"g", "mg", "kg"};
+        new QuantityComparator(service).sort(values, units);
+
+        assertArrayEquals(new String[]{"mg", "g", "kg"}, units);
+        assertEquals(0, metrics.getCalls(UcumOperation.GENERATE_CANONICAL_FORM));
+        assertEquals(0, metrics.getFailures(UcumOperation.GENERATE_CANONICAL_FORM));
+    }
+
+    @Test
+    void convert() {
+        QuantityBufferConverter converter = new QuantityBufferConverter(e,
+                Arrays.asList("mg/dL", "g/L", "mmol/L", "foo", "Cel", "s"));
+        assertEquals(Arrays.asList("mg/dL", "g/L", "mmol/L", "foo", "Cel", "s", "m-3.g", "m-3"),
+                converter.getDictionary());
+        assertEquals(1, converter.idOf("g/L"));
+        assertEquals(QuantityBufferConverter.INVALID_ID, converter.idOf("kg"));
+        assertEquals("m-3.g", converter.unitOf(6));
+        assertNull(converter.unitOf(8));
+
+        ByteBuffer rows = ByteBuffer.allocateDirect(6 * QuantityBufferConverter.ROW_SIZE)
+                .order(ByteOrder.nativeOrder());
+        rows.putDouble(90).putInt(0);
+        rows.putDouble(1.1).putInt(1);
+        rows.putDouble(5).putInt(2);
+        rows.putDouble(1).putInt(3);
+        rows.putDouble(37).putInt(4);
+        rows.putDouble(2).putInt(42);
+        rows.flip();
+
+        assertEquals(2, converter.convert(rows, converter.idOf("mg/dL")));
+        assertEquals(0, rows.position());
+        assertEquals(90, rows.getDouble(0), 1e-9);
+        assertEquals(0, rows.getInt(8));
+        assertEquals(110, rows.getDouble(12), 1e-9);
+        assertEquals(0, rows.getInt(20));
+        //Rows that cannot be converted keep their value
+        assertEquals(5, rows.getDouble(24));
+        assertEquals(QuantityBufferConverter.INVALID_ID, rows.getInt(32));
+        assertEquals(QuantityBufferConverter.INVALID_ID, rows.getInt(44));
+        assertEquals(QuantityBufferConverter.INVALID_ID, rows.getInt(56));
+        assertEquals(QuantityBufferConverter.INVALID_ID, rows.getInt(68));
+
+        assertEquals(0, converter.convert(rows, converter.idOf("Cel")));
+        assertEquals(0, converter.convert(rows, 99));
+    }
+
+    @Test
+    void canonicalize() {
+        QuantityBufferConverter converter = new QuantityBufferConverter(e, Arrays.asList("mg", "kg", "g", "min"));
+        assertEquals(Arrays.asList("mg", "kg", "g", "min", "s"), converter.getDictionary());
+
+        ByteBuffer rows = ByteBuffer.allocateDirect(4 * QuantityBufferConverter.ROW_SIZE + 5);
+        rows.putDouble(1500).putInt(0);
+        rows.putDouble(2).putInt(1);
+        rows.putDouble(3).putInt(3);
+        rows.putDouble(4).putInt(-7);
+        rows.flip();
+        ByteBuffer output = ByteBuffer.allocateDirect(64);
+        output.position(4);
+
+        assertEquals(3, converter.canonicalize(rows, output));
+        assertEquals(4 + 4 * QuantityBufferConverter.ROW_SIZE, output.position());
+        assertEquals(1.5, output.getDouble(4), 1e-12);
+        assertEquals(2, output.getInt(12));
+        assertEquals(2000, output.getDouble(16), 1e-9);
+        assertEquals(180, output.getDouble(28), 1e-9);
+        assertEquals("s", converter.unitOf(output.getInt(36)));
+        assertEquals(QuantityBufferConverter.INVALID_ID, output.getInt(48));
+        //The source rows are left as they are
+        assertEquals(1500, rows.getDouble(0));
+
+        assertThrows(BufferOverflowException.class, () -> converter.convert(rows, ByteBuffer.allocate(12), 2));
+        assertEquals(3, converter.canonicalize(rows));
+        assertEquals(180, rows.getDouble(24), 1e-9);
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.luebeck.external;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantityComparatorTest {
+
+    UcumLBKService e = new UcumLBKService();
+
+    @Test
+    void compare() {
+        QuantityComparator comparator = new QuantityComparator(e);
+        assertTrue(comparator.compare(UcumQuantity.of(1, "g"), UcumQuantity.of(1200, "mg")) < 0);
+        assertTrue(comparator.compare(UcumQuantity.of(2, "g"), UcumQuantity.of(1200, "mg")) > 0);
+        assertEquals(0, comparator.compare(UcumQuantity.of(1, "kg"), UcumQuantity.of(1000, "g")));
+        //Rejected units are ordered last
+        assertTrue(comparator.compare(UcumQuantity.of(1, "Cel"), UcumQuantity.of(1, "g")) > 0);
+        assertTrue(comparator.compare(UcumQuantity.of(1, "g"), UcumQuantity.of(1, "foo")) < 0);
+
+        assertEquals(1.5, comparator.sortKey(1500, "mg"), 1e-12);
+        assertTrue(Double.isNaN(comparator.sortKey(1, "[pH]")));
+        assertTrue(Double.isNaN(comparator.sortKey(1, null)));
+    }
+
+    @Test
+    void sort() {
+        QuantityComparator comparator = new QuantityComparator(e);
+        double[] values = {2, 1200, 5, 1, 3, 0.5, 1000};
+        String[] units = {"g", "mg", "foo", "g", "s", "kg", "g"};
+        //Seconds and grams form separate groups, ordered by their packed canon vector
+        assertArrayEquals(new int[]{4, 3, 1, 0, 5, 6, 2}, comparator.sortedIndices(values, units));
+
+        comparator.sort(values, units);
+        assertArrayEquals(new double[]{3, 1, 1200, 2, 0.5, 1000, 5}, values);
+        assertArrayEquals(new String[]{"s", "g", "mg", "g", "kg", "g", "foo"}, units);
+        assertThrows(IllegalArgumentException.class, () -> comparator.sortedIndices(new double[1], new String[2]));
+
+        List<UcumQuantity> quantities = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            quantities.add(UcumQuantity.of((i * 7919) % 500, i % 3 == 0 ? "mg" : i % 3 == 1 ? "g" : "ug"));
+        }
+        UcumQuantity[] expected = quantities.toArray(new UcumQuantity[0]);
+        Arrays.sort(expected, comparator);
+        comparator.sort(quantities);
+        assertArrayEquals(expected, quantities.toArray());
+        for (int i = 1; i < quantities.size(); i++) {
+            assertTrue(comparator.sortKey(quantities.get(i - 1).getValue(), quantities.get(i - 1).getUnit()) <=
+                    comparator.sortKey(quantities.get(i).getValue(), quantities.get(i).getUnit()));
+        }
+    }
+
+}
@@ -0,0 +1,241 @@
+package com.luebeck.external;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantityConversionProcessorTest {
+
+    UcumLBKService e = new UcumLBKService();
+
+    @Test
+    void convert() throws Exception {
+        List<ConvertedQuantity> received = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Void> done;
+        try (SubmissionPublisher<UcumQuantity> publisher = new SubmissionPublisher<>()) {
+            Flow.Publisher<ConvertedQuantity> converted = QuantityConversionProcessor.convert(publisher, e, "mg");
+            done = ((QuantityConversionProcessor) converted).consume(received::add);
+            publisher.submit(UcumQuantity.of(1, "g"));
+            publisher.submit(UcumQuantity.of(2, "kg"));
+            publisher.submit(UcumQuantity.of(3, "s"));
+            publisher.submit(UcumQuantity.of(4, "foo"));
+            publisher.submit(UcumQuantity.of(5, "ug"));
+        }
+        done.get(10, TimeUnit.SECONDS);
+
+        assertEquals(5, received.size());
+        assertEquals(UcumQuantity.of(1000, "mg"), received.get(0).getResult());
+        assertEquals(UcumQuantity.of(2000000, "mg"), received.get(1).getResult());
+        assertFalse(received.get(2).isConverted());
+        assertEquals(UcumQuantity.of(4, "foo"), received.get(3).getSource());
+        assertNull(received.get(3).getResult());
+        assertEquals(0.005, received.get(4).getResult().getValue(), 1e-15);
+    }
+
+    @Test
+    void canonicalize() throws Exception {
+        List<ConvertedQuantity> received = Collections.synchronizedList(new ArrayList<>());
+        QuantityConversionProcessor processor = new QuantityConversionProcessor(e, null);
+        CompletableFuture<Void> done = processor.consume(received::add);
+        try (SubmissionPublisher<UcumQuantity> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(processor);
+            publisher.submit(UcumQuantity.of(100, "mg/dL"));
+            publisher.submit(UcumQuantity.of(1, "Cel"));
+        }
+        done.get(10, TimeUnit.SECONDS);
+
+        assertEquals("m-3.g", received.get(0).getResult().getUnit());
+        assertEquals(1000, received.get(0).getResult().getValue(), 1e-9);
+        assertNull(received.get(1).getResult());
+    }
+
+    @Test
+    void preserveOrderInParallel() throws Exception {
+        int quantities = 50000;
+        String[] units = {"g", "g", "g", "kg", "ug", "mg"};
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            QuantityConversionProcessor processor = new QuantityConversionProcessor(e, "g", 64, 4, executor);
+            List<ConvertedQuantity> received = new ArrayList<>();
+            CompletableFuture<Void> done = processor.consume(received::add);
+            try (SubmissionPublisher<UcumQuantity> publisher = new SubmissionPublisher<>(executor, 32)) {
+                publisher.subscribe(processor);
+                for (int i = 0; i < quantities; i++) {
+                    publisher.submit(UcumQuantity.of(i, units[(i / 7) % units.length]));
+                }
+            }
+            done.get(30, TimeUnit.SECONDS);
+
+            assertEquals(quantities, received.size());
+            for (int i = 0; i < quantities; i++) {
+                ConvertedQuantity result = received.get(i);
+                assertEquals(i, result.getSource().getValue());
+                assertEquals(e.convert(result.getSource().getUnit(), "g", i), result.getResult().getValue(),
+                        Math.abs(i) * 1e-12);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void publishWhilePublisherIsOpen() throws Exception {
+        int quantities = 600;
+        List<ConvertedQuantity> received = Collections.synchronizedList(new ArrayList<>());
+        QuantityConversionProcessor processor = new QuantityConversionProcessor(e, "g", 256, 2,
+                ForkJoinPool.commonPool(), 20, TimeUnit.MILLISECONDS);
+        CompletableFuture<Void> done = processor.consume(received::add);
+        try (SubmissionPublisher<UcumQuantity> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(processor);
+            for (int i = 0; i < quantities; i++) {
+                publisher.submit(UcumQuantity.of(i, "mg"));
+            }
+            //The partial batch of the last 88 quantities is flushed after the maximum latency
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (received.size() < quantities && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(quantities, received.size());
+            assertFalse(done.isDone());
+        }
+        done.get(10, TimeUnit.SECONDS);
+
+        for (int i = 0; i < quantities; i++) {
+            assertEquals(i, received.get(i).getSource().getValue());
+            assertEquals(i / 1000.0, received.get(i).getResult().getValue(), 1e-12);
+        }
+    }
+
+    @Test
+    void pauseWhileSubscriberStopsRequesting() throws Exception {
+        int quantities = 2000;
+        AtomicInteger tasks = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Executor executor = task -> {
+            tasks.incrementAndGet();
+            pool.execute(task);
+        };
+        try {
+            QuantityConversionProcessor processor = new QuantityConversionProcessor(e, "g", 64, 2, executor);
+            List<ConvertedQuantity> received = Collections.synchronizedList(new ArrayList<>());
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            AtomicReference<Flow.Subscription> subscription = new AtomicReference<>();
+            processor.subscribe(new Flow.Subscriber<ConvertedQuantity>() {
+                @Override
+                public void onSubscribe(Flow.Subscription s){
+                    subscription.set(s);
+                    s.request(1);
+                }
+
+                @Override
+                public void onNext(ConvertedQuantity item){
+                    received.add(item);
+                }
+
+                @Override
+                public void onError(Throwable throwable){
+                    done.completeExceptionally(throwable);
+                }
+
+                @Override
+                public void onComplete(){
+                    done.complete(null);
+                }
+            });
+            SubmissionPublisher<UcumQuantity> publisher = new SubmissionPublisher<>(pool, 32);
+            publisher.subscribe(processor);
+            CompletableFuture<Void> submitted = CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < quantities; i++) {
+                    publisher.submit(UcumQuantity.of(i, "mg"));
+                }
+                publisher.close();
+            });
+
+            //Once the subscriber's buffer is full, the paused processor schedules no more tasks
+            int scheduled;
+            do {
+                scheduled = tasks.get();
+                Thread.sleep(100);
+            } while (scheduled != tasks.get());
+            Thread.sleep(200);
+            assertEquals(scheduled, tasks.get());
+            assertEquals(1, received.size());
+
+            subscription.get().request(Long.MAX_VALUE);
+            submitted.get(30, TimeUnit.SECONDS);
+            done.get(30, TimeUnit.SECONDS);
+
+            assertEquals(quantities, received.size());
+            for (int i = 0; i < quantities; i++) {
+                assertEquals(i, received.get(i).getSource().getValue());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void publishOnSingleThreadToSlowSubscriber() throws Exception {
+        int quantities = 20000;
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            QuantityConversionProcessor processor = new QuantityConversionProcessor(e, "g", 256, 4, executor);
+            List<ConvertedQuantity> received = new ArrayList<>();
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            processor.subscribe(new Flow.Subscriber<ConvertedQuantity>() {
+                private Flow.Subscription subscription;
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription){
+                    this.subscription = subscription;
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onNext(ConvertedQuantity item){
+                    received.add(item);
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onError(Throwable throwable){
+                    done.completeExceptionally(throwable);
+                }
+
+                @Override
+                public void onComplete(){
+                    done.complete(null);
+                }
+            });
+            try (SubmissionPublisher<UcumQuantity> publisher = new SubmissionPublisher<>()) {
+                publisher.subscribe(processor);
+                for (int i = 0; i < quantities; i++) {
+                    publisher.submit(UcumQuantity.of(i, "mg"));
+                }
+            }
+            done.get(30, TimeUnit.SECONDS);
+
+            assertEquals(quantities, received.size());
+            for (int i = 0; i < quantities; i++) {
+                assertEquals(i, received.get(i).getSource().getValue());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.luebeck.external;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReferenceRangeTest {
+
+    UcumLBKService e = new UcumLBKService();
+
+    @Test
+    void classify() {
+        ReferenceRange potassium = ReferenceRange.compile(e, 3.5, 5.1, "mmol/L");
+        assertNotNull(potassium);
+        assertEquals("3.5-5.1 mmol/L", potassium.toString());
+        assertEquals(RangeClassification.LOW, potassium.classify(3.4, "mmol/L"));
+        assertEquals(RangeClassification.NORMAL, potassium.classify(3.5, "mmol/L"));
+        assertEquals(RangeClassification.NORMAL, potassium.classify(5.1, "mmol/L"));
+        assertEquals(RangeClassification.HIGH, potassium.classify(5.2, "mmol/L"));
+
+        //Commensurable units
+        assertEquals(RangeClassification.NORMAL, potassium.classify(4000, "umol/L"));
+        assertEquals(RangeClassification.LOW, potassium.classify(0.3, "mmol/dL"));
+        assertEquals(RangeClassification.HIGH, potassium.classify(0.006, "mol/L"));
+        assertEquals(RangeClassification.NORMAL, potassium.classify(UcumQuantity.of(4.2, "mmol/L")));
+
+        //Both bounds belong to the interval in commensurable units as well
+        assertEquals(RangeClassification.NORMAL, potassium.classify(3500, "umol/L"));
+        assertEquals(RangeClassification.NORMAL, potassium.classify(5100, "umol/L"));
+        assertEquals(RangeClassification.NORMAL, potassium.classify(3.5, "mol/m3"));
+        assertEquals(RangeClassification.NORMAL, potassium.classify(5.1, "mol/m3"));
+        assertEquals(RangeClassification.NORMAL, potassium.classify(0.0035, "mol/L"));
+        assertEquals(RangeClassification.NORMAL, potassium.classify(0.51, "mmol/dL"));
+        assertEquals(RangeClassification.LOW, potassium.classify(3499.999, "umol/L"));
+        assertEquals(RangeClassification.HIGH, potassium.classify(5.1001, "mol/m3"));
+        ReferenceRange glucoseFasting = ReferenceRange.compile(e, 70, 100, "mg/dL");
+        assertEquals(RangeClassification.NORMAL, glucoseFasting.classify(0.7, "g/L"));
+        assertEquals(RangeClassification.NORMAL, glucoseFasting.classify(1, "g/L"));
+        assertEquals(RangeClassification.NORMAL, glucoseFasting.classify(700, "mg/L"));
+        assertEquals(RangeClassification.NORMAL, glucoseFasting.classify(0.1, "g/dL"));
+        assertEquals(RangeClassification.LOW, glucoseFasting.classify(0.699, "g/L"));
+
+        //Incommensurable or invalid units and NaN cannot be classified
+        assertNull(potassium.classify(4.2, "mg/dL"));
+        assertNull(potassium.classify(4.2, "mmol/foo"));
+        assertNull(potassium.classify(4.2, (String) null));
+        assertNull(potassium.classify(Double.NaN, "mmol/L"));
+        assertNull(potassium.classify(null));
+
+        //Open intervals
+        ReferenceRange glucose = ReferenceRange.compile(e, Double.NEGATIVE_INFINITY, 100, "mg/dL");
+        assertEquals(RangeClassification.NORMAL, glucose.classify(-1e300, "g/L"));
+        assertEquals(RangeClassification.HIGH, glucose.classify(1.1, "g/L"));
+
+        assertNull(ReferenceRange.compile(e, 5.1, 3.5, "mmol/L"));
+        assertNull(ReferenceRange.compile(e, Double.NaN, 3.5, "mmol/L"));
+        assertNull(ReferenceRange.compile(e, 36, 37.5, "Cel"));
+        assertNull(ReferenceRange.compile(e, 1, 2, "foo"));
+    }
+
+}
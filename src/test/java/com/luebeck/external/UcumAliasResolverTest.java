@@ -0,0 +1,54 @@
+package com.luebeck.external;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UcumAliasResolverTest {
+
+    UcumLBKService e = new UcumLBKService();
+
+    @Test
+    void resolve() {
+        UcumAliasResolver resolver = new UcumAliasResolver(e);
+        //Micro sign and Greek letter mu
+        assertEquals("ug", resolver.resolve("\u00b5g"));
+        assertEquals("ug/dl", resolver.resolve("\u03bcg/dl"));
+        assertEquals("uL", resolver.resolve("\u00b5L"));
+        assertEquals("ug", resolver.resolve("mcg"));
+        assertEquals("[IU]/ml", resolver.resolve("IU/ml"));
+        assertEquals("meq/l", resolver.resolve("mEq/l"));
+        assertEquals("cm3", resolver.resolve("cc"));
+        assertEquals("mm[Hg]", resolver.resolve("mmHg"));
+        //Print symbols of the essence
+        assertEquals("Cel", resolver.resolve("\u00b0C"));
+        assertEquals("kOhm", resolver.resolve("k\u03a9"));
+        //Exponents and annotations are kept
+        assertEquals("ug{total}.h-1", resolver.resolve("mcg{total}.hr-1"));
+        assertEquals("g.s-2", resolver.resolve("g.sec-2"));
+        assertEquals("cc2", resolver.resolve("cc2"));
+
+        //Valid expressions are returned as they are
+        String valid = "mg{mcg}/dL";
+        assertSame(valid, resolver.resolve(valid));
+        assertEquals("[in_i]", resolver.resolve("[in_i]"));
+        assertNull(resolver.resolve(null));
+        assertSame(resolver.resolve("mcg/dl"), resolver.resolve("mcg/dl"));
+    }
+
+    @Test
+    void isValidAndConvert() {
+        UcumAliasResolver resolver = new UcumAliasResolver(e, Collections.singletonMap("ml", "mL"));
+        assertFalse(e.isValid("mcg/dl"));
+        assertTrue(resolver.isValid("mcg/dl"));
+        assertTrue(resolver.isValid("\u00b5mol/L"));
+        assertFalse(resolver.isValid("xyz"));
+        assertEquals("[IU]/mL", resolver.resolve("IU/ml"));
+        assertEquals(1.5, resolver.convert("mcg", "mg", 1500), 1e-12);
+        assertEquals(2.0, resolver.convert("cc", "mL", 2), 1e-12);
+        assertNull(resolver.convert("cc", "xyz", 2));
+    }
+
+}
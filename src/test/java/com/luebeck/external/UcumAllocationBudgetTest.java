@@ -0,0 +1,175 @@
+package com.luebeck.external;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UcumAllocationBudgetTest {
+
+    private static final int WARM_UP_CALLS = 20000;
+    private static final int MEASURED_CALLS = 20000;
+    private static final long BOXED_DOUBLE = 24;
+    private static final long CANON_VECTOR = 48;
+    private static final long QUANTITY = 24;
+    private static final long UNCACHED_PARSE = 12 * 1024;
+    //Smaller than the smallest object, so it only absorbs measurement noise and never a per-call allocation
+    private static final long TOLERANCE = 8;
+
+    private static final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final StringBuilder report = new StringBuilder();
+
+    private final UcumLBKService service = new UcumLBKService();
+    private long sink;
+
+    @BeforeAll
+    static void enableAllocationCounting() {
+        assertTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        report.append(String.format("%-36s %12s %12s%n", "operation", "bytes/call", "budget"));
+    }
+
+    @AfterAll
+    static void writeReport() throws IOException {
+        String location = System.getProperty("ucum.allocationReport");
+        if (location == null){
+            System.out.print(report);
+        } else {
+            Path path = Paths.get(location);
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            Files.write(path, report.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void cachedIsValid() {
+        assertWithinBudget("isValid (cached)", 0, () -> service.isValid("mg/dL") ? 1 : 0);
+        assertWithinBudget("isValid (cached, invalid)", 0, () -> service.isValid("mg/dL/") ? 1 : 0);
+    }
+
+    @Test
+    void cachedIsCommensurable() {
+        assertWithinBudget("isCommensurable (cached)", 0, () -> service.isCommensurable("mg/dL", "g/L") ? 1 : 0);
+    }
+
+    @Test
+    void cachedConvert() {
+        assertWithinBudget("convert (cached)", BOXED_DOUBLE,
+                () -> service.convert("mg/dL", "g/L", 5.5).longValue());
+        assertNotNull(service.convert("mg.dL-1", "g.L-1", 5.5));
+        assertWithinBudget("convert (cached, spelling variant)", BOXED_DOUBLE,
+                () -> service.convert("mg.dL-1", "g.L-1", 5.5).longValue());
+    }
+
+    @Test
+    void cachedCanonVector() {
+        assertWithinBudget("generateCanonVector (cached)", CANON_VECTOR,
+                () -> service.generateCanonVector("N.m")[2]);
+    }
+
+    @Test
+    void cachedCanonicalKey() {
+        assertWithinBudget("generateCanonicalKey (cached)", 0,
+                () -> service.generateCanonicalKey("kg.m/s2", true).length());
+    }
+
+    @Test
+    void cachedDisplayName() {
+        assertWithinBudget("generateDisplayName (cached)", 0,
+                () -> service.generateDisplayName("kg.m/s2").length());
+    }
+
+    @Test
+    void cachedReadableUnit() {
+        assertWithinBudget("selectReadableUnit (cached)", QUANTITY,
+                () -> service.selectReadableUnit("g", 0.000012).getUnit().length());
+    }
+
+    @Test
+    void cachedReferenceRange() {
+        ReferenceRange range = ReferenceRange.compile(service, 3.5, 5.1, "mmol/L");
+        assertNotNull(range);
+        assertEquals(RangeClassification.NORMAL, range.classify(3500, "umol/L"));
+        assertWithinBudget("ReferenceRange.classify (cached)", 0,
+                () -> range.classify(3500, "umol/L").ordinal());
+    }
+
+    @Test
+    void uncachedIsValid() {
+        String[] sources = uniqueSources(WARM_UP_CALLS + MEASURED_CALLS);
+        int[] next = new int[1];
+        assertWithinBudget("isValid (uncached parse)", UNCACHED_PARSE,
+                () -> service.isValid(sources[next[0]++]) ? 1 : 0);
+    }
+
+    @Test
+    void uncachedCanonicalKey() {
+        assertWithinBudget("generateCanonicalKey (uncached)", UNCACHED_PARSE,
+                () -> service.generateCanonicalKey("kg.m/s2{force}", false).length());
+    }
+
+    @Test
+    void numberFormatting() {
+        StringBuilder output = new StringBuilder(64);
+        assertWithinBudget("convertNumberToUcum (Appendable)", 0, () -> {
+            output.setLength(0);
+            try {
+                return service.convertNumberToUcum(1.05E-8, output) ? 1 : 0;
+            } catch (IOException ex) {
+                throw new AssertionError(ex);
+            }
+        });
+        assertWithinBudget("convertUcumToNumber", 0, () -> (long) service.convertUcumToNumber("105.10^-10"));
+    }
+
+    /**
+     * Generates distinct valid sources that have not been checked before, which forces a parse on each call.
+     * @param count - the amount of sources
+     * @return Distinct sources
+     */
+    private static String[] uniqueSources(int count) {
+        String[] sources = new String[count];
+        for (int i = 0; i < count; i++) {
+            sources[i] = (100000 + i) + ".mg/dL";
+        }
+        return sources;
+    }
+
+    /**
+     * Warms an operation up, measures the bytes it allocates per call on the current thread and checks them against
+     * the budget of the operation, give or take TOLERANCE bytes.
+     * @param name - the name of the operation in the report
+     * @param budget - the maximum amount of bytes allocated per call
+     * @param operation - the operation
+     */
+    private void assertWithinBudget(String name, long budget, LongSupplier operation) {
+        for (int i = 0; i < WARM_UP_CALLS; i++) {
+            sink += operation.getAsLong();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        long overhead = threadBean.getThreadAllocatedBytes(threadId) - before;
+        before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            sink += operation.getAsLong();
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before - overhead;
+        long perCall = Math.max(0, allocated) / MEASURED_CALLS;
+
+        report.append(String.format("%-36s %12d %12d%n", name, perCall, budget));
+        assertTrue(perCall <= budget + TOLERANCE,
+                name + " allocates " + perCall + " bytes per call, budget is " + budget);
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.luebeck.external;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UcumBulkConverterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void run() throws IOException {
+        Path input = directory.resolve("input.csv");
+        Path output = directory.resolve("output.csv");
+        Files.write(input, ("value;unit\n1.5;mg/dL\n2;m/\n\n3;min\nx;mg/dL\n4\r\n \r\n37;Cel\n")
+                .getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+
+        int status = UcumBulkConverter.run(new String[]{"--input", input.toString(), "--output", output.toString(),
+                "--target", "g/L", "--delimiter", ";", "--threads", "2", "--skip-header"},
+                new PrintStream(report, true));
+
+        assertEquals(0, status);
+        //The header names the appended columns, blank rows and line terminators are copied unchanged
+        assertEquals("value;unit;converted_value;converted_unit\n" +
+                "1.5;mg/dL;0.015;g/L\n2;m/;;\n\n3;min;;\nx;mg/dL;;\n4;;\r\n \r\n37;Cel;;\n",
+                new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+        String reportText = new String(report.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(reportText.startsWith("Processed 6 rows"));
+        assertTrue(reportText.contains("5 errors"));
+        assertTrue(reportText.contains("invalid unit: 1"));
+        assertTrue(reportText.contains("invalid value: 1"));
+        assertTrue(reportText.contains("malformed row: 1"));
+        //Rows that cannot be converted into the target unit are not canonized instead
+        assertTrue(reportText.contains("unconvertible unit: 2"));
+    }
+
+    @Test
+    void runCanonizing() throws IOException {
+        Path input = directory.resolve("input.csv");
+        Path output = directory.resolve("output.csv");
+        Files.write(input, "3,min\n37,Cel\n1,[IU]\n".getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+
+        assertEquals(0, UcumBulkConverter.run(new String[]{"--input", input.toString(), "--output",
+                output.toString()}, new PrintStream(report, true)));
+        assertEquals("3,min,180,s\n37,Cel,,\n1,[IU],,\n",
+                new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+        assertTrue(new String(report.toByteArray(), StandardCharsets.UTF_8).contains("unconvertible unit: 2"));
+    }
+
+    @Test
+    void runWithoutInput() {
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        assertEquals(2, UcumBulkConverter.run(new String[]{"--threads"}, new PrintStream(report, true)));
+        assertEquals(2, UcumBulkConverter.run(new String[]{"--output", "x"}, new PrintStream(report, true)));
+    }
+
+}
@@ -0,0 +1,171 @@
+package com.luebeck.external;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UcumHttpServerTest {
+
+    UcumHttpServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new UcumHttpServer(new UcumLBKService(), new InetSocketAddress("127.0.0.1", 0), 4);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    void endpoints() throws IOException {
+        assertEquals("true\n", request("GET", "/isValid?unit=mg%2FdL", null));
+        assertEquals("false\n", request("GET", "/isValid?unit=m%2F", null));
+        assertEquals("0.0063\n", request("GET", "/convert?source=mm&target=m&value=6.3", null));
+        assertEquals("g, 1.0\n", request("GET", "/canonicalize?unit=g", null));
+        assertEquals("[meter]\n", request("GET", "/displayName?unit=m", null));
+        assertEquals("6.3\n\n120.0\n", request("POST", "/convert/batch", "m\tm\t6.3\nm/\tm\t1\nmin\ts\t2\n"));
+        assertEquals(422, status("/convert?source=m&target=s&value=1"));
+        assertEquals(400, status("/convert?source=m"));
+
+        String statistics = request("GET", "/statistics", null);
+        assertTrue(statistics.contains("/isValid requests=2 errors=0"));
+        assertTrue(statistics.contains("/convert/batch requests=1 errors=0 items=3"));
+    }
+
+    @Test
+    void batchKeepsBlankLines() throws IOException {
+        assertEquals("6.3\n\n120.0\n", request("POST", "/convert/batch", "m\tm\t6.3\n\nmin\ts\t2\n"));
+        //Requests are counted once the response is sent, items while the batch is converted
+        String statistics = request("GET", "/statistics", null);
+        assertTrue(statistics.matches("(?s).*/convert/batch requests=\\d+ errors=0 items=2 .*"));
+    }
+
+    @Test
+    void rejectWrongMethods() throws IOException {
+        assertEquals(405, status("POST", "/isValid?unit=m"));
+        assertEquals(405, status("PUT", "/convert?source=mm&target=m&value=6.3"));
+        assertEquals(405, status("GET", "/convert/batch"));
+        assertEquals(405, status("POST", "/statistics"));
+        HttpURLConnection connection = open("POST", "/isValid?unit=m");
+        assertEquals("GET", connection.getHeaderField("Allow"));
+        connection.disconnect();
+    }
+
+    @Test
+    void rejectOverload() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        UcumLBKService blocking = new UcumLBKService() {
+            @Override
+            public boolean isValid(String source){
+                if (source.equals("s")){
+                    started.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.isValid(source);
+            }
+        };
+        UcumHttpServer small = new UcumHttpServer(blocking, new InetSocketAddress("127.0.0.1", 0), 1, 0, 16);
+        small.start();
+        ExecutorService client = Executors.newSingleThreadExecutor();
+        try {
+            String base = "http://127.0.0.1:" + small.getAddress().getPort();
+            HttpURLConnection large = connect(base + "/convert/batch", "POST");
+            large.setDoOutput(true);
+            try (OutputStream output = large.getOutputStream()) {
+                output.write("m\tm\t1\nm\tm\t2\nm\tm\t3\n".getBytes(StandardCharsets.UTF_8));
+            }
+            assertEquals(413, large.getResponseCode());
+            large.disconnect();
+
+            //A request whose handler blocks occupies the only thread once the worker is back from the last one
+            Future<Integer> pending = client.submit(() -> {
+                int status;
+                do {
+                    HttpURLConnection connection = connect(base + "/isValid?unit=s", "GET");
+                    status = connection.getResponseCode();
+                    connection.disconnect();
+                } while (status == 503);
+                return status;
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            HttpURLConnection rejected = connect(base + "/isValid?unit=m", "GET");
+            assertEquals(503, rejected.getResponseCode());
+            assertEquals("1", rejected.getHeaderField("Retry-After"));
+            rejected.disconnect();
+
+            release.countDown();
+            assertEquals(200, pending.get(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            client.shutdownNow();
+            small.stop(0);
+        }
+    }
+
+    private static HttpURLConnection connect(String url, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(10000);
+        connection.setReadTimeout(10000);
+        return connection;
+    }
+
+    private HttpURLConnection open(String method, String path) throws IOException {
+        return connect("http://127.0.0.1:" + server.getAddress().getPort() + path, method);
+    }
+
+    private int status(String path) throws IOException {
+        return status("GET", path);
+    }
+
+    private int status(String method, String path) throws IOException {
+        HttpURLConnection connection = open(method, path);
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+
+    private String request(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = open(method, path);
+        if (body != null){
+            connection.setDoOutput(true);
+            try (OutputStream output = connection.getOutputStream()) {
+                output.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        try (InputStream input = connection.getInputStream()) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = input.read(buffer)) != -1){
+                response.write(buffer, 0, read);
+            }
+        }
+        return new String(response.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
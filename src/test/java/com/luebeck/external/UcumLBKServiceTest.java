@@ -1,6 +1,20 @@
 package com.luebeck.external;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -623,6 +637,67 @@ class UcumLBKServiceTest {
         assertEquals("15.10^-1", e.convertNumberToUcum(1.5d));
         assertEquals("15", e.convertNumberToUcum(15.0000000));
         assertEquals("15", e.convertNumberToUcum(15));
+        assertEquals("5.10^-2", e.convertNumberToUcum(0.05));
+        assertEquals("0", e.convertNumberToUcum(0));
+        assertEquals("1.10^7", e.convertNumberToUcum(1e7));
+        assertEquals("12345678", e.convertNumberToUcum(12345678));
+        assertEquals("30000000000000004.10^-17", e.convertNumberToUcum(0.1 + 0.2));
+        assertEquals("15.10^-31", e.convertNumberToUcum(1.5e-30));
+        assertEquals("1.10^300", e.convertNumberToUcum(1e300));
+        assertEquals("8345.10^20", e.convertNumberToUcum(8.345E23));
+        assertEquals("74041.10^20", e.convertNumberToUcum(7.4041E24));
+        assertEquals("1.10^23", e.convertNumberToUcum(1e23));
+        assertEquals(null, e.convertNumberToUcum(Double.NaN));
+        assertEquals(null, e.convertNumberToUcum(Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    void convertNumberToUcumAppendable() throws Exception {
+        StringBuilder output = new StringBuilder("value: ");
+        assertEquals(true, e.convertNumberToUcum(1.05, output));
+        assertEquals(false, e.convertNumberToUcum(-1.05, output));
+        assertEquals("value: 105.10^-2", output.toString());
+    }
+
+    @Test
+    void convertUcumToNumber() {
+        assertEquals(1.5, e.convertUcumToNumber("15.10^-1"));
+        assertEquals(1.5, e.convertUcumToNumber("15.10*-1"));
+        assertEquals(1.5e8, e.convertUcumToNumber("15.10^7"));
+        assertEquals(1.5e8, e.convertUcumToNumber("15.10^+7"));
+        assertEquals(1000, e.convertUcumToNumber("10*3"));
+        assertEquals(1000, e.convertUcumToNumber("10^3"));
+        assertEquals(10, e.convertUcumToNumber("10"));
+        assertEquals(50, e.convertUcumToNumber("50"));
+        assertEquals(1e300, e.convertUcumToNumber("1.10^300"));
+        assertEquals(0.1 + 0.2, e.convertUcumToNumber("30000000000000004.10^-17"));
+        assertTrue(Double.isNaN(e.convertUcumToNumber("15.10^")));
+        assertTrue(Double.isNaN(e.convertUcumToNumber("15.1^2")));
+        assertTrue(Double.isNaN(e.convertUcumToNumber("1.5")));
+        assertTrue(Double.isNaN(e.convertUcumToNumber("mg")));
+        assertTrue(Double.isNaN(e.convertUcumToNumber("")));
+        assertTrue(Double.isNaN(e.convertUcumToNumber(null)));
+    }
+
+    @Test
+    void convertNumberToUcumRoundTrip() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            double quantity = i % 2 == 0 ? Math.abs(Double.longBitsToDouble(random.nextLong())) :
+                    Math.round(random.nextDouble() * 1e6) / 1e3;
+            if (Double.isNaN(quantity) || Double.isInfinite(quantity)){
+                continue;
+            }
+            String expression = e.convertNumberToUcum(quantity);
+            assertEquals(quantity, e.convertUcumToNumber(expression), expression);
+            String shortest = new BigDecimal(Double.toString(quantity)).stripTrailingZeros().unscaledValue()
+                    .toString();
+            assertTrue(expression.split("\\.")[0].replaceAll("0+$", "").length() <= shortest.length(),
+                    expression);
+            if (i % 2 == 1){
+                assertTrue(expression.length() <= 12, expression);
+            }
+        }
     }
 
     @Test
@@ -635,11 +710,385 @@ class UcumLBKServiceTest {
         assertEquals("m-1.s.g, 1.0", e.generateCanonizedForm("g.s/m"));
     }
 
+    @Test
+    void generateDisplayName() throws Exception {
+        assertEquals("[meter]", e.generateDisplayName("m"));
+        assertEquals("[milligram] / [deciliter]", e.generateDisplayName("mg/dL"));
+        assertEquals("[kilogram] * [meter] / [second ^ 2]", e.generateDisplayName("kg.m/s2"));
+        assertEquals("([milligram]) / ([deciliter])", e.generateDisplayName("(mg)/(dL)"));
+        assertEquals("[gram of {total}] / [deciliter]", e.generateDisplayName("g{total}/dL"));
+        assertEquals("[4] * [second] / [meter]", e.generateDisplayName("4.s/m"));
+        assertEquals("[millimeter of mercury column]", e.generateDisplayName("mm[Hg]"));
+        assertEquals(null, e.generateDisplayName("mg/dL/"));
+
+        StringBuilder output = new StringBuilder("unit: ");
+        assertEquals(true, e.appendDisplayName("m2.kg-1", output));
+        assertEquals(false, e.appendDisplayName("foo", output));
+        assertEquals("unit: [meter ^ 2] * [kilogram ^ -1]", output.toString());
+        //The display name rendered into the builder is cached without the text before it
+        assertEquals("[meter ^ 2] * [kilogram ^ -1]", e.generateDisplayName("m2.kg-1"));
+        StringWriter writer = new StringWriter();
+        assertEquals(true, e.appendDisplayName("cm3.s-2", writer));
+        assertEquals(true, e.appendDisplayName("cm3.s-2", writer));
+        assertEquals("[centimeter ^ 3] * [second ^ -2][centimeter ^ 3] * [second ^ -2]", writer.toString());
+    }
+
+    @Test
+    void findCommensurableUnits() {
+        List<String> pressures = e.findCommensurableUnits("mm[Hg]", false);
+        assertEquals(Arrays.asList("Pa", "bar", "atm", "m[H2O]", "m[Hg]", "[in_i'H2O]", "[in_i'Hg]", "att", "[psi]"),
+                pressures);
+        assertEquals(pressures, e.findCommensurableUnits("N/m2", false));
+        assertEquals(pressures, e.findCommensurableUnits(new int[]{-1, -2, 1, 0, 0, 0, 0}, false));
+        assertTrue(e.findCommensurableUnits("J", false).containsAll(Arrays.asList("J", "eV", "cal", "[Btu]")));
+        assertTrue(e.findCommensurableUnits("/min", false).containsAll(Arrays.asList("Hz", "Bq")));
+        assertEquals(Arrays.asList("g%"), e.findCommensurableUnits("mg/dL", false));
+        assertEquals(Collections.emptyList(), e.findCommensurableUnits("mmol/L", false));
+
+        List<String> lengths = e.findCommensurableUnits("[ft_i]", true);
+        assertTrue(lengths.containsAll(Arrays.asList("m", "km", "mm", "um", "[in_i]", "[mi_i]")));
+        assertFalse(e.findCommensurableUnits("[ft_i]", false).contains("km"));
+        assertFalse(e.findCommensurableUnits("[ft_i]", true).contains("m[in_i]"));
+        assertFalse(e.findCommensurableUnits("d", true).contains("cd"));
+        for (String length : lengths) {
+            assertTrue(e.isCommensurable(length, "m"), length);
+        }
+
+        assertEquals(null, e.findCommensurableUnits("[IU]", false));
+        assertEquals(null, e.findCommensurableUnits(new int[]{1, 2}, false));
+    }
+
+    @Test
+    void searchUnits() {
+        List<UnitSearchMatch> meters = e.searchUnits("m", 3);
+        assertEquals(3, meters.size());
+        assertEquals("m", meters.get(0).getCode());
+        assertFalse(meters.get(0).isPrefix());
+        assertEquals("m", meters.get(1).getCode());
+        assertTrue(meters.get(1).isPrefix());
+        assertEquals("M", meters.get(2).getCode());
+
+        assertEquals("Pa", e.searchUnits("pa", 1).get(0).getCode());
+        assertEquals("PAL", e.searchUnits("PAL", 1).get(0).getCapitalCode());
+        assertEquals("k", e.searchUnits("kilo", 1).get(0).getCode());
+        assertEquals("u", e.searchUnits("\u03bc", 1).get(0).getCode());
+        assertEquals("Cel", e.searchUnits("\u00b0C", 1).get(0).getCode());
+        //Every name is indexed, not only the first one
+        assertEquals("gon", e.searchUnits("grade", 1).get(0).getCode());
+        assertEquals(Arrays.asList("gon", "grade"), e.searchUnits("grade", 1).get(0).getNames());
+
+        List<String> mercury = new java.util.ArrayList<>();
+        for (UnitSearchMatch match : e.searchUnits("mercury", 10)) {
+            mercury.add(match.getCode());
+        }
+        //Within a tier shorter terms rank first: inch of mercury column before meter of mercury column
+        assertEquals(Arrays.asList("[in_i'Hg]", "m[Hg]"), mercury);
+        assertEquals("[in_i]", e.searchUnits("inch", 10).get(0).getCode());
+        assertEquals(10, e.searchUnits("inch", 10).size());
+        assertSame(e.searchUnits("inch", 1).get(0), e.searchUnits("[in_i]", 1).get(0));
+
+        assertEquals(Collections.emptyList(), e.searchUnits("  ", 10));
+        assertEquals(Collections.emptyList(), e.searchUnits("xyzzy", 10));
+        assertEquals(Collections.emptyList(), e.searchUnits("m", 0));
+        assertEquals(null, e.searchUnits(null, 10));
+    }
+
+    @Test
+    void suggestCorrections() {
+        //Missing square brackets and changes of case count as half an edit
+        assertEquals("mm[Hg]", e.suggestCorrections("mmHg", 5).get(0));
+        assertEquals("cm[H2O]", e.suggestCorrections("cmH2O", 5).get(0));
+        assertEquals("meq/l", e.suggestCorrections("mEq/l", 5).get(0));
+        assertEquals("mL/min", e.suggestCorrections("mL/mins", 5).get(0));
+        //Every unknown atom is replaced, exponents and annotations are kept
+        assertEquals("kg/meq", e.suggestCorrections("Kg/mEq", 5).get(0));
+        assertEquals("kg2{dry}", e.suggestCorrections("Kg2{dry}", 5).get(0));
+        for (String suggestion : e.suggestCorrections("mmHg", 10)) {
+            assertTrue(e.isValid(suggestion));
+        }
+        assertEquals(2, e.suggestCorrections("mmHg", 2).size());
+
+        //mg/dl is valid UCUM since l is a code of the liter
+        assertEquals(Collections.singletonList("mg/dl"), e.suggestCorrections("mg/dl", 5));
+        assertTrue(e.suggestCorrections("xyzzy", 5).isEmpty());
+        assertTrue(e.suggestCorrections("m//s", 5).isEmpty());
+        assertTrue(e.suggestCorrections("{a", 5).isEmpty());
+        assertTrue(e.suggestCorrections("mmHg", 0).isEmpty());
+        assertNull(e.suggestCorrections(null, 5));
+        assertNull(e.suggestCorrections("mmHg", -1));
+    }
+
+    @Test
+    void transcode() {
+        assertEquals("MG/DL", e.toCapitalForm("mg/dL"));
+        assertEquals("UG{total}/ML", e.toCapitalForm("ug{total}/mL"));
+        assertEquals("M2.S-1", e.toCapitalForm("m2.s-1"));
+        assertEquals("10*3/UL", e.toCapitalForm("10*3/uL"));
+        assertEquals("KPAL", e.toCapitalForm("kPa"));
+        assertEquals("MM[HG]", e.toCapitalForm("mm[Hg]"));
+        assertEquals("/HR", e.toCapitalForm("/h"));
+        //MG is megagauss as a case-sensitive symbol
+        assertEquals("MAGS", e.toCapitalForm("MG"));
+        assertNull(e.toCapitalForm("mg/"));
+
+        //Capital expressions such as MG/DL are rejected as mixed case unless they are transcoded first
+        assertFalse(e.isValid("MG/DL"));
+        assertEquals("mg/dL", e.toCaseSensitiveForm("MG/DL"));
+        assertEquals("mg", e.toCaseSensitiveForm("MG"));
+        assertEquals("Mg", e.toCaseSensitiveForm("MAG"));
+        assertEquals("ug{total}/mL", e.toCaseSensitiveForm("UG{total}/ML"));
+        assertEquals("cd", e.toCaseSensitiveForm("CD"));
+        assertEquals("[in_i]", e.toCaseSensitiveForm("[IN_I]"));
+        assertEquals("L", e.toCaseSensitiveForm("L"));
+        assertNull(e.toCaseSensitiveForm("mg"));
+        assertNull(e.toCaseSensitiveForm("MG/"));
+        assertNull(e.toCaseSensitiveForm(null));
+
+        for (String unit : new String[]{"kPa.s-1", "mm[Hg]", "Cel", "[iU]/mL", "mol/(kg.h)"}) {
+            assertEquals(unit.equals("[iU]/mL") ? "[IU]/mL" : unit,
+                    e.toCaseSensitiveForm(e.toCapitalForm(unit)));
+        }
+    }
+
+    @Test
+    void simplifyUnits() {
+        assertEquals("J", e.simplifyUnits("N.m"));
+        assertEquals("kJ", e.simplifyUnits("kN.m"));
+        assertEquals("mJ", e.simplifyUnits(e.multiplyUnits("N", 1, "m", 1)));
+        assertEquals("N", e.simplifyUnits("kg.m/s2"));
+        assertEquals("Pa", e.simplifyUnits("N/m2"));
+        assertEquals("W", e.simplifyUnits("J/s"));
+        assertEquals("V", e.simplifyUnits("kg.m2/s3/A"));
+        assertEquals("Hz", e.simplifyUnits("/s"));
+        assertEquals("L", e.simplifyUnits("dm3"));
+        assertEquals("mL", e.simplifyUnits("cm3"));
+        assertEquals("m3", e.simplifyUnits("m3"));
+        assertEquals("J.s", e.simplifyUnits("N.m.s"));
+        assertEquals("m/s2", e.simplifyUnits("m.s-2"));
+        assertEquals("g/L", e.simplifyUnits("kg/m3"));
+        assertEquals("kg.m2", e.simplifyUnits("g.m2.10*3"));
+        assertEquals("mg/dL", e.simplifyUnits("mg/dL"));
+        assertEquals("km/h", e.simplifyUnits("km/h"));
+        assertEquals("[in_i]", e.simplifyUnits("[in_i]"));
+        assertEquals("mol/L", e.simplifyUnits("mol/L"));
+        //Results that read worse than the base unit term are not returned
+        assertEquals("m6", e.simplifyUnits("m6"));
+        assertEquals("m.s-1.g", e.simplifyUnits("m.s-1.g"));
+        assertEquals("m3/s", e.simplifyUnits("m3/s"));
+        assertEquals("m/s", e.simplifyUnits("m/s"));
+        assertEquals(null, e.simplifyUnits("Cel"));
+        assertEquals(null, e.simplifyUnits("m/"));
+        for (String source : Arrays.asList("N.m", "kN.m", "cm3", "kg/m3", "g.m2.10*3", "N.m.s")) {
+            assertEquals(1.0, e.convert(source, e.simplifyUnits(source), 1), 1e-9, source);
+        }
+    }
+
+    @Test
+    void selectReadableUnit() {
+        UcumQuantity micrograms = e.selectReadableUnit("g", 0.000012);
+        assertEquals("ug", micrograms.getUnit());
+        assertEquals(12.0, micrograms.getValue(), 1e-9);
+        assertEquals("kg", e.selectReadableUnit("g", 1500).getUnit());
+        assertEquals(1.5, e.selectReadableUnit("g", 1500).getValue(), 1e-9);
+        assertEquals(UcumQuantity.of(250, "mg"), e.selectReadableUnit("mg", 250));
+        assertEquals("mg", e.selectReadableUnit("ug", -2500).getUnit());
+        assertEquals(-2.5, e.selectReadableUnit("ug", -2500).getValue(), 1e-9);
+        assertEquals("mg", e.selectReadableUnit("UG", 12000).getUnit());
+        assertEquals("km2", e.selectReadableUnit("m2", 2500000).getUnit());
+        assertEquals(2.5, e.selectReadableUnit("m2", 2500000).getValue(), 1e-9);
+        assertEquals("nmol{total}", e.selectReadableUnit("mmol{total}", 0.0004).getUnit());
+        assertEquals("ms", e.selectReadableUnit("s", 0.25).getUnit());
+        assertEquals("ym", e.selectReadableUnit("m", 1e-30).getUnit());
+        //The logarithm of values just below a power of ten rounds up to it
+        assertEquals(UcumQuantity.of(999.9999999999999, "g"), e.selectReadableUnit("g", 999.9999999999999));
+        for (double value : new double[]{Math.nextDown(1e6), Math.nextDown(1e-3), Math.nextDown(1e-6)}) {
+            double readable = e.selectReadableUnit("g", value).getValue();
+            assertTrue(readable >= 1 && readable < 1000, value + " g is selected as " + readable);
+        }
+        assertEquals(UcumQuantity.of(0, "mg"), e.selectReadableUnit("mg", 0));
+        assertEquals(UcumQuantity.of(5000, "[in_i]"), e.selectReadableUnit("[in_i]", 5000));
+        assertEquals(UcumQuantity.of(5000, "mg/dL"), e.selectReadableUnit("mg/dL", 5000));
+        //Pa would be read as pascal rather than peta-annum
+        assertEquals("a", e.selectReadableUnit("a", 1e15).getUnit());
+        assertEquals(null, e.selectReadableUnit("Cel", 5));
+        assertEquals(null, e.selectReadableUnit("g", Double.NaN));
+
+        ReadableUnitSelector selector = new ReadableUnitSelector(e, "kg", "g", "mg", "[in_i]", "[ft_i]", "[mi_i]",
+                "Cel", "foo");
+        assertEquals("kg", selector.select("g", 1500).getUnit());
+        assertEquals(200.0, selector.select("g", 0.2).getValue(), 1e-9);
+        assertEquals("mg", selector.select("ug", 3).getUnit());
+        assertEquals("[ft_i]", selector.select("m", 2).getUnit());
+        assertEquals("[mi_i]", selector.select("km", 5).getUnit());
+        assertEquals(UcumQuantity.of(0, "m"), selector.select("m", 0));
+        assertEquals("ms", selector.select("s", 0.02).getUnit());
+        assertEquals(null, selector.select("Cel", 20));
+    }
+
+    @Test
+    void generateCanonicalForm() {
+        CanonicalForm form = e.generateCanonicalForm("3600.min");
+        assertEquals("s, 216000.0", form.toString());
+        assertEquals(216000.0, form.getMagnitude());
+        assertArrayEquals(new int[]{0, 1, 0, 0, 0, 0, 0}, form.getCanonVector());
+        assertEquals("s, 216000.0", form.appendTo(new StringBuilder()).toString());
+        assertEquals("key: m-1.s.g", e.generateCanonicalForm("g.s/m").appendBaseUnits(
+                new StringBuilder("key: ")).toString());
+        assertEquals(-1, e.generateCanonicalForm("g.s/m").getExponent(0));
+        assertEquals(e.generateCanonicalForm("m3/m2"), e.generateCanonicalForm("m"));
+        assertEquals(e.generateCanonicalForm("m3/m2").hashCode(), e.generateCanonicalForm("m").hashCode());
+        assertNotEquals(e.generateCanonicalForm("mm"), e.generateCanonicalForm("m"));
+        assertTrue(e.generateCanonicalForm("mm").isCommensurable(e.generateCanonicalForm("km")));
+        assertEquals(0, e.generateCanonicalForm("%").getDimensions());
+        assertEquals("1, 0.01", e.generateCanonicalForm("%").toString());
+        assertEquals(form, CanonicalForm.of(form.getDimensions(), form.getMagnitude()));
+        assertEquals(null, e.generateCanonicalForm("[IU]"));
+        assertEquals(null, e.generateCanonicalForm("m300"));
+
+        CanonicalForm product = e.generateCanonicalProduct("N", 2, "m", 3);
+        assertEquals("m2.s-2.g", product.appendBaseUnits(new StringBuilder()).toString());
+        assertEquals(6000.0, product.getMagnitude(), 1e-9);
+        assertEquals(e.multiplyUnits("N", 2, "m", 3), product.appendBaseUnits(new StringBuilder()).toString());
+
+        CanonicalForm quotient = e.generateCanonicalQuotient("km", 10, "h", 2);
+        assertEquals("m.s-1", quotient.appendBaseUnits(new StringBuilder()).toString());
+        assertEquals(5000.0 / 3600, quotient.getMagnitude(), 1e-12);
+        assertEquals(e.divideUnits("km", 10, "h", 2), quotient.appendBaseUnits(new StringBuilder()).toString());
+        assertEquals(e.generateCanonicalForm("km/h").scale(5), quotient);
+        assertEquals(null, e.generateCanonicalQuotient("Cel", 37, "h", 1));
+        assertEquals(null, e.generateCanonicalQuotient("m", 1, "[pH]", 1));
+        assertEquals(null, e.generateCanonicalProduct("Cel", 37, "h", 1));
+    }
+
     @Test
     void convert() {
         assertEquals(6.3, e.convert("m", "m", 6.3));
         assertEquals(0.0063, e.convert("mm", "m", 6.3));
         assertEquals(25.2, e.convert("4.s/m", "s/m", 6.30));
         assertEquals(133322000, e.convert("m[Hg]", "g.s-2.m-1", 1));
+
+        //Unit values are raised to their exponent like prefixes are
+        assertEquals(1 / 3.6, e.convert("km/h", "m/s", 1), 1e-15);
+        assertEquals(6.4516, e.convert("[in_i]2", "cm2", 1), 1e-12);
+        assertEquals(1 / 3600.0, e.convert("/h", "/s", 1), 1e-18);
+        assertEquals(3600, e.convert("/s", "/h", 1), 1e-9);
+        assertEquals(1e-6, e.convert("mm2", "m2", 1), 1e-21);
+    }
+
+    @Test
+    void generateCanonicalKey() {
+        assertEquals("mg/dL", e.generateCanonicalKey("mg/dL", true));
+        assertEquals("mg/dL", e.generateCanonicalKey("mg.dL-1", true));
+        assertEquals("mg/dL", e.generateCanonicalKey("(mg)/(dL)", true));
+        assertEquals("mg/dL", e.generateCanonicalKey("/dL.mg", true));
+        assertEquals("mg/dL", e.generateCanonicalKey("mg{total}/dL", true));
+        assertEquals("mg.{total}/dL", e.generateCanonicalKey("mg{total}/dL", false));
+        assertEquals("min2", e.generateCanonicalKey("MIN.MIN", true));
+        assertEquals("min2", e.generateCanonicalKey("min.min", true));
+        assertEquals("m", e.generateCanonicalKey("m3/m2", true));
+        assertEquals("g/m/s2", e.generateCanonicalKey("g.s-2.m-1", true));
+        assertEquals("g/m/s", e.generateCanonicalKey("g/(m.s)", true));
+        assertEquals("g.s/m", e.generateCanonicalKey("g/(m/s)", true));
+        assertEquals("1000/ul", e.generateCanonicalKey("10+3/ul", true));
+        assertEquals("1", e.generateCanonicalKey("{e}", true));
+        assertEquals("1", e.generateCanonicalKey("m/m", true));
+        assertEquals("cm[H2O]/[CCID_50]", e.generateCanonicalKey("cm[H2O]/[CCID_50]", true));
+        assertEquals("cm[H2O]/min", e.generateCanonicalKey("CM[H2O]/MIN", true));
+        assertEquals(null, e.generateCanonicalKey("m/", true));
+    }
+
+    @Test
+    void capitalPrefixedUnits() {
+        //The case-sensitive counterparts GL, GF, EV and GB would be read as other units
+        assertEquals(null, e.generateCanonicalKey("GAL", true));
+        assertEquals(1e9, e.convert("GAL", "L", 1).doubleValue(), 1e-3);
+        assertEquals(true, e.isCommensurable("GAL", "m3"));
+        assertEquals(false, e.isCommensurable("GL", "m3"));
+        assertEquals(1e9, e.convert("GAF", "F", 1).doubleValue(), 1e-3);
+        assertEquals(1e18, e.convert("EXV", "V", 1).doubleValue(), 1e3);
+        assertEquals(e.generateCanonicalForm("MIN"), e.generateCanonicalForm("min"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void metrics() {
+        HistogramUcumMetrics metrics = new HistogramUcumMetrics();
+        UcumLBKService service = new UcumLBKService(metrics);
+
+        assertEquals(0.0063, service.convert("mm", "m", 6.3));
+        assertEquals(0.0063, service.convert("mm", "m", 6.3));
+        assertEquals(null, service.convert("mm", "[IU]", 6.3));
+        assertEquals(false, service.isValid("m/"));
+        assertEquals(false, service.isValid("foo"));
+        assertEquals(null, service.convertNumberToUcum(-1));
+
+        assertEquals(3, metrics.getCalls(UcumOperation.CONVERT));
+        assertEquals(1, metrics.getFailures(UcumOperation.CONVERT));
+        assertEquals(2, metrics.getEvaluationLatency(UcumOperation.CONVERT).getCount());
+        assertTrue(metrics.getLatency(UcumOperation.CONVERT).getValueAtPercentile(50) > 0);
+        assertEquals(2, metrics.getCalls(UcumOperation.IS_VALID));
+        assertEquals(2, metrics.getFailures(UcumOperation.IS_VALID));
+        assertEquals(0, metrics.getEvaluationLatency(UcumOperation.IS_VALID).getCount());
+        assertEquals(Map.of("invalid syntax", 1L, "unknown unit", 1L),
+                metrics.getValidationFailures(UcumOperation.IS_VALID));
+        assertEquals(Map.of("arbitrary unit", 1L), metrics.getValidationFailures(UcumOperation.CONVERT));
+        assertNull(service.generateCanonicalKey("GAL", true));
+        assertEquals(1, metrics.getFailures(UcumOperation.GENERATE_CANONICAL_KEY));
+        assertEquals(Map.of("no canonical key", 1L),
+                metrics.getValidationFailures(UcumOperation.GENERATE_CANONICAL_KEY));
+        assertEquals(5, service.convertUcumToNumber("5"));
+        assertEquals(1, metrics.getEvaluationLatency(UcumOperation.CONVERT_UCUM_TO_NUMBER).getCount());
+        assertEquals(1L, metrics.getValidationFailures().get("arbitrary unit"));
+        assertEquals(1L, metrics.getValidationFailures().get("invalid syntax"));
+        assertEquals(1L, metrics.getValidationFailures().get("unknown unit"));
+        assertEquals(1L, metrics.getValidationFailures().get("negative quantity"));
+        assertTrue(metrics.getCacheHits().get("traversal") >= 2);
+    }
+
+    @Test
+    void latencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500500, histogram.getMean(), 1e-9);
+        assertEquals(500000, histogram.getValueAtPercentile(50), 500000 * 0.04);
+        assertEquals(990000, histogram.getValueAtPercentile(99), 990000 * 0.04);
+        assertEquals(1000000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void flightRecorderEvents(@TempDir Path directory) throws Exception {
+        UcumLBKService service = new UcumLBKService();
+        Path dump = directory.resolve("ucum.jfr");
+        //Cached results emit no parse events, so the caches filled by other tests are emptied first
+        service.clearCaches();
+
+        try (Recording recording = new Recording()) {
+            recording.enable("com.luebeck.ucum.Parse").withThreshold(Duration.ZERO);
+            recording.enable("com.luebeck.ucum.Check").withThreshold(Duration.ZERO);
+            recording.enable("com.luebeck.ucum.Traversal").withThreshold(Duration.ZERO);
+            recording.enable("com.luebeck.ucum.Cache").withThreshold(Duration.ZERO);
+            recording.start();
+            assertEquals(false, service.isValid("kg/m/"));
+            assertEquals(1000.0, service.convert("kg/(s.m2)", "g/(s.m2)", 1));
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("com.luebeck.ucum.Check")
+                && event.getString("check").equals("validity") && event.getString("input").equals("kg/m/")
+                && event.getString("outcome").equals("invalid syntax") && event.getInt("inputLength") == 5));
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("com.luebeck.ucum.Parse")
+                && event.getString("phase").equals("tokenize") && event.getString("input").equals("kg/(s.m2)")
+                && event.getInt("tokenCount") == 7 && event.getString("outcome").equals("success")));
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("com.luebeck.ucum.Cache")
+                && event.getString("cache").equals("canonicalKey") && event.getString("input").equals("kg/(s.m2)")));
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName()
+                .equals("com.luebeck.ucum.Traversal") && event.getInt("nodeCount") > 0));
+    }
+
+}
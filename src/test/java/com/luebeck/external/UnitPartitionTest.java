@@ -0,0 +1,81 @@
+package com.luebeck.external;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnitPartitionTest {
+
+    UcumLBKService e = new UcumLBKService();
+
+    @Test
+    void partition() {
+        UnitPartition partition = UnitPartition.of(e,
+                Arrays.asList("mg/dL", "s", "g/L", "foo", "min", "mg/dL", null, "Cel", "%", "{count}"), 1);
+        assertEquals(3, partition.getClasses().size());
+        assertEquals(Arrays.asList("foo", "Cel"), partition.getRejected());
+
+        CommensurabilityClass concentration = partition.getClasses().get(0);
+        assertEquals("m-3.g", concentration.getCanonicalUnit());
+        assertEquals(Arrays.asList("mg/dL", "g/L"), new ArrayList<>(concentration.getFactors().keySet()));
+        assertEquals(10, concentration.getFactor("mg/dL"), 1e-12);
+        assertEquals(1000, concentration.getFactor("g/L"), 1e-12);
+        assertNull(concentration.getFactor("s"));
+
+        assertSame(partition.classOf("s"), partition.classOf("min"));
+        assertEquals("s", partition.classOf("min").getCanonicalUnit());
+        assertEquals(60, partition.classOf("min").getFactor("min"), 1e-12);
+        assertEquals("1", partition.classOf("%").getCanonicalUnit());
+        assertSame(partition.classOf("%"), partition.classOf("{count}"));
+        assertNull(partition.classOf("foo"));
+    }
+
+    @Test
+    void partitionCapitalSpellingsInAnyOrder() {
+        //Capital spellings share the cached traversal of their case-sensitive key, so they are checked from both sides
+        for (List<String> units : Arrays.asList(Arrays.asList("M", "m", "km", "CD", "cd"),
+                Arrays.asList("m", "km", "M", "cd", "CD"))) {
+            e.clearCaches();
+            UnitPartition partition = UnitPartition.of(e, units, 1);
+            assertEquals(2, partition.getClasses().size());
+            assertEquals("m", partition.classOf("M").getCanonicalUnit());
+            assertSame(partition.classOf("m"), partition.classOf("M"));
+            assertSame(partition.classOf("m"), partition.classOf("km"));
+            assertEquals("cd", partition.classOf("CD").getCanonicalUnit());
+            assertSame(partition.classOf("cd"), partition.classOf("CD"));
+            assertFalse(e.isCommensurable("m", "1"));
+            assertTrue(e.isCommensurable("M", "m"));
+        }
+    }
+
+    @Test
+    void partitionInParallel() {
+        String[] prefixes = {"", "k", "m", "u", "n", "p", "d", "c"};
+        String[] units = {"g", "L", "s", "m", "mol", "g/L", "mol/L", "m/s", "g.m", "eq/L"};
+        List<String> all = new ArrayList<>();
+        for (int repetition = 0; repetition < 5; repetition++) {
+            for (String prefix : prefixes) {
+                for (String unit : units) {
+                    for (int exponent = 1; exponent <= 10; exponent++) {
+                        all.add(prefix + unit + "/" + prefix + "s" + exponent);
+                    }
+                }
+            }
+        }
+
+        UnitPartition sequential = UnitPartition.of(e, all, 1);
+        UnitPartition parallel = UnitPartition.of(e, all, 4);
+        assertEquals(sequential.getClasses().size(), parallel.getClasses().size());
+        assertTrue(parallel.getRejected().isEmpty());
+        for (int i = 0; i < sequential.getClasses().size(); i++) {
+            assertEquals(sequential.getClasses().get(i).getCanonicalUnit(),
+                    parallel.getClasses().get(i).getCanonicalUnit());
+            assertEquals(sequential.getClasses().get(i).getFactors(), parallel.getClasses().get(i).getFactors());
+        }
+    }
+
+}